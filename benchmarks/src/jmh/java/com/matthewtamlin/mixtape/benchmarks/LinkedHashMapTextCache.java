@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.benchmarks;
+
+import java.util.LinkedHashMap;
+
+/**
+ * A text cache which mirrors the implementation of the support library LruCache: a synchronized,
+ * access-ordered LinkedHashMap with boxed keys. The support library cannot run outside of Android,
+ * so this class serves as the baseline for benchmarking the primitive caches.
+ */
+public class LinkedHashMapTextCache {
+	/**
+	 * Holds the entries in access order, least recently used first.
+	 */
+	private final LinkedHashMap<Long, CharSequence> map;
+
+	/**
+	 * The maximum number of entries.
+	 */
+	private final int capacity;
+
+	/**
+	 * Constructs a new LinkedHashMapTextCache.
+	 *
+	 * @param capacity
+	 * 		the maximum number of entries
+	 */
+	public LinkedHashMapTextCache(final int capacity) {
+		this.capacity = capacity;
+		this.map = new LinkedHashMap<>(0, 0.75f, true);
+	}
+
+	public synchronized CharSequence get(final long key) {
+		return map.get(key);
+	}
+
+	public synchronized void put(final long key, final CharSequence value) {
+		map.put(key, value);
+
+		// LruCache trims after every put by removing the eldest entries
+		while (map.size() > capacity) {
+			final Long eldest = map.keySet().iterator().next();
+			map.remove(eldest);
+		}
+	}
+}
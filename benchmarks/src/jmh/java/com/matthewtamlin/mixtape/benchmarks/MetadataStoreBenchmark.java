@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.benchmarks;
+
+import com.matthewtamlin.mixtape.library.data.MetadataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MetadataStore} against an object per song, for a library where artist and
+ * album names repeat as they would when read from the tags of each file. The benchmarks measure
+ * the time taken to build each representation, and the retained size of each representation is
+ * measured once per trial and printed with the results.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class MetadataStoreBenchmark {
+	/**
+	 * The number of songs in the library.
+	 */
+	@Param({"10000", "100000"})
+	public int songCount;
+
+	@Benchmark
+	public List<SongObject> objectPerSong() {
+		return buildObjectPerSong();
+	}
+
+	@Benchmark
+	public MetadataStore metadataStore() {
+		return buildMetadataStore();
+	}
+
+	/**
+	 * Prints the retained size of each representation. The sizes are computed by walking the
+	 * object graphs, so they are exact and don't depend on the garbage collector.
+	 */
+	@TearDown(Level.Trial)
+	public void reportRetainedSize() {
+		final long objectGraphBytes = GraphLayout.parseInstance(buildObjectPerSong()).totalSize();
+		final long storeBytes = GraphLayout.parseInstance(buildMetadataStore()).totalSize();
+
+		System.out.println();
+		System.out.println("Retained size of " + songCount + " songs: object per song " +
+				objectGraphBytes / 1024 + " KiB, metadata store " + storeBytes / 1024 + " KiB");
+	}
+
+	private List<SongObject> buildObjectPerSong() {
+		final List<SongObject> songs = new ArrayList<>(songCount);
+
+		for (int i = 0; i < songCount; i++) {
+			songs.add(new SongObject(i, title(i), artist(i), album(i), artist(i), i % 12, 1,
+					2000 + i % 20));
+		}
+
+		return songs;
+	}
+
+	private MetadataStore buildMetadataStore() {
+		final MetadataStore store = new MetadataStore();
+
+		for (int i = 0; i < songCount; i++) {
+			store.addRow(i, title(i), artist(i), album(i), artist(i), i % 12, 1, 2000 + i % 20);
+		}
+
+		store.trimToSize();
+
+		return store;
+	}
+
+	/**
+	 * Creates a unique title, as a new string.
+	 */
+	private static String title(final int index) {
+		return "Song title number " + index;
+	}
+
+	/**
+	 * Creates an artist name which is shared by many songs, as a new string.
+	 */
+	private static String artist(final int index) {
+		return "Artist name " + index / 200;
+	}
+
+	/**
+	 * Creates an album name which is shared by a few songs, as a new string.
+	 */
+	private static String album(final int index) {
+		return "Album name " + index / 12;
+	}
+
+	/**
+	 * Stores the metadata of a song as an object, as a per-song LibraryItem would.
+	 */
+	@SuppressWarnings("unused") // The fields only exist to occupy memory
+	public static class SongObject {
+		private final long id;
+
+		private final String title;
+
+		private final String artist;
+
+		private final String album;
+
+		private final String albumArtist;
+
+		private final int trackNumber;
+
+		private final int discNumber;
+
+		private final int year;
+
+		public SongObject(final long id, final String title, final String artist,
+				final String album, final String albumArtist, final int trackNumber,
+				final int discNumber, final int year) {
+			this.id = id;
+			this.title = title;
+			this.artist = artist;
+			this.album = album;
+			this.albumArtist = albumArtist;
+			this.trackNumber = trackNumber;
+			this.discNumber = discNumber;
+			this.year = year;
+		}
+	}
+}
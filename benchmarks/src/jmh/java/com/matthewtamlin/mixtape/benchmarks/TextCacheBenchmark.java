@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.benchmarks;
+
+import com.matthewtamlin.mixtape.library.caching.LongKeyTextCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of {@link LongKeyTextCache} against a baseline which mirrors the support
+ * library LruCache. Each cache is measured when every lookup hits, and under a mixed workload
+ * where the working set is twice the capacity so that eviction occurs continuously. Both
+ * workloads are measured from one thread and from four threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TextCacheBenchmark {
+	/**
+	 * The number of keys in each pregenerated key sequence. Must be a power of two.
+	 */
+	private static final int SEQUENCE_LENGTH = 1 << 16;
+
+	/**
+	 * The maximum number of entries in each cache.
+	 */
+	@Param({"1000", "10000"})
+	public int capacity;
+
+	private LongKeyTextCache longKeyCache;
+
+	private LinkedHashMapTextCache baselineCache;
+
+	/**
+	 * Keys which are all present in the caches.
+	 */
+	private long[] hitKeys;
+
+	/**
+	 * Keys drawn from a working set twice the size of the caches.
+	 */
+	private long[] mixedKeys;
+
+	/**
+	 * The value stored for every key. Sharing one value keeps allocation out of the measurements.
+	 */
+	private final CharSequence value = "Title";
+
+	@Setup
+	public void setup() {
+		longKeyCache = new LongKeyTextCache(capacity);
+		baselineCache = new LinkedHashMapTextCache(capacity);
+
+		// Item IDs are hashes, so random keys are representative
+		final Random random = new Random(0);
+		final long[] ids = new long[capacity * 2];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = random.nextLong() & Long.MAX_VALUE;
+		}
+
+		for (int i = 0; i < capacity; i++) {
+			longKeyCache.put(ids[i], value);
+			baselineCache.put(ids[i], value);
+		}
+
+		hitKeys = new long[SEQUENCE_LENGTH];
+		mixedKeys = new long[SEQUENCE_LENGTH];
+
+		for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+			hitKeys[i] = ids[random.nextInt(capacity)];
+			mixedKeys[i] = ids[random.nextInt(ids.length)];
+		}
+	}
+
+	/**
+	 * The position of a thread in the key sequences.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int position;
+
+		public int next() {
+			position = (position + 1) & (SEQUENCE_LENGTH - 1);
+			return position;
+		}
+	}
+
+	@Benchmark
+	public CharSequence longKeyCache_hit(final Cursor cursor) {
+		return longKeyCache.get(hitKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	public CharSequence baseline_hit(final Cursor cursor) {
+		return baselineCache.get(hitKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	public CharSequence longKeyCache_mixed(final Cursor cursor) {
+		return mixed(longKeyCache, mixedKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	public CharSequence baseline_mixed(final Cursor cursor) {
+		return mixed(baselineCache, mixedKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public CharSequence longKeyCache_hit_4Threads(final Cursor cursor) {
+		return longKeyCache.get(hitKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public CharSequence baseline_hit_4Threads(final Cursor cursor) {
+		return baselineCache.get(hitKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public CharSequence longKeyCache_mixed_4Threads(final Cursor cursor) {
+		return mixed(longKeyCache, mixedKeys[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public CharSequence baseline_mixed_4Threads(final Cursor cursor) {
+		return mixed(baselineCache, mixedKeys[cursor.next()]);
+	}
+
+	/**
+	 * Performs a lookup in the supplied cache, and caches the value on a miss, as the data binders
+	 * do.
+	 */
+	private CharSequence mixed(final LongKeyTextCache cache, final long key) {
+		final CharSequence cached = cache.get(key);
+
+		if (cached == null) {
+			cache.put(key, value);
+			return value;
+		}
+
+		return cached;
+	}
+
+	/**
+	 * Performs a lookup in the supplied cache, and caches the value on a miss, as the data binders
+	 * do.
+	 */
+	private CharSequence mixed(final LinkedHashMapTextCache cache, final long key) {
+		final CharSequence cached = cache.get(key);
+
+		if (cached == null) {
+			cache.put(key, value);
+			return value;
+		}
+
+		return cached;
+	}
+}
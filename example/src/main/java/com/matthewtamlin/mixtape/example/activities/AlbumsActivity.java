@@ -21,20 +21,34 @@ import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Environment;
 import android.support.design.widget.Snackbar;
-import android.support.v4.util.LruCache;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.view.MenuItem;
 
 import com.matthewtamlin.mixtape.example.R;
 import com.matthewtamlin.mixtape.example.data.Mp3Album;
 import com.matthewtamlin.mixtape.example.data.Mp3AlbumDataSource;
+import com.matthewtamlin.mixtape.example.util.IoScheduler;
 import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.caching.CachePrewarmer;
+import com.matthewtamlin.mixtape.library.caching.CompressedArtworkTier;
+import com.matthewtamlin.mixtape.library.caching.DrawableWeigher;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.Batch;
+import com.matthewtamlin.mixtape.library.caching.LongKeyTextCache;
+import com.matthewtamlin.mixtape.library.caching.SharedArtworkPool;
+import com.matthewtamlin.mixtape.library.caching.ThumbnailAtlas;
+import com.matthewtamlin.mixtape.library.caching.ThumbnailAtlasBuilder;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.ImmutableDisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
 import com.matthewtamlin.mixtape.library.databinders.ArtworkBinder;
+import com.matthewtamlin.mixtape.library.databinders.FrameResultDispatcher;
 import com.matthewtamlin.mixtape.library.databinders.SubtitleBinder;
 import com.matthewtamlin.mixtape.library.databinders.TitleBinder;
 import com.matthewtamlin.mixtape.library.mixtape_body.BodyView;
@@ -43,12 +57,17 @@ import com.matthewtamlin.mixtape.library.mixtape_body.GridBody;
 import com.matthewtamlin.mixtape.library.mixtape_body.RecyclerBodyView;
 import com.matthewtamlin.mixtape.library.mixtape_container.CoordinatedMixtapeContainer;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import timber.log.Timber;
 
+import static android.os.Environment.getExternalStoragePublicDirectory;
+
 public class AlbumsActivity extends AppCompatActivity {
 	private GridBody body;
 
@@ -56,11 +75,25 @@ public class AlbumsActivity extends AppCompatActivity {
 
 	private Mp3AlbumDataSource dataSource;
 
-	private LruCache<LibraryItem, CharSequence> titleCache;
+	private File musicDirectory;
+
+	private LongKeyTextCache titleCache;
+
+	private LongKeyTextCache subtitleCache;
+
+	private TinyLfuItemCache<Drawable> artworkCache;
+
+	private SharedArtworkPool artworkPool;
+
+	private CompressedArtworkTier artworkTier;
+
+	private ThumbnailAtlas thumbnailAtlas;
 
-	private LruCache<LibraryItem, CharSequence> subtitleCache;
+	private ExecutorService atlasExecutor;
 
-	private LruCache<LibraryItem, Drawable> artworkCache;
+	private volatile ThumbnailAtlasBuilder<Mp3Album> atlasBuilder;
+
+	private CachePrewarmer<Mp3Album> prewarmer;
 
 	@Override
 	protected void onCreate(final Bundle savedInstanceState) {
@@ -69,52 +102,132 @@ public class AlbumsActivity extends AppCompatActivity {
 
 		setupDataSource();
 		setupCaches();
-		precacheText();
+		openThumbnailAtlas();
+		buildThumbnailAtlas();
 
 		setupView();
 		setupPresenter();
+
+		prewarmer.start();
+	}
+
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		prewarmer.cancel();
+
+		// Close the atlas once any build has stopped, then let the executor thread finish
+		atlasExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					thumbnailAtlas.close();
+				} catch (final IOException e) {
+					Timber.w(e, "The thumbnail atlas could not be closed.");
+				}
+			}
+		});
+
+		atlasExecutor.shutdown();
+
+		final ThumbnailAtlasBuilder<Mp3Album> builder = atlasBuilder;
+
+		if (builder != null) {
+			builder.cancel();
+		}
 	}
 
 	private void setupDataSource() {
 		dataSource = new Mp3AlbumDataSource(getResources());
+		musicDirectory = getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC);
 	}
 
 	private void setupCaches() {
 		// Titles and subtitles are small enough to stay cached, so use a very high max size
-		titleCache = new LruCache<>(10000);
-		subtitleCache = new LruCache<>(10000);
+		titleCache = new LongKeyTextCache(10000);
+		subtitleCache = new LongKeyTextCache(10000);
+
+		// Weigh artwork by bitmap byte count, and keep frequently viewed albums through flings
+		artworkCache = new TinyLfuItemCache<>(50000000, 500, new DrawableWeigher());
+
+		// Albums often share covers, so decode each distinct cover once and share the bitmap
+		artworkPool = new SharedArtworkPool();
+		artworkCache.setRemovalListener(artworkPool);
+
+		// Keep compressed covers off-heap so that evicted artwork is not read from the files again
+		artworkTier = new CompressedArtworkTier(8000000);
+
+		// Pack every cover into a single file so that covers can be read without opening each MP3
+		thumbnailAtlas = new ThumbnailAtlas(new File(getCacheDir(), "album_thumbnails.atlas"), 160,
+				160);
 
-		// Every artwork item will be a BitmapDrawable, so use the bitmap byte count for sizing
-		artworkCache = new LruCache<LibraryItem, Drawable>(50000000) {
+		// Open, build and close the atlas in order on one thread owned by this activity
+		atlasExecutor = Executors.newSingleThreadExecutor();
+	}
+
+	private void openThumbnailAtlas() {
+		// Map the thumbnails from the last session so they can be shown while the library loads
+		atlasExecutor.execute(new Runnable() {
 			@Override
-			protected int sizeOf(final LibraryItem key, final Drawable value) {
-				return ((BitmapDrawable) value).getBitmap().getByteCount();
+			public void run() {
+				try {
+					thumbnailAtlas.open();
+				} catch (final IOException e) {
+					Timber.w(e, "The thumbnail atlas could not be opened.");
+				}
 			}
-		};
+		});
 	}
 
-	private void precacheText() {
-		dataSource.loadData(true, new BaseDataSource.DataLoadedListener<List<Mp3Album>>() {
+	private void buildThumbnailAtlas() {
+		dataSource.loadData(false, new BaseDataSource.DataLoadedListener<List<Mp3Album>>() {
 			@Override
 			public void onDataLoaded(final BaseDataSource<List<Mp3Album>> source,
 					final List<Mp3Album> data) {
-				Executors.newSingleThreadExecutor().execute(new Runnable() {
+				// The activity may have been destroyed while the data was loading
+				if (atlasExecutor.isShutdown()) {
+					return;
+				}
+
+				atlasExecutor.execute(new Runnable() {
 					@Override
 					public void run() {
-						final Executor cacheExecutor = Executors.newCachedThreadPool();
-
-						for (final Mp3Album album : data) {
-							cacheExecutor.execute(new Runnable() {
-								@Override
-								public void run() {
-									try {
-										titleCache.put(album, album.getTitle());
-										subtitleCache.put(album, album.getSubtitle());
-									} catch (final LibraryReadException e) {
-										Timber.w("A library item could not be pre-cached.", e);
+						// Render covers in file order so that the MP3s are read sequentially
+						final List<Mp3Album> sortedData = LocalityScheduler.sortByLocation(data,
+								Mp3Album.LOCATION_RESOLVER);
+
+						final ThumbnailAtlasBuilder<Mp3Album> builder = new ThumbnailAtlasBuilder<>(
+								thumbnailAtlas, sortedData);
+
+						// Render covers again when their songs have been retagged
+						builder.setFingerprintResolver(Mp3Album.FINGERPRINT_RESOLVER);
+
+						// Publish before checking, so that onDestroy can always cancel the build
+						atlasBuilder = builder;
+
+						if (atlasExecutor.isShutdown()) {
+							return;
+						}
+
+						// Read the covers on a lane of the music volume, sharing its limit with
+						// the scan and the prewarmer
+						final Batch batch = IoScheduler.getInstance().execute(musicDirectory,
+								new Runnable() {
+									@Override
+									public void run() {
+										try {
+											builder.build();
+										} catch (final IOException e) {
+											Timber.w(e, "The thumbnail atlas could not be built.");
+										}
 									}
-								}
-							});
+								});
+
+						// Wait for the build, so that the atlas is not closed while it is in use
+						try {
+							batch.await();
+						} catch (final InterruptedException e) {
+							Thread.currentThread().interrupt();
 						}
 					}
 				});
@@ -133,6 +246,9 @@ public class AlbumsActivity extends AppCompatActivity {
 		body = new GridBody(this);
 		body.setContextualMenuResource(R.menu.album_menu);
 
+		// Every item has an ID, so let the RecyclerView track items across list replacements
+		body.setStableIdsEnabled(true);
+
 		rootView = (CoordinatedMixtapeContainer) findViewById(R.id.example_layout_coordinator);
 		rootView.setBody(body);
 
@@ -144,9 +260,43 @@ public class AlbumsActivity extends AppCompatActivity {
 				"Unknown subtitle",
 				new BitmapDrawable(getResources(), defaultArtwork));
 
-		body.setTitleDataBinder(new TitleBinder(titleCache, defaults));
-		body.setSubtitleDataBinder(new SubtitleBinder(subtitleCache, defaults));
-		body.setArtworkDataBinder(new ArtworkBinder(artworkCache, defaults));
+		// Deliver results from all binders in per-frame batches so that flings end smoothly
+		final FrameResultDispatcher resultDispatcher = new FrameResultDispatcher();
+
+		final TitleBinder titleBinder = new TitleBinder(titleCache, defaults);
+		titleBinder.setResultDispatcher(resultDispatcher);
+		body.setTitleDataBinder(titleBinder);
+
+		final SubtitleBinder subtitleBinder = new SubtitleBinder(subtitleCache, defaults);
+		subtitleBinder.setResultDispatcher(resultDispatcher);
+		body.setSubtitleDataBinder(subtitleBinder);
+
+		final ArtworkBinder artworkBinder = new ArtworkBinder(artworkCache, defaults);
+		artworkBinder.setResultDispatcher(resultDispatcher);
+		artworkBinder.setArtworkPool(artworkPool);
+		artworkBinder.setCompressedTier(artworkTier);
+		artworkBinder.setThumbnailAtlas(thumbnailAtlas);
+		body.setArtworkDataBinder(artworkBinder);
+		body.setPinnedCache(artworkCache);
+		body.setClearArtworkOnDetach(true);
+
+		// Fill the text caches in the background, giving way whenever the visible cells are loading
+		// and sharing the lanes of the music volume with the scan and the atlas build
+		prewarmer = new CachePrewarmer<>(dataSource, Arrays.asList(titleBinder, subtitleBinder),
+				IoScheduler.getInstance().getVolumeExecutor(musicDirectory));
+
+		// Prewarm outwards from the top of the screen, so the items about to be shown warm first
+		body.getRecyclerView().addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(final RecyclerView recyclerView, final int dx, final int dy) {
+				final int firstVisiblePosition = ((LinearLayoutManager) recyclerView
+						.getLayoutManager()).findFirstVisibleItemPosition();
+
+				if (firstVisiblePosition != RecyclerView.NO_POSITION) {
+					prewarmer.setFocusPosition(firstVisiblePosition);
+				}
+			}
+		});
 
 		body.addLibraryItemSelectedListener(
 				new BodyView.LibraryItemSelectedListener() {
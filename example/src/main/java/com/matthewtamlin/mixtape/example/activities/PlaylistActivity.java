@@ -23,9 +23,12 @@ import android.graphics.Color;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Environment;
 import android.support.design.widget.Snackbar;
 import android.support.v4.util.LruCache;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
 import android.view.MenuItem;
 
@@ -33,12 +36,19 @@ import com.matthewtamlin.mixtape.example.R;
 import com.matthewtamlin.mixtape.example.data.HeaderDataSource;
 import com.matthewtamlin.mixtape.example.data.Mp3Song;
 import com.matthewtamlin.mixtape.example.data.Mp3SongDataSource;
-import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.example.util.IoScheduler;
+import com.matthewtamlin.mixtape.library.caching.CachePrewarmer;
+import com.matthewtamlin.mixtape.library.caching.CompressedArtworkTier;
+import com.matthewtamlin.mixtape.library.caching.DrawableWeigher;
+import com.matthewtamlin.mixtape.library.caching.LongKeyTextCache;
+import com.matthewtamlin.mixtape.library.caching.SharedArtworkPool;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.ImmutableDisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
 import com.matthewtamlin.mixtape.library.databinders.ArtworkBinder;
+import com.matthewtamlin.mixtape.library.databinders.FrameResultDispatcher;
 import com.matthewtamlin.mixtape.library.databinders.SubtitleBinder;
 import com.matthewtamlin.mixtape.library.databinders.TitleBinder;
 import com.matthewtamlin.mixtape.library.mixtape_body.BodyView;
@@ -49,11 +59,10 @@ import com.matthewtamlin.mixtape.library.mixtape_container.CoordinatedMixtapeCon
 import com.matthewtamlin.mixtape.library.mixtape_header.DirectHeaderPresenter;
 import com.matthewtamlin.mixtape.library.mixtape_header.ToolbarHeader;
 
-import java.util.List;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.io.File;
+import java.util.Arrays;
 
-import timber.log.Timber;
+import static android.os.Environment.getExternalStoragePublicDirectory;
 
 public class PlaylistActivity extends AppCompatActivity {
 	private CoordinatedMixtapeContainer rootView;
@@ -68,11 +77,15 @@ public class PlaylistActivity extends AppCompatActivity {
 
 	private DirectHeaderPresenter<LibraryItem, HeaderDataSource, ToolbarHeader> headerPresenter;
 
-	private LruCache<LibraryItem, CharSequence> bodyTitleCache;
+	private LongKeyTextCache bodyTitleCache;
 
-	private LruCache<LibraryItem, CharSequence> bodySubtitleCache;
+	private LongKeyTextCache bodySubtitleCache;
 
-	private LruCache<LibraryItem, Drawable> bodyArtworkCache;
+	private TinyLfuItemCache<Drawable> bodyArtworkCache;
+
+	private SharedArtworkPool bodyArtworkPool;
+
+	private CompressedArtworkTier bodyArtworkTier;
 
 	private LruCache<LibraryItem, CharSequence> headerTitleCache;
 
@@ -80,6 +93,8 @@ public class PlaylistActivity extends AppCompatActivity {
 
 	private LruCache<LibraryItem, Drawable> headerArtworkCache;
 
+	private CachePrewarmer<Mp3Song> bodyPrewarmer;
+
 	@Override
 	protected void onCreate(final Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -87,7 +102,6 @@ public class PlaylistActivity extends AppCompatActivity {
 
 		setupDataSources();
 		setupCaches();
-		precacheText();
 
 		setupHeaderView();
 		setupBodyView();
@@ -95,6 +109,14 @@ public class PlaylistActivity extends AppCompatActivity {
 
 		setupHeaderPresenter();
 		setupBodyPresenter();
+
+		bodyPrewarmer.start();
+	}
+
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		bodyPrewarmer.cancel();
 	}
 
 	private void setupDataSources() {
@@ -109,16 +131,18 @@ public class PlaylistActivity extends AppCompatActivity {
 
 	private void setupCaches() {
 		// Titles and subtitles are small enough to stay cached, so use a very high max size
-		bodyTitleCache = new LruCache<>(10000);
-		bodySubtitleCache = new LruCache<>(10000);
+		bodyTitleCache = new LongKeyTextCache(10000);
+		bodySubtitleCache = new LongKeyTextCache(10000);
 
-		// Every artwork item will be a BitmapDrawable, so use the bitmap byte count for sizing
-		bodyArtworkCache = new LruCache<LibraryItem, Drawable>(1000000) {
-			@Override
-			protected int sizeOf(final LibraryItem key, final Drawable value) {
-				return ((BitmapDrawable) value).getBitmap().getByteCount();
-			}
-		};
+		// Weigh artwork by bitmap byte count
+		bodyArtworkCache = new TinyLfuItemCache<>(1000000, 50, new DrawableWeigher());
+
+		// Songs on the same album share a cover, so decode each distinct cover once
+		bodyArtworkPool = new SharedArtworkPool();
+		bodyArtworkCache.setRemovalListener(bodyArtworkPool);
+
+		// Keep compressed covers off-heap so that evicted artwork is not read from the files again
+		bodyArtworkTier = new CompressedArtworkTier(8000000);
 
 		// Header cache will only contain one item
 		headerTitleCache = new LruCache<>(2);
@@ -126,40 +150,6 @@ public class PlaylistActivity extends AppCompatActivity {
 		headerArtworkCache = new LruCache<>(2);
 	}
 
-	private void precacheText() {
-		bodyDataSource.loadData(true, new BaseDataSource.DataLoadedListener<List<Mp3Song>>() {
-			@Override
-			public void onDataLoaded(final BaseDataSource<List<Mp3Song>> source,
-					final List<Mp3Song> data) {
-				Executors.newSingleThreadExecutor().execute(new Runnable() {
-					@Override
-					public void run() {
-						final Executor cacheExecutor = Executors.newCachedThreadPool();
-
-						for (final Mp3Song song : data) {
-							cacheExecutor.execute(new Runnable() {
-								@Override
-								public void run() {
-									try {
-										bodyTitleCache.put(song, song.getTitle());
-										bodySubtitleCache.put(song, song.getSubtitle());
-									} catch (final LibraryReadException e) {
-										Timber.w("A library item could not be pre-cached.", e);
-									}
-								}
-							});
-						}
-					}
-				});
-			}
-
-			@Override
-			public void onLoadDataFailed(final BaseDataSource<List<Mp3Song>> source) {
-				// Do nothing
-			}
-		});
-	}
-
 	private void setupHeaderView() {
 		final Toolbar toolbar = new Toolbar(this);
 		getMenuInflater().inflate(R.menu.header_menu, toolbar.getMenu());
@@ -190,15 +180,52 @@ public class PlaylistActivity extends AppCompatActivity {
 		body = new ListBody(this);
 		body.setContextualMenuResource(R.menu.song_menu);
 
+		// Every item has an ID, so let the RecyclerView track items across list replacements
+		body.setStableIdsEnabled(true);
+
 		final Bitmap defaultArtwork = BitmapFactory.decodeResource(getResources(), R.raw
 				.default_artwork);
 		final DisplayableDefaults defaults = new ImmutableDisplayableDefaults("Unknown title",
 				"Unknown artist",
 				new BitmapDrawable(getResources(), defaultArtwork));
 
-		body.setTitleDataBinder(new TitleBinder(bodyTitleCache, defaults));
-		body.setSubtitleDataBinder(new SubtitleBinder(bodySubtitleCache, defaults));
-		body.setArtworkDataBinder(new ArtworkBinder(bodyArtworkCache, defaults));
+		// Deliver results from all binders in per-frame batches so that flings end smoothly
+		final FrameResultDispatcher resultDispatcher = new FrameResultDispatcher();
+
+		final TitleBinder bodyTitleBinder = new TitleBinder(bodyTitleCache, defaults);
+		bodyTitleBinder.setResultDispatcher(resultDispatcher);
+		body.setTitleDataBinder(bodyTitleBinder);
+
+		final SubtitleBinder bodySubtitleBinder = new SubtitleBinder(bodySubtitleCache, defaults);
+		bodySubtitleBinder.setResultDispatcher(resultDispatcher);
+		body.setSubtitleDataBinder(bodySubtitleBinder);
+
+		final ArtworkBinder bodyArtworkBinder = new ArtworkBinder(bodyArtworkCache, defaults);
+		bodyArtworkBinder.setResultDispatcher(resultDispatcher);
+		bodyArtworkBinder.setArtworkPool(bodyArtworkPool);
+		bodyArtworkBinder.setCompressedTier(bodyArtworkTier);
+		body.setArtworkDataBinder(bodyArtworkBinder);
+
+		// Fill the text caches in the background, giving way whenever the visible rows are loading
+		// and sharing the lanes of the music volume with the other bulk reads
+		final File musicDirectory = getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC);
+
+		bodyPrewarmer = new CachePrewarmer<>(bodyDataSource,
+				Arrays.asList(bodyTitleBinder, bodySubtitleBinder),
+				IoScheduler.getInstance().getVolumeExecutor(musicDirectory));
+
+		// Prewarm outwards from the top of the screen, so the items about to be shown warm first
+		body.getRecyclerView().addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(final RecyclerView recyclerView, final int dx, final int dy) {
+				final int firstVisiblePosition = ((LinearLayoutManager) recyclerView
+						.getLayoutManager()).findFirstVisibleItemPosition();
+
+				if (firstVisiblePosition != RecyclerView.NO_POSITION) {
+					bodyPrewarmer.setFocusPosition(firstVisiblePosition);
+				}
+			}
+		});
 
 		body.addLibraryItemSelectedListener(
 				new BodyView.LibraryItemSelectedListener() {
@@ -20,16 +20,50 @@ import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
 
 import com.matthewtamlin.mixtape.example.util.Id3Util;
-import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.LocationResolver;
+import com.matthewtamlin.mixtape.library.caching.ThumbnailAtlasBuilder.FingerprintResolver;
+import com.matthewtamlin.mixtape.library.data.EncodedArtworkItem;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 
 import static com.matthewtamlin.mixtape.example.util.Id3Util.MetadataField.ALBUM;
 import static com.matthewtamlin.mixtape.example.util.Id3Util.MetadataField.ALBUM_ARTIST;
 
-public class Mp3Album extends ArrayList<Mp3Song> implements LibraryItem {
+public class Mp3Album extends ArrayList<Mp3Song> implements IdentifiableLibraryItem,
+		EncodedArtworkItem {
+	// Reading the metadata or artwork of an album reads its first song
+	public static final LocationResolver<Mp3Album> LOCATION_RESOLVER =
+			new LocationResolver<Mp3Album>() {
+				@Override
+				public File getLocation(final Mp3Album album) {
+					return album.isEmpty() ? null : album.get(0).getMp3File();
+				}
+			};
+
+	// Retagging a song with new artwork changes the modification time of its file
+	public static final FingerprintResolver<Mp3Album> FINGERPRINT_RESOLVER =
+			new FingerprintResolver<Mp3Album>() {
+				@Override
+				public long getFingerprint(final Mp3Album album) {
+					return album.isEmpty() ? 0 : album.get(0).getMp3File().lastModified();
+				}
+			};
+
+	private final long id;
+
+	public Mp3Album(final long id) {
+		this.id = id;
+	}
+
+	@Override
+	public long getItemId() {
+		return id;
+	}
+
 	@Override
 	public CharSequence getTitle() throws LibraryReadException {
 		if (isEmpty()) {
@@ -78,4 +112,9 @@ public class Mp3Album extends ArrayList<Mp3Song> implements LibraryItem {
 			}
 		}
 	}
+
+	@Override
+	public byte[] getEncodedArtwork() throws LibraryReadException {
+		return isEmpty() ? null : get(0).getEncodedArtwork();
+	}
 }
\ No newline at end of file
@@ -20,9 +20,17 @@ import android.content.res.Resources;
 import android.os.AsyncTask;
 import android.os.Environment;
 
-import com.matthewtamlin.java_utilities.file.FileFinder;
 import com.matthewtamlin.mixtape.example.util.Id3Util;
-import com.matthewtamlin.mixtape.library.data.ListDataSourceHelper;
+import com.matthewtamlin.mixtape.example.util.IoScheduler;
+import com.matthewtamlin.mixtape.example.util.MediaFileScanner;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.Batch;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.ItemTask;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.LocationResolver;
+import com.matthewtamlin.mixtape.library.data.IndexedListDataSourceHelper;
+import com.matthewtamlin.mixtape.library.data.MainThreadExecutor;
+import com.matthewtamlin.mixtape.library.data.SingleFlightLoader.LoadTask;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,92 +38,92 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import static android.os.Environment.getExternalStoragePublicDirectory;
 import static com.matthewtamlin.mixtape.example.util.Id3Util.MetadataField.ALBUM;
 
-public class Mp3AlbumDataSource extends ListDataSourceHelper<Mp3Album> {
+public class Mp3AlbumDataSource extends IndexedListDataSourceHelper<Mp3Album> {
+	private static final LocationResolver<File> FILE_RESOLVER = new LocationResolver<File>() {
+		@Override
+		public File getLocation(final File file) {
+			return file;
+		}
+	};
+
 	private final Resources resources;
 
-	private List<Mp3Album> albums = null;
+	private final MediaFileScanner scanner = new MediaFileScanner("mp3");
+
+	private volatile boolean loaded = false;
 
 	public Mp3AlbumDataSource(final Resources resources) {
 		this.resources = resources;
-	}
 
-	@Override
-	public void loadData(final boolean forceRefresh,
-			final DataLoadedListener<List<Mp3Album>> callback) {
-		final AsyncTask<Void, Void, Void> task = new AsyncTask<Void, Void, Void>() {
+		setLoadTask(new LoadTask<List<Mp3Album>>() {
 			@Override
-			protected Void doInBackground(final Void... params) {
-				if (albums == null || forceRefresh) {
-					final List<Mp3Song> songs = loadMp3SongsFromMusicDirectory();
-					albums = sortSongsByAlbum(songs);
+			public List<Mp3Album> load(final boolean forceRefresh) {
+				if (!loaded || forceRefresh) {
+					publishItems(loadMp3AlbumsFromMusicDirectory());
+					loaded = true;
 				}
 
-				return null;
-			}
-
-			@Override
-			protected void onPostExecute(final Void aVoid) {
-				if (callback != null) {
-					callback.onDataLoaded(Mp3AlbumDataSource.this, albums);
-				}
+				return getLatestSnapshot().getItems();
 			}
-		};
-
-		task.execute();
+		}, AsyncTask.THREAD_POOL_EXECUTOR, MainThreadExecutor.getInstance());
 	}
 
 	public void deleteItem(final Mp3Album item) {
-		if (albums.contains(item)) {
-			final int index = albums.indexOf(item);
-
-			albums.remove(item);
-
-			for (final ItemRemovedListener<Mp3Album> listener : getItemRemovedListeners()) {
-				listener.onDataRemoved(this, item, index);
-			}
-		}
+		removeItem(item);
 	}
 
-	private List<Mp3Song> loadMp3SongsFromMusicDirectory() {
-		final List<Mp3Song> mp3Songs = new ArrayList<>();
+	private List<Mp3Album> loadMp3AlbumsFromMusicDirectory() {
+		final Map<String, Mp3Album> albumMap = new HashMap<>();
 
 		final File musicDir = getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC);
 
-		final Set<File> filesInMusicDir = FileFinder.searchDownTreeFrom(musicDir);
-
-		for (final File file : filesInMusicDir) {
-			final String[] splitName = file.getName().split("\\.");
-
-			if (splitName[splitName.length - 1].toLowerCase().equals("mp3")) {
-				mp3Songs.add(new Mp3Song(file, resources));
-			}
+		// Read the tags in directory order on the shared lanes, so the volume isn't flooded
+		final Batch batch = IoScheduler.getInstance().schedule(scanner.scan(musicDir),
+				FILE_RESOLVER, new ItemTask<File>() {
+					@Override
+					public void run(final File file) {
+						try {
+							final String key = Id3Util.getMetadataFromId3Tag(file, ALBUM);
+							final Mp3Song song = new Mp3Song(file, resources);
+
+							synchronized (albumMap) {
+								if (!albumMap.containsKey(key)) {
+									albumMap.put(key, new Mp3Album(StableIdUtil.hash64(key)));
+								}
+
+								albumMap.get(key).add(song);
+							}
+						} catch (final IOException e) {
+							// In production, this should be logged as a warning/error
+						}
+					}
+				});
+
+		try {
+			batch.await();
+		} catch (final InterruptedException e) {
+			// Keep the current items rather than publishing a partial scan
+			batch.cancel();
+			Thread.currentThread().interrupt();
+
+			return new ArrayList<>(getLatestSnapshot().getItems());
 		}
 
-		return mp3Songs;
-	}
+		final List<Mp3Album> albums = new ArrayList<>(albumMap.values());
 
-	private List<Mp3Album> sortSongsByAlbum(final List<Mp3Song> songs) {
-		final Map<String, Mp3Album> albumMap = new HashMap<>();
-
-		for (final Mp3Song song : songs) {
-			try {
-				final String key = Id3Util.getMetadataFromId3Tag(song.getMp3File(), ALBUM);
+		// Songs are read in order later, so order them by location to keep reads sequential
+		for (final Mp3Album album : albums) {
+			final List<Mp3Song> sortedSongs = LocalityScheduler.sortByLocation(album,
+					Mp3Song.LOCATION_RESOLVER);
 
-				if (!albumMap.containsKey(key)) {
-					albumMap.put(key, new Mp3Album());
-				}
-
-				albumMap.get(key).add(song);
-			} catch (final IOException e) {
-				// In production, this should be logged as a warning/error
-			}
+			album.clear();
+			album.addAll(sortedSongs);
 		}
 
-		return new ArrayList<>(albumMap.values());
+		return albums;
 	}
-}
\ No newline at end of file
+}
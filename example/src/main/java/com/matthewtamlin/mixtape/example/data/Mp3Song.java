@@ -22,28 +22,47 @@ import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 
 import com.matthewtamlin.mixtape.example.util.Id3Util;
-import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.LocationResolver;
+import com.matthewtamlin.mixtape.library.data.EncodedArtworkItem;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
 
 import java.io.File;
 import java.io.IOException;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
-public class Mp3Song implements LibraryItem {
+public class Mp3Song implements IdentifiableLibraryItem, EncodedArtworkItem {
+	public static final LocationResolver<Mp3Song> LOCATION_RESOLVER =
+			new LocationResolver<Mp3Song>() {
+				@Override
+				public File getLocation(final Mp3Song song) {
+					return song.getMp3File();
+				}
+			};
+
 	private final Resources resources;
 
+	private final long id;
+
 	private File mp3File;
 
 	public Mp3Song(final File mp3File, final Resources resources) {
 		this.mp3File = checkNotNull(mp3File, "mp3File cannot be null.");
 		this.resources = checkNotNull(resources, "resources cannot be null.");
+		this.id = StableIdUtil.hash64(mp3File.getAbsolutePath());
 	}
 
 	public File getMp3File() {
 		return mp3File;
 	}
 
+	@Override
+	public long getItemId() {
+		return id;
+	}
+
 	@Override
 	public CharSequence getTitle() throws LibraryReadException {
 		try {
@@ -72,6 +91,15 @@ public class Mp3Song implements LibraryItem {
 		}
 	}
 
+	@Override
+	public byte[] getEncodedArtwork() throws LibraryReadException {
+		try {
+			return Id3Util.getEncodedCoverArtFromId3Tag(mp3File);
+		} catch (final IOException e) {
+			throw new LibraryReadException("Cannot read ID3 tag from file " + mp3File, e);
+		}
+	}
+
 	@Override
 	public boolean equals(final Object obj) {
 		if (obj == null) {
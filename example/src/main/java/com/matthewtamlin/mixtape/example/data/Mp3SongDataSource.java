@@ -20,77 +20,61 @@ import android.content.res.Resources;
 import android.os.AsyncTask;
 import android.os.Environment;
 
-import com.matthewtamlin.java_utilities.file.FileFinder;
-import com.matthewtamlin.mixtape.library.data.ListDataSourceHelper;
+import com.matthewtamlin.mixtape.example.util.MediaFileScanner;
+import com.matthewtamlin.mixtape.example.util.MediaFileScanner.FileFoundListener;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler;
+import com.matthewtamlin.mixtape.library.data.IndexedListDataSourceHelper;
+import com.matthewtamlin.mixtape.library.data.MainThreadExecutor;
+import com.matthewtamlin.mixtape.library.data.SingleFlightLoader.LoadTask;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import static android.os.Environment.getExternalStoragePublicDirectory;
 
-public class Mp3SongDataSource extends ListDataSourceHelper<Mp3Song> {
+public class Mp3SongDataSource extends IndexedListDataSourceHelper<Mp3Song> {
 	private final Resources resources;
 
-	private List<Mp3Song> songs = null;
+	private final MediaFileScanner scanner = new MediaFileScanner("mp3");
+
+	private volatile boolean loaded = false;
 
 	public Mp3SongDataSource(final Resources resources) {
 		this.resources = resources;
-	}
 
-	@Override
-	public void loadData(final boolean forceRefresh,
-			final DataLoadedListener<List<Mp3Song>> callback) {
-		final AsyncTask<Void, Void, Void> task = new AsyncTask<Void, Void, Void>() {
+		setLoadTask(new LoadTask<List<Mp3Song>>() {
 			@Override
-			protected Void doInBackground(final Void... params) {
-				if (songs == null || forceRefresh) {
-					songs = loadMp3SongsFromMusicDirectory();
+			public List<Mp3Song> load(final boolean forceRefresh) {
+				if (!loaded || forceRefresh) {
+					publishItems(loadMp3SongsFromMusicDirectory());
+					loaded = true;
 				}
 
-				return null;
+				return getLatestSnapshot().getItems();
 			}
-
-			@Override
-			protected void onPostExecute(final Void aVoid) {
-				if (callback != null) {
-					callback.onDataLoaded(Mp3SongDataSource.this, songs);
-				}
-			}
-		};
-
-		task.execute();
+		}, AsyncTask.THREAD_POOL_EXECUTOR, MainThreadExecutor.getInstance());
 	}
 
 	public void deleteItem(final Mp3Song item) {
-		if (songs.contains(item)) {
-			final int index = songs.indexOf(item);
-
-			songs.remove(item);
-
-			for (final ItemRemovedListener<Mp3Song> listener : getItemRemovedListeners()) {
-				listener.onDataRemoved(this, item, index);
-			}
-		}
+		removeItem(item);
 	}
 
 	private List<Mp3Song> loadMp3SongsFromMusicDirectory() {
-		final List<Mp3Song> mp3Songs = new ArrayList<>();
+		final List<Mp3Song> mp3Songs = Collections.synchronizedList(new ArrayList<Mp3Song>());
 
 		final File musicDir = getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC);
-		final Set<File> filesInMusicDir = FileFinder.searchDownTreeFrom(musicDir);
 
-		for (final File file : filesInMusicDir) {
-			final String[] splitName = file.getName().split("\\.");
-
-			if (splitName.length > 1) {
-				if (splitName[splitName.length - 1].toLowerCase().equals("mp3")) {
-					mp3Songs.add(new Mp3Song(file, resources));
-				}
+		// Songs are created as their directories are listed, rather than after the whole walk
+		scanner.scan(musicDir, new FileFoundListener() {
+			@Override
+			public void onFileFound(final File file) {
+				mp3Songs.add(new Mp3Song(file, resources));
 			}
-		}
+		});
 
-		return mp3Songs;
+		// Songs are read in order later, so order them by location to keep reads sequential
+		return LocalityScheduler.sortByLocation(mp3Songs, Mp3Song.LOCATION_RESOLVER);
 	}
 }
\ No newline at end of file
@@ -82,6 +82,25 @@ public abstract class Id3Util {
 		}
 	}
 
+	/**
+	 * Reads the encoded cover art stored in the ID3v2 tag of an MP3 file, without decoding it.
+	 *
+	 * @param file
+	 * 		the MP3 file to read from
+	 * @return the encoded cover art, null if none is found
+	 * @throws IllegalArgumentException
+	 * 		if an error occurs while accessing the ID3 tag
+	 */
+	public static byte[] getEncodedCoverArtFromId3Tag(final File file) throws IOException {
+		try {
+			final Tag tag = AudioFileIO.read(file).getTag();
+			final Artwork artwork = tag == null ? null : tag.getFirstArtwork();
+			return artwork == null ? null : artwork.getBinaryData();
+		} catch (final Exception e) {
+			throw new LibraryReadException("Cannot read ID3 tag from file " + file, e);
+		}
+	}
+
 	/**
 	 * Converts an image from an Artwork object to a Bitmap object. The supplied dimensions are used
 	 * to optimise the image so that memory usage is reduced without distortion or degradation. If
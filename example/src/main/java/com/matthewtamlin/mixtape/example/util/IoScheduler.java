@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.example.util;
+
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides the LocalityScheduler which all bulk I/O in the app runs through. Sharing a single
+ * scheduler means that scanning the library, building the thumbnail atlas and prewarming caches
+ * never read from a volume on more than
+ * {@link LocalityScheduler#DEFAULT_MAX_CONCURRENCY_PER_VOLUME} threads at once, even when they run
+ * at the same time.
+ */
+public abstract class IoScheduler {
+	/**
+	 * The shared scheduler. The per-volume limit keeps the number of busy threads small, and idle
+	 * threads are reclaimed by the pool.
+	 */
+	private static final LocalityScheduler INSTANCE = new LocalityScheduler(
+			Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "IoScheduler lane");
+					thread.setDaemon(true);
+
+					return thread;
+				}
+			}));
+
+	/**
+	 * @return the shared scheduler, not null
+	 */
+	public static LocalityScheduler getInstance() {
+		return INSTANCE;
+	}
+}
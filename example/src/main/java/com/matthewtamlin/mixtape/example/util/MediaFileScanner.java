@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.example.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Finds the media files in a directory tree. Files are filtered by extension while the tree is
+ * walked, so files of other types are never collected, and subdirectories are scanned in parallel
+ * using a fork/join pool. Matching files are delivered to the listener as soon as their directory
+ * has been listed. Hidden directories and directories containing a {@code .nomedia} file are
+ * skipped, and each directory is only visited once so that symbolic link cycles terminate.
+ */
+public class MediaFileScanner {
+	/**
+	 * The name of the file which marks a directory as excluded from media scans.
+	 */
+	private static final String NO_MEDIA_FILE_NAME = ".nomedia";
+
+	/**
+	 * The pool used by scanners which are not given a pool. The pool is shared so that creating
+	 * scanners doesn't create threads, and its idle threads are reclaimed by the pool itself.
+	 */
+	private static final ForkJoinPool SHARED_POOL = new ForkJoinPool();
+
+	/**
+	 * The pool to scan directories in.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The extensions of the files to find, without the leading dot.
+	 */
+	private final String[] extensions;
+
+	/**
+	 * Constructs a new MediaFileScanner which scans directories in a pool shared by all scanners.
+	 *
+	 * @param extensions
+	 * 		the extensions of the files to find without the leading dot, ignoring case, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code extensions} is null
+	 */
+	public MediaFileScanner(final String... extensions) {
+		this(SHARED_POOL, extensions);
+	}
+
+	/**
+	 * Constructs a new MediaFileScanner.
+	 *
+	 * @param pool
+	 * 		the pool to scan directories in, not null
+	 * @param extensions
+	 * 		the extensions of the files to find without the leading dot, ignoring case, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code pool} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code extensions} is null
+	 */
+	public MediaFileScanner(final ForkJoinPool pool, final String... extensions) {
+		this.pool = checkNotNull(pool, "pool cannot be null.");
+		this.extensions = checkNotNull(extensions, "extensions cannot be null.").clone();
+	}
+
+	/**
+	 * Scans a directory tree and blocks until the scan is complete. The listener is called from
+	 * the threads of the pool, possibly concurrently, so it must be thread safe.
+	 *
+	 * @param root
+	 * 		the root of the tree to scan, not null
+	 * @param listener
+	 * 		the listener to deliver matching files to, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code root} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code listener} is null
+	 */
+	public void scan(final File root, final FileFoundListener listener) {
+		checkNotNull(root, "root cannot be null.");
+		checkNotNull(listener, "listener cannot be null.");
+
+		final Set<String> visitedDirectories = Collections.newSetFromMap(
+				new ConcurrentHashMap<String, Boolean>());
+
+		pool.invoke(new ScanDirectoryTask(root, listener, visitedDirectories));
+	}
+
+	/**
+	 * Scans a directory tree and returns the matching files once the scan is complete.
+	 *
+	 * @param root
+	 * 		the root of the tree to scan, not null
+	 * @return the matching files, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code root} is null
+	 */
+	public List<File> scan(final File root) {
+		final List<File> files = Collections.synchronizedList(new ArrayList<File>());
+
+		scan(root, new FileFoundListener() {
+			@Override
+			public void onFileFound(final File file) {
+				files.add(file);
+			}
+		});
+
+		return files;
+	}
+
+	/**
+	 * Determines whether or not a file name ends with one of the extensions, without allocating.
+	 *
+	 * @param name
+	 * 		the file name to check, not null
+	 * @return true if the name has a matching extension, false otherwise
+	 */
+	private boolean hasMatchingExtension(final String name) {
+		final int dotIndex = name.lastIndexOf('.');
+
+		if (dotIndex == -1) {
+			return false;
+		}
+
+		final int extensionLength = name.length() - dotIndex - 1;
+
+		for (final String extension : extensions) {
+			if (extension.length() == extensionLength &&
+					name.regionMatches(true, dotIndex + 1, extension, 0, extensionLength)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Receives the files found by a MediaFileScanner.
+	 */
+	public interface FileFoundListener {
+		/**
+		 * Called when a matching file is found.
+		 *
+		 * @param file
+		 * 		the file, not null
+		 */
+		void onFileFound(File file);
+	}
+
+	/**
+	 * Lists a single directory, delivers its matching files, then scans its subdirectories in
+	 * parallel.
+	 */
+	private class ScanDirectoryTask extends RecursiveAction {
+		private final File directory;
+
+		private final FileFoundListener listener;
+
+		private final Set<String> visitedDirectories;
+
+		public ScanDirectoryTask(final File directory, final FileFoundListener listener,
+				final Set<String> visitedDirectories) {
+			this.directory = directory;
+			this.listener = listener;
+			this.visitedDirectories = visitedDirectories;
+		}
+
+		@Override
+		protected void compute() {
+			if (!markVisited()) {
+				return;
+			}
+
+			final File[] children = directory.listFiles();
+
+			if (children == null) {
+				return;
+			}
+
+			final List<File> matchingFiles = new ArrayList<>();
+			final List<ScanDirectoryTask> subdirectoryTasks = new ArrayList<>();
+
+			for (final File child : children) {
+				final String name = child.getName();
+
+				if (child.isDirectory()) {
+					if (!name.startsWith(".")) {
+						subdirectoryTasks.add(
+								new ScanDirectoryTask(child, listener, visitedDirectories));
+					}
+				} else if (name.equals(NO_MEDIA_FILE_NAME)) {
+					// The marker excludes the entire subtree, including files already matched
+					return;
+				} else if (hasMatchingExtension(name)) {
+					matchingFiles.add(child);
+				}
+			}
+
+			for (final File file : matchingFiles) {
+				listener.onFileFound(file);
+			}
+
+			invokeAll(subdirectoryTasks);
+		}
+
+		/**
+		 * Records that the directory has been visited, using its canonical path so that
+		 * directories reached through symbolic links are recognised.
+		 *
+		 * @return true if the directory had not been visited before, false otherwise
+		 */
+		private boolean markVisited() {
+			try {
+				return visitedDirectories.add(directory.getCanonicalPath());
+			} catch (final IOException e) {
+				// Without a canonical path a cycle cannot be detected, so skip the directory
+				return false;
+			}
+		}
+	}
+}
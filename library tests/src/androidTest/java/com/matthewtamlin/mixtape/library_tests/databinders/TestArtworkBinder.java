@@ -17,10 +17,12 @@
 package com.matthewtamlin.mixtape.library_tests.databinders;
 
 import android.graphics.drawable.Drawable;
+import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 import android.support.v4.util.LruCache;
 import android.widget.ImageView;
 
+import com.matthewtamlin.mixtape.library.caching.SharedArtworkPool;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
@@ -121,7 +123,8 @@ public class TestArtworkBinder {
 	 */
 	@Test(expected = IllegalArgumentException.class)
 	public void testConstructor_invalidArgs_nullCache() {
-		new ArtworkBinder(null, displayableDefaults);
+		new ArtworkBinder((LruCache<LibraryItem, Drawable>) null,
+				displayableDefaults);
 	}
 
 	/**
@@ -134,6 +137,15 @@ public class TestArtworkBinder {
 		new ArtworkBinder(cache, null);
 	}
 
+	/**
+	 * Test to verify that the correct exception is thrown when an artwork pool is set on a binder
+	 * which uses an LruCache. The test will only pass if an IllegalStateException is thrown.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testSetArtworkPool_lruCache() {
+		new ArtworkBinder(cache, displayableDefaults).setArtworkPool(new SharedArtworkPool());
+	}
+
 	/**
 	 * Test to verify that the {@link ArtworkBinder#ArtworkBinder(LruCache, DisplayableDefaults)}
 	 * constructor functions correctly when provided with valid arguments. The test will only pass
@@ -214,6 +226,31 @@ public class TestArtworkBinder {
 				is(cachedArtwork));
 	}
 
+	/**
+	 * Test to verify that cached artwork is faded in when {@link
+	 * ArtworkBinder#setFadeInCachedArtwork(boolean)} is enabled. The test will only pass if the
+	 * cached artwork is bound to the view while the view is made transparent for the fade.
+	 */
+	@Test
+	public void testBind_dataCached_fadeInCachedArtwork() {
+		final ArtworkBinder binder = new ArtworkBinder(cache, displayableDefaults);
+		binder.setFadeInCachedArtwork(true);
+		cache.put(libraryItem, cachedArtwork);
+
+		// Animators can only run on a looper thread
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				binder.bind(imageView, libraryItem);
+			}
+		});
+
+		waitForAsyncEventsToFinish();
+
+		verify(imageView).setAlpha(0f);
+		verify(imageView).setImageDrawable(cachedArtwork);
+	}
+
 	/**
 	 * Test to verify that the {@link ArtworkBinder#bind(ImageView, LibraryItem)} method functions
 	 * correctly when the cache does not contain artwork for the bound LibraryItem, and the
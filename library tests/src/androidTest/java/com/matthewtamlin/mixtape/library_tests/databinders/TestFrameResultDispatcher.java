@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.databinders;
+
+import android.os.Looper;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.mixtape.library.databinders.FrameResultDispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(AndroidJUnit4.class)
+public class TestFrameResultDispatcher {
+	/**
+	 * The maximum length of time to wait for results to be delivered, measured in milliseconds.
+	 */
+	private static final int TIMEOUT = 2000;
+
+	/**
+	 * The dispatcher under test.
+	 */
+	private FrameResultDispatcher dispatcher;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		dispatcher = new FrameResultDispatcher();
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code result} argument of
+	 * {@link FrameResultDispatcher#post(Runnable)} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPost_invalidArgs_nullResult() {
+		dispatcher.post(null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code frameBudgetMs} argument
+	 * of {@link FrameResultDispatcher#setFrameBudgetMs(int)} is zero. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetFrameBudgetMs_invalidArgs_zero() {
+		dispatcher.setFrameBudgetMs(0);
+	}
+
+	/**
+	 * Test to verify that results posted from a background thread are delivered on the main thread
+	 * in the order they were posted. The test will only pass if every result is delivered, in
+	 * order, on the main thread.
+	 */
+	@Test
+	public void testPost_deliversInOrderOnMainThread() throws InterruptedException {
+		final int resultCount = 50;
+		final List<Integer> delivered = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(resultCount);
+
+		final Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < resultCount; i++) {
+					final int result = i;
+
+					dispatcher.post(new Runnable() {
+						@Override
+						public void run() {
+							if (Looper.myLooper() == Looper.getMainLooper()) {
+								delivered.add(result);
+							}
+
+							latch.countDown();
+						}
+					});
+				}
+			}
+		});
+
+		producer.start();
+
+		assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+		assertThat(delivered.size(), is(resultCount));
+
+		for (int i = 0; i < resultCount; i++) {
+			assertThat(delivered.get(i), is(i));
+		}
+
+		assertThat(dispatcher.getPendingCount(), is(0));
+	}
+
+	/**
+	 * Test to verify that results which exceed the frame budget are carried over to later frames
+	 * rather than dropped. The test will only pass if every result is eventually delivered, even
+	 * though each result uses more than the whole budget.
+	 */
+	@Test
+	public void testPost_budgetExceeded_resultsCarriedOver() throws InterruptedException {
+		final int resultCount = 5;
+		final CountDownLatch latch = new CountDownLatch(resultCount);
+
+		dispatcher.setFrameBudgetMs(1);
+
+		for (int i = 0; i < resultCount; i++) {
+			dispatcher.post(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(2);
+					} catch (final InterruptedException e) {
+						throw new RuntimeException("wait interrupted, test aborted");
+					}
+
+					latch.countDown();
+				}
+			});
+		}
+
+		assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+	}
+}
@@ -111,7 +111,8 @@ public class TestSubtitleBinder {
 	 */
 	@Test(expected = IllegalArgumentException.class)
 	public void testConstructor_invalidArgs_nullCache() {
-		new SubtitleBinder(null, displayableDefaults);
+		new SubtitleBinder((LruCache<LibraryItem, CharSequence>) null,
+				displayableDefaults);
 	}
 
 	/**
@@ -107,7 +107,8 @@ public class TestTitleBinder {
 	 */
 	@Test(expected = IllegalArgumentException.class)
 	public void testConstructor_invalidArgs_nullCache() {
-		new TitleBinder(null, displayableDefaults);
+		new TitleBinder((LruCache<LibraryItem, CharSequence>) null,
+				displayableDefaults);
 	}
 
 	/**
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.mixtape_body;
+
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.util.LruCache;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.matthewtamlin.mixtape.library.caching.LongKeyTextCache;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache;
+import com.matthewtamlin.mixtape.library.caching.Weigher;
+import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.databinders.ArtworkBinder;
+import com.matthewtamlin.mixtape.library.databinders.SubtitleBinder;
+import com.matthewtamlin.mixtape.library.databinders.TitleBinder;
+import com.matthewtamlin.mixtape.library.mixtape_body.BodyViewHolder;
+import com.matthewtamlin.mixtape.library.mixtape_body.ListBody;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests which verify that binding cached items to existing view holders does not allocate, so
+ * that steady-state scrolling creates no garbage. The binders use the caches shipped with the
+ * library, and the items have IDs outside the range of cached Long instances, so that any boxing
+ * of IDs is counted. Also verifies that partial rebinds and style changes leave unchanged data
+ * alone.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestBindAllocations {
+	/**
+	 * The number of items in the body.
+	 */
+	private static final int ITEM_COUNT = 3;
+
+	/**
+	 * The ID of the first item. IDs from this value upwards are never served from the Long cache.
+	 */
+	private static final long FIRST_ID = 1000;
+
+	/**
+	 * The number of binds to count allocations over.
+	 */
+	private static final int BIND_COUNT = 300;
+
+	/**
+	 * Provides a themed context to create the body in.
+	 */
+	@Rule
+	public final ActivityTestRule<ListBodyTestHarness> rule =
+			new ActivityTestRule<>(ListBodyTestHarness.class);
+
+	/**
+	 * The body under test. Must only be accessed on the UI thread.
+	 */
+	private CountingListBody body;
+
+	/**
+	 * The adapter of the body under test. Must only be accessed on the UI thread.
+	 */
+	private RecyclerView.Adapter<BodyViewHolder> adapter;
+
+	/**
+	 * The cache used by the title binder, which wraps it in an LruItemCache. Must only be accessed
+	 * on the UI thread.
+	 */
+	private LruCache<LibraryItem, CharSequence> titleCache;
+
+	/**
+	 * The cache used by the artwork binder. Must only be accessed on the UI thread.
+	 */
+	private TinyLfuItemCache<Drawable> artworkCache;
+
+	/**
+	 * The items shown in the body. Must only be accessed on the UI thread.
+	 */
+	private List<LibraryItem> items;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() throws Throwable {
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public void run() {
+				body = new CountingListBody(rule.getActivity());
+
+				titleCache = new LruCache<>(ITEM_COUNT);
+				final LongKeyTextCache subtitleCache = new LongKeyTextCache(ITEM_COUNT);
+				artworkCache = new TinyLfuItemCache<>(ITEM_COUNT * 10, ITEM_COUNT,
+						new Weigher<Drawable>() {
+							@Override
+							public int weigh(final Drawable value) {
+								return 1;
+							}
+						});
+				items = new ArrayList<>();
+
+				for (int i = 0; i < ITEM_COUNT; i++) {
+					final LibraryItem item = new Item(FIRST_ID + i);
+					titleCache.put(item, "Title " + i);
+					subtitleCache.put(item, "Subtitle " + i);
+					artworkCache.put(item, new ColorDrawable(i));
+					items.add(item);
+				}
+
+				final DisplayableDefaults defaults = mock(DisplayableDefaults.class);
+				body.setTitleDataBinder(new TitleBinder(titleCache, defaults));
+				body.setSubtitleDataBinder(new SubtitleBinder(subtitleCache, defaults));
+				body.setArtworkDataBinder(new ArtworkBinder(artworkCache, defaults));
+				body.setItems(items);
+
+				adapter = (RecyclerView.Adapter<BodyViewHolder>) body.getRecyclerView()
+						.getAdapter();
+			}
+		});
+	}
+
+	/**
+	 * Test to verify that rebinding cached items to an existing view holder does not allocate. The
+	 * test will only pass if no objects are allocated on the UI thread while the items are bound
+	 * repeatedly.
+	 */
+	@Test
+	@SuppressWarnings("deprecation") // Allocation counting is the only per-thread counter
+	public void testBind_cachedItems_noAllocations() throws Throwable {
+		final int[] allocationCount = new int[1];
+
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				final BodyViewHolder holder = adapter.onCreateViewHolder(body.getRecyclerView(), 0);
+
+				// Exclude one-time work such as applying the initial styling
+				for (int i = 0; i < ITEM_COUNT; i++) {
+					adapter.onBindViewHolder(holder, i);
+				}
+
+				Debug.resetThreadAllocCount();
+				Debug.startAllocCounting();
+
+				for (int i = 0; i < BIND_COUNT; i++) {
+					adapter.onBindViewHolder(holder, i % ITEM_COUNT);
+				}
+
+				Debug.stopAllocCounting();
+				allocationCount[0] = Debug.getThreadAllocCount();
+			}
+		});
+
+		assertThat("Binding allocated objects.", allocationCount[0], is(0));
+	}
+
+	/**
+	 * Test to verify that styling is only applied to a view holder when it has changed. The test
+	 * will only pass if rebinding does not restyle the holder, and changing a color restyles it on
+	 * the next bind.
+	 */
+	@Test
+	public void testBind_styleOnlyAppliedWhenChanged() throws Throwable {
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				final BodyViewHolder holder = adapter.onCreateViewHolder(body.getRecyclerView(), 0);
+
+				for (int i = 0; i < ITEM_COUNT; i++) {
+					adapter.onBindViewHolder(holder, i);
+				}
+
+				assertThat(body.styleCount, is(1));
+
+				body.setTitleTextColor(0xFFFF0000);
+				adapter.onBindViewHolder(holder, 0);
+				adapter.onBindViewHolder(holder, 1);
+
+				assertThat(body.styleCount, is(2));
+			}
+		});
+	}
+
+	/**
+	 * Test to verify that styling is applied on every bind when {@link
+	 * ListBody#setStyleOnEveryBind(boolean)} is enabled, as it was before styling was only applied
+	 * when out of date. The test will only pass if every bind restyles the holder.
+	 */
+	@Test
+	public void testBind_styleOnEveryBind() throws Throwable {
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				body.setStyleOnEveryBind(true);
+
+				final BodyViewHolder holder = adapter.onCreateViewHolder(body.getRecyclerView(), 0);
+
+				for (int i = 0; i < ITEM_COUNT; i++) {
+					adapter.onBindViewHolder(holder, i);
+				}
+
+				assertThat(body.styleCount, is(ITEM_COUNT));
+			}
+		});
+	}
+
+	/**
+	 * Test to verify that changing the styling of a body restyles the attached view holders without
+	 * rebinding any data. The test will only pass if the attached titles take the new color, and
+	 * no binds occur.
+	 */
+	@Test
+	public void testSetTitleTextColor_attachedHoldersRestyledWithoutRebinding() throws Throwable {
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				rule.getActivity().addContentView(body, new ViewGroup.LayoutParams(
+						ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+			}
+		});
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		final int[] initialBindCount = new int[1];
+
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				final RecyclerView recyclerView = body.getRecyclerView();
+				initialBindCount[0] = body.bindCount;
+
+				assertThat(recyclerView.getChildCount() > 0, is(true));
+
+				body.setTitleTextColor(0xFFFF0000);
+
+				for (int i = 0; i < recyclerView.getChildCount(); i++) {
+					final BodyViewHolder holder = (BodyViewHolder) recyclerView
+							.getChildViewHolder(recyclerView.getChildAt(i));
+
+					assertThat(holder.getTitleTextView().getCurrentTextColor(), is(0xFFFF0000));
+				}
+
+			}
+		});
+
+		// Make sure no rebind is scheduled for the next layout pass either
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				assertThat(body.bindCount, is(initialBindCount[0]));
+			}
+		});
+	}
+
+	/**
+	 * Test to verify that binding with a changed fields payload only rebinds the changed fields.
+	 * The test will only pass if the title is rebound and the artwork is left untouched.
+	 */
+	@Test
+	public void testBind_withPayload_onlyChangedFieldsRebound() throws Throwable {
+		rule.runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				final BodyViewHolder holder = adapter.onCreateViewHolder(body.getRecyclerView(), 0);
+				adapter.onBindViewHolder(holder, 0);
+
+				final Drawable originalArtwork = holder.getArtworkImageView().getDrawable();
+				final LibraryItem item = items.get(0);
+				titleCache.put(item, "New title");
+				artworkCache.put(item, new ColorDrawable(ITEM_COUNT));
+
+				final List<Object> payloads = new ArrayList<>();
+				payloads.add(LibraryItemFields.TITLE);
+				adapter.onBindViewHolder(holder, 0, payloads);
+
+				assertThat(holder.getTitleTextView().getText().toString(), is("New title"));
+				assertThat(holder.getArtworkImageView().getDrawable(), is(originalArtwork));
+			}
+		});
+	}
+
+	/**
+	 * A ListBody which counts how often styling is applied, and supplies view holders with views
+	 * which record bound data without allocating.
+	 */
+	private static class CountingListBody extends ListBody {
+		/**
+		 * The number of times styling has been applied.
+		 */
+		private int styleCount = 0;
+
+		/**
+		 * The number of times data has been bound to a view holder.
+		 */
+		private int bindCount = 0;
+
+		public CountingListBody(final Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onApplyStyle(final BodyViewHolder viewHolder) {
+			super.onApplyStyle(viewHolder);
+			styleCount++;
+		}
+
+		@Override
+		protected void onViewHolderBound(final BodyViewHolder viewHolder, final LibraryItem data) {
+			super.onViewHolderBound(viewHolder, data);
+			bindCount++;
+		}
+
+		@Override
+		protected BodyViewHolder supplyNewBodyViewHolder(final ViewGroup parent) {
+			final FrameLayout root = new FrameLayout(getContext());
+
+			return new BodyViewHolder(root,
+					new RecordingTextView(getContext()),
+					new RecordingTextView(getContext()),
+					new RecordingImageView(getContext()),
+					new ImageButton(getContext()));
+		}
+	}
+
+	/**
+	 * A TextView which records text without laying it out, so that the allocations of the
+	 * framework's text handling are not counted.
+	 */
+	private static class RecordingTextView extends TextView {
+		/**
+		 * The most recently set text.
+		 */
+		private CharSequence recordedText;
+
+		public RecordingTextView(final Context context) {
+			super(context);
+		}
+
+		@Override
+		public void setText(final CharSequence text, final BufferType type) {
+			recordedText = text;
+		}
+
+		@Override
+		public CharSequence getText() {
+			return recordedText;
+		}
+	}
+
+	/**
+	 * An ImageView which records drawables without invalidating, so that the allocations of the
+	 * framework's drawable handling are not counted.
+	 */
+	private static class RecordingImageView extends ImageView {
+		/**
+		 * The most recently set drawable.
+		 */
+		private Drawable recordedDrawable;
+
+		public RecordingImageView(final Context context) {
+			super(context);
+		}
+
+		@Override
+		public void setImageDrawable(final Drawable drawable) {
+			recordedDrawable = drawable;
+		}
+
+		@Override
+		public Drawable getDrawable() {
+			return recordedDrawable;
+		}
+	}
+
+	/**
+	 * An IdentifiableLibraryItem which provides no data. Unlike a mock, calls to it do not
+	 * allocate.
+	 */
+	private static class Item implements IdentifiableLibraryItem {
+		private final long id;
+
+		public Item(final long id) {
+			this.id = id;
+		}
+
+		@Override
+		public long getItemId() {
+			return id;
+		}
+
+		@Override
+		public CharSequence getTitle() {
+			return null;
+		}
+
+		@Override
+		public CharSequence getSubtitle() {
+			return null;
+		}
+
+		@Override
+		public Drawable getArtwork(final int width, final int height) {
+			return null;
+		}
+	}
+}
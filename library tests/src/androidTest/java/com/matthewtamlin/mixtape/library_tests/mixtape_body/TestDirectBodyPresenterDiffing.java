@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.mixtape_body;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.mixtape_body.BodyView;
+import com.matthewtamlin.mixtape.library.mixtape_body.DirectBodyPresenter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests which verify that the {@link DirectBodyPresenter} delivers the differences between lists
+ * to the view as granular notifications.
+ */
+@SuppressWarnings("unchecked") // Warning caused by mocks, but it isn't a problem
+@RunWith(AndroidJUnit4.class)
+public class TestDirectBodyPresenterDiffing {
+	/**
+	 * The maximum length of time to wait for the differences to be delivered, measured in
+	 * milliseconds.
+	 */
+	private static final int TIMEOUT = 2000;
+
+	/**
+	 * The presenter under test.
+	 */
+	private DirectBodyPresenter<LibraryItem, ListDataSource<LibraryItem>, BodyView> presenter;
+
+	/**
+	 * The view the presenter presents to.
+	 */
+	private BodyView view;
+
+	/**
+	 * The data source the lists are delivered from.
+	 */
+	private ListDataSource<LibraryItem> dataSource;
+
+	/**
+	 * Items to build the lists from.
+	 */
+	private LibraryItem a, b, c, d;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		presenter = new DirectBodyPresenter<>();
+		view = mock(BodyView.class);
+		dataSource = mock(ListDataSource.class);
+
+		a = mock(LibraryItem.class);
+		b = mock(LibraryItem.class);
+		c = mock(LibraryItem.class);
+		d = mock(LibraryItem.class);
+
+		final List<LibraryItem> displayedItems = createList(a, b, c);
+		when(view.getItems()).thenReturn((List) displayedItems);
+
+		presenter.setView(view);
+	}
+
+	/**
+	 * Test to verify that replacing the data delivers the differences as granular notifications.
+	 * The test will only pass if the new list is swapped in without a reset, and the removal and
+	 * insertion are delivered as range notifications.
+	 */
+	@Test
+	public void testOnDataReplaced_smallChange_granularNotifications() {
+		final List<LibraryItem> newItems = createList(a, c, d);
+
+		replaceData(newItems);
+
+		verify(view, timeout(TIMEOUT)).swapItems(newItems);
+		verify(view).notifyItemRangeRemoved(1, 1);
+		verify(view).notifyItemRangeAdded(2, 1);
+		verify(view, never()).setItems(anyListOf(LibraryItem.class));
+		verify(view, never()).notifyItemsChanged();
+	}
+
+	/**
+	 * Test to verify that replacing the data with a list which differs by more than the maximum
+	 * number of changes resets the view. The test will only pass if the new list is set and no
+	 * granular notifications are delivered.
+	 */
+	@Test
+	public void testOnDataReplaced_largeChange_viewReset() {
+		presenter.setMaxDiffChanges(1);
+		final List<LibraryItem> newItems = createList(d);
+
+		replaceData(newItems);
+
+		verify(view, timeout(TIMEOUT)).setItems(newItems);
+		verify(view, never()).swapItems(anyListOf(LibraryItem.class));
+		verify(view, never()).notifyItemRangeRemoved(anyInt(), anyInt());
+		verify(view, never()).notifyItemRangeAdded(anyInt(), anyInt());
+	}
+
+	/**
+	 * Test to verify that an item event delivered while the differences are being calculated
+	 * abandons the calculation. The test will only pass if the view is reset with the new list and
+	 * the stale differences are never delivered.
+	 */
+	@Test
+	public void testOnDataAdded_duringDiff_viewReset() {
+		final List<LibraryItem> newItems = createList(a, c, d);
+
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				presenter.onDataReplaced(dataSource, null, newItems);
+				newItems.add(b);
+				presenter.onDataAdded(dataSource, b, 3);
+			}
+		});
+
+		InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+		verify(view).setItems(newItems);
+		verify(view, never()).notifyItemAdded(anyInt());
+		verify(view, after(TIMEOUT).never()).swapItems(anyListOf(LibraryItem.class));
+	}
+
+	/**
+	 * Delivers a data replaced event to the presenter on the main thread.
+	 *
+	 * @param newItems
+	 * 		the new list, not null
+	 */
+	private void replaceData(final List<LibraryItem> newItems) {
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				presenter.onDataReplaced(dataSource, null, newItems);
+			}
+		});
+	}
+
+	/**
+	 * Creates a modifiable list containing the supplied items.
+	 *
+	 * @param items
+	 * 		the items to add to the list, not null
+	 * @return the list, not null
+	 */
+	private static List<LibraryItem> createList(final LibraryItem... items) {
+		final List<LibraryItem> list = new ArrayList<>();
+
+		for (final LibraryItem item : items) {
+			list.add(item);
+		}
+
+		return list;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.caching.ByteArena;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the {@link ByteArena} class.
+ */
+@RunWith(JUnit4.class)
+public class TestByteArena {
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code capacity} argument of
+	 * {@link ByteArena#ByteArena(int)} is zero. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_zeroCapacity() {
+		new ByteArena(0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code key} argument of {@link
+	 * ByteArena#put(Object, byte[])} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArgs_nullKey() {
+		new ByteArena(100).put(null, new byte[1]);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code data} argument of {@link
+	 * ByteArena#put(Object, byte[])} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArgs_nullData() {
+		new ByteArena(100).put("key", null);
+	}
+
+	/**
+	 * Test to verify that stored data can be retrieved, replaced and removed. The test will only
+	 * pass if the most recently stored data is returned for each key, and removed keys return
+	 * null and are no longer contained.
+	 */
+	@Test
+	public void testPutGetRemove() {
+		final ByteArena arena = new ByteArena(100);
+
+		assertThat(arena.put("a", bytes(10, 1)), is(true));
+		assertThat(arena.put("b", bytes(20, 2)), is(true));
+
+		assertThat(arena.get("a"), is(bytes(10, 1)));
+		assertThat(arena.get("b"), is(bytes(20, 2)));
+		assertThat(arena.contains("b"), is(true));
+		assertThat(arena.size(), is(2));
+		assertThat(arena.getUsedBytes(), is(30L));
+
+		assertThat(arena.put("a", bytes(5, 3)), is(true));
+		assertThat(arena.get("a"), is(bytes(5, 3)));
+		assertThat(arena.getUsedBytes(), is(25L));
+
+		arena.remove("b");
+		assertThat(arena.get("b"), is(nullValue()));
+		assertThat(arena.contains("b"), is(false));
+		assertThat(arena.size(), is(1));
+		assertThat(arena.getUsedBytes(), is(5L));
+		assertThat(arena.getEvictionCount(), is(0L));
+	}
+
+	/**
+	 * Test to verify that the oldest entries are evicted when the arena wraps around. The test
+	 * will only pass if the entries overwritten by new data are evicted in the order they were
+	 * added, and all other entries remain intact.
+	 */
+	@Test
+	public void testPut_wrapsAndEvictsOldest() {
+		final ByteArena arena = new ByteArena(100);
+
+		for (int i = 0; i < 4; i++) {
+			arena.put(i, bytes(30, i));
+		}
+
+		// The fourth entry did not fit at the end, so it replaced the first entry
+		assertThat(arena.get(0), is(nullValue()));
+		assertThat(arena.get(3), is(bytes(30, 3)));
+
+		// Filling the rest of the first lap evicts the second and third entries
+		arena.put(4, bytes(30, 4));
+		arena.put(5, bytes(30, 5));
+
+		assertThat(arena.get(1), is(nullValue()));
+		assertThat(arena.get(2), is(nullValue()));
+
+		for (int i = 3; i < 6; i++) {
+			assertThat(arena.get(i), is(bytes(30, i)));
+		}
+
+		assertThat(arena.size(), is(3));
+		assertThat(arena.getUsedBytes(), is(90L));
+		assertThat(arena.getEvictionCount(), is(3L));
+	}
+
+	/**
+	 * Test to verify that entries which have been removed do not count as evictions when they are
+	 * overwritten. The test will only pass if the eviction count only includes live entries.
+	 */
+	@Test
+	public void testPut_removedEntriesAreNotEvicted() {
+		final ByteArena arena = new ByteArena(100);
+
+		arena.put("a", bytes(50, 1));
+		arena.put("b", bytes(50, 2));
+		arena.remove("a");
+
+		arena.put("c", bytes(50, 3));
+
+		assertThat(arena.getEvictionCount(), is(0L));
+		assertThat(arena.get("b"), is(bytes(50, 2)));
+		assertThat(arena.get("c"), is(bytes(50, 3)));
+	}
+
+	/**
+	 * Test to verify that data larger than the arena is rejected. The test will only pass if the
+	 * data is not stored and existing entries are not evicted.
+	 */
+	@Test
+	public void testPut_dataLargerThanArena() {
+		final ByteArena arena = new ByteArena(100);
+		arena.put("a", bytes(10, 1));
+
+		assertThat(arena.put("b", bytes(101, 2)), is(false));
+		assertThat(arena.get("b"), is(nullValue()));
+		assertThat(arena.get("a"), is(bytes(10, 1)));
+	}
+
+	/**
+	 * Test to verify that the {@link ByteArena#clear()} method removes all entries. The test will
+	 * only pass if the arena is empty after being cleared, and can be reused.
+	 */
+	@Test
+	public void testClear() {
+		final ByteArena arena = new ByteArena(100);
+		arena.put("a", bytes(60, 1));
+		arena.clear();
+
+		assertThat(arena.size(), is(0));
+		assertThat(arena.getUsedBytes(), is(0L));
+		assertThat(arena.get("a"), is(nullValue()));
+
+		assertThat(arena.put("b", bytes(100, 2)), is(true));
+		assertThat(arena.get("b"), is(bytes(100, 2)));
+	}
+
+	/**
+	 * Creates a byte array where every element is derived from the supplied seed.
+	 *
+	 * @param length
+	 * 		the length of the array
+	 * @param seed
+	 * 		the value to derive the elements from
+	 * @return the array
+	 */
+	private static byte[] bytes(final int length, final int seed) {
+		final byte[] data = new byte[length];
+
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (seed * 31 + i);
+		}
+
+		return data;
+	}
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.DataLoadedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.LongOperationListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.caching.CachePrewarmer;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.databinders.PrewarmableBinder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the {@link CachePrewarmer} class.
+ */
+@RunWith(JUnit4.class)
+public class TestCachePrewarmer {
+	/**
+	 * The number of items in the data source.
+	 */
+	private static final int ITEM_COUNT = 7;
+
+	/**
+	 * The items supplied by the data source.
+	 */
+	private List<LibraryItem> items;
+
+	/**
+	 * Supplies the items immediately when data is loaded.
+	 */
+	private ListDataSource<LibraryItem> dataSource;
+
+	/**
+	 * Records the items it is asked to prewarm.
+	 */
+	private RecordingBinder binder;
+
+	/**
+	 * Holds the prewarming tasks until the test runs them.
+	 */
+	private Queue<Runnable> pendingTasks;
+
+	/**
+	 * Queues tasks instead of running them.
+	 */
+	private Executor manualExecutor;
+
+	/**
+	 * Runs callbacks immediately.
+	 */
+	private Executor directExecutor;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		items = new ArrayList<>();
+
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			items.add(mock(LibraryItem.class));
+		}
+
+		dataSource = mock(ListDataSource.class);
+
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(final InvocationOnMock invocation) throws Throwable {
+				final DataLoadedListener<List<LibraryItem>> callback =
+						(DataLoadedListener<List<LibraryItem>>) invocation.getArguments()[1];
+				callback.onDataLoaded(dataSource, items);
+				return null;
+			}
+		}).when(dataSource).loadData(anyBoolean(), any(DataLoadedListener.class));
+
+		binder = new RecordingBinder();
+		pendingTasks = new LinkedList<>();
+
+		manualExecutor = new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				pendingTasks.add(command);
+			}
+		};
+
+		directExecutor = new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				command.run();
+			}
+		};
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null data source is passed to the
+	 * constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullDataSource() {
+		new CachePrewarmer<>(null, Collections.singletonList(binder), manualExecutor,
+				directExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null collection of binders is
+	 * passed to the constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullBinders() {
+		new CachePrewarmer<>(dataSource, null, manualExecutor, directExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null work executor is passed to
+	 * the constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullWorkExecutor() {
+		new CachePrewarmer<>(dataSource, Collections.singletonList(binder), null, directExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null callback executor is passed
+	 * to the constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullCallbackExecutor() {
+		new CachePrewarmer<>(dataSource, Collections.singletonList(binder), manualExecutor, null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a batch size of zero is set. The
+	 * test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetBatchSize_zero() {
+		createPrewarmer().setBatchSize(0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a negative focus position is
+	 * passed to the {@link CachePrewarmer#start(int)} method. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testStart_negativeFocus() {
+		createPrewarmer().start(-1);
+	}
+
+	/**
+	 * Test to verify that the {@link CachePrewarmer#start()} method functions correctly. The test
+	 * will only pass if every item is prewarmed exactly once, in order, with no more than one task
+	 * pending at a time.
+	 */
+	@Test
+	public void testStart_prewarmsEveryItem() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.setBatchSize(3);
+		prewarmer.start();
+
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(items));
+		assertThat(prewarmer.getWarmedCount(), is(ITEM_COUNT));
+		assertThat(prewarmer.getItemCount(), is(ITEM_COUNT));
+		assertThat(prewarmer.isRunning(), is(false));
+	}
+
+	/**
+	 * Test to verify that each task only prewarms one batch. The test will only pass if the first
+	 * task prewarms the batch size and resubmits itself.
+	 */
+	@Test
+	public void testStart_prewarmsInBatches() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.setBatchSize(3);
+		prewarmer.start();
+
+		pendingTasks.poll().run();
+
+		assertThat(binder.prewarmedItems.size(), is(3));
+		assertThat(pendingTasks.size(), is(1));
+		assertThat(prewarmer.isRunning(), is(true));
+	}
+
+	/**
+	 * Test to verify that items are prewarmed outwards from the focus position. The test will only
+	 * pass if the items alternate between after and before the focus, closest first.
+	 */
+	@Test
+	public void testStart_prewarmsOutwardsFromFocus() {
+		createPrewarmer().start(3);
+
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(itemsAt(3, 2, 4, 1, 5, 0, 6)));
+	}
+
+	/**
+	 * Test to verify that changing the focus position while prewarming re-prioritises the
+	 * remaining items. The test will only pass if the next batch starts from the new focus and no
+	 * item is prewarmed twice.
+	 */
+	@Test
+	public void testSetFocusPosition_whilePrewarming() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.setBatchSize(2);
+		prewarmer.start(0);
+
+		pendingTasks.poll().run();
+		prewarmer.setFocusPosition(5);
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(itemsAt(0, 1, 5, 4, 6, 3, 2)));
+	}
+
+	/**
+	 * Test to verify that the {@link CachePrewarmer#cancel()} method functions correctly. The test
+	 * will only pass if no further items are prewarmed after cancellation.
+	 */
+	@Test
+	public void testCancel() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.setBatchSize(2);
+		prewarmer.start();
+
+		pendingTasks.poll().run();
+		prewarmer.cancel();
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(itemsAt(0, 1)));
+		assertThat(prewarmer.isRunning(), is(false));
+	}
+
+	/**
+	 * Test to verify that prewarming gives way to binds which are loading data. The test will only
+	 * pass if no items are prewarmed while the binder has pending loads, and prewarming resumes
+	 * once the loads finish.
+	 */
+	@Test
+	public void testStart_yieldsToPendingLoads() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.setYieldDelay(0);
+		prewarmer.start();
+
+		binder.pendingLoads = true;
+		pendingTasks.poll().run();
+
+		assertThat(binder.prewarmedItems.isEmpty(), is(true));
+		assertThat(pendingTasks.size(), is(1));
+
+		binder.pendingLoads = false;
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(items));
+	}
+
+	/**
+	 * Test to verify that prewarming waits for the yield delay without occupying the executor.
+	 * The test will only pass if the task is not resubmitted until the delay has elapsed, and is
+	 * then resubmitted to the work executor.
+	 */
+	@Test
+	public void testStart_yieldDelayDoesNotBlockExecutor() throws InterruptedException {
+		final BlockingQueue<Runnable> submittedTasks = new LinkedBlockingQueue<>();
+
+		final CachePrewarmer<LibraryItem> prewarmer = new CachePrewarmer<>(dataSource,
+				Collections.<PrewarmableBinder<LibraryItem>>singletonList(binder),
+				new Executor() {
+					@Override
+					public void execute(final Runnable command) {
+						submittedTasks.add(command);
+					}
+				}, directExecutor);
+
+		prewarmer.setYieldDelay(200);
+		prewarmer.start();
+
+		binder.pendingLoads = true;
+
+		final long startTime = System.nanoTime();
+		submittedTasks.take().run();
+		final long runTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+		assertThat(runTimeMs < 200, is(true));
+		assertThat(submittedTasks.poll(), is(nullValue()));
+
+		binder.pendingLoads = false;
+
+		final Runnable resubmittedTask = submittedTasks.poll(5, TimeUnit.SECONDS);
+		final long delayMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+		assertThat(resubmittedTask, is(notNullValue()));
+		assertThat(delayMs >= 200, is(true));
+		assertThat(binder.prewarmedItems.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test to verify that binders which fail to prewarm an item are counted. The test will only
+	 * pass if every item is still attempted, and every failure is reflected in the failed count.
+	 */
+	@Test
+	public void testGetFailedCount() {
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		binder.failOnPrewarm = true;
+
+		assertThat(prewarmer.getFailedCount(), is(0));
+
+		prewarmer.start();
+		runPendingTasks();
+
+		assertThat(binder.prewarmedItems, is(items));
+		assertThat(prewarmer.getFailedCount(), is(ITEM_COUNT));
+		assertThat(prewarmer.isRunning(), is(false));
+	}
+
+	/**
+	 * Test to verify that long operation listeners are notified when prewarming starts and
+	 * finishes. The test will only pass if the started callback is delivered before the finished
+	 * callback, and each is delivered once.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLongOperationListener_startedAndFinished() {
+		final LongOperationListener<List<LibraryItem>> listener =
+				mock(LongOperationListener.class);
+
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.registerLongOperationListener(listener);
+		prewarmer.start();
+
+		verify(listener).onLongOperationStarted(dataSource);
+		verify(listener, never()).onLongOperationFinished(dataSource);
+
+		runPendingTasks();
+
+		final InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).onLongOperationStarted(dataSource);
+		inOrder.verify(listener).onLongOperationFinished(dataSource);
+	}
+
+	/**
+	 * Test to verify that long operation listeners are notified when prewarming is restarted. The
+	 * test will only pass if the first run is reported as finished before the second is reported
+	 * as started.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLongOperationListener_restarted() {
+		final LongOperationListener<List<LibraryItem>> listener =
+				mock(LongOperationListener.class);
+
+		final CachePrewarmer<LibraryItem> prewarmer = createPrewarmer();
+		prewarmer.registerLongOperationListener(listener);
+		prewarmer.start();
+		prewarmer.start();
+
+		final InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).onLongOperationStarted(dataSource);
+		inOrder.verify(listener).onLongOperationFinished(dataSource);
+		inOrder.verify(listener).onLongOperationStarted(dataSource);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * @return a new CachePrewarmer which prewarms the test binder using the test executors
+	 */
+	private CachePrewarmer<LibraryItem> createPrewarmer() {
+		return new CachePrewarmer<>(dataSource,
+				Collections.<PrewarmableBinder<LibraryItem>>singletonList(binder), manualExecutor,
+				directExecutor);
+	}
+
+	/**
+	 * Runs the pending tasks, including any tasks they submit, until none remain.
+	 */
+	private void runPendingTasks() {
+		while (!pendingTasks.isEmpty()) {
+			pendingTasks.poll().run();
+		}
+	}
+
+	/**
+	 * Gets the test items at the supplied positions.
+	 *
+	 * @param positions
+	 * 		the positions of the items, not null
+	 * @return the items in the same order as the positions, not null
+	 */
+	private List<LibraryItem> itemsAt(final Integer... positions) {
+		final List<LibraryItem> selectedItems = new ArrayList<>();
+
+		for (final int position : Arrays.asList(positions)) {
+			selectedItems.add(items.get(position));
+		}
+
+		return selectedItems;
+	}
+
+	/**
+	 * A PrewarmableBinder which records the items it is asked to prewarm.
+	 */
+	private static class RecordingBinder implements PrewarmableBinder<LibraryItem> {
+		private final List<LibraryItem> prewarmedItems = new ArrayList<>();
+
+		private boolean pendingLoads = false;
+
+		private boolean failOnPrewarm = false;
+
+		@Override
+		public void prewarm(final LibraryItem data) {
+			prewarmedItems.add(data);
+
+			if (failOnPrewarm) {
+				throw new IllegalStateException("Prewarm failed.");
+			}
+		}
+
+		@Override
+		public boolean hasPendingLoads() {
+			return pendingLoads;
+		}
+	}
+}
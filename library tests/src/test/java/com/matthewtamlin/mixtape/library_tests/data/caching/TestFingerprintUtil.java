@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.caching.FingerprintUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Unit tests for the {@link FingerprintUtil} class.
+ */
+@RunWith(JUnit4.class)
+public class TestFingerprintUtil {
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code encodedArtwork} argument
+	 * of {@link FingerprintUtil#fingerprint(byte[])} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFingerprint_invalidArgs_nullArray() {
+		FingerprintUtil.fingerprint(null);
+	}
+
+	/**
+	 * Test to verify that the {@link FingerprintUtil#fingerprint(byte[])} method returns equal
+	 * fingerprints for equal data. The test will only pass if separate copies of small and large
+	 * arrays have the same fingerprints.
+	 */
+	@Test
+	public void testFingerprint_equalData() {
+		final byte[] small = randomBytes(100, 1);
+		final byte[] large = randomBytes(100000, 2);
+
+		assertThat(FingerprintUtil.fingerprint(small),
+				is(FingerprintUtil.fingerprint(Arrays.copyOf(small, small.length))));
+		assertThat(FingerprintUtil.fingerprint(large),
+				is(FingerprintUtil.fingerprint(Arrays.copyOf(large, large.length))));
+	}
+
+	/**
+	 * Test to verify that the {@link FingerprintUtil#fingerprint(byte[])} method returns different
+	 * fingerprints for different data. The test will only pass if changing the length, the
+	 * content of a small array, or the first or last byte of a large array changes the
+	 * fingerprint.
+	 */
+	@Test
+	public void testFingerprint_differentData() {
+		final byte[] small = randomBytes(100, 3);
+		final byte[] large = randomBytes(100000, 4);
+
+		final long smallFingerprint = FingerprintUtil.fingerprint(small);
+		final long largeFingerprint = FingerprintUtil.fingerprint(large);
+
+		assertThat(FingerprintUtil.fingerprint(Arrays.copyOf(small, 101)),
+				is(not(smallFingerprint)));
+
+		final byte[] modifiedSmall = Arrays.copyOf(small, small.length);
+		modifiedSmall[50]++;
+		assertThat(FingerprintUtil.fingerprint(modifiedSmall), is(not(smallFingerprint)));
+
+		final byte[] modifiedLargeStart = Arrays.copyOf(large, large.length);
+		modifiedLargeStart[0]++;
+		assertThat(FingerprintUtil.fingerprint(modifiedLargeStart), is(not(largeFingerprint)));
+
+		final byte[] modifiedLargeEnd = Arrays.copyOf(large, large.length);
+		modifiedLargeEnd[large.length - 1]++;
+		assertThat(FingerprintUtil.fingerprint(modifiedLargeEnd), is(not(largeFingerprint)));
+	}
+
+	/**
+	 * Creates an array of random bytes.
+	 *
+	 * @param length
+	 * 		the length of the array
+	 * @param seed
+	 * 		the seed for the random number generator
+	 * @return the array, not null
+	 */
+	private static byte[] randomBytes(final int length, final long seed) {
+		final byte[] bytes = new byte[length];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.Batch;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.ItemTask;
+import com.matthewtamlin.mixtape.library.caching.LocalityScheduler.LocationResolver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for the {@link LocalityScheduler} class.
+ */
+@RunWith(JUnit4.class)
+public class TestLocalityScheduler {
+	/**
+	 * Locates items by treating each item as a path, where "none" means no location.
+	 */
+	private static final LocationResolver<String> PATH_RESOLVER = new LocationResolver<String>() {
+		@Override
+		public File getLocation(final String item) {
+			return item.equals("none") ? null : new File(item);
+		}
+	};
+
+	/**
+	 * Holds the lanes until the test runs them.
+	 */
+	private Queue<Runnable> pendingLanes;
+
+	/**
+	 * Records the items which are run, in order.
+	 */
+	private List<String> runItems;
+
+	/**
+	 * Queues lanes instead of running them.
+	 */
+	private Executor manualExecutor;
+
+	/**
+	 * Records each item when run.
+	 */
+	private ItemTask<String> recordingTask;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		pendingLanes = new LinkedList<>();
+		runItems = new ArrayList<>();
+
+		manualExecutor = new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				pendingLanes.add(command);
+			}
+		};
+
+		recordingTask = new ItemTask<String>() {
+			@Override
+			public void run(final String item) {
+				runItems.add(item);
+			}
+		};
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a concurrency limit of zero is
+	 * passed to the constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_zeroConcurrency() {
+		new LocalityScheduler(manualExecutor, 0, LocalityScheduler.DEFAULT_VOLUME_RESOLVER);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when null items are passed to {@link
+	 * LocalityScheduler#sortByLocation(java.util.Collection, LocationResolver)}. The test will only
+	 * pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSortByLocation_nullItems() {
+		LocalityScheduler.sortByLocation(null, PATH_RESOLVER);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null location resolver is passed
+	 * to {@link LocalityScheduler#sortByLocation(java.util.Collection, LocationResolver)}. The test
+	 * will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSortByLocation_nullLocationResolver() {
+		LocalityScheduler.sortByLocation(Collections.singletonList("/m/a/1.mp3"), null);
+	}
+
+	/**
+	 * Test to verify that the {@link LocalityScheduler#sortByLocation(java.util.Collection,
+	 * LocationResolver)} method functions correctly. The test will only pass if items are grouped
+	 * by directory and ordered by name, and items without locations are last in their original
+	 * order.
+	 */
+	@Test
+	public void testSortByLocation() {
+		final List<String> items = Arrays.asList("/m/b/2.mp3", "none", "/m/a/x/1.mp3",
+				"/m/b/1.mp3", "/m/a/2.mp3", "/m/a/1.mp3");
+
+		final List<String> sorted = LocalityScheduler.sortByLocation(items, PATH_RESOLVER);
+
+		assertThat(sorted, is(Arrays.asList("/m/a/1.mp3", "/m/a/2.mp3", "/m/a/x/1.mp3",
+				"/m/b/1.mp3", "/m/b/2.mp3", "none")));
+	}
+
+	/**
+	 * Test to verify that the concurrency limit of each volume is respected. The test will only
+	 * pass if one lane is started per volume, and each directory is run in order without being
+	 * interleaved with another.
+	 */
+	@Test
+	public void testSchedule_limitsConcurrencyPerVolume() {
+		final LocalityScheduler scheduler = new LocalityScheduler(manualExecutor, 1,
+				LocalityScheduler.DEFAULT_VOLUME_RESOLVER);
+
+		final Batch batch = scheduler.schedule(Arrays.asList("/storage/a/music/y/2.mp3",
+				"/storage/b/music/1.mp3", "/storage/a/music/x/2.mp3", "/storage/a/music/x/1.mp3",
+				"/storage/a/music/y/1.mp3"), PATH_RESOLVER, recordingTask);
+
+		assertThat(pendingLanes.size(), is(2));
+
+		runPendingLanes();
+
+		assertThat(batch.isDone(), is(true));
+		assertThat(runItems, is(Arrays.asList("/storage/a/music/x/1.mp3",
+				"/storage/a/music/x/2.mp3", "/storage/b/music/1.mp3", "/storage/a/music/y/1.mp3",
+				"/storage/a/music/y/2.mp3")));
+	}
+
+	/**
+	 * Test to verify that the concurrency limit applies across batches. The test will only pass
+	 * if the second batch does not start another lane on a volume which is already at its limit.
+	 */
+	@Test
+	public void testSchedule_limitAppliesAcrossBatches() {
+		final LocalityScheduler scheduler = new LocalityScheduler(manualExecutor, 1,
+				LocalityScheduler.DEFAULT_VOLUME_RESOLVER);
+
+		final Batch first = scheduler.schedule(Arrays.asList("/storage/a/1/1.mp3"), PATH_RESOLVER,
+				recordingTask);
+		final Batch second = scheduler.schedule(Arrays.asList("/storage/a/2/1.mp3"),
+				PATH_RESOLVER, recordingTask);
+
+		assertThat(pendingLanes.size(), is(1));
+
+		runPendingLanes();
+
+		assertThat(first.isDone(), is(true));
+		assertThat(second.isDone(), is(true));
+		assertThat(runItems, is(Arrays.asList("/storage/a/1/1.mp3", "/storage/a/2/1.mp3")));
+	}
+
+	/**
+	 * Test to verify that cancelling a batch skips the items which have not been run. The test
+	 * will only pass if no items are run and the batch still completes.
+	 */
+	@Test
+	public void testCancel() {
+		final LocalityScheduler scheduler = new LocalityScheduler(manualExecutor);
+
+		final Batch batch = scheduler.schedule(Arrays.asList("/storage/a/1.mp3",
+				"/storage/a/2.mp3", "none"), PATH_RESOLVER, recordingTask);
+		batch.cancel();
+
+		runPendingLanes();
+
+		assertThat(batch.isCancelled(), is(true));
+		assertThat(batch.isDone(), is(true));
+		assertThat(runItems.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test to verify that scheduling no items returns a completed batch. The test will only pass
+	 * if the batch is done and no lanes are started.
+	 */
+	@Test
+	public void testSchedule_noItems() {
+		final Batch batch = new LocalityScheduler(manualExecutor).schedule(new ArrayList<String>(),
+				PATH_RESOLVER, recordingTask);
+
+		assertThat(batch.isDone(), is(true));
+		assertThat(pendingLanes.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null task is passed to {@link
+	 * LocalityScheduler#execute(File, Runnable)}. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testExecute_nullTask() {
+		new LocalityScheduler(manualExecutor).execute(new File("/storage/a/1.mp3"), null);
+	}
+
+	/**
+	 * Test to verify that tasks run through the executor returned by {@link
+	 * LocalityScheduler#getVolumeExecutor(File)} share the concurrency limit of the volume with
+	 * scheduled batches. The test will only pass if the task waits for the lane of the batch, and
+	 * then runs after the items of the batch.
+	 */
+	@Test
+	public void testGetVolumeExecutor_sharesLimitWithBatches() {
+		final LocalityScheduler scheduler = new LocalityScheduler(manualExecutor, 1,
+				LocalityScheduler.DEFAULT_VOLUME_RESOLVER);
+
+		final Batch batch = scheduler.schedule(Arrays.asList("/storage/a/x/1.mp3"), PATH_RESOLVER,
+				recordingTask);
+
+		scheduler.getVolumeExecutor(new File("/storage/a/y")).execute(new Runnable() {
+			@Override
+			public void run() {
+				runItems.add("task");
+			}
+		});
+
+		assertThat(pendingLanes.size(), is(1));
+
+		runPendingLanes();
+
+		assertThat(batch.isDone(), is(true));
+		assertThat(runItems, is(Arrays.asList("/storage/a/x/1.mp3", "task")));
+	}
+
+	/**
+	 * Runs the queued lanes until none remain.
+	 */
+	private void runPendingLanes() {
+		while (!pendingLanes.isEmpty()) {
+			pendingLanes.remove().run();
+		}
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.caching.LongKeyTextCache;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link LongKeyTextCache} class.
+ */
+@RunWith(JUnit4.class)
+public class TestLongKeyTextCache {
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code capacity} argument of
+	 * {@link LongKeyTextCache#LongKeyTextCache(int)} is zero. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_zeroCapacity() {
+		new LongKeyTextCache(0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code concurrencyLevel}
+	 * argument of {@link LongKeyTextCache#LongKeyTextCache(int, int)} is zero. The test will only
+	 * pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_zeroConcurrencyLevel() {
+		new LongKeyTextCache(10, 0);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code id} argument of {@link
+	 * LongKeyTextCache#put(long, CharSequence)} is NO_ID. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArgs_noId() {
+		new LongKeyTextCache(10).put(IdentifiableLibraryItem.NO_ID, "text");
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code text} argument of {@link
+	 * LongKeyTextCache#put(long, CharSequence)} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testPut_invalidArgs_nullText() {
+		new LongKeyTextCache(10).put(1, null);
+	}
+
+	/**
+	 * Test to verify that the {@link LongKeyTextCache#put(long, CharSequence)}, {@link
+	 * LongKeyTextCache#get(long)} and {@link LongKeyTextCache#remove(long)} methods function
+	 * correctly. The test will only pass if values can be stored, replaced and removed.
+	 */
+	@Test
+	public void testPutGetRemove() {
+		final LongKeyTextCache cache = new LongKeyTextCache(10);
+
+		cache.put(1, "one");
+		cache.put(2, "two");
+		assertThat(cache.get(1), is((CharSequence) "one"));
+		assertThat(cache.get(2), is((CharSequence) "two"));
+		assertThat(cache.get(3), is(nullValue()));
+		assertThat(cache.size(), is(2));
+
+		cache.put(1, "uno");
+		assertThat(cache.get(1), is((CharSequence) "uno"));
+		assertThat(cache.size(), is(2));
+
+		cache.remove(1);
+		assertThat(cache.get(1), is(nullValue()));
+		assertThat(cache.get(2), is((CharSequence) "two"));
+		assertThat(cache.size(), is(1));
+
+		cache.clear();
+		assertThat(cache.get(2), is(nullValue()));
+		assertThat(cache.size(), is(0));
+	}
+
+	/**
+	 * Test to verify that the {@link LongKeyTextCache#get(LibraryItem)} and {@link
+	 * LongKeyTextCache#put(LibraryItem, CharSequence)} methods function correctly. The test will
+	 * only pass if identifiable items are cached by ID and other items are never cached.
+	 */
+	@Test
+	public void testItemMethods() {
+		final LongKeyTextCache cache = new LongKeyTextCache(10);
+
+		final IdentifiableLibraryItem identifiable1 = mock(IdentifiableLibraryItem.class);
+		when(identifiable1.getItemId()).thenReturn(42L);
+
+		final IdentifiableLibraryItem identifiable2 = mock(IdentifiableLibraryItem.class);
+		when(identifiable2.getItemId()).thenReturn(42L);
+
+		final LibraryItem other = mock(LibraryItem.class);
+
+		cache.put(identifiable1, "text");
+		cache.put(other, "other text");
+
+		assertThat(cache.get(identifiable2), is((CharSequence) "text"));
+		assertThat(cache.get(other), is(nullValue()));
+		assertThat(cache.size(), is(1));
+	}
+
+	/**
+	 * Test to verify that the cache never exceeds its capacity, and that recently accessed entries
+	 * are retained in preference to entries which have not been accessed. The test will only pass
+	 * if the size stays within the capacity and the accessed entry survives eviction.
+	 */
+	@Test
+	public void testEviction() {
+		final LongKeyTextCache cache = new LongKeyTextCache(8, 1);
+
+		for (long i = 1; i <= 8; i++) {
+			cache.put(i, "value " + i);
+		}
+
+		// Give the first entry a second chance
+		cache.get(1);
+
+		for (long i = 9; i <= 12; i++) {
+			cache.put(i, "value " + i);
+			assertThat(cache.size(), is(8));
+		}
+
+		assertThat(cache.get(1), is((CharSequence) "value 1"));
+		assertThat(cache.get(12), is((CharSequence) "value 12"));
+	}
+
+	/**
+	 * Test to verify that the cache remains consistent under random operations. The test will only
+	 * pass if every entry returned by the cache matches the most recent value put for that key.
+	 */
+	@Test
+	public void testRandomOperations() {
+		final LongKeyTextCache cache = new LongKeyTextCache(64, 4);
+		final String[] expected = new String[256];
+		final Random random = new Random(0);
+
+		for (int i = 0; i < 100000; i++) {
+			final int key = 1 + random.nextInt(expected.length - 1);
+			final int operation = random.nextInt(10);
+
+			if (operation < 5) {
+				expected[key] = "value " + i;
+				cache.put(key, expected[key]);
+			} else if (operation < 6) {
+				expected[key] = null;
+				cache.remove(key);
+			} else {
+				final CharSequence value = cache.get(key);
+
+				if (value != null) {
+					assertThat(value, is((CharSequence) expected[key]));
+				}
+			}
+
+			assertThat(cache.size(), is(lessThanOrEqualTo(cache.getCapacity())));
+		}
+	}
+
+	/**
+	 * Test to verify that the cache can be accessed by multiple threads concurrently. The test will
+	 * only pass if no thread fails and every value read matches the key it was stored under.
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final LongKeyTextCache cache = new LongKeyTextCache(1000);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final List<Thread> threads = new ArrayList<>();
+
+		for (int t = 0; t < 4; t++) {
+			final int seed = t;
+
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						final Random random = new Random(seed);
+
+						for (int i = 0; i < 50000; i++) {
+							final long key = 1 + random.nextInt(5000);
+
+							if (random.nextBoolean()) {
+								cache.put(key, Long.toString(key));
+							} else {
+								final CharSequence value = cache.get(key);
+
+								if (value != null && !value.equals(Long.toString(key))) {
+									throw new AssertionError("Mismatched value for key " + key);
+								}
+							}
+						}
+					} catch (final Throwable e) {
+						failure.set(e);
+					}
+				}
+			}));
+		}
+
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+
+		startLatch.countDown();
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(failure.get(), is(nullValue()));
+		assertThat(cache.size(), is(lessThanOrEqualTo(1000)));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import android.support.v4.util.LruCache;
+
+import com.matthewtamlin.mixtape.library.caching.LruItemCache;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link LruItemCache} class.
+ */
+@RunWith(JUnit4.class)
+public class TestLruItemCache {
+	/**
+	 * Test to verify that the correct exception is thrown when a null LruCache is passed to the
+	 * constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_nullLruCache() {
+		new LruItemCache<String>(null);
+	}
+
+	/**
+	 * Test to verify that entries are keyed by the items themselves, so that the delegate LruCache
+	 * can be shared with code which looks up items directly. The test will only pass if values
+	 * put through the ItemCache are visible in the LruCache under the item, and vice versa.
+	 */
+	@Test
+	public void testPutAndGet_keyedByItem() {
+		final LruCache<LibraryItem, String> lruCache = new LruCache<>(10);
+		final LruItemCache<String> cache = new LruItemCache<>(lruCache);
+
+		final LibraryItem item1 = mock(LibraryItem.class);
+		final LibraryItem item2 = mock(LibraryItem.class);
+
+		cache.put(item1, "value 1");
+		lruCache.put(item2, "value 2");
+
+		assertThat(lruCache.get(item1), is("value 1"));
+		assertThat(cache.get(item1), is("value 1"));
+		assertThat(cache.get(item2), is("value 2"));
+		assertThat(cache.getLruCache(), is(lruCache));
+	}
+
+	/**
+	 * Test to verify that items with equal stable IDs are not treated as the same key. The test
+	 * will only pass if a value cached for one item is not returned for another item with the same
+	 * ID.
+	 */
+	@Test
+	public void testGet_itemsWithEqualIdsAreDistinct() {
+		final LruItemCache<String> cache = new LruItemCache<>(
+				new LruCache<LibraryItem, String>(10));
+
+		final IdentifiableLibraryItem item1 = mock(IdentifiableLibraryItem.class);
+		final IdentifiableLibraryItem item2 = mock(IdentifiableLibraryItem.class);
+		when(item1.getItemId()).thenReturn(7L);
+		when(item2.getItemId()).thenReturn(7L);
+
+		cache.put(item1, "value");
+
+		assertThat(cache.get(item2), is(nullValue()));
+	}
+}
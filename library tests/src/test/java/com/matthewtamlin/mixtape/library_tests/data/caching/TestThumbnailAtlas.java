@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import com.matthewtamlin.mixtape.library.caching.ThumbnailAtlas;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the {@link ThumbnailAtlas} class.
+ */
+@RunWith(JUnit4.class)
+public class TestThumbnailAtlas {
+	/**
+	 * The width of the thumbnails used in the tests.
+	 */
+	private static final int WIDTH = 4;
+
+	/**
+	 * The height of the thumbnails used in the tests.
+	 */
+	private static final int HEIGHT = 3;
+
+	/**
+	 * Provides a fresh directory for each test.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The file to store the atlas in.
+	 */
+	private File atlasFile;
+
+	@Before
+	public void setup() {
+		atlasFile = new File(folder.getRoot(), "thumbnails.atlas");
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code atlasFile} argument of
+	 * {@link ThumbnailAtlas#ThumbnailAtlas(File, int, int)} is null. The test will only pass if
+	 * an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_nullFile() {
+		new ThumbnailAtlas(null, WIDTH, HEIGHT);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a single thumbnail is too large to
+	 * map. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_thumbnailTooLarge() {
+		new ThumbnailAtlas(atlasFile, 32768, 32768);
+	}
+
+	/**
+	 * Test to verify that the slot limit is calculated without overflowing when the atlas would
+	 * exceed {@code Integer.MAX_VALUE} bytes. The test will only pass if only one 1 GiB slot fits.
+	 */
+	@Test
+	public void testGetMaxSlotCount_largeThumbnails() {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, 32768, 16384);
+
+		assertThat(atlas.getMaxSlotCount(), is(1));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code pixels} argument of
+	 * {@link ThumbnailAtlas#append(long, ByteBuffer)} has the wrong length. The test will only
+	 * pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testAppend_invalidArgs_wrongLength() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+
+		atlas.append(1, ByteBuffer.allocate(atlas.getSlotSize() + 1));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when {@link ThumbnailAtlas#append(long,
+	 * ByteBuffer)} is called before the atlas is opened. The test will only pass if an
+	 * IllegalStateException is thrown.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testAppend_notOpen() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+
+		atlas.append(1, pixels(atlas, 1));
+	}
+
+	/**
+	 * Test to verify that appended thumbnails only become visible once committed. The test will
+	 * only pass if the thumbnail is absent before the commit and matches the appended pixels
+	 * after it.
+	 */
+	@Test
+	public void testAppendAndCommit() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+
+		atlas.append(1, pixels(atlas, 1));
+		atlas.append(2, pixels(atlas, 2));
+
+		assertThat(atlas.contains(1), is(true));
+		assertThat(atlas.get(1), is(nullValue()));
+
+		atlas.commit();
+
+		assertThat(toArray(atlas.get(1)), is(toArray(pixels(atlas, 1))));
+		assertThat(toArray(atlas.get(2)), is(toArray(pixels(atlas, 2))));
+		assertThat(atlas.get(3), is(nullValue()));
+		assertThat(atlas.get(1).isReadOnly(), is(true));
+		assertThat(atlas.size(), is(2));
+	}
+
+	/**
+	 * Test to verify that committed thumbnails persist when the atlas is reopened. The test will
+	 * only pass if the thumbnails are read back from the files, and uncommitted thumbnails are
+	 * discarded.
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+		atlas.append(1, pixels(atlas, 1));
+		atlas.commit();
+		atlas.append(2, pixels(atlas, 2));
+		atlas.close();
+
+		final ThumbnailAtlas reopened = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		reopened.open();
+
+		assertThat(toArray(reopened.get(1)), is(toArray(pixels(reopened, 1))));
+		assertThat(reopened.contains(2), is(false));
+	}
+
+	/**
+	 * Test to verify that fingerprints are stored with thumbnails and persist when the atlas is
+	 * reopened. The test will only pass if the thumbnails only match their own fingerprints, and
+	 * thumbnails appended without fingerprints report {@link ThumbnailAtlas#NO_FINGERPRINT}.
+	 */
+	@Test
+	public void testFingerprints() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+		atlas.append(1, 1000L, pixels(atlas, 1));
+		atlas.append(2, pixels(atlas, 2));
+		atlas.commit();
+		atlas.close();
+
+		final ThumbnailAtlas reopened = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		reopened.open();
+
+		assertThat(reopened.contains(1, 1000L), is(true));
+		assertThat(reopened.contains(1, 2000L), is(false));
+		assertThat(reopened.getFingerprint(1), is(1000L));
+		assertThat(reopened.getFingerprint(2), is(ThumbnailAtlas.NO_FINGERPRINT));
+		assertThat(reopened.contains(3, ThumbnailAtlas.NO_FINGERPRINT), is(false));
+
+		reopened.append(1, 2000L, pixels(reopened, 3));
+
+		assertThat(reopened.contains(1, 2000L), is(true));
+		assertThat(reopened.getFragmentation(), is(1f / 3));
+	}
+
+	/**
+	 * Test to verify that an atlas opened with different thumbnail dimensions discards the
+	 * existing thumbnails. The test will only pass if the reopened atlas is empty.
+	 */
+	@Test
+	public void testReopen_differentDimensions() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+		atlas.append(1, pixels(atlas, 1));
+		atlas.commit();
+		atlas.close();
+
+		final ThumbnailAtlas reopened = new ThumbnailAtlas(atlasFile, WIDTH * 2, HEIGHT);
+		reopened.open();
+
+		assertThat(reopened.size(), is(0));
+		assertThat(reopened.getSlotCount(), is(0));
+	}
+
+	/**
+	 * Test to verify that replacing and removing thumbnails fragments the atlas, and that
+	 * compaction removes the unused slots. The test will only pass if the remaining thumbnails
+	 * are intact after compaction and after reopening the atlas, and the atlas file shrinks.
+	 */
+	@Test
+	public void testCompact() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+
+		for (int i = 0; i < 4; i++) {
+			atlas.append(i, pixels(atlas, i));
+		}
+
+		atlas.append(0, pixels(atlas, 10));
+		atlas.remove(1);
+		atlas.commit();
+
+		assertThat(atlas.getFragmentation(), is(2f / 5));
+
+		final long fragmentedLength = atlasFile.length();
+		atlas.compact();
+
+		assertThat(atlas.getFragmentation(), is(0f));
+		assertThat(atlas.getSlotCount(), is(3));
+		assertThat(atlasFile.length(), is(lessThan(fragmentedLength)));
+		assertThat(toArray(atlas.get(0)), is(toArray(pixels(atlas, 10))));
+		assertThat(atlas.get(1), is(nullValue()));
+		assertThat(toArray(atlas.get(3)), is(toArray(pixels(atlas, 3))));
+
+		atlas.close();
+
+		final ThumbnailAtlas reopened = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		reopened.open();
+
+		assertThat(toArray(reopened.get(0)), is(toArray(pixels(reopened, 10))));
+		assertThat(toArray(reopened.get(2)), is(toArray(pixels(reopened, 2))));
+		assertThat(reopened.size(), is(3));
+	}
+
+	/**
+	 * Test to verify that the {@link ThumbnailAtlas#retainAll(java.util.Collection)} method
+	 * removes the thumbnails of other items. The test will only pass if only the retained
+	 * thumbnails remain.
+	 */
+	@Test
+	public void testRetainAll() throws IOException {
+		final ThumbnailAtlas atlas = new ThumbnailAtlas(atlasFile, WIDTH, HEIGHT);
+		atlas.open();
+
+		for (int i = 0; i < 3; i++) {
+			atlas.append(i, pixels(atlas, i));
+		}
+
+		atlas.retainAll(Arrays.asList(0L, 2L));
+
+		assertThat(atlas.contains(0), is(true));
+		assertThat(atlas.contains(1), is(false));
+		assertThat(atlas.contains(2), is(true));
+	}
+
+	/**
+	 * Creates a buffer of thumbnail pixels where every byte is derived from the supplied seed.
+	 *
+	 * @param atlas
+	 * 		the atlas the pixels are for
+	 * @param seed
+	 * 		the value to derive the bytes from
+	 * @return the buffer, ready to be read
+	 */
+	private static ByteBuffer pixels(final ThumbnailAtlas atlas, final int seed) {
+		final ByteBuffer buffer = ByteBuffer.allocate(atlas.getSlotSize());
+
+		for (int i = 0; i < atlas.getSlotSize(); i++) {
+			buffer.put((byte) (seed * 31 + i));
+		}
+
+		buffer.flip();
+
+		return buffer;
+	}
+
+	/**
+	 * Copies the remaining bytes of a buffer into an array, without modifying the buffer.
+	 *
+	 * @param buffer
+	 * 		the buffer to copy
+	 * @return the bytes
+	 */
+	private static byte[] toArray(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+
+		return bytes;
+	}
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.caching;
+
+import android.graphics.drawable.Drawable;
+
+import com.matthewtamlin.mixtape.library.caching.CacheStats;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache.RemovalCause;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache.RemovalListener;
+import com.matthewtamlin.mixtape.library.caching.Weigher;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for the {@link TinyLfuItemCache} class.
+ */
+@RunWith(JUnit4.class)
+public class TestTinyLfuItemCache {
+	/**
+	 * Weighs strings by their length.
+	 */
+	private Weigher<String> lengthWeigher;
+
+	@Before
+	public void setup() {
+		lengthWeigher = new Weigher<String>() {
+			@Override
+			public int weigh(final String value) {
+				return value.length();
+			}
+		};
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code maxWeight} argument of
+	 * {@link TinyLfuItemCache#TinyLfuItemCache(long, int, Weigher)} is zero. The test will only pass
+	 * if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_zeroMaxWeight() {
+		new TinyLfuItemCache<>(0, 10, lengthWeigher);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code expectedEntries} argument
+	 * of {@link TinyLfuItemCache#TinyLfuItemCache(long, int, Weigher)} is zero. The test will only
+	 * pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_zeroExpectedEntries() {
+		new TinyLfuItemCache<>(100, 0, lengthWeigher);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code weigher} argument of
+	 * {@link TinyLfuItemCache#TinyLfuItemCache(long, int, Weigher)} is null. The test will only
+	 * pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidArgs_nullWeigher() {
+		new TinyLfuItemCache<String>(100, 10, null);
+	}
+
+	/**
+	 * Test to verify that the {@link TinyLfuItemCache#put(LibraryItem, Object)}, {@link
+	 * TinyLfuItemCache#get(LibraryItem)} and {@link TinyLfuItemCache#remove(LibraryItem)} methods
+	 * function correctly. The test will only pass if values can be stored, replaced and removed,
+	 * and the weight and statistics are updated accordingly.
+	 */
+	@Test
+	public void testPutGetRemove() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(1000, 10, lengthWeigher);
+		final LibraryItem item1 = new Item(1);
+		final LibraryItem item2 = new Item(2);
+
+		cache.put(item1, "one");
+		cache.put(item2, "two");
+		assertThat(cache.get(new Item(1)), is("one"));
+		assertThat(cache.get(item2), is("two"));
+		assertThat(cache.get(new Item(3)), is(nullValue()));
+		assertThat(cache.size(), is(2));
+		assertThat(cache.getWeight(), is(6L));
+
+		cache.put(item1, "uno!");
+		assertThat(cache.get(item1), is("uno!"));
+		assertThat(cache.getWeight(), is(7L));
+
+		cache.remove(item1);
+		assertThat(cache.get(item1), is(nullValue()));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.getWeight(), is(3L));
+
+		final CacheStats stats = cache.getStats();
+		assertThat(stats.getHitCount(), is(3L));
+		assertThat(stats.getMissCount(), is(2L));
+	}
+
+	/**
+	 * Test to verify that items are keyed by their IDs, and that items without IDs are keyed by
+	 * identity. The test will only pass if every item can be retrieved after the ID table has
+	 * grown, equal IDs share an entry, and removals report the boxed ID or the item as the key.
+	 */
+	@Test
+	public void testKeys() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(100000, 10, 1, lengthWeigher);
+		final LibraryItem itemWithoutId = mock(LibraryItem.class);
+		final List<Object> removedKeys = new ArrayList<>();
+
+		cache.setRemovalListener(new RemovalListener<String>() {
+			@Override
+			public void onRemoval(final Object key, final String value, final RemovalCause cause) {
+				removedKeys.add(key);
+			}
+		});
+
+		for (long id = 1000; id < 1200; id++) {
+			cache.put(new Item(id), "value" + id);
+		}
+
+		cache.put(itemWithoutId, "none");
+
+		for (long id = 1000; id < 1200; id++) {
+			assertThat(cache.get(new Item(id)), is("value" + id));
+		}
+
+		assertThat(cache.get(itemWithoutId), is("none"));
+		assertThat(cache.size(), is(201));
+
+		cache.remove(new Item(1100));
+		cache.remove(itemWithoutId);
+
+		assertThat(cache.get(new Item(1100)), is(nullValue()));
+		assertThat(cache.get(new Item(1101)), is("value1101"));
+		assertThat(cache.get(itemWithoutId), is(nullValue()));
+		assertThat(removedKeys.get(0), is((Object) 1100L));
+		assertThat(removedKeys.get(1), is((Object) itemWithoutId));
+	}
+
+	/**
+	 * Test to verify that the total weight of the cache never exceeds the maximum weight, and that
+	 * values heavier than the cache are rejected. The test will only pass if the weight stays
+	 * within the bound and the heavy value is not cached.
+	 */
+	@Test
+	public void testWeightBound() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(100, 50, 1, lengthWeigher);
+
+		for (int i = 1; i <= 1000; i++) {
+			cache.put(new Item(i), i % 3 == 0 ? "ccc" : "dd");
+			assertThat(cache.getWeight(), is(lessThanOrEqualTo(100L)));
+		}
+
+		final Item heavy = new Item(5000);
+		cache.put(heavy, new String(new char[101]));
+
+		assertThat(cache.get(heavy), is(nullValue()));
+		assertThat(cache.getStats().getRejectionCount(), is(greaterThan(0L)));
+	}
+
+	/**
+	 * Test to verify that frequently used entries survive repeated scans of many entries which are
+	 * each used once. The test will only pass if every frequently used entry is still cached after
+	 * the scans.
+	 */
+	@Test
+	public void testScanResistance() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(100, 100, 1, lengthWeigher);
+
+		// Scan through many items which are never used again, returning to the hot set between scans
+		for (int scan = 0; scan < 50; scan++) {
+			accessHotItems(cache);
+
+			for (int i = 0; i < 200; i++) {
+				cache.put(new Item(1000 + scan * 200 + i), "x");
+			}
+		}
+
+		for (int i = 1; i <= 80; i++) {
+			assertThat("Hot item " + i + " was evicted.", cache.get(new Item(i)), is("x"));
+		}
+	}
+
+	/**
+	 * Test to verify that the removal listener is notified of every removal with the correct
+	 * cause. The test will only pass if explicit removals, replacements and evictions are all
+	 * reported.
+	 */
+	@Test
+	public void testRemovalListener() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(10, 10, 1, lengthWeigher);
+		final List<RemovalCause> causes = new ArrayList<>();
+
+		cache.setRemovalListener(new RemovalListener<String>() {
+			@Override
+			public void onRemoval(final Object key, final String value, final RemovalCause cause) {
+				causes.add(cause);
+			}
+		});
+
+		cache.put(new Item(1), "a");
+		cache.put(new Item(1), "b");
+		assertThat(causes.remove(0), is(RemovalCause.REPLACED));
+
+		cache.remove(new Item(1));
+		assertThat(causes.remove(0), is(RemovalCause.EXPLICIT));
+
+		for (int i = 0; i < 20; i++) {
+			cache.put(new Item(i), "a");
+		}
+
+		assertThat(causes.size(), is(10));
+
+		for (final RemovalCause cause : causes) {
+			assertThat(cause == RemovalCause.EVICTED || cause == RemovalCause.REJECTED, is(true));
+		}
+	}
+
+	/**
+	 * Test to verify that pinned entries are never evicted, and that pins are counted and can be
+	 * taken before the value is cached. The test will only pass if the pinned entry survives
+	 * eviction pressure until its last pin is released, and the pinned weight is reported.
+	 */
+	@Test
+	public void testPinning() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(10, 10, 1, lengthWeigher);
+		final Item pinnedItem = new Item(1);
+
+		// Pin before the value is cached, as happens when a view attaches before its data loads
+		cache.pin(pinnedItem);
+		cache.pin(pinnedItem);
+		cache.put(pinnedItem, "pin");
+		assertThat(cache.getPinnedWeight(), is(3L));
+
+		for (int i = 100; i < 200; i++) {
+			cache.put(new Item(i), "a");
+		}
+
+		assertThat(cache.get(pinnedItem), is("pin"));
+		assertThat(cache.getWeight(), is(lessThanOrEqualTo(10L)));
+
+		cache.unpin(pinnedItem);
+		assertThat(cache.getPinnedWeight(), is(3L));
+
+		cache.unpin(pinnedItem);
+		assertThat(cache.getPinnedWeight(), is(0L));
+
+		// Once unpinned the entry competes normally, so a long run of new entries displaces it
+		for (int round = 0; round < 20; round++) {
+			for (int i = 200; i < 210; i++) {
+				final Item item = new Item(i);
+
+				if (cache.get(item) == null) {
+					cache.put(item, "a");
+				}
+			}
+		}
+
+		assertThat(cache.get(pinnedItem), is(nullValue()));
+		assertThat(cache.getWeight(), is(lessThanOrEqualTo(10L)));
+	}
+
+	/**
+	 * Test to verify that the cache is allowed to exceed its maximum weight when the pinned entries
+	 * alone are heavier, and that it returns within the bound once they are unpinned. The test will
+	 * only pass if the weight is restored once all pins are released.
+	 */
+	@Test
+	public void testPinning_pinnedEntriesExceedMaxWeight() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(10, 10, 1, lengthWeigher);
+
+		for (int i = 0; i < 4; i++) {
+			cache.pin(new Item(i));
+			cache.put(new Item(i), "abc");
+		}
+
+		assertThat(cache.getWeight(), is(12L));
+		assertThat(cache.getPinnedWeight(), is(12L));
+
+		for (int i = 0; i < 4; i++) {
+			cache.unpin(new Item(i));
+		}
+
+		assertThat(cache.getPinnedWeight(), is(0L));
+		assertThat(cache.getWeight(), is(lessThanOrEqualTo(10L)));
+	}
+
+	/**
+	 * Test to verify that statistics are recorded per shard and combined correctly. The test will
+	 * only pass if the sum of the shard statistics equals the combined statistics.
+	 */
+	@Test
+	public void testShardStats() {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(10000, 1000, 8, lengthWeigher);
+
+		assertThat(cache.getShardCount(), is(8));
+
+		for (int i = 0; i < 500; i++) {
+			cache.put(new Item(i), "value");
+			cache.get(new Item(i));
+			cache.get(new Item(i + 10000));
+		}
+
+		long hits = 0;
+		long misses = 0;
+
+		for (int i = 0; i < cache.getShardCount(); i++) {
+			hits += cache.getShardStats(i).getHitCount();
+			misses += cache.getShardStats(i).getMissCount();
+		}
+
+		assertThat(hits, is(500L));
+		assertThat(misses, is(500L));
+		assertThat(cache.getStats().getHitCount(), is(hits));
+		assertThat(cache.getStats().getMissCount(), is(misses));
+	}
+
+	/**
+	 * Test to verify that the cache can be accessed by multiple threads concurrently. The test will
+	 * only pass if no thread fails and the weight stays within the bound.
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final TinyLfuItemCache<String> cache = new TinyLfuItemCache<>(2000, 500, 4, lengthWeigher);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final List<Thread> threads = new ArrayList<>();
+
+		for (int t = 0; t < 4; t++) {
+			final int seed = t;
+
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+
+						for (int i = 0; i < 20000; i++) {
+							final int id = (i * 31 + seed * 7) % 3000;
+							final Item item = new Item(id);
+							final String value = cache.get(item);
+
+							if (value == null) {
+								cache.put(item, Integer.toString(id));
+							} else if (!value.equals(Integer.toString(id))) {
+								throw new AssertionError("Mismatched value for item " + id);
+							}
+						}
+					} catch (final Throwable e) {
+						failure.set(e);
+					}
+				}
+			}));
+		}
+
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+
+		startLatch.countDown();
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(failure.get(), is(nullValue()));
+		assertThat(cache.getWeight(), is(lessThanOrEqualTo(2000L)));
+	}
+
+	/**
+	 * Gets each item in a hot set which fills most of the supplied cache, and caches any which are
+	 * missing.
+	 */
+	private void accessHotItems(final TinyLfuItemCache<String> cache) {
+		for (int i = 1; i <= 80; i++) {
+			final Item item = new Item(i);
+
+			if (cache.get(item) == null) {
+				cache.put(item, "x");
+			}
+		}
+	}
+
+	/**
+	 * An IdentifiableLibraryItem which provides no data.
+	 */
+	private static class Item implements IdentifiableLibraryItem {
+		private final long id;
+
+		public Item(final long id) {
+			this.id = id;
+		}
+
+		@Override
+		public long getItemId() {
+			return id;
+		}
+
+		@Override
+		public CharSequence getTitle() {
+			return null;
+		}
+
+		@Override
+		public CharSequence getSubtitle() {
+			return null;
+		}
+
+		@Override
+		public Drawable getArtwork(final int width, final int height) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemRemovedListener;
+import com.matthewtamlin.mixtape.library.data.IndexedListDataSourceHelper;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.ListSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for the {@link IndexedListDataSourceHelper} class.
+ */
+@RunWith(JUnit4.class)
+public class TestIndexedListDataSourceHelper {
+	/**
+	 * The data source under test.
+	 */
+	private ModifiableDataSource dataSource;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		dataSource = new ModifiableDataSource();
+	}
+
+	/**
+	 * Test to verify that the {@link IndexedListDataSourceHelper#indexOf(Object)} method returns
+	 * the correct positions after a long random sequence of modifications. The test will only pass
+	 * if the position of every item matches its position in an equivalent ArrayList.
+	 */
+	@Test
+	public void testIndexOf_afterRandomModifications() {
+		final Random random = new Random(7);
+		final List<Integer> expected = new ArrayList<>();
+		int nextItem = 0;
+
+		for (int i = 0; i < 100; i++) {
+			expected.add(nextItem++);
+		}
+
+		dataSource.publishItems(expected);
+
+		for (int i = 0; i < 3000; i++) {
+			final int operation = expected.isEmpty() ? 0 : random.nextInt(6);
+
+			if (operation == 0) {
+				final int index = random.nextInt(expected.size() + 1);
+				expected.add(index, nextItem);
+				dataSource.addItem(index, nextItem++);
+			} else if (operation == 1) {
+				final int index = random.nextInt(expected.size() + 1);
+				final List<Integer> added = Arrays.asList(nextItem++, nextItem++, nextItem++);
+				expected.addAll(index, added);
+				dataSource.addItems(index, added);
+			} else if (operation == 2) {
+				final int index = random.nextInt(expected.size());
+				expected.remove(index);
+				dataSource.removeItemAt(index);
+			} else if (operation == 3) {
+				final int from = random.nextInt(expected.size());
+				final int to = from + random.nextInt(Math.min(4, expected.size() - from) + 1);
+				expected.subList(from, to).clear();
+				dataSource.removeItems(from, to);
+			} else if (operation == 4) {
+				final int index = random.nextInt(expected.size());
+				expected.set(index, nextItem);
+				dataSource.setItem(index, nextItem++, LibraryItemFields.TITLE);
+			} else {
+				final int from = random.nextInt(expected.size());
+				final int to = random.nextInt(expected.size());
+				expected.add(to, expected.remove(from));
+				dataSource.moveItem(from, to);
+			}
+		}
+
+		assertThat(dataSource.getLatestSnapshot().getItems(), is(expected));
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(dataSource.indexOf(expected.get(i)), is(i));
+		}
+
+		assertThat(dataSource.indexOf(-1), is(-1));
+		assertThat(dataSource.contains(-1), is(false));
+	}
+
+	/**
+	 * Test to verify that the {@link IndexedListDataSourceHelper#indexOf(Object)} method returns
+	 * the position of the first occurrence when the data source contains duplicates. The test will
+	 * only pass if the first remaining occurrence is returned after each removal.
+	 */
+	@Test
+	public void testIndexOf_duplicates() {
+		dataSource.publishItems(Arrays.asList(1, 2, 1, 3, 1));
+
+		assertThat(dataSource.indexOf(1), is(0));
+
+		dataSource.removeItemAt(0);
+		assertThat(dataSource.indexOf(1), is(1));
+
+		dataSource.moveItem(3, 0);
+		assertThat(dataSource.indexOf(1), is(0));
+
+		dataSource.removeItem(1);
+		dataSource.removeItem(1);
+		assertThat(dataSource.contains(1), is(false));
+		assertThat(dataSource.indexOf(1), is(-1));
+	}
+
+	/**
+	 * Test to verify that the {@link IndexedListDataSourceHelper#removeItem(Object)} method
+	 * functions correctly. The test will only pass if the item is removed, the event carries its
+	 * former index, and removing an absent item has no effect.
+	 */
+	@Test
+	public void testRemoveItem() {
+		final List<Integer> removedIndices = new ArrayList<>();
+
+		dataSource.registerItemRemovedListener(new ItemRemovedListener<Integer>() {
+			@Override
+			public void onDataRemoved(final ListDataSource<Integer> source, final Integer removed,
+					final int index) {
+				removedIndices.add(index);
+			}
+		});
+
+		dataSource.publishItems(Arrays.asList(10, 20, 30));
+
+		assertThat(dataSource.removeItem(30), is(true));
+		assertThat(dataSource.removeItem(40), is(false));
+
+		assertThat(dataSource.getLatestSnapshot().getItems(),
+				is((List<Integer>) Arrays.asList(10, 20)));
+		assertThat(removedIndices, is((List<Integer>) Arrays.asList(2)));
+	}
+
+	/**
+	 * Test to verify that an index out of bounds leaves the index unchanged. The test will only
+	 * pass if an IndexOutOfBoundsException is thrown and the positions are unaffected.
+	 */
+	@Test
+	public void testAddItem_indexOutOfBounds() {
+		dataSource.publishItems(Arrays.asList(1, 2));
+
+		try {
+			dataSource.addItem(3, 3);
+		} catch (final IndexOutOfBoundsException e) {
+			assertThat(dataSource.contains(3), is(false));
+			assertThat(dataSource.indexOf(2), is(1));
+			return;
+		}
+
+		throw new AssertionError("Expected an IndexOutOfBoundsException.");
+	}
+
+	/**
+	 * An IndexedListDataSourceHelper which delivers events immediately, and which widens the
+	 * visibility of the modification methods so that they can be called by tests.
+	 */
+	private static class ModifiableDataSource extends IndexedListDataSourceHelper<Integer> {
+		public ModifiableDataSource() {
+			super(new Executor() {
+				@Override
+				public void execute(final Runnable command) {
+					command.run();
+				}
+			});
+		}
+
+		@Override
+		public void loadData(final boolean forceRefresh,
+				final DataLoadedListener<List<Integer>> callback) {
+			callback.onDataLoaded(this, getLatestSnapshot().getItems());
+		}
+
+		@Override
+		public ListSnapshot<Integer> publishItems(final List<Integer> items) {
+			return super.publishItems(items);
+		}
+
+		@Override
+		public ListSnapshot<Integer> addItem(final int index, final Integer item) {
+			return super.addItem(index, item);
+		}
+
+		@Override
+		public ListSnapshot<Integer> addItems(final int index, final List<Integer> items) {
+			return super.addItems(index, items);
+		}
+
+		@Override
+		public ListSnapshot<Integer> removeItemAt(final int index) {
+			return super.removeItemAt(index);
+		}
+
+		@Override
+		public boolean removeItem(final Object item) {
+			return super.removeItem(item);
+		}
+
+		@Override
+		public ListSnapshot<Integer> removeItems(final int fromIndex, final int toIndex) {
+			return super.removeItems(fromIndex, toIndex);
+		}
+
+		@Override
+		public ListSnapshot<Integer> setItem(final int index, final Integer item,
+				final int changedFields) {
+			return super.setItem(index, item, changedFields);
+		}
+
+		@Override
+		public ListSnapshot<Integer> moveItem(final int initialIndex, final int finalIndex) {
+			return super.moveItem(initialIndex, finalIndex);
+		}
+	}
+}
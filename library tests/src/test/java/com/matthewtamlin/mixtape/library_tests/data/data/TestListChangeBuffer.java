@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.ListChangeBuffer;
+import com.matthewtamlin.mixtape.library.data.ListChangeBuffer.Receiver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Unit tests for the {@link ListChangeBuffer} class.
+ */
+@SuppressWarnings("unchecked") // Warning caused by mocks, but it isn't a problem
+@RunWith(JUnit4.class)
+public class TestListChangeBuffer {
+	/**
+	 * The buffer under test.
+	 */
+	private ListChangeBuffer<LibraryItem> buffer;
+
+	/**
+	 * Receives the changes dispatched by the buffer.
+	 */
+	private Receiver<LibraryItem> receiver;
+
+	/**
+	 * Items to record changes for.
+	 */
+	private LibraryItem a, b, c;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		buffer = new ListChangeBuffer<>();
+		receiver = mock(Receiver.class);
+
+		a = mock(LibraryItem.class);
+		b = mock(LibraryItem.class);
+		c = mock(LibraryItem.class);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code receiver} argument of
+	 * {@link ListChangeBuffer#dispatch(Receiver)} is null. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDispatch_invalidArgs_nullReceiver() {
+		buffer.dispatch(null);
+	}
+
+	/**
+	 * Test to verify that additions which form a contiguous range are merged. The test will only
+	 * pass if a single range addition containing the items in list order is dispatched.
+	 */
+	@Test
+	public void testRecordAdded_contiguous_merged() {
+		buffer.recordAdded(b, 5);
+		buffer.recordAdded(c, 6);
+		buffer.recordAdded(a, 5);
+
+		assertThat(buffer.getChangeCount(), is(1));
+
+		buffer.dispatch(receiver);
+
+		verify(receiver).onItemsAdded(Arrays.asList(a, b, c), 5);
+		verifyNoMoreInteractions(receiver);
+	}
+
+	/**
+	 * Test to verify that removals which form a contiguous range are merged. The test will only
+	 * pass if a single range removal containing the items in list order is dispatched.
+	 */
+	@Test
+	public void testRecordRemoved_contiguous_merged() {
+		buffer.recordRemoved(b, 3);
+		buffer.recordRemoved(c, 3);
+		buffer.recordRemoved(a, 2);
+
+		buffer.dispatch(receiver);
+
+		verify(receiver).onItemsRemoved(Arrays.asList(a, b, c), 2);
+		verifyNoMoreInteractions(receiver);
+	}
+
+	/**
+	 * Test to verify that changes which cannot be merged are dispatched in the order they were
+	 * recorded. The test will only pass if each change is dispatched separately and in order.
+	 */
+	@Test
+	public void testDispatch_unmergeableChanges_orderPreserved() {
+		buffer.recordAdded(a, 0);
+		buffer.recordRemoved(b, 4);
+		buffer.recordMoved(c, 1, 2);
+
+		buffer.dispatch(receiver);
+
+		final InOrder order = inOrder(receiver);
+		order.verify(receiver).onItemsAdded(Arrays.asList(a), 0);
+		order.verify(receiver).onItemsRemoved(Arrays.asList(b), 4);
+		order.verify(receiver).onItemMoved(c, 1, 2);
+		verifyNoMoreInteractions(receiver);
+	}
+
+	/**
+	 * Test to verify that repeated modifications of the same item are merged. The test will only
+	 * pass if a single modification with the combined fields is dispatched.
+	 */
+	@Test
+	public void testRecordModified_repeated_merged() {
+		buffer.recordModified(a, 1, LibraryItemFields.TITLE);
+		buffer.recordModified(a, 1, LibraryItemFields.ARTWORK);
+
+		buffer.dispatch(receiver);
+
+		verify(receiver).onItemModified(a, 1, LibraryItemFields.TITLE | LibraryItemFields.ARTWORK);
+		verifyNoMoreInteractions(receiver);
+	}
+
+	/**
+	 * Test to verify that the buffer is emptied by dispatching, so that it can be reused. The test
+	 * will only pass if the buffer is empty after dispatching, and a second dispatch delivers
+	 * nothing.
+	 */
+	@Test
+	public void testDispatch_emptiesBuffer() {
+		buffer.recordAdded(a, 0);
+		buffer.dispatch(receiver);
+
+		assertThat(buffer.isEmpty(), is(true));
+
+		final Receiver<LibraryItem> secondReceiver = mock(Receiver.class);
+		buffer.dispatch(secondReceiver);
+
+		verifyNoMoreInteractions(secondReceiver);
+	}
+}
@@ -16,19 +16,35 @@
 
 package com.matthewtamlin.mixtape.library_tests.data.data;
 
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.FullListener;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemAddedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemFieldsModifiedListener;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemModifiedListener;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemMovedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemRangeAddedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemRangeRemovedListener;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemRemovedListener;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
 import com.matthewtamlin.mixtape.library.data.ListDataSourceHelper;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
  * Unit tests for the {@link ListDataSourceHelper} class.
@@ -38,7 +54,7 @@ public class TestListDataSourceHelper extends TestBaseDataSourceHelper {
 	/**
 	 * The data source under test.
 	 */
-	private ListDataSourceHelper dataSource;
+	private DeliveringDataSource dataSource;
 
 	@Before
 	@Override
@@ -48,13 +64,8 @@ public class TestListDataSourceHelper extends TestBaseDataSourceHelper {
 	}
 
 	@Override
-	public ListDataSourceHelper<LibraryItem> createNewDataSource() {
-		return new ListDataSourceHelper<LibraryItem>() {
-			@Override
-			public void loadData(final boolean forceRefresh, final DataLoadedListener callback) {
-				// Do nothing, not needed for test
-			}
-		};
+	public DeliveringDataSource createNewDataSource() {
+		return new DeliveringDataSource();
 	}
 
 	/**
@@ -220,4 +231,274 @@ public class TestListDataSourceHelper extends TestBaseDataSourceHelper {
 		assertThat(dataSource.getItemMovedListeners().contains(listener1), is(false));
 		assertThat(dataSource.getItemMovedListeners().contains(listener2), is(true));
 	}
+
+	/**
+	 * Test to verify that the {@link ListDataSourceHelper#registerItemRangeAddedListener(ItemRangeAddedListener)}
+	 * method functions correctly. The test will only pass if the non-null listeners are registered
+	 * and the null listener is ignored.
+	 */
+	@Test
+	public void testRegisterItemRangeAddedListener() {
+		final ItemRangeAddedListener listener1 = mock(ItemRangeAddedListener.class);
+		final ItemRangeAddedListener listener2 = mock(ItemRangeAddedListener.class);
+
+		dataSource.registerItemRangeAddedListener(listener1);
+		dataSource.registerItemRangeAddedListener(listener2);
+		dataSource.registerItemRangeAddedListener(null);
+
+		assertThat(dataSource.getItemRangeAddedListeners().size(), is(2));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(null), is(false));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(listener1), is(true));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(listener2), is(true));
+	}
+
+	/**
+	 * Test to verify that the {@link ListDataSourceHelper#unregisterItemRangeAddedListener(ItemRangeAddedListener)}
+	 * method functions correctly. The test will only pass if only specific listeners are
+	 * unregistered.
+	 */
+	@Test
+	public void testUnregisterItemRangeAddedListener() {
+		final ItemRangeAddedListener listener1 = mock(ItemRangeAddedListener.class);
+		final ItemRangeAddedListener listener2 = mock(ItemRangeAddedListener.class);
+
+		dataSource.registerItemRangeAddedListener(listener1);
+		dataSource.registerItemRangeAddedListener(listener2);
+		dataSource.unregisterItemRangeAddedListener(listener1);
+		dataSource.unregisterItemRangeAddedListener(null);
+
+		assertThat(dataSource.getItemRangeAddedListeners().size(), is(1));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(null), is(false));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(listener1), is(false));
+		assertThat(dataSource.getItemRangeAddedListeners().contains(listener2), is(true));
+	}
+
+	/**
+	 * Test to verify that the {@link ListDataSourceHelper#registerItemRangeRemovedListener(ItemRangeRemovedListener)}
+	 * method functions correctly. The test will only pass if the non-null listeners are registered
+	 * and the null listener is ignored.
+	 */
+	@Test
+	public void testRegisterItemRangeRemovedListener() {
+		final ItemRangeRemovedListener listener1 = mock(ItemRangeRemovedListener.class);
+		final ItemRangeRemovedListener listener2 = mock(ItemRangeRemovedListener.class);
+
+		dataSource.registerItemRangeRemovedListener(listener1);
+		dataSource.registerItemRangeRemovedListener(listener2);
+		dataSource.registerItemRangeRemovedListener(null);
+
+		assertThat(dataSource.getItemRangeRemovedListeners().size(), is(2));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(null), is(false));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(listener1), is(true));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(listener2), is(true));
+	}
+
+	/**
+	 * Test to verify that the {@link ListDataSourceHelper#unregisterItemRangeRemovedListener(ItemRangeRemovedListener)}
+	 * method functions correctly. The test will only pass if only specific listeners are
+	 * unregistered.
+	 */
+	@Test
+	public void testUnregisterItemRangeRemovedListener() {
+		final ItemRangeRemovedListener listener1 = mock(ItemRangeRemovedListener.class);
+		final ItemRangeRemovedListener listener2 = mock(ItemRangeRemovedListener.class);
+
+		dataSource.registerItemRangeRemovedListener(listener1);
+		dataSource.registerItemRangeRemovedListener(listener2);
+		dataSource.unregisterItemRangeRemovedListener(listener1);
+		dataSource.unregisterItemRangeRemovedListener(null);
+
+		assertThat(dataSource.getItemRangeRemovedListeners().size(), is(1));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(null), is(false));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(listener1), is(false));
+		assertThat(dataSource.getItemRangeRemovedListeners().contains(listener2), is(true));
+	}
+
+	/**
+	 * Test to verify that removals delivered outside of a transaction are delivered immediately.
+	 * The test will only pass if each removal is delivered to the item removed listener as it
+	 * occurs.
+	 */
+	@Test
+	public void testDeliverItemRemoved_noTransaction() {
+		final ItemRemovedListener listener = mock(ItemRemovedListener.class);
+		dataSource.registerItemRemovedListener(listener);
+
+		final LibraryItem item1 = mock(LibraryItem.class);
+		final LibraryItem item2 = mock(LibraryItem.class);
+
+		dataSource.deliverItemRemoved(item1, 4);
+		verify(listener).onDataRemoved(dataSource, item1, 4);
+
+		dataSource.deliverItemRemoved(item2, 4);
+		verify(listener).onDataRemoved(dataSource, item2, 4);
+	}
+
+	/**
+	 * Test to verify that adjacent removals delivered during a transaction are merged into a single
+	 * range removal when the transaction is committed. The test will only pass if nothing is
+	 * delivered until the commit, and then a single range event is delivered to the listener which
+	 * is registered for both range and single removals.
+	 */
+	@Test
+	public void testTransaction_adjacentRemovals_mergedIntoRange() {
+		final FullListener listener = mock(FullListener.class);
+		dataSource.registerItemRemovedListener(listener);
+		dataSource.registerItemRangeRemovedListener(listener);
+
+		final LibraryItem item1 = mock(LibraryItem.class);
+		final LibraryItem item2 = mock(LibraryItem.class);
+		final LibraryItem item3 = mock(LibraryItem.class);
+
+		dataSource.beginTransaction();
+		dataSource.deliverItemRemoved(item2, 5);
+		dataSource.deliverItemRemoved(item3, 5);
+		dataSource.deliverItemRemoved(item1, 4);
+
+		verifyZeroInteractions(listener);
+
+		dataSource.commitTransaction();
+
+		verify(listener).onDataRangeRemoved(dataSource, Arrays.asList(item1, item2, item3), 4);
+		verify(listener, never()).onDataRemoved(any(ListDataSource.class), any(), anyInt());
+	}
+
+	/**
+	 * Test to verify that a range addition is expanded for listeners which are only registered for
+	 * single item additions. The test will only pass if the listener receives one event per item,
+	 * with the correct indices.
+	 */
+	@Test
+	public void testTransaction_adjacentAdditions_expandedForItemListeners() {
+		final ItemAddedListener listener = mock(ItemAddedListener.class);
+		dataSource.registerItemAddedListener(listener);
+
+		final LibraryItem item1 = mock(LibraryItem.class);
+		final LibraryItem item2 = mock(LibraryItem.class);
+
+		dataSource.beginTransaction();
+		dataSource.deliverItemAdded(item1, 2);
+		dataSource.deliverItemAdded(item2, 3);
+		dataSource.commitTransaction();
+
+		verify(listener).onDataAdded(dataSource, item1, 2);
+		verify(listener).onDataAdded(dataSource, item2, 3);
+	}
+
+	/**
+	 * Test to verify that events are only delivered when the outermost of several nested
+	 * transactions is committed. The test will only pass if nothing is delivered when the inner
+	 * transaction is committed.
+	 */
+	@Test
+	public void testTransaction_nested() {
+		final ItemMovedListener listener = mock(ItemMovedListener.class);
+		dataSource.registerItemMovedListener(listener);
+
+		final LibraryItem item = mock(LibraryItem.class);
+
+		dataSource.beginTransaction();
+		dataSource.beginTransaction();
+		dataSource.deliverItemMoved(item, 1, 2);
+		dataSource.commitTransaction();
+
+		verifyZeroInteractions(listener);
+		assertThat(dataSource.isInTransaction(), is(true));
+
+		dataSource.commitTransaction();
+
+		verify(listener).onDataMoved(dataSource, item, 1, 2);
+		assertThat(dataSource.isInTransaction(), is(false));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when {@link
+	 * ListDataSourceHelper#commitTransaction()} is called without an open transaction. The test
+	 * will only pass if an IllegalStateException is thrown.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testCommitTransaction_noTransaction() {
+		dataSource.commitTransaction();
+	}
+
+	/**
+	 * Test to verify that modifications are delivered with the changed fields to listeners which
+	 * support them. The test will only pass if the fields aware listener receives the fields and
+	 * the plain listener receives the plain callback.
+	 */
+	@Test
+	public void testDeliverItemModified() {
+		final ItemFieldsModifiedListener fieldsListener = mock(ItemFieldsModifiedListener.class);
+		final ItemModifiedListener plainListener = mock(ItemModifiedListener.class);
+		dataSource.registerItemModifiedListener(fieldsListener);
+		dataSource.registerItemModifiedListener(plainListener);
+
+		final LibraryItem item = mock(LibraryItem.class);
+
+		dataSource.deliverItemModified(item, 3, LibraryItemFields.TITLE);
+
+		verify(fieldsListener).onItemFieldsModified(dataSource, item, 3, LibraryItemFields.TITLE);
+		verify(fieldsListener, never()).onItemModified(any(ListDataSource.class), any(), anyInt());
+		verify(plainListener).onItemModified(dataSource, item, 3);
+	}
+
+	/**
+	 * Test to verify that events are delivered through the executor a listener was registered
+	 * with. The test will only pass if the listener is not called until the executor runs the
+	 * delivery.
+	 */
+	@Test
+	public void testDeliverItemAdded_withExecutor() {
+		final ItemAddedListener listener = mock(ItemAddedListener.class);
+		final List<Runnable> pendingTasks = new ArrayList<>();
+
+		dataSource.registerItemAddedListener(listener, new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				pendingTasks.add(command);
+			}
+		});
+
+		final LibraryItem item = mock(LibraryItem.class);
+		dataSource.deliverItemAdded(item, 2);
+
+		verifyZeroInteractions(listener);
+		assertThat(pendingTasks.size(), is(1));
+
+		pendingTasks.get(0).run();
+
+		verify(listener).onDataAdded(dataSource, item, 2);
+	}
+
+	/**
+	 * A ListDataSourceHelper which exposes the deliver methods for testing.
+	 */
+	public static class DeliveringDataSource extends ListDataSourceHelper<LibraryItem> {
+		@Override
+		public void loadData(final boolean forceRefresh, final DataLoadedListener callback) {
+			// Do nothing, not needed for test
+		}
+
+		@Override
+		public void deliverItemAdded(final LibraryItem item, final int index) {
+			super.deliverItemAdded(item, index);
+		}
+
+		@Override
+		public void deliverItemRemoved(final LibraryItem item, final int index) {
+			super.deliverItemRemoved(item, index);
+		}
+
+		@Override
+		public void deliverItemModified(final LibraryItem item, final int index,
+				final int changedFields) {
+			super.deliverItemModified(item, index, changedFields);
+		}
+
+		@Override
+		public void deliverItemMoved(final LibraryItem item, final int initialIndex,
+				final int finalIndex) {
+			super.deliverItemMoved(item, initialIndex, finalIndex);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry;
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry.Registration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for the {@link ListenerRegistry} class.
+ */
+@RunWith(JUnit4.class)
+public class TestListenerRegistry {
+	/**
+	 * The registry under test.
+	 */
+	private ListenerRegistry<Runnable> registry;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		registry = new ListenerRegistry<>();
+	}
+
+	/**
+	 * Test to verify that the {@link ListenerRegistry#register(Object)} method functions correctly.
+	 * The test will only pass if the non-null listeners are registered once each, in order, and the
+	 * null listener is ignored.
+	 */
+	@Test
+	public void testRegister() {
+		final Runnable listener1 = mock(Runnable.class);
+		final Runnable listener2 = mock(Runnable.class);
+
+		registry.register(listener1);
+		registry.register(listener2);
+		registry.register(listener1);
+		registry.register(null);
+
+		final Registration<Runnable>[] registrations = registry.getRegistrations();
+
+		assertThat(registry.size(), is(2));
+		assertThat(registrations[0].getListener(), is(listener1));
+		assertThat(registrations[1].getListener(), is(listener2));
+	}
+
+	/**
+	 * Test to verify that registering a listener again with an executor replaces its executor
+	 * without changing its position. The test will only pass if the listener is registered once,
+	 * with the new executor.
+	 */
+	@Test
+	public void testRegister_existingListener_executorReplaced() {
+		final Runnable listener = mock(Runnable.class);
+		final Executor executor = mock(Executor.class);
+
+		registry.register(listener);
+		registry.register(listener, executor);
+
+		assertThat(registry.size(), is(1));
+		assertThat(registry.getRegistrations()[0].getExecutor(), is(executor));
+
+		registry.register(listener);
+
+		assertThat(registry.getRegistrations()[0].getExecutor(), is(nullValue()));
+	}
+
+	/**
+	 * Test to verify that the {@link ListenerRegistry#unregister(Object)} method functions
+	 * correctly. The test will only pass if only the specified listener is unregistered.
+	 */
+	@Test
+	public void testUnregister() {
+		final Runnable listener1 = mock(Runnable.class);
+		final Runnable listener2 = mock(Runnable.class);
+
+		registry.register(listener1);
+		registry.register(listener2);
+		registry.unregister(listener1);
+		registry.unregister(null);
+
+		assertThat(registry.size(), is(1));
+		assertThat(registry.contains(listener1), is(false));
+		assertThat(registry.contains(listener2), is(true));
+	}
+
+	/**
+	 * Test to verify that the registrations returned by the registry are a snapshot. The test will
+	 * only pass if later registrations do not change a previously returned array or set.
+	 */
+	@Test
+	public void testGetRegistrations_snapshot() {
+		final Runnable listener1 = mock(Runnable.class);
+		final Runnable listener2 = mock(Runnable.class);
+
+		registry.register(listener1);
+
+		final Registration<Runnable>[] registrations = registry.getRegistrations();
+		final Set<Runnable> listeners = registry.getListeners();
+
+		registry.register(listener2);
+		registry.unregister(listener1);
+
+		assertThat(registrations.length, is(1));
+		assertThat(registrations[0].getListener(), is(listener1));
+		assertThat(listeners.size(), is(1));
+		assertThat(listeners.contains(listener1), is(true));
+	}
+
+	/**
+	 * Test to verify that the set returned by {@link ListenerRegistry#getListeners()} cannot be
+	 * modified. The test will only pass if an UnsupportedOperationException is thrown.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetListeners_unmodifiable() {
+		registry.getListeners().add(mock(Runnable.class));
+	}
+
+	/**
+	 * Test to verify that concurrent registrations from several threads are not lost. The test
+	 * will only pass if every listener is registered.
+	 */
+	@Test
+	public void testRegister_concurrent() throws InterruptedException {
+		final int threadCount = 4;
+		final int listenersPerThread = 250;
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch finishedLatch = new CountDownLatch(threadCount);
+
+		for (int i = 0; i < threadCount; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+
+						for (int j = 0; j < listenersPerThread; j++) {
+							registry.register(new Runnable() {
+								@Override
+								public void run() {
+									// Do nothing, not needed for test
+								}
+							});
+						}
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						finishedLatch.countDown();
+					}
+				}
+			}).start();
+		}
+
+		startLatch.countDown();
+
+		assertThat(finishedLatch.await(10, TimeUnit.SECONDS), is(true));
+		assertThat(registry.size(), is(threadCount * listenersPerThread));
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.MetadataStore;
+import com.matthewtamlin.mixtape.library.data.MetadataStore.Row;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Unit tests for the {@link MetadataStore} class.
+ */
+@RunWith(JUnit4.class)
+public class TestMetadataStore {
+	/**
+	 * The store under test.
+	 */
+	private MetadataStore store;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		store = new MetadataStore();
+	}
+
+	/**
+	 * Test to verify that rows can be added and read back. The test will only pass if every field
+	 * of every row is returned unchanged, including null fields.
+	 */
+	@Test
+	public void testAddRow() {
+		final int first = store.addRow(1, "Title 1", "Artist", "Album", "Album artist", 1, 1, 1999);
+		final int second = store.addRow(IdentifiableLibraryItem.NO_ID, null, null, null, null, 0,
+				0, 0);
+		final int third = store.addRow(3, "", "Artist", "Album", null, 2, 1, 1999);
+
+		assertThat(first, is(0));
+		assertThat(second, is(1));
+		assertThat(third, is(2));
+		assertThat(store.getRowCount(), is(3));
+
+		assertThat(store.getId(0), is(1L));
+		assertThat(store.getTitle(0), is("Title 1"));
+		assertThat(store.getArtist(0), is("Artist"));
+		assertThat(store.getAlbum(0), is("Album"));
+		assertThat(store.getAlbumArtist(0), is("Album artist"));
+		assertThat(store.getTrackNumber(0), is(1));
+		assertThat(store.getDiscNumber(0), is(1));
+		assertThat(store.getYear(0), is(1999));
+
+		assertThat(store.getId(1), is(IdentifiableLibraryItem.NO_ID));
+		assertThat(store.getTitle(1), is(nullValue()));
+		assertThat(store.getArtist(1), is(nullValue()));
+		assertThat(store.getAlbum(1), is(nullValue()));
+		assertThat(store.getAlbumArtist(1), is(nullValue()));
+
+		assertThat(store.getTitle(2), is(""));
+		assertThat(store.getTrackNumber(2), is(2));
+	}
+
+	/**
+	 * Test to verify that repeated names are stored once. The test will only pass if equal names
+	 * supplied as different objects are returned as the same instance.
+	 */
+	@Test
+	public void testAddRow_namesArePooled() {
+		store.addRow(1, "A", new String("Artist"), new String("Album"), null, 1, 1, 0);
+		store.addRow(2, "B", new String("Artist"), new String("Album"), null, 2, 1, 0);
+
+		assertThat(store.getArtist(0) == store.getArtist(1), is(true));
+		assertThat(store.getAlbum(0) == store.getAlbum(1), is(true));
+	}
+
+	/**
+	 * Test to verify that the flyweight rows present the store correctly. The test will only pass
+	 * if the rows return the metadata of their row, and rows are equal when they refer to the same
+	 * row.
+	 */
+	@Test
+	public void testRows() throws Exception {
+		store.addRow(10, "Title 1", "Artist 1", "Album", null, 1, 1, 0);
+		store.addRow(20, "Title 2", "Artist 2", "Album", null, 2, 1, 0);
+
+		final List<Row> rows = store.asList();
+		store.addRow(30, "Title 3", "Artist 3", "Album", null, 3, 1, 0);
+
+		assertThat(rows.size(), is(2));
+		assertThat(rows.get(1).getItemId(), is(20L));
+		assertThat(rows.get(1).getTitle().toString(), is("Title 2"));
+		assertThat(rows.get(1).getSubtitle().toString(), is("Artist 2"));
+		assertThat(rows.get(1).getArtwork(10, 10), is(nullValue()));
+		assertThat(rows.get(1).equals(store.getRow(1)), is(true));
+		assertThat(rows.get(1).hashCode(), is(store.getRow(1).hashCode()));
+		assertThat(rows.get(0).equals(rows.get(1)), is(false));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a row out of bounds is requested.
+	 * The test will only pass if an IndexOutOfBoundsException is thrown.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetTitle_rowOutOfBounds() {
+		store.addRow(1, "Title", null, null, null, 0, 0, 0);
+		store.getTitle(1);
+	}
+
+	/**
+	 * Test to verify that trimming the store does not change its contents. The test will only pass
+	 * if the rows are unchanged after trimming, and rows can still be appended afterwards.
+	 */
+	@Test
+	public void testTrimToSize() {
+		for (int i = 0; i < 100; i++) {
+			store.addRow(i, "Title " + i, "Artist " + i / 10, "Album", null, i, 1, 2000);
+		}
+
+		store.trimToSize();
+		store.addRow(100, "Title 100", "Artist 10", "Album", null, 100, 1, 2000);
+
+		assertThat(store.getRowCount(), is(101));
+
+		for (int i = 0; i <= 100; i++) {
+			assertThat(store.getId(i), is((long) i));
+			assertThat(store.getTitle(i), is("Title " + i));
+			assertThat(store.getArtist(i), is("Artist " + i / 10));
+			assertThat(store.getTrackNumber(i), is(i));
+		}
+	}
+
+	/**
+	 * Test to verify that an empty store can be trimmed and then grown. The test will only pass if
+	 * a row can be appended and read back after trimming an empty store.
+	 */
+	@Test
+	public void testTrimToSize_emptyStore() {
+		store.trimToSize();
+		store.addRow(1, "Title", "Artist", null, null, 1, 1, 0);
+
+		assertThat(store.getRowCount(), is(1));
+		assertThat(store.getTitle(0), is("Title"));
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.PersistentList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for the {@link PersistentList} class.
+ */
+@RunWith(JUnit4.class)
+public class TestPersistentList {
+	/**
+	 * Test to verify that the correct exception is thrown when null is passed to {@link
+	 * PersistentList#copyOf(java.util.Collection)}. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCopyOf_null() {
+		PersistentList.copyOf(null);
+	}
+
+	/**
+	 * Test to verify that the {@link PersistentList#copyOf(java.util.Collection)} method
+	 * functions correctly. The test will only pass if the new list contains the same elements in
+	 * the same order, including null.
+	 */
+	@Test
+	public void testCopyOf() {
+		final List<String> source = Arrays.asList("a", null, "c", "d", "e");
+		final PersistentList<String> list = PersistentList.copyOf(source);
+
+		assertThat(list.size(), is(5));
+		assertThat(list.equals(source), is(true));
+		assertThat(new ArrayList<>(list), is(source));
+	}
+
+	/**
+	 * Test to verify that modifying a list does not change the original. The test will only pass
+	 * if every version of the list keeps its own elements.
+	 */
+	@Test
+	public void testModification_originalUnchanged() {
+		final PersistentList<String> original = PersistentList.copyOf(Arrays.asList("a", "b", "c"));
+
+		final PersistentList<String> added = original.plus(1, "x");
+		final PersistentList<String> removed = original.minus(0);
+		final PersistentList<String> replaced = original.with(2, "y");
+
+		assertThat(original, is((List<String>) Arrays.asList("a", "b", "c")));
+		assertThat(added, is((List<String>) Arrays.asList("a", "x", "b", "c")));
+		assertThat(removed, is((List<String>) Arrays.asList("b", "c")));
+		assertThat(replaced, is((List<String>) Arrays.asList("a", "b", "y")));
+	}
+
+	/**
+	 * Test to verify that the {@link PersistentList#plusAll(int, java.util.Collection)} and {@link
+	 * PersistentList#minusRange(int, int)} methods function correctly. The test will only pass if
+	 * the ranges are inserted and removed at the correct positions.
+	 */
+	@Test
+	public void testPlusAllAndMinusRange() {
+		final PersistentList<Integer> list = PersistentList.copyOf(Arrays.asList(0, 1, 2, 3));
+
+		final PersistentList<Integer> inserted = list.plusAll(2, Arrays.asList(7, 8, 9));
+		assertThat(inserted, is((List<Integer>) Arrays.asList(0, 1, 7, 8, 9, 2, 3)));
+
+		final PersistentList<Integer> removed = inserted.minusRange(1, 5);
+		assertThat(removed, is((List<Integer>) Arrays.asList(0, 2, 3)));
+
+		assertThat(list.minusRange(2, 2) == list, is(true));
+	}
+
+	/**
+	 * Test to verify that a long random sequence of modifications produces the same results as an
+	 * ArrayList. The test will only pass if the lists match after every modification.
+	 */
+	@Test
+	public void testRandomModifications_matchArrayList() {
+		final Random random = new Random(42);
+		final List<Integer> expected = new ArrayList<>();
+		PersistentList<Integer> actual = PersistentList.empty();
+
+		for (int i = 0; i < 5000; i++) {
+			final int operation = expected.isEmpty() ? 0 : random.nextInt(4);
+
+			if (operation == 0 || operation == 1) {
+				final int index = random.nextInt(expected.size() + 1);
+				expected.add(index, i);
+				actual = actual.plus(index, i);
+			} else if (operation == 2) {
+				final int index = random.nextInt(expected.size());
+				expected.remove(index);
+				actual = actual.minus(index);
+			} else {
+				final int index = random.nextInt(expected.size());
+				expected.set(index, -i);
+				actual = actual.with(index, -i);
+			}
+
+			assertThat(actual.size(), is(expected.size()));
+		}
+
+		assertThat(actual, is(expected));
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i), is(expected.get(i)));
+		}
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when an index out of bounds is passed to
+	 * {@link PersistentList#get(int)}. The test will only pass if an IndexOutOfBoundsException is
+	 * thrown.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGet_indexOutOfBounds() {
+		PersistentList.copyOf(Arrays.asList(1, 2, 3)).get(3);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when an index greater than the size is
+	 * passed to {@link PersistentList#plus(int, Object)}. The test will only pass if an
+	 * IndexOutOfBoundsException is thrown.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testPlus_indexOutOfBounds() {
+		PersistentList.<Integer>empty().plus(1, 1);
+	}
+
+	/**
+	 * Test to verify that the list cannot be modified through the List interface. The test will
+	 * only pass if an UnsupportedOperationException is thrown.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAdd_unsupported() {
+		PersistentList.<Integer>empty().add(1);
+	}
+
+	/**
+	 * Test to verify that the list cannot be modified through its iterator. The test will only
+	 * pass if an UnsupportedOperationException is thrown.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIteratorRemove_unsupported() {
+		final Iterator<Integer> iterator = PersistentList.copyOf(Arrays.asList(1, 2)).iterator();
+		iterator.next();
+		iterator.remove();
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.DataLoadedListener;
+import com.matthewtamlin.mixtape.library.data.SingleFlightLoader;
+import com.matthewtamlin.mixtape.library.data.SingleFlightLoader.LoadTask;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the {@link SingleFlightLoader} class.
+ */
+@SuppressWarnings("unchecked") // Warning caused by mocks, but it isn't a problem
+@RunWith(JUnit4.class)
+public class TestSingleFlightLoader {
+	/**
+	 * The data source to pass to the loader.
+	 */
+	private BaseDataSource<String> source;
+
+	/**
+	 * A load task which records the requests it receives, and returns the number of the request as
+	 * a string.
+	 */
+	private RecordingLoadTask task;
+
+	/**
+	 * Holds the load runnables until the test runs them.
+	 */
+	private ManualExecutor loadExecutor;
+
+	/**
+	 * Runs callbacks immediately.
+	 */
+	private Executor callbackExecutor;
+
+	/**
+	 * The loader under test.
+	 */
+	private SingleFlightLoader<String> loader;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		source = mock(BaseDataSource.class);
+		task = new RecordingLoadTask();
+		loadExecutor = new ManualExecutor();
+
+		callbackExecutor = new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				command.run();
+			}
+		};
+
+		loader = new SingleFlightLoader<>(source, task, loadExecutor, callbackExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code source} argument of
+	 * {@link SingleFlightLoader#SingleFlightLoader(BaseDataSource, LoadTask, Executor, Executor)}
+	 * is null. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullSource() {
+		new SingleFlightLoader<>(null, task, loadExecutor, callbackExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code task} argument of {@link
+	 * SingleFlightLoader#SingleFlightLoader(BaseDataSource, LoadTask, Executor, Executor)} is null.
+	 * The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullTask() {
+		new SingleFlightLoader<>(source, null, loadExecutor, callbackExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code loadExecutor} argument of
+	 * {@link SingleFlightLoader#SingleFlightLoader(BaseDataSource, LoadTask, Executor, Executor)}
+	 * is null. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullLoadExecutor() {
+		new SingleFlightLoader<>(source, task, null, callbackExecutor);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when the {@code callbackExecutor}
+	 * argument of {@link SingleFlightLoader#SingleFlightLoader(BaseDataSource, LoadTask, Executor,
+	 * Executor)} is null. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullCallbackExecutor() {
+		new SingleFlightLoader<>(source, task, loadExecutor, null);
+	}
+
+	/**
+	 * Test to verify that requests made while a load is in flight join that load. The test will
+	 * only pass if the task runs once and every callback receives its result.
+	 */
+	@Test
+	public void testLoad_requestsDuringLoad_joinLoad() {
+		final DataLoadedListener<String> callback1 = mock(DataLoadedListener.class);
+		final DataLoadedListener<String> callback2 = mock(DataLoadedListener.class);
+
+		loader.load(false, callback1);
+		loader.load(false, callback2);
+		loader.load(false, null);
+
+		assertThat(loader.isLoading(), is(true));
+		assertThat(loadExecutor.runAll(), is(1));
+
+		assertThat(task.requests.size(), is(1));
+		assertThat(loader.isLoading(), is(false));
+		verify(callback1, times(1)).onDataLoaded(source, "0");
+		verify(callback2, times(1)).onDataLoaded(source, "0");
+	}
+
+	/**
+	 * Test to verify that a callback which requests the same load twice is only notified once.
+	 * The test will only pass if the callback receives one result.
+	 */
+	@Test
+	public void testLoad_sameCallbackTwice_notifiedOnce() {
+		final DataLoadedListener<String> callback = mock(DataLoadedListener.class);
+
+		loader.load(false, callback);
+		loader.load(false, callback);
+		loadExecutor.runAll();
+
+		verify(callback, times(1)).onDataLoaded(source, "0");
+	}
+
+	/**
+	 * Test to verify that forced refreshes requested while a load is in flight are merged into a
+	 * single follow-up load. The test will only pass if the follow-up does not start until the
+	 * current load finishes, the task runs exactly twice, and each callback receives the result of
+	 * the load it waited for.
+	 */
+	@Test
+	public void testLoad_forcedRefreshesDuringLoad_mergedIntoSingleFollowUp() {
+		final DataLoadedListener<String> callback1 = mock(DataLoadedListener.class);
+		final DataLoadedListener<String> callback2 = mock(DataLoadedListener.class);
+		final DataLoadedListener<String> callback3 = mock(DataLoadedListener.class);
+
+		loader.load(false, callback1);
+		loader.load(true, callback2);
+		loader.load(true, callback3);
+
+		assertThat(loadExecutor.pending.size(), is(1));
+
+		loadExecutor.runNext();
+
+		assertThat(task.requests.size(), is(1));
+		assertThat(loader.isLoading(), is(true));
+		verify(callback1, times(1)).onDataLoaded(source, "0");
+		verify(callback2, never()).onDataLoaded(any(BaseDataSource.class), any(String.class));
+		verify(callback3, never()).onDataLoaded(any(BaseDataSource.class), any(String.class));
+
+		assertThat(loadExecutor.runAll(), is(1));
+
+		assertThat(task.requests.size(), is(2));
+		assertThat(task.requests.get(0), is(false));
+		assertThat(task.requests.get(1), is(true));
+		verify(callback1, times(1)).onDataLoaded(source, "0");
+		verify(callback2, times(1)).onDataLoaded(source, "1");
+		verify(callback3, times(1)).onDataLoaded(source, "1");
+	}
+
+	/**
+	 * Test to verify that a request made after a load has finished starts a new load. The test
+	 * will only pass if the task runs twice.
+	 */
+	@Test
+	public void testLoad_afterLoadFinished_startsNewLoad() {
+		final DataLoadedListener<String> callback = mock(DataLoadedListener.class);
+
+		loader.load(false, callback);
+		loadExecutor.runAll();
+		loader.load(false, callback);
+		loadExecutor.runAll();
+
+		assertThat(task.requests.size(), is(2));
+		verify(callback, times(1)).onDataLoaded(source, "0");
+		verify(callback, times(1)).onDataLoaded(source, "1");
+	}
+
+	/**
+	 * Test to verify that every callback waiting for a load is notified if the load fails. The
+	 * test will only pass if each callback receives one failure callback.
+	 */
+	@Test
+	public void testLoad_taskThrows_callbacksNotifiedOfFailure() {
+		final DataLoadedListener<String> callback1 = mock(DataLoadedListener.class);
+		final DataLoadedListener<String> callback2 = mock(DataLoadedListener.class);
+
+		task.fail = true;
+
+		loader.load(false, callback1);
+		loader.load(false, callback2);
+		loadExecutor.runAll();
+
+		assertThat(loader.isLoading(), is(false));
+		verify(callback1, times(1)).onLoadDataFailed(source);
+		verify(callback2, times(1)).onLoadDataFailed(source);
+		verify(callback1, never()).onDataLoaded(any(BaseDataSource.class), any(String.class));
+	}
+
+	/**
+	 * A load task which records each request and returns the index of the request as a string.
+	 */
+	private static class RecordingLoadTask implements LoadTask<String> {
+		/**
+		 * The forceRefresh argument of each request, in order.
+		 */
+		private final List<Boolean> requests = new ArrayList<>();
+
+		/**
+		 * Whether or not the task should fail.
+		 */
+		private boolean fail = false;
+
+		@Override
+		public String load(final boolean forceRefresh) throws Exception {
+			requests.add(forceRefresh);
+
+			if (fail) {
+				throw new Exception("Load failed.");
+			}
+
+			return String.valueOf(requests.size() - 1);
+		}
+	}
+
+	/**
+	 * An executor which holds runnables until they are explicitly run.
+	 */
+	private static class ManualExecutor implements Executor {
+		/**
+		 * The runnables which have not been run yet.
+		 */
+		private final Queue<Runnable> pending = new LinkedList<>();
+
+		@Override
+		public void execute(final Runnable command) {
+			pending.add(command);
+		}
+
+		/**
+		 * Runs the next pending runnable.
+		 */
+		private void runNext() {
+			pending.remove().run();
+		}
+
+		/**
+		 * Runs pending runnables until none remain, including runnables added while running.
+		 *
+		 * @return the number of runnables run
+		 */
+		private int runAll() {
+			int count = 0;
+
+			while (!pending.isEmpty()) {
+				runNext();
+				count++;
+			}
+
+			return count;
+		}
+	}
+}
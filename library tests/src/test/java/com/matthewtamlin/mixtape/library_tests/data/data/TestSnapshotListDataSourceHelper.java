@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemAddedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource.ItemRemovedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.ListSnapshot;
+import com.matthewtamlin.mixtape.library.data.SnapshotListDataSourceHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for the {@link SnapshotListDataSourceHelper} class.
+ */
+@RunWith(JUnit4.class)
+public class TestSnapshotListDataSourceHelper {
+	/**
+	 * Holds deliveries until the test runs them.
+	 */
+	private Queue<Runnable> pendingDeliveries;
+
+	/**
+	 * The data source under test.
+	 */
+	private ModifiableDataSource dataSource;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		pendingDeliveries = new LinkedList<>();
+
+		dataSource = new ModifiableDataSource(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				pendingDeliveries.add(command);
+			}
+		});
+	}
+
+	/**
+	 * Test to verify that each modification creates a new snapshot with a higher version, and
+	 * leaves the earlier snapshots unchanged. The test will only pass if every snapshot keeps its
+	 * own items.
+	 */
+	@Test
+	public void testModifications_createVersionedSnapshots() {
+		final ListSnapshot<String> initial = dataSource.getLatestSnapshot();
+		final ListSnapshot<String> loaded = dataSource.publishItems(Arrays.asList("a", "b"));
+		final ListSnapshot<String> added = dataSource.addItem(1, "c");
+		final ListSnapshot<String> removed = dataSource.removeItemAt(0);
+
+		assertThat(initial.getVersion(), is(0L));
+		assertThat(loaded.getVersion(), is(1L));
+		assertThat(added.getVersion(), is(2L));
+		assertThat(removed.getVersion(), is(3L));
+
+		assertThat(initial.getItems().isEmpty(), is(true));
+		assertThat(loaded.getItems(), is((List<String>) Arrays.asList("a", "b")));
+		assertThat(added.getItems(), is((List<String>) Arrays.asList("a", "c", "b")));
+		assertThat(removed.getItems(), is((List<String>) Arrays.asList("c", "b")));
+		assertThat(dataSource.getLatestSnapshot() == removed, is(true));
+	}
+
+	/**
+	 * Test to verify that the published snapshot only advances when the matching event is
+	 * delivered. The test will only pass if each listener callback observes the snapshot which
+	 * reflects its event.
+	 */
+	@Test
+	public void testDelivery_publishedSnapshotMatchesEvent() {
+		final List<Long> observedVersions = new ArrayList<>();
+		final List<List<String>> observedItems = new ArrayList<>();
+
+		dataSource.registerItemAddedListener(new ItemAddedListener<String>() {
+			@Override
+			public void onDataAdded(final ListDataSource<String> source, final String added,
+					final int index) {
+				observedVersions.add(dataSource.getPublishedSnapshot().getVersion());
+				observedItems.add(dataSource.getPublishedSnapshot().getItems());
+			}
+		});
+
+		dataSource.addItem(0, "a");
+		dataSource.addItem(1, "b");
+
+		assertThat(dataSource.getPublishedSnapshot().getVersion(), is(0L));
+		assertThat(pendingDeliveries.size(), is(2));
+
+		pendingDeliveries.remove().run();
+
+		assertThat(dataSource.getPublishedSnapshot().getVersion(), is(1L));
+
+		pendingDeliveries.remove().run();
+
+		assertThat(observedVersions, is((List<Long>) Arrays.asList(1L, 2L)));
+		assertThat(observedItems.get(0), is((List<String>) Arrays.asList("a")));
+		assertThat(observedItems.get(1), is((List<String>) Arrays.asList("a", "b")));
+	}
+
+	/**
+	 * Test to verify that the {@link SnapshotListDataSourceHelper#removeItem(Object)} method
+	 * functions correctly. The test will only pass if the item is removed and the event carries
+	 * its former index, and if removing an absent item creates no snapshot.
+	 */
+	@Test
+	public void testRemoveItem() {
+		final List<Integer> removedIndices = new ArrayList<>();
+
+		dataSource.registerItemRemovedListener(new ItemRemovedListener<String>() {
+			@Override
+			public void onDataRemoved(final ListDataSource<String> source, final String removed,
+					final int index) {
+				removedIndices.add(index);
+			}
+		});
+
+		dataSource.publishItems(Arrays.asList("a", "b", "c"));
+
+		assertThat(dataSource.removeItem("b"), is(true));
+		assertThat(dataSource.removeItem("z"), is(false));
+
+		runPendingDeliveries();
+
+		assertThat(dataSource.getPublishedSnapshot().getVersion(), is(2L));
+		assertThat(dataSource.getPublishedSnapshot().getItems(),
+				is((List<String>) Arrays.asList("a", "c")));
+		assertThat(removedIndices, is((List<Integer>) Arrays.asList(1)));
+	}
+
+	/**
+	 * Test to verify that the {@link SnapshotListDataSourceHelper#moveItem(int, int)} and {@link
+	 * SnapshotListDataSourceHelper#setItem(int, Object, int)} methods function correctly. The
+	 * test will only pass if the final snapshot has the expected items.
+	 */
+	@Test
+	public void testMoveItemAndSetItem() {
+		dataSource.publishItems(Arrays.asList("a", "b", "c", "d"));
+		dataSource.moveItem(0, 3);
+		dataSource.setItem(0, "x", LibraryItemFields.TITLE);
+
+		runPendingDeliveries();
+
+		assertThat(dataSource.getPublishedSnapshot().getItems(),
+				is((List<String>) Arrays.asList("x", "c", "d", "a")));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null executor is passed to the
+	 * constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullExecutor() {
+		new ModifiableDataSource(null);
+	}
+
+	/**
+	 * Runs all pending deliveries in order.
+	 */
+	private void runPendingDeliveries() {
+		while (!pendingDeliveries.isEmpty()) {
+			pendingDeliveries.remove().run();
+		}
+	}
+
+	/**
+	 * A SnapshotListDataSourceHelper which widens the visibility of the modification methods so
+	 * that they can be called by tests.
+	 */
+	private static class ModifiableDataSource extends SnapshotListDataSourceHelper<String> {
+		public ModifiableDataSource(final Executor deliveryExecutor) {
+			super(deliveryExecutor);
+		}
+
+		@Override
+		public void loadData(final boolean forceRefresh,
+				final DataLoadedListener<List<String>> callback) {
+			callback.onDataLoaded(this, getLatestSnapshot().getItems());
+		}
+
+		@Override
+		public ListSnapshot<String> publishItems(final List<String> items) {
+			return super.publishItems(items);
+		}
+
+		@Override
+		public ListSnapshot<String> addItem(final int index, final String item) {
+			return super.addItem(index, item);
+		}
+
+		@Override
+		public ListSnapshot<String> removeItemAt(final int index) {
+			return super.removeItemAt(index);
+		}
+
+		@Override
+		public boolean removeItem(final Object item) {
+			return super.removeItem(item);
+		}
+
+		@Override
+		public ListSnapshot<String> setItem(final int index, final String item,
+				final int changedFields) {
+			return super.setItem(index, item, changedFields);
+		}
+
+		@Override
+		public ListSnapshot<String> moveItem(final int initialIndex, final int finalIndex) {
+			return super.moveItem(initialIndex, finalIndex);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link StableIdUtil} class.
+ */
+@RunWith(JUnit4.class)
+public class TestStableIdUtil {
+	/**
+	 * Test to verify that the {@link StableIdUtil#getItemId(LibraryItem)} method functions correctly.
+	 * The test will only pass if the ID is returned for identifiable items, and NO_ID is returned
+	 * for null and for other items.
+	 */
+	@Test
+	public void testGetItemId() {
+		final IdentifiableLibraryItem identifiable = mock(IdentifiableLibraryItem.class);
+		when(identifiable.getItemId()).thenReturn(42L);
+
+		assertThat(StableIdUtil.getItemId(identifiable), is(42L));
+		assertThat(StableIdUtil.getItemId(mock(LibraryItem.class)),
+				is(IdentifiableLibraryItem.NO_ID));
+		assertThat(StableIdUtil.getItemId(null), is(IdentifiableLibraryItem.NO_ID));
+	}
+
+	/**
+	 * Test to verify that the {@link StableIdUtil#getCacheKey(LibraryItem)} method functions
+	 * correctly. The test will only pass if identifiable items are keyed by ID and other items are
+	 * keyed by themselves.
+	 */
+	@Test
+	public void testGetCacheKey() {
+		final IdentifiableLibraryItem identifiable1 = mock(IdentifiableLibraryItem.class);
+		when(identifiable1.getItemId()).thenReturn(42L);
+
+		final IdentifiableLibraryItem identifiable2 = mock(IdentifiableLibraryItem.class);
+		when(identifiable2.getItemId()).thenReturn(42L);
+
+		final LibraryItem other = mock(LibraryItem.class);
+
+		assertThat(StableIdUtil.getCacheKey(identifiable1), is((Object) 42L));
+		assertThat(StableIdUtil.getCacheKey(identifiable1),
+				is(StableIdUtil.getCacheKey(identifiable2)));
+		assertThat(StableIdUtil.getCacheKey(other), is((Object) other));
+	}
+
+	/**
+	 * Test to verify that the {@link StableIdUtil#hash64(CharSequence)} method functions correctly.
+	 * The test will only pass if equal inputs produce equal hashes, different inputs produce
+	 * different hashes, and no hash is NO_ID.
+	 */
+	@Test
+	public void testHash64() {
+		final long hash1 = StableIdUtil.hash64("/music/a.mp3");
+		final long hash2 = StableIdUtil.hash64(new StringBuilder("/music/a.mp3"));
+		final long hash3 = StableIdUtil.hash64("/music/b.mp3");
+
+		assertThat(hash1, is(hash2));
+		assertThat(hash1, is(not(hash3)));
+		assertThat(StableIdUtil.hash64(null), is(not(IdentifiableLibraryItem.NO_ID)));
+		assertThat(StableIdUtil.hash64(""), is(not(IdentifiableLibraryItem.NO_ID)));
+	}
+}
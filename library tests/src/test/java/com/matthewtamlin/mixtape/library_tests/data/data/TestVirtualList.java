@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library_tests.data.data;
+
+import com.matthewtamlin.mixtape.library.data.VirtualList;
+import com.matthewtamlin.mixtape.library.data.VirtualList.ItemFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Unit tests for the {@link VirtualList} class.
+ */
+@RunWith(JUnit4.class)
+public class TestVirtualList {
+	/**
+	 * The positions passed to the factory, in order.
+	 */
+	private List<Integer> createdPositions;
+
+	/**
+	 * Creates items which describe their position, and records each call.
+	 */
+	private ItemFactory<String> factory;
+
+	/**
+	 * Initialises the testing objects and assigns them to member variables.
+	 */
+	@Before
+	public void setup() {
+		createdPositions = new ArrayList<>();
+
+		factory = new ItemFactory<String>() {
+			@Override
+			public String createItem(final int position) {
+				createdPositions.add(position);
+				return "item " + position;
+			}
+		};
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a negative size is passed to the
+	 * constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_negativeSize() {
+		new VirtualList<>(-1, factory);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a window size of zero is passed to
+	 * the constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_zeroWindowSize() {
+		new VirtualList<>(10, 0, factory);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a null factory is passed to the
+	 * constructor. The test will only pass if an IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_nullFactory() {
+		new VirtualList<String>(10, null);
+	}
+
+	/**
+	 * Test to verify that items are only created when they are requested. The test will only pass
+	 * if creating the list creates no items, and getting an item creates only that item.
+	 */
+	@Test
+	public void testGet_createsItemsOnDemand() {
+		final VirtualList<String> list = new VirtualList<>(200000, factory);
+
+		assertThat(list.size(), is(200000));
+		assertThat(createdPositions.isEmpty(), is(true));
+
+		assertThat(list.get(150000), is("item 150000"));
+		assertThat(list.get(150000), is("item 150000"));
+
+		assertThat(createdPositions, is(listOf(150000)));
+		assertThat(list.getMaterializedCount(), is(1));
+	}
+
+	/**
+	 * Test to verify that the window is bounded and releases the least recently used items. The
+	 * test will only pass if the number of items in memory never exceeds the window size, and only
+	 * released items are recreated.
+	 */
+	@Test
+	public void testGet_windowIsBounded() {
+		final VirtualList<String> list = new VirtualList<>(1000, 3, factory);
+
+		for (int i = 0; i < 1000; i++) {
+			list.get(i);
+			assertThat(list.getMaterializedCount() <= 3, is(true));
+		}
+
+		createdPositions.clear();
+
+		list.get(997);
+		list.get(999);
+		list.get(998);
+		list.get(0);
+
+		assertThat(createdPositions, is(listOf(0)));
+
+		list.get(997);
+
+		assertThat(createdPositions, is(listOf(0, 997)));
+	}
+
+	/**
+	 * Test to verify that only one item is kept when an item is created by another read while the
+	 * factory is running. The test will only pass if the item inserted by the other read is
+	 * returned by both reads, and the window contains a single item.
+	 */
+	@Test
+	public void testGet_itemCreatedConcurrently() {
+		final List<VirtualList<String>> holder = new ArrayList<>();
+		final int[] callCount = new int[1];
+
+		final VirtualList<String> list = new VirtualList<>(10, new ItemFactory<String>() {
+			@Override
+			public String createItem(final int position) {
+				final int call = ++callCount[0];
+
+				// Simulate another read of the same position while this item is being created
+				if (call == 1) {
+					holder.get(0).get(position);
+				}
+
+				return "call " + call;
+			}
+		});
+
+		holder.add(list);
+
+		assertThat(list.get(4), is("call 2"));
+		assertThat(list.get(4), is("call 2"));
+		assertThat(callCount[0], is(2));
+		assertThat(list.getMaterializedCount(), is(1));
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when an index out of bounds is passed to
+	 * {@link VirtualList#get(int)}. The test will only pass if an IndexOutOfBoundsException is
+	 * thrown and no item is created.
+	 */
+	@Test
+	public void testGet_indexOutOfBounds() {
+		final VirtualList<String> list = new VirtualList<>(5, factory);
+
+		try {
+			list.get(5);
+		} catch (final IndexOutOfBoundsException e) {
+			assertThat(createdPositions.isEmpty(), is(true));
+			return;
+		}
+
+		throw new AssertionError("Expected an IndexOutOfBoundsException.");
+	}
+
+	/**
+	 * Creates a list containing the supplied positions.
+	 *
+	 * @param positions
+	 * 		the positions to include
+	 * @return the list
+	 */
+	private static List<Integer> listOf(final Integer... positions) {
+		final List<Integer> list = new ArrayList<>();
+
+		for (final Integer position : positions) {
+			list.add(position);
+		}
+
+		return list;
+	}
+}
@@ -17,7 +17,14 @@
 package com.matthewtamlin.mixtape.library_tests.data.mixtape_body;
 
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.LoadPolicy;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.ListSnapshot;
+import com.matthewtamlin.mixtape.library.data.PersistentList;
+import com.matthewtamlin.mixtape.library.data.SnapshotListDataSource;
+import com.matthewtamlin.mixtape.library.data.VirtualList;
+import com.matthewtamlin.mixtape.library.databinders.FrameResultDispatcher;
 import com.matthewtamlin.mixtape.library.mixtape_body.BodyView;
 import com.matthewtamlin.mixtape.library.mixtape_body.DirectBodyPresenter;
 
@@ -25,18 +32,27 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for the {@link DirectBodyPresenter} class.
@@ -77,6 +93,8 @@ public class TestDirectBodyPresenter {
 		verify(dataSource1).registerItemRemovedListener(presenter);
 		verify(dataSource1).registerItemModifiedListener(presenter);
 		verify(dataSource1).registerItemMovedListener(presenter);
+		verify(dataSource1).registerItemRangeAddedListener(presenter);
+		verify(dataSource1).registerItemRangeRemovedListener(presenter);
 
 		verify(dataSource1).loadData(anyBoolean(), eq(presenter));
 
@@ -89,6 +107,8 @@ public class TestDirectBodyPresenter {
 		verify(dataSource1).unregisterItemRemovedListener(presenter);
 		verify(dataSource1).unregisterItemModifiedListener(presenter);
 		verify(dataSource1).unregisterItemMovedListener(presenter);
+		verify(dataSource1).unregisterItemRangeAddedListener(presenter);
+		verify(dataSource1).unregisterItemRangeRemovedListener(presenter);
 
 		verify(dataSource2).registerDataReplacedListener(presenter);
 		verify(dataSource2).registerDataModifiedListener(presenter);
@@ -97,6 +117,8 @@ public class TestDirectBodyPresenter {
 		verify(dataSource2).registerItemRemovedListener(presenter);
 		verify(dataSource2).registerItemModifiedListener(presenter);
 		verify(dataSource2).registerItemMovedListener(presenter);
+		verify(dataSource2).registerItemRangeAddedListener(presenter);
+		verify(dataSource2).registerItemRangeRemovedListener(presenter);
 
 		verify(dataSource1).loadData(anyBoolean(), eq(presenter));
 
@@ -109,6 +131,8 @@ public class TestDirectBodyPresenter {
 		verify(dataSource2).unregisterItemRemovedListener(presenter);
 		verify(dataSource2).unregisterItemModifiedListener(presenter);
 		verify(dataSource2).unregisterItemMovedListener(presenter);
+		verify(dataSource2).unregisterItemRangeAddedListener(presenter);
+		verify(dataSource2).unregisterItemRangeRemovedListener(presenter);
 	}
 
 	/**
@@ -483,6 +507,74 @@ public class TestDirectBodyPresenter {
 		verify(view, never()).notifyItemRemoved(1);
 	}
 
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a data range added callback and there is no view. The test will only pass if all
+	 * methods exit normally.
+	 */
+	@Test
+	public void testOnDataRangeAdded_withoutView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		presenter.onDataRangeAdded(dataSource, createItems(3), 1);
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a data range added callback and there is a view. The test will only pass if the view
+	 * is notified of the whole range at once.
+	 */
+	@Test
+	public void testOnDataRangeAdded_withView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		presenter.onDataRangeAdded(dataSource, createItems(3), 1);
+
+		verify(view, times(1)).notifyItemRangeAdded(1, 3);
+		verify(view, never()).notifyItemAdded(anyInt());
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a data range removed callback and there is no view. The test will only pass if all
+	 * methods exit normally.
+	 */
+	@Test
+	public void testOnDataRangeRemoved_withoutView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		presenter.onDataRangeRemoved(dataSource, createItems(3), 1);
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a data range removed callback and there is a view. The test will only pass if the
+	 * view is notified of the whole range at once.
+	 */
+	@Test
+	public void testOnDataRangeRemoved_withView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		presenter.onDataRangeRemoved(dataSource, createItems(3), 1);
+
+		verify(view, times(1)).notifyItemRangeRemoved(1, 3);
+		verify(view, never()).notifyItemRemoved(anyInt());
+	}
+
 	/**
 	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
 	 * delivers a list item modified callback and there is no view. The test will only pass if all
@@ -518,6 +610,42 @@ public class TestDirectBodyPresenter {
 		verify(view, times(1)).notifyItemModified(1);
 	}
 
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers an item fields modified callback and there is no view. The test will only pass if
+	 * all methods exit normally.
+	 */
+	@Test
+	public void testOnItemFieldsModified_withoutView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		presenter.onItemFieldsModified(dataSource, mock(LibraryItem.class), 1,
+				LibraryItemFields.TITLE);
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers an item fields modified callback and there is a view. The test will only pass if the
+	 * view is notified of the event and the changed fields are passed through.
+	 */
+	@Test
+	public void testOnItemFieldsModified_withView() {
+		final List<LibraryItem> data = new ArrayList<>();
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		final int changedFields = LibraryItemFields.TITLE | LibraryItemFields.ARTWORK;
+		presenter.onItemFieldsModified(dataSource, mock(LibraryItem.class), 1, changedFields);
+
+		verify(view, times(1)).notifyItemModified(1, changedFields);
+		verify(view, never()).notifyItemModified(anyInt());
+	}
+
 	/**
 	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
 	 * delivers a data moved callback and there is no view. The test will only pass if all methods
@@ -553,6 +681,287 @@ public class TestDirectBodyPresenter {
 		verify(view, times(1)).notifyItemMoved(1, 2);
 	}
 
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter#setView(BodyView)} method uses the
+	 * retained list when the load policy is {@link LoadPolicy#CACHE_FIRST}. The test will only pass
+	 * if the retained list is pushed to the new view and the data source is not asked to load
+	 * again.
+	 */
+	@Test
+	public void testSetView_withSnapshot_cacheFirst() {
+		final ListDataSource<LibraryItem> dataSource = mock(ListDataSource.class);
+		final List<LibraryItem> data = createItems(3);
+
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		verify(view, times(1)).setItems(data);
+		verify(dataSource, times(1)).loadData(anyBoolean(), eq(presenter));
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter#setView(BodyView)} method refreshes the
+	 * data source when the load policy is {@link LoadPolicy#ALWAYS}. The test will only pass if the
+	 * retained list is pushed to the new view and a forced refresh is requested.
+	 */
+	@Test
+	public void testSetView_withSnapshot_always() {
+		final ListDataSource<LibraryItem> dataSource = mock(ListDataSource.class);
+		final List<LibraryItem> data = createItems(3);
+
+		presenter.setLoadPolicy(LoadPolicy.ALWAYS);
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		verify(view, times(1)).setItems(data);
+		verify(dataSource, times(1)).loadData(true, presenter);
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter#setView(BodyView)} method only refreshes
+	 * the data source when the retained list is stale and the load policy is {@link
+	 * LoadPolicy#REFRESH_IF_STALE}. The test will only pass if a forced refresh is requested only
+	 * after the maximum snapshot age is exceeded.
+	 */
+	@Test
+	public void testSetView_withSnapshot_refreshIfStale() throws InterruptedException {
+		final ListDataSource<LibraryItem> dataSource = mock(ListDataSource.class);
+
+		presenter.setLoadPolicy(LoadPolicy.REFRESH_IF_STALE);
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, createItems(3));
+
+		presenter.setView(mock(BodyView.class));
+
+		verify(dataSource, never()).loadData(true, presenter);
+
+		presenter.setMaxSnapshotAge(0);
+		Thread.sleep(5);
+		presenter.setView(mock(BodyView.class));
+
+		verify(dataSource, times(1)).loadData(true, presenter);
+	}
+
+	/**
+	 * Test to verify that item events delivered while no view is attached are applied when the
+	 * same view is attached again. The test will only pass if the view receives the buffered
+	 * events and is not reset.
+	 */
+	@Test
+	public void testSetView_reattach_appliesBufferedEvents() {
+		final ListDataSource<LibraryItem> dataSource = mock(ListDataSource.class);
+		final List<LibraryItem> data = createItems(5);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		verify(view, times(1)).setItems(data);
+
+		presenter.setView(null);
+		presenter.onDataAdded(dataSource, data.get(0), 0);
+		presenter.onItemFieldsModified(dataSource, data.get(3), 3, LibraryItemFields.TITLE);
+
+		verify(view, never()).notifyItemRangeAdded(anyInt(), anyInt());
+
+		presenter.setView(view);
+
+		verify(view, times(1)).notifyItemRangeAdded(0, 1);
+		verify(view, times(1)).notifyItemModified(3, LibraryItemFields.TITLE);
+		verify(view, times(1)).setItems(data);
+	}
+
+	/**
+	 * Test to verify that a view which was not the last detached view is given the retained list
+	 * rather than the events buffered while no view was attached. The test will only pass if the
+	 * new view is set with the retained list and receives no granular notifications.
+	 */
+	@Test
+	public void testSetView_differentView_doesNotApplyBufferedEvents() {
+		final ListDataSource<LibraryItem> dataSource = mock(ListDataSource.class);
+		final List<LibraryItem> data = createItems(5);
+
+		presenter.setView(mock(BodyView.class));
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		presenter.setView(null);
+		presenter.onDataAdded(dataSource, data.get(0), 0);
+
+		final BodyView view = mock(BodyView.class);
+		presenter.setView(view);
+
+		verify(view, times(1)).setItems(data);
+		verify(view, never()).notifyItemRangeAdded(anyInt(), anyInt());
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when null is passed to {@link
+	 * DirectBodyPresenter#setLoadPolicy(LoadPolicy)}. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetLoadPolicy_null() {
+		presenter.setLoadPolicy(null);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when a negative age is passed to {@link
+	 * DirectBodyPresenter#setMaxSnapshotAge(long)}. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxSnapshotAge_negative() {
+		presenter.setMaxSnapshotAge(-1);
+	}
+
+	/**
+	 * Test to verify that item events are batched until the next frame when an event dispatcher is
+	 * set. The test will only pass if one flush is scheduled for the whole burst, the view is not
+	 * notified until the flush runs, and the merged events are then delivered.
+	 */
+	@Test
+	public void testItemEvents_withEventDispatcher_deliveredOnFrame() {
+		final FrameResultDispatcher dispatcher = mock(FrameResultDispatcher.class);
+		final BodyView view = mock(BodyView.class);
+		final List<LibraryItem> data = createItems(10);
+
+		presenter.setEventDispatcher(dispatcher);
+		presenter.setView(view);
+		presenter.setDataSource(createSnapshotDataSource(data));
+
+		presenter.onDataAdded(presenter.getDataSource(), data.get(0), 0);
+		presenter.onDataAdded(presenter.getDataSource(), data.get(1), 1);
+		presenter.onItemFieldsModified(presenter.getDataSource(), data.get(5), 5,
+				LibraryItemFields.TITLE);
+
+		final ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+		verify(dispatcher, times(1)).post(flush.capture());
+		verify(view, never()).notifyItemRangeAdded(anyInt(), anyInt());
+		verify(view, never()).notifyItemModified(anyInt(), anyInt());
+
+		flush.getValue().run();
+
+		verify(view, times(1)).notifyItemRangeAdded(0, 2);
+		verify(view, times(1)).notifyItemModified(5, LibraryItemFields.TITLE);
+		verify(view, never()).notifyItemAdded(anyInt());
+	}
+
+	/**
+	 * Test to verify that item events can be delivered from a background thread when an event
+	 * dispatcher is set. The test will only pass if the events are delivered to the view when the
+	 * flush runs.
+	 */
+	@Test
+	public void testItemEvents_withEventDispatcher_fromBackgroundThread()
+			throws InterruptedException {
+		final FrameResultDispatcher dispatcher = mock(FrameResultDispatcher.class);
+		final BodyView view = mock(BodyView.class);
+		final List<LibraryItem> data = createItems(10);
+
+		presenter.setEventDispatcher(dispatcher);
+		presenter.setView(view);
+		presenter.setDataSource(createSnapshotDataSource(data));
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				presenter.onDataRemoved(presenter.getDataSource(), data.get(3), 3);
+				presenter.onDataMoved(presenter.getDataSource(), data.get(0), 0, 4);
+			}
+		});
+
+		thread.start();
+		thread.join();
+
+		final ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+		verify(dispatcher, times(1)).post(flush.capture());
+
+		flush.getValue().run();
+
+		verify(view, times(1)).notifyItemRemoved(3);
+		verify(view, times(1)).notifyItemMoved(0, 4);
+	}
+
+	/**
+	 * Test to verify that a burst of item events which exceeds the maximum number of changes
+	 * resets the view rather than delivering every event. The test will only pass if the view is
+	 * notified that the entire list changed.
+	 */
+	@Test
+	public void testItemEvents_withEventDispatcher_largeBurstResetsView() {
+		final FrameResultDispatcher dispatcher = mock(FrameResultDispatcher.class);
+		final BodyView view = mock(BodyView.class);
+		final List<LibraryItem> data = createItems(10);
+
+		presenter.setEventDispatcher(dispatcher);
+		presenter.setMaxDiffChanges(1);
+		presenter.setView(view);
+		presenter.setDataSource(createSnapshotDataSource(data));
+
+		presenter.onDataMoved(presenter.getDataSource(), data.get(0), 0, 4);
+		presenter.onDataMoved(presenter.getDataSource(), data.get(6), 6, 2);
+
+		final ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+		verify(dispatcher, times(1)).post(flush.capture());
+
+		flush.getValue().run();
+
+		verify(view, times(1)).notifyItemsChanged();
+		verify(view, never()).notifyItemMoved(anyInt(), anyInt());
+	}
+
+	/**
+	 * Test to verify that item events from a data source which does not publish snapshots are not
+	 * batched, since the view shows the live list of the source. The test will only pass if the
+	 * view is notified immediately and no flush is scheduled.
+	 */
+	@Test
+	public void testItemEvents_withEventDispatcher_liveListNotBatched() {
+		final FrameResultDispatcher dispatcher = mock(FrameResultDispatcher.class);
+		final BodyView view = mock(BodyView.class);
+		final List<LibraryItem> data = createItems(10);
+
+		presenter.setEventDispatcher(dispatcher);
+		presenter.setView(view);
+		presenter.setDataSource(createNewDataSource(data));
+
+		presenter.onDataAdded(presenter.getDataSource(), data.get(2), 2);
+
+		verify(view, times(1)).notifyItemAdded(2);
+		verify(dispatcher, never()).post(any(Runnable.class));
+	}
+
+	/**
+	 * Test to verify that removing the event dispatcher delivers the events which are waiting for
+	 * the next frame. The test will only pass if the view is notified immediately.
+	 */
+	@Test
+	public void testSetEventDispatcher_null_flushesPendingEvents() {
+		final FrameResultDispatcher dispatcher = mock(FrameResultDispatcher.class);
+		final BodyView view = mock(BodyView.class);
+		final List<LibraryItem> data = createItems(10);
+
+		presenter.setEventDispatcher(dispatcher);
+		presenter.setView(view);
+		presenter.setDataSource(createSnapshotDataSource(data));
+
+		presenter.onDataAdded(presenter.getDataSource(), data.get(2), 2);
+
+		verify(view, never()).notifyItemAdded(anyInt());
+
+		presenter.setEventDispatcher(null);
+
+		verify(view, times(1)).notifyItemAdded(2);
+	}
+
 	/**
 	 * Test to verify that the {@link DirectBodyPresenter} function correctly when the view delivers
 	 * a library item selected callback and there are no registered callback listeners. The test
@@ -563,6 +972,86 @@ public class TestDirectBodyPresenter {
 		presenter.onLibraryItemSelected(mock(BodyView.class), mock(LibraryItem.class));
 	}
 
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when a data source
+	 * which publishes snapshots delivers a data added callback and there is a view. The test will
+	 * only pass if the view is given the published snapshot before it is notified of the event.
+	 */
+	@Test
+	public void testOnDataAdded_withSnapshotDataSource() {
+		final List<LibraryItem> items = createItems(2);
+		final SnapshotListDataSource<LibraryItem> dataSource = mock(SnapshotListDataSource.class);
+		when(dataSource.getPublishedSnapshot()).thenReturn(
+				new ListSnapshot<>(1, PersistentList.copyOf(items)));
+
+		final DirectBodyPresenter<LibraryItem, SnapshotListDataSource<LibraryItem>, BodyView>
+				snapshotPresenter = new DirectBodyPresenter<>();
+		snapshotPresenter.setDataSource(dataSource);
+
+		final BodyView view = mock(BodyView.class);
+		snapshotPresenter.setView(view);
+
+		snapshotPresenter.onDataAdded(dataSource, items.get(1), 1);
+
+		final InOrder inOrder = inOrder(view);
+		inOrder.verify(view).swapItems(items);
+		inOrder.verify(view).notifyItemAdded(1);
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a list whose size differs from the displayed list by more than the maximum number
+	 * of changes. The test will only pass if the list is set directly rather than diffed.
+	 */
+	@Test
+	public void testOnDataLoaded_sizeDifferenceExceedsMaxDiffChanges() {
+		final List<LibraryItem> data = createItems(3);
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+		presenter.setMaxDiffChanges(2);
+
+		final BodyView view = mock(BodyView.class);
+		doReturn(data).when(view).getItems();
+		presenter.setView(view);
+
+		final List<LibraryItem> newData = createItems(6);
+		presenter.onDataLoaded(dataSource, newData);
+
+		verify(view, times(1)).setItems(same(newData));
+		verify(view, never()).swapItems(any(List.class));
+	}
+
+	/**
+	 * Test to verify that the {@link DirectBodyPresenter} functions correctly when the data source
+	 * delivers a virtual list and the view is already showing items. The test will only pass if
+	 * the list is set directly without creating any of its items.
+	 */
+	@Test
+	public void testOnDataLoaded_virtualList() {
+		final List<LibraryItem> data = createItems(3);
+		final ListDataSource<LibraryItem> dataSource = createNewDataSource(data);
+		presenter.setDataSource(dataSource);
+
+		final BodyView view = mock(BodyView.class);
+		doReturn(data).when(view).getItems();
+		presenter.setView(view);
+
+		final int[] createdCount = new int[1];
+		final VirtualList<LibraryItem> virtualList = new VirtualList<>(100000,
+				new VirtualList.ItemFactory<LibraryItem>() {
+					@Override
+					public LibraryItem createItem(final int position) {
+						createdCount[0]++;
+						return mock(LibraryItem.class);
+					}
+				});
+
+		presenter.onDataLoaded(dataSource, virtualList);
+
+		verify(view, times(1)).setItems(same(virtualList));
+		assertThat(createdCount[0], is(0));
+	}
+
 	/**
 	 * Creates a new SettableListDataSource with the supplied items as the data.
 	 *
@@ -575,4 +1064,38 @@ public class TestDirectBodyPresenter {
 		dataSource.setData(items);
 		return dataSource;
 	}
+
+	/**
+	 * Creates a mock SnapshotListDataSource which publishes the supplied items.
+	 *
+	 * @param items
+	 * 		the items of the published snapshot
+	 * @return the new data source
+	 */
+	@SuppressWarnings("unchecked")
+	private SnapshotListDataSource<LibraryItem> createSnapshotDataSource(
+			final List<LibraryItem> items) {
+		final SnapshotListDataSource<LibraryItem> dataSource = mock(SnapshotListDataSource.class);
+		when(dataSource.getPublishedSnapshot()).thenReturn(
+				new ListSnapshot<>(1, PersistentList.copyOf(items)));
+
+		return dataSource;
+	}
+
+	/**
+	 * Creates a list of mock items.
+	 *
+	 * @param count
+	 * 		the number of items to create
+	 * @return the list of items
+	 */
+	private List<LibraryItem> createItems(final int count) {
+		final List<LibraryItem> items = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			items.add(mock(LibraryItem.class));
+		}
+
+		return items;
+	}
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package com.matthewtamlin.mixtape.library_tests.data.mixtape_header;
 
 
 import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.LoadPolicy;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.mixtape_header.DirectHeaderPresenter;
 import com.matthewtamlin.mixtape.library.mixtape_header.HeaderView;
@@ -364,4 +365,82 @@ public class TestDirectHeaderPresenter {
 
 		presenter.onLongOperationFinished(dataSource);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test to verify that the {@link DirectHeaderPresenter#setView(HeaderView)} method uses the
+	 * retained item when the load policy is {@link LoadPolicy#CACHE_FIRST}. The test will only pass
+	 * if the retained item is pushed to the new view and the data source is not asked to load
+	 * again.
+	 */
+	@Test
+	public void testSetView_withSnapshot_cacheFirst() {
+		final BaseDataSource<LibraryItem> dataSource = mock(BaseDataSource.class);
+		final LibraryItem data = mock(LibraryItem.class);
+
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		final HeaderView view = mock(HeaderView.class);
+		presenter.setView(view);
+
+		verify(view, times(1)).setItem(data);
+		verify(dataSource, times(1)).loadData(anyBoolean(), eq(presenter));
+	}
+
+	/**
+	 * Test to verify that the {@link DirectHeaderPresenter#setView(HeaderView)} method refreshes
+	 * the data source when the load policy is {@link LoadPolicy#ALWAYS}. The test will only pass
+	 * if the retained item is pushed to the new view and a forced refresh is requested.
+	 */
+	@Test
+	public void testSetView_withSnapshot_always() {
+		final BaseDataSource<LibraryItem> dataSource = mock(BaseDataSource.class);
+		final LibraryItem data = mock(LibraryItem.class);
+
+		presenter.setLoadPolicy(LoadPolicy.ALWAYS);
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		final HeaderView view = mock(HeaderView.class);
+		presenter.setView(view);
+
+		verify(view, times(1)).setItem(data);
+		verify(dataSource, times(1)).loadData(true, presenter);
+	}
+
+	/**
+	 * Test to verify that a modification delivered while no view is attached is applied when the
+	 * same view is attached again. The test will only pass if the view is notified of the change
+	 * without being given the item again.
+	 */
+	@Test
+	public void testSetView_reattach_appliesPendingModification() {
+		final BaseDataSource<LibraryItem> dataSource = mock(BaseDataSource.class);
+		final LibraryItem data = mock(LibraryItem.class);
+
+		final HeaderView view = mock(HeaderView.class);
+		presenter.setView(view);
+		presenter.setDataSource(dataSource);
+		presenter.onDataLoaded(dataSource, data);
+
+		presenter.setView(null);
+		presenter.onDataModified(dataSource, data);
+
+		verify(view, never()).notifyItemChanged();
+
+		presenter.setView(view);
+
+		verify(view, times(1)).notifyItemChanged();
+		verify(view, times(1)).setItem(data);
+	}
+
+	/**
+	 * Test to verify that the correct exception is thrown when null is passed to {@link
+	 * DirectHeaderPresenter#setLoadPolicy(LoadPolicy)}. The test will only pass if an
+	 * IllegalArgumentException is thrown.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetLoadPolicy_null() {
+		presenter.setLoadPolicy(null);
+	}
+}
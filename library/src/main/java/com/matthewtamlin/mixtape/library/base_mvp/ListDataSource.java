@@ -23,7 +23,7 @@ import java.util.List;
  * callbacks are delivered when: <ul><li>An item is added to the list.</li> <li>An item is removed
  * from the list.</li> <li>An item in the list is modified in a way which affects the external
  * representation of the data.</li> <li>An item is moved to a different position within the
- * list.</li></ul>
+ * list.</li> <li>A contiguous range of items is added to or removed from the list.</li></ul>
  * <p>
  * All callbacks are delivered on the UI thread.
  *
@@ -103,6 +103,42 @@ public interface ListDataSource<T> extends BaseDataSource<List<T>> {
 	 */
 	void unregisterItemMovedListener(ItemMovedListener<T> listener);
 
+	/**
+	 * Registers an item range added listener to this data source. If the supplied listener is null
+	 * or is already registered, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 */
+	void registerItemRangeAddedListener(ItemRangeAddedListener<T> listener);
+
+	/**
+	 * Unregisters an item range added listener from this data source. If the supplied listener is
+	 * null or is not registered, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to unregister
+	 */
+	void unregisterItemRangeAddedListener(ItemRangeAddedListener<T> listener);
+
+	/**
+	 * Registers an item range removed listener to this data source. If the supplied listener is
+	 * null or is already registered, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 */
+	void registerItemRangeRemovedListener(ItemRangeRemovedListener<T> listener);
+
+	/**
+	 * Unregisters an item range removed listener from this data source. If the supplied listener is
+	 * null or is not registered, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to unregister
+	 */
+	void unregisterItemRangeRemovedListener(ItemRangeRemovedListener<T> listener);
+
 	/**
 	 * Callback to be invoked when an item is added to a ListDataSource.
 	 *
@@ -165,6 +201,33 @@ public interface ListDataSource<T> extends BaseDataSource<List<T>> {
 		void onItemModified(ListDataSource<I> source, I modified, int index);
 	}
 
+	/**
+	 * An ItemModifiedListener which can also be told which fields of the modified item changed.
+	 * Data sources which know what changed should check whether each registered item modified
+	 * listener implements this interface, and if so deliver the more specific callback instead of
+	 * the general one. This allows views to rebind only the affected fields.
+	 *
+	 * @param <I>
+	 * 		the type of objects contained within the list
+	 */
+	interface ItemFieldsModifiedListener<I> extends ItemModifiedListener<I> {
+		/**
+		 * Invoked when specific fields of an item in a ListDataSource are modified.
+		 *
+		 * @param source
+		 * 		the data source containing the changed item, not null
+		 * @param modified
+		 * 		the object which was modified, not null
+		 * @param index
+		 * 		the index of the modified object
+		 * @param changedFields
+		 * 		the fields which changed, as a combination of the flags defined in {@link
+		 * 		com.matthewtamlin.mixtape.library.data.LibraryItemFields}
+		 */
+		void onItemFieldsModified(ListDataSource<I> source, I modified, int index,
+				int changedFields);
+	}
+
 	/**
 	 * Callback to be invoked when the index of an item in a ListDataSource is changed.
 	 *
@@ -187,6 +250,50 @@ public interface ListDataSource<T> extends BaseDataSource<List<T>> {
 		void onDataMoved(ListDataSource<I> source, I moved, int initialIndex, int finalIndex);
 	}
 
+	/**
+	 * Callback to be invoked when a contiguous range of items is added to a ListDataSource. When a
+	 * listener is registered for both range and single item additions, each addition is delivered
+	 * to only one of the callbacks.
+	 *
+	 * @param <I>
+	 * 		the type of objects contained within the list
+	 */
+	interface ItemRangeAddedListener<I> {
+		/**
+		 * Invoked when a contiguous range of items is added to a ListDataSource.
+		 *
+		 * @param source
+		 * 		the data source the items were added to, not null
+		 * @param added
+		 * 		the items which were added, in order, not null
+		 * @param startIndex
+		 * 		the index of the first added item
+		 */
+		void onDataRangeAdded(ListDataSource<I> source, List<I> added, int startIndex);
+	}
+
+	/**
+	 * Callback to be invoked when a contiguous range of items is removed from a ListDataSource.
+	 * When a listener is registered for both range and single item removals, each removal is
+	 * delivered to only one of the callbacks.
+	 *
+	 * @param <I>
+	 * 		the type of objects contained within the list
+	 */
+	interface ItemRangeRemovedListener<I> {
+		/**
+		 * Invoked when a contiguous range of items is removed from a ListDataSource.
+		 *
+		 * @param source
+		 * 		the data source the items used to be contained in, not null
+		 * @param removed
+		 * 		the items which were removed, in order, not null
+		 * @param startIndex
+		 * 		the index of the first removed item before removal
+		 */
+		void onDataRangeRemoved(ListDataSource<I> source, List<I> removed, int startIndex);
+	}
+
 	/**
 	 * Composition of all BaseDataSource listeners and all ListDataSource listeners.
 	 *
@@ -198,6 +305,8 @@ public interface ListDataSource<T> extends BaseDataSource<List<T>> {
 			BaseDataSource.FullListener<List<I>>,
 			ItemAddedListener<I>,
 			ItemRemovedListener<I>,
-			ItemModifiedListener<I>,
-			ItemMovedListener<I> {}
+			ItemFieldsModifiedListener<I>,
+			ItemMovedListener<I>,
+			ItemRangeAddedListener<I>,
+			ItemRangeRemovedListener<I> {}
 }
\ No newline at end of file
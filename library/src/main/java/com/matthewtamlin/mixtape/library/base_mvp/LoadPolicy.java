@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.base_mvp;
+
+/**
+ * Determines whether a presenter asks its data source to refresh when a view is attached. In all
+ * cases the presenter shows the data it retained from the last load as soon as the view is
+ * attached, and the data source is always asked to load if the presenter has no retained data.
+ */
+public enum LoadPolicy {
+	/**
+	 * The retained data is used and the data source is not asked to refresh.
+	 */
+	CACHE_FIRST,
+
+	/**
+	 * The retained data is used, and the data source is asked to refresh if the retained data is
+	 * older than the presenter's maximum snapshot age.
+	 */
+	REFRESH_IF_STALE,
+
+	/**
+	 * The retained data is used, and the data source is always asked to refresh.
+	 */
+	ALWAYS
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A keyed store of byte arrays held in a single direct ByteBuffer, outside of the Java heap. The
+ * buffer is used as a circular log: new entries are written after the most recent entry, and when
+ * the end of the buffer is reached writing wraps around to the start. The oldest entries are
+ * evicted as the log overwrites them, so eviction is first-in-first-out and never fragments the
+ * buffer.
+ * <p>
+ * Keeping the data off-heap means the garbage collector never scans or copies it, so the arena can
+ * hold many megabytes of small entries without increasing collection pauses. This class is
+ * thread-safe.
+ */
+public class ByteArena {
+	/**
+	 * The buffer which holds the data of every entry.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The live entries, keyed by the keys supplied by the caller.
+	 */
+	private final HashMap<Object, Entry> entries = new HashMap<>();
+
+	/**
+	 * Every entry in the order it was written, oldest first. Entries which have been removed or
+	 * replaced remain in the log until they are reached by the write position.
+	 */
+	private final ArrayDeque<Entry> log = new ArrayDeque<>();
+
+	/**
+	 * The offset to write the next entry at.
+	 */
+	private int writePosition;
+
+	/**
+	 * The total length of the live entries.
+	 */
+	private long usedBytes;
+
+	/**
+	 * The number of live entries which have been overwritten to make room for new entries.
+	 */
+	private long evictionCount;
+
+	/**
+	 * Constructs a new ByteArena. The buffer is allocated immediately.
+	 *
+	 * @param capacity
+	 * 		the size of the buffer, measured in bytes, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero
+	 */
+	public ByteArena(final int capacity) {
+		checkGreaterThan(capacity, 0, "capacity must be greater than zero.");
+		buffer = ByteBuffer.allocateDirect(capacity);
+	}
+
+	/**
+	 * Stores a copy of the supplied data, replacing any existing data for the key. The oldest
+	 * entries are evicted if necessary to make room.
+	 *
+	 * @param key
+	 * 		the key to store the data under, not null
+	 * @param data
+	 * 		the data to store, not null
+	 * @return true if the data was stored, false if it is larger than the arena
+	 * @throws IllegalArgumentException
+	 * 		if {@code key} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code data} is null
+	 */
+	public synchronized boolean put(final Object key, final byte[] data) {
+		checkNotNull(key, "key cannot be null.");
+		checkNotNull(data, "data cannot be null.");
+
+		remove(key);
+
+		final int length = data.length;
+
+		if (length > buffer.capacity()) {
+			return false;
+		}
+
+		if (writePosition + length > buffer.capacity()) {
+			// Entries between the write position and the end are the oldest, so drop them and wrap
+			while (!log.isEmpty() && log.peekFirst().offset >= writePosition) {
+				evictFirst();
+			}
+
+			writePosition = 0;
+		}
+
+		// Evict the oldest entries until the region to write is free
+		while (!log.isEmpty() && log.peekFirst().offset >= writePosition &&
+				log.peekFirst().offset < writePosition + length) {
+			evictFirst();
+		}
+
+		buffer.position(writePosition);
+		buffer.put(data);
+
+		final Entry entry = new Entry(key, writePosition, length);
+		entries.put(key, entry);
+		log.addLast(entry);
+		usedBytes += length;
+		writePosition += length;
+
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the data stored for the supplied key.
+	 *
+	 * @param key
+	 * 		the key to get the data for, null allowed
+	 * @return the data, null if there is none
+	 */
+	public synchronized byte[] get(final Object key) {
+		final Entry entry = entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		final byte[] data = new byte[entry.length];
+		buffer.position(entry.offset);
+		buffer.get(data);
+
+		return data;
+	}
+
+	/**
+	 * Determines whether or not data is stored for the supplied key, without copying it.
+	 *
+	 * @param key
+	 * 		the key to look for, null allowed
+	 * @return true if data is stored for the key, false otherwise
+	 */
+	public synchronized boolean contains(final Object key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Removes the data stored for the supplied key. The space is reclaimed when the log next
+	 * reaches it. If there is no data for the key, the method exits normally.
+	 *
+	 * @param key
+	 * 		the key to remove the data for, null allowed
+	 */
+	public synchronized void remove(final Object key) {
+		final Entry entry = entries.remove(key);
+
+		if (entry != null) {
+			entry.live = false;
+			usedBytes -= entry.length;
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		log.clear();
+		writePosition = 0;
+		usedBytes = 0;
+	}
+
+	/**
+	 * @return the number of entries currently stored
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total length of the entries currently stored, measured in bytes
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * @return the size of the buffer, measured in bytes
+	 */
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return the number of entries which have been evicted to make room for new entries
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Removes the oldest entry from the log, and evicts it if it is still live.
+	 */
+	private void evictFirst() {
+		final Entry entry = log.removeFirst();
+
+		if (entry.live) {
+			entries.remove(entry.key);
+			usedBytes -= entry.length;
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * The location of an entry in the buffer.
+	 */
+	private static final class Entry {
+		private final Object key;
+
+		private final int offset;
+
+		private final int length;
+
+		/**
+		 * Whether or not the entry is still mapped to its key.
+		 */
+		private boolean live = true;
+
+		public Entry(final Object key, final int offset, final int length) {
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
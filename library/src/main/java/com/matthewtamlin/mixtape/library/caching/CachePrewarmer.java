@@ -0,0 +1,624 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.DataLoadedListener;
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.LongOperationListener;
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry;
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry.Registration;
+import com.matthewtamlin.mixtape.library.data.MainThreadExecutor;
+import com.matthewtamlin.mixtape.library.databinders.PrewarmableBinder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Fills the caches of a set of binders with the data of every item in a ListDataSource, so that
+ * the items can later be bound without asynchronous processing. The work is done in batches on a
+ * single task at a time, so prewarming never uses more than one thread of the executor
+ * regardless of the size of the data set. The task resubmits itself after each batch, which lets
+ * other work on the executor run in between.
+ * <p>
+ * Items are prewarmed in order of distance from a focus position, alternating between the items
+ * after and before it. The focus can be moved at any time (for example as the user scrolls), and
+ * the following batch continues outwards from the new focus without repeating items which are
+ * already warm. Whenever a binder reports that a bind is loading data, prewarming pauses briefly
+ * so that it does not compete with the items which are actually on screen. The pause does not
+ * occupy a thread of the executor, since the task is only resubmitted once the delay has elapsed.
+ * <p>
+ * Long operation listeners are notified when prewarming starts and when it finishes or is
+ * cancelled, and progress can be polled using {@link #getWarmedCount()}, {@link
+ * #getFailedCount()} and {@link #getItemCount()}. This class is thread safe.
+ *
+ * @param <D>
+ * 		the type of items to prewarm
+ */
+public class CachePrewarmer<D extends LibraryItem> {
+	/**
+	 * The default number of items to prewarm each time the task runs.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	/**
+	 * The default time to pause for when a binder is loading data, measured in milliseconds.
+	 */
+	public static final long DEFAULT_YIELD_DELAY_MS = 50;
+
+	/**
+	 * Resubmits paused tasks to their executors once their delay has elapsed. The thread is
+	 * shared by every prewarmer and never runs prewarming work itself.
+	 */
+	private static final ScheduledExecutorService RESUBMIT_SCHEDULER =
+			Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "CachePrewarmer scheduler");
+					thread.setDaemon(true);
+
+					return thread;
+				}
+			});
+
+	/**
+	 * Supplies the items to prewarm.
+	 */
+	private final ListDataSource<D> dataSource;
+
+	/**
+	 * The binders to prewarm the caches of.
+	 */
+	private final List<PrewarmableBinder<? super D>> binders;
+
+	/**
+	 * Runs the prewarming work.
+	 */
+	private final Executor workExecutor;
+
+	/**
+	 * Delivers long operation callbacks.
+	 */
+	private final Executor callbackExecutor;
+
+	/**
+	 * The listeners to notify when prewarming starts and finishes.
+	 */
+	private final ListenerRegistry<LongOperationListener<List<D>>> longOperationListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * The maximum number of items to prewarm each time the task runs.
+	 */
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * The time to pause for when a binder is loading data, measured in milliseconds.
+	 */
+	private volatile long yieldDelayMs = DEFAULT_YIELD_DELAY_MS;
+
+	/**
+	 * The position to prewarm outwards from.
+	 */
+	private volatile int focusPosition = 0;
+
+	/**
+	 * The most recently started run, null if prewarming has never been started. Must only be
+	 * accessed while synchronized on this prewarmer.
+	 */
+	private Run currentRun;
+
+	/**
+	 * Constructs a new CachePrewarmer which delivers long operation callbacks on the main thread.
+	 *
+	 * @param dataSource
+	 * 		supplies the items to prewarm, not null
+	 * @param binders
+	 * 		the binders to prewarm the caches of, not null
+	 * @param workExecutor
+	 * 		the executor to run the prewarming work on, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code dataSource} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code binders} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code workExecutor} is null
+	 */
+	public CachePrewarmer(final ListDataSource<D> dataSource,
+			final Collection<? extends PrewarmableBinder<? super D>> binders,
+			final Executor workExecutor) {
+		this(dataSource, binders, workExecutor, MainThreadExecutor.getInstance());
+	}
+
+	/**
+	 * Constructs a new CachePrewarmer.
+	 *
+	 * @param dataSource
+	 * 		supplies the items to prewarm, not null
+	 * @param binders
+	 * 		the binders to prewarm the caches of, not null
+	 * @param workExecutor
+	 * 		the executor to run the prewarming work on, not null
+	 * @param callbackExecutor
+	 * 		the executor to deliver long operation callbacks through, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code dataSource} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code binders} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code workExecutor} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code callbackExecutor} is null
+	 */
+	public CachePrewarmer(final ListDataSource<D> dataSource,
+			final Collection<? extends PrewarmableBinder<? super D>> binders,
+			final Executor workExecutor, final Executor callbackExecutor) {
+		this.dataSource = checkNotNull(dataSource, "dataSource cannot be null.");
+		this.binders = new ArrayList<>(checkNotNull(binders, "binders cannot be null."));
+		this.workExecutor = checkNotNull(workExecutor, "workExecutor cannot be null.");
+		this.callbackExecutor = checkNotNull(callbackExecutor, "callbackExecutor cannot be null.");
+	}
+
+	/**
+	 * Starts prewarming from the first item. Equivalent to calling {@code start(0)}.
+	 */
+	public void start() {
+		start(0);
+	}
+
+	/**
+	 * Loads the items from the data source and starts prewarming outwards from the supplied
+	 * position. If prewarming is already in progress, it is cancelled and started again with the
+	 * current data.
+	 *
+	 * @param focusPosition
+	 * 		the position to prewarm outwards from, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code focusPosition} is less than zero
+	 */
+	public void start(final int focusPosition) {
+		setFocusPosition(focusPosition);
+
+		final Run run = new Run();
+		final Run previousRun;
+
+		synchronized (this) {
+			previousRun = currentRun;
+			currentRun = run;
+		}
+
+		if (previousRun != null) {
+			previousRun.cancel();
+		}
+
+		dispatchLongOperation(true);
+
+		dataSource.loadData(false, new DataLoadedListener<List<D>>() {
+			@Override
+			public void onDataLoaded(final BaseDataSource<List<D>> source, final List<D> data) {
+				run.begin(data);
+			}
+
+			@Override
+			public void onLoadDataFailed(final BaseDataSource<List<D>> source) {
+				run.finish();
+			}
+		});
+	}
+
+	/**
+	 * Cancels prewarming. Items which are already being prewarmed are allowed to finish. If
+	 * prewarming is not in progress, the method exits normally.
+	 */
+	public void cancel() {
+		final Run run;
+
+		synchronized (this) {
+			run = currentRun;
+		}
+
+		if (run != null) {
+			run.cancel();
+		}
+	}
+
+	/**
+	 * @return true if prewarming has been started and has not yet finished or been cancelled,
+	 * false otherwise
+	 */
+	public synchronized boolean isRunning() {
+		return currentRun != null && !currentRun.finished.get();
+	}
+
+	/**
+	 * @return the number of items which have been prewarmed by the most recent run, zero if
+	 * prewarming has never been started
+	 */
+	public synchronized int getWarmedCount() {
+		return currentRun == null ? 0 : currentRun.warmedCount;
+	}
+
+	/**
+	 * @return the number of times a binder failed to prewarm an item in the most recent run, zero
+	 * if prewarming has never been started
+	 */
+	public synchronized int getFailedCount() {
+		return currentRun == null ? 0 : currentRun.failedCount;
+	}
+
+	/**
+	 * @return the number of items being prewarmed by the most recent run, zero if prewarming has
+	 * never been started or the items have not loaded yet
+	 */
+	public synchronized int getItemCount() {
+		return currentRun == null ? 0 : currentRun.itemCount;
+	}
+
+	/**
+	 * @return the position which prewarming works outwards from
+	 */
+	public int getFocusPosition() {
+		return focusPosition;
+	}
+
+	/**
+	 * Sets the position to prewarm outwards from. This takes effect from the next batch. If the
+	 * position is greater than the number of items, prewarming works backwards from the last item.
+	 *
+	 * @param focusPosition
+	 * 		the new focus position, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code focusPosition} is less than zero
+	 */
+	public void setFocusPosition(final int focusPosition) {
+		this.focusPosition = checkGreaterThanOrEqualTo(focusPosition, 0,
+				"focusPosition must be at least zero.");
+	}
+
+	/**
+	 * @return the maximum number of items to prewarm each time the task runs
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the maximum number of items to prewarm each time the task runs. Smaller batches let
+	 * other work on the executor run more often, and let focus changes take effect sooner.
+	 *
+	 * @param batchSize
+	 * 		the new batch size, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code batchSize} is not greater than zero
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = checkGreaterThan(batchSize, 0, "batchSize must be greater than zero.");
+	}
+
+	/**
+	 * @return the time to pause for when a binder is loading data, measured in milliseconds
+	 */
+	public long getYieldDelay() {
+		return yieldDelayMs;
+	}
+
+	/**
+	 * Sets the time to pause for when a binder is loading data.
+	 *
+	 * @param yieldDelayMs
+	 * 		the new delay, measured in milliseconds, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code yieldDelayMs} is less than zero
+	 */
+	public void setYieldDelay(final long yieldDelayMs) {
+		if (yieldDelayMs < 0) {
+			throw new IllegalArgumentException("yieldDelayMs must be at least zero.");
+		}
+
+		this.yieldDelayMs = yieldDelayMs;
+	}
+
+	/**
+	 * Registers a long operation listener. The listener is notified when prewarming starts, and
+	 * when it finishes or is cancelled. If the supplied listener is null or is already registered,
+	 * this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 */
+	public void registerLongOperationListener(final LongOperationListener<List<D>> listener) {
+		longOperationListeners.register(listener);
+	}
+
+	/**
+	 * Unregisters a long operation listener. If the supplied listener is null or is not
+	 * registered, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to unregister
+	 */
+	public void unregisterLongOperationListener(final LongOperationListener<List<D>> listener) {
+		longOperationListeners.unregister(listener);
+	}
+
+	/**
+	 * Delivers a long operation started or finished event to the registered listeners through the
+	 * callback executor.
+	 *
+	 * @param started
+	 * 		true if prewarming started, false if it finished
+	 */
+	private void dispatchLongOperation(final boolean started) {
+		final Registration<LongOperationListener<List<D>>>[] registrations =
+				longOperationListeners.getRegistrations();
+
+		if (registrations.length == 0) {
+			return;
+		}
+
+		callbackExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (final Registration<LongOperationListener<List<D>>> registration :
+						registrations) {
+					if (started) {
+						registration.getListener().onLongOperationStarted(dataSource);
+					} else {
+						registration.getListener().onLongOperationFinished(dataSource);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * A single pass over the items of the data source. Each time the run executes it prewarms one
+	 * batch, then resubmits itself until every item is warm or the run is cancelled. If a binder is
+	 * loading data, the run is resubmitted after the yield delay instead.
+	 */
+	private class Run implements Runnable {
+		/**
+		 * Set once the finished event has been delivered, so that it is only delivered once.
+		 */
+		private final AtomicBoolean finished = new AtomicBoolean(false);
+
+		/**
+		 * Whether or not the run has been cancelled.
+		 */
+		private volatile boolean cancelled = false;
+
+		/**
+		 * The number of items which have been prewarmed.
+		 */
+		private volatile int warmedCount = 0;
+
+		/**
+		 * The number of times a binder failed to prewarm an item. Only modified by the task.
+		 */
+		private volatile int failedCount = 0;
+
+		/**
+		 * The number of items to prewarm.
+		 */
+		private volatile int itemCount = 0;
+
+		/**
+		 * A snapshot of the items to prewarm. Only accessed by the task.
+		 */
+		private List<D> items;
+
+		/**
+		 * Whether or not each item has been prewarmed. Only accessed by the task.
+		 */
+		private boolean[] warmed;
+
+		/**
+		 * The focus position the cursors were last reset for, -1 if they have not been set.
+		 */
+		private int appliedFocus = -1;
+
+		/**
+		 * The next position to try after the focus.
+		 */
+		private int nextAbove;
+
+		/**
+		 * The next position to try before the focus.
+		 */
+		private int nextBelow;
+
+		/**
+		 * Whether the next position should be taken from after the focus or before it.
+		 */
+		private boolean preferAbove;
+
+		/**
+		 * Takes a snapshot of the loaded items and submits the first batch.
+		 *
+		 * @param data
+		 * 		the items to prewarm, may be null
+		 */
+		public void begin(final List<D> data) {
+			if (cancelled) {
+				return;
+			}
+
+			items = data == null ? Collections.<D>emptyList() : new ArrayList<>(data);
+			warmed = new boolean[items.size()];
+			itemCount = items.size();
+
+			workExecutor.execute(this);
+		}
+
+		/**
+		 * Stops the run before its next item and delivers the finished event.
+		 */
+		public void cancel() {
+			cancelled = true;
+			finish();
+		}
+
+		/**
+		 * Delivers the finished event if it has not already been delivered.
+		 */
+		public void finish() {
+			if (finished.compareAndSet(false, true)) {
+				dispatchLongOperation(false);
+			}
+		}
+
+		@Override
+		public void run() {
+			int processedCount = 0;
+
+			while (processedCount < batchSize) {
+				if (cancelled) {
+					return;
+				}
+
+				// Real binds take priority, so wait for them rather than competing for I/O
+				if (bindersHavePendingLoads()) {
+					resubmit(yieldDelayMs);
+					return;
+				}
+
+				final int position = nextPosition();
+
+				if (position == -1) {
+					finish();
+					return;
+				}
+
+				prewarm(items.get(position));
+
+				warmed[position] = true;
+				warmedCount++;
+				processedCount++;
+			}
+
+			resubmit(0);
+		}
+
+		/**
+		 * Submits the run to the work executor again. A delayed run is handed to the executor by
+		 * the scheduler once the delay elapses, so no thread of the executor waits in the meantime.
+		 *
+		 * @param delayMs
+		 * 		the time to wait before submitting the run, measured in milliseconds
+		 */
+		private void resubmit(final long delayMs) {
+			if (delayMs == 0) {
+				workExecutor.execute(this);
+				return;
+			}
+
+			RESUBMIT_SCHEDULER.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (!cancelled) {
+						workExecutor.execute(Run.this);
+					}
+				}
+			}, delayMs, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * @return true if any binder is loading data for a bind, false otherwise
+		 */
+		private boolean bindersHavePendingLoads() {
+			for (final PrewarmableBinder<? super D> binder : binders) {
+				if (binder.hasPendingLoads()) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Prewarms an item in every binder. A binder which fails does not stop the others, and the
+		 * failure is counted so that it is visible through {@link #getFailedCount()}.
+		 *
+		 * @param item
+		 * 		the item to prewarm, may be null
+		 */
+		private void prewarm(final D item) {
+			for (final PrewarmableBinder<? super D> binder : binders) {
+				try {
+					binder.prewarm(item);
+				} catch (final RuntimeException e) {
+					// Prewarming is best effort, and the item will be loaded when it is bound
+					failedCount++;
+				}
+			}
+		}
+
+		/**
+		 * Finds the closest item to the focus position which is not yet warm, alternating between
+		 * the items after and before the focus.
+		 *
+		 * @return the position of the item, -1 if every item is warm
+		 */
+		private int nextPosition() {
+			final int size = items.size();
+
+			if (size == 0) {
+				return -1;
+			}
+
+			final int focus = Math.min(focusPosition, size - 1);
+
+			if (focus != appliedFocus) {
+				appliedFocus = focus;
+				nextAbove = focus;
+				nextBelow = focus - 1;
+				preferAbove = true;
+			}
+
+			while (nextAbove < size || nextBelow >= 0) {
+				final int position;
+
+				if ((preferAbove && nextAbove < size) || nextBelow < 0) {
+					position = nextAbove++;
+				} else {
+					position = nextBelow--;
+				}
+
+				preferAbove = !preferAbove;
+
+				if (!warmed[position]) {
+					return position;
+				}
+			}
+
+			return -1;
+		}
+	}
+}
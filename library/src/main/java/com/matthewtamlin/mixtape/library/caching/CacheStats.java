@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+/**
+ * An immutable snapshot of the statistics recorded by a cache.
+ */
+public final class CacheStats {
+	/**
+	 * The number of lookups which returned a cached value.
+	 */
+	private final long hitCount;
+
+	/**
+	 * The number of lookups which did not return a cached value.
+	 */
+	private final long missCount;
+
+	/**
+	 * The number of entries removed to make room for other entries.
+	 */
+	private final long evictionCount;
+
+	/**
+	 * The number of new entries which were not retained because the admission policy favoured the
+	 * existing entries.
+	 */
+	private final long rejectionCount;
+
+	/**
+	 * Constructs a new CacheStats.
+	 *
+	 * @param hitCount
+	 * 		the number of lookups which returned a cached value
+	 * @param missCount
+	 * 		the number of lookups which did not return a cached value
+	 * @param evictionCount
+	 * 		the number of entries removed to make room for other entries
+	 * @param rejectionCount
+	 * 		the number of new entries which were not retained
+	 */
+	public CacheStats(final long hitCount, final long missCount, final long evictionCount,
+			final long rejectionCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.rejectionCount = rejectionCount;
+	}
+
+	/**
+	 * @return the number of lookups which returned a cached value
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of lookups which did not return a cached value
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of entries removed to make room for other entries
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of new entries which were not retained because the admission policy
+	 * favoured the existing entries
+	 */
+	public long getRejectionCount() {
+		return rejectionCount;
+	}
+
+	/**
+	 * @return the ratio of hits to lookups, one if there have been no lookups
+	 */
+	public double getHitRate() {
+		final long lookupCount = hitCount + missCount;
+		return lookupCount == 0 ? 1.0 : (double) hitCount / lookupCount;
+	}
+
+	/**
+	 * Returns a new CacheStats which is the sum of this object and the supplied object.
+	 *
+	 * @param other
+	 * 		the statistics to add, not null
+	 * @return the sum, not null
+	 */
+	public CacheStats plus(final CacheStats other) {
+		return new CacheStats(hitCount + other.hitCount,
+				missCount + other.missCount,
+				evictionCount + other.evictionCount,
+				rejectionCount + other.rejectionCount);
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats{hitCount=" + hitCount + ", missCount=" + missCount +
+				", evictionCount=" + evictionCount + ", rejectionCount=" + rejectionCount + "}";
+	}
+}
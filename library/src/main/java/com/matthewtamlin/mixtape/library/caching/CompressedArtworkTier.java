@@ -0,0 +1,424 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A cache tier which holds artwork as compressed thumbnails rather than decoded Bitmaps. A decoded
+ * ARGB Bitmap uses four bytes per pixel, whereas a compressed thumbnail typically uses a small
+ * fraction of that, so this tier can keep thousands of covers resident where a Bitmap cache can
+ * only keep dozens. Decoding a thumbnail is much cheaper than reading the artwork from its source
+ * again (for example, parsing the tag of an MP3 file).
+ * <p>
+ * Thumbnails are stored in a {@link ByteArena}, outside of the Java heap, and are evicted oldest
+ * first. Each thumbnail can optionally record the fingerprint of the original encoded artwork, so
+ * that artwork restored from this tier can still be shared through a SharedArtworkPool. Artwork
+ * with a fingerprint is stored once per fingerprint, and each item only records which fingerprint
+ * it uses, so items which share a cover (such as the songs of an album) share one thumbnail and
+ * the cover is only compressed once. Items are keyed using {@link
+ * StableIdUtil#getCacheKey(LibraryItem)}. This class is thread-safe.
+ */
+public class CompressedArtworkTier {
+	/**
+	 * The format used if no format is specified. WebP produces the smallest thumbnails and can be
+	 * encoded on all supported API levels.
+	 */
+	private static final CompressFormat DEFAULT_FORMAT = CompressFormat.WEBP;
+
+	/**
+	 * The quality used if no quality is specified.
+	 */
+	private static final int DEFAULT_QUALITY = 80;
+
+	/**
+	 * The number of bytes at the start of each stored entry which hold the header.
+	 */
+	private static final int HEADER_LENGTH = 9;
+
+	/**
+	 * Header flag indicating that the entry records a fingerprint.
+	 */
+	private static final byte FLAG_HAS_FINGERPRINT = 1;
+
+	/**
+	 * Holds the headers and compressed thumbnails.
+	 */
+	private final ByteArena arena;
+
+	/**
+	 * The format to compress thumbnails in.
+	 */
+	private final CompressFormat format;
+
+	/**
+	 * The quality to compress thumbnails at, between 0 and 100 inclusive.
+	 */
+	private final int quality;
+
+	/**
+	 * The fingerprint of the artwork of each item which has fingerprinted artwork. Entries are
+	 * removed when the thumbnail they refer to is found to have been evicted. Must only be
+	 * accessed while synchronized on this tier.
+	 */
+	private final Map<Object, Long> fingerprints = new HashMap<>();
+
+	/**
+	 * Constructs a new CompressedArtworkTier which uses WebP compression.
+	 *
+	 * @param capacity
+	 * 		the maximum number of bytes to use for thumbnails, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero
+	 */
+	public CompressedArtworkTier(final int capacity) {
+		this(capacity, DEFAULT_FORMAT, DEFAULT_QUALITY);
+	}
+
+	/**
+	 * Constructs a new CompressedArtworkTier.
+	 *
+	 * @param capacity
+	 * 		the maximum number of bytes to use for thumbnails, greater than zero
+	 * @param format
+	 * 		the format to compress thumbnails in, not null
+	 * @param quality
+	 * 		the quality to compress thumbnails at, between 0 and 100 inclusive
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code format} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code quality} is not between 0 and 100 inclusive
+	 */
+	public CompressedArtworkTier(final int capacity, final CompressFormat format,
+			final int quality) {
+		this.arena = new ByteArena(capacity);
+		this.format = checkNotNull(format, "format cannot be null.");
+		this.quality = checkGreaterThanOrEqualTo(quality, 0, "quality cannot be less than 0.");
+
+		if (quality > 100) {
+			throw new IllegalArgumentException("quality cannot be greater than 100.");
+		}
+	}
+
+	/**
+	 * Compresses and stores the supplied artwork, without recording a fingerprint.
+	 *
+	 * @param item
+	 * 		the item the artwork belongs to, not null
+	 * @param artwork
+	 * 		the artwork to store, not null
+	 * @return true if the artwork was stored, false if it could not be compressed or is too large
+	 * @throws IllegalArgumentException
+	 * 		if {@code item} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code artwork} is null
+	 */
+	public boolean put(final LibraryItem item, final Bitmap artwork) {
+		return put(item, artwork, false, 0);
+	}
+
+	/**
+	 * Compresses and stores the supplied artwork, and records the fingerprint of the encoded
+	 * artwork it was decoded from. If a thumbnail with the same fingerprint is already stored, the
+	 * artwork is not compressed again and the item just refers to the existing thumbnail.
+	 *
+	 * @param item
+	 * 		the item the artwork belongs to, not null
+	 * @param artwork
+	 * 		the artwork to store, not null
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, as returned by {@link
+	 * 		FingerprintUtil#fingerprint(byte[])}
+	 * @return true if the artwork was stored, false if it could not be compressed or is too large
+	 * @throws IllegalArgumentException
+	 * 		if {@code item} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code artwork} is null
+	 */
+	public boolean put(final LibraryItem item, final Bitmap artwork, final long fingerprint) {
+		checkNotNull(item, "item cannot be null.");
+		checkNotNull(artwork, "artwork cannot be null.");
+
+		if (link(item, fingerprint)) {
+			return true;
+		}
+
+		final byte[] data = compress(artwork, true, fingerprint);
+
+		if (data == null || !arena.put(new FingerprintKey(fingerprint), data)) {
+			return false;
+		}
+
+		synchronized (this) {
+			fingerprints.put(StableIdUtil.getCacheKey(item), fingerprint);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Makes the supplied item refer to the thumbnail stored for the supplied fingerprint, without
+	 * compressing anything. This is useful when the artwork of an item was found in a
+	 * SharedArtworkPool rather than decoded, since another item has already stored it.
+	 *
+	 * @param item
+	 * 		the item the artwork belongs to, not null
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, as returned by {@link
+	 * 		FingerprintUtil#fingerprint(byte[])}
+	 * @return true if a thumbnail is stored for the fingerprint, false otherwise
+	 * @throws IllegalArgumentException
+	 * 		if {@code item} is null
+	 */
+	public boolean link(final LibraryItem item, final long fingerprint) {
+		checkNotNull(item, "item cannot be null.");
+
+		if (!arena.contains(new FingerprintKey(fingerprint))) {
+			return false;
+		}
+
+		synchronized (this) {
+			fingerprints.put(StableIdUtil.getCacheKey(item), fingerprint);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the compressed artwork stored for the supplied item.
+	 *
+	 * @param item
+	 * 		the item to get the artwork of, not null
+	 * @return the compressed artwork, null if there is none
+	 * @throws IllegalArgumentException
+	 * 		if {@code item} is null
+	 */
+	public CompressedArtwork get(final LibraryItem item) {
+		checkNotNull(item, "item cannot be null.");
+
+		final Object key = StableIdUtil.getCacheKey(item);
+		final Long fingerprint;
+
+		synchronized (this) {
+			fingerprint = fingerprints.get(key);
+		}
+
+		if (fingerprint == null) {
+			final byte[] data = arena.get(key);
+			return data == null ? null : new CompressedArtwork(data);
+		}
+
+		final byte[] data = arena.get(new FingerprintKey(fingerprint));
+
+		if (data == null) {
+			// The shared thumbnail has been evicted, so the reference is no longer useful
+			synchronized (this) {
+				fingerprints.remove(key);
+			}
+
+			return null;
+		}
+
+		return new CompressedArtwork(data);
+	}
+
+	/**
+	 * Removes the artwork stored for the supplied item. Thumbnails which are shared by fingerprint
+	 * remain available to the other items which use them. If no artwork is stored, the method
+	 * exits normally.
+	 *
+	 * @param item
+	 * 		the item to remove the artwork of, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code item} is null
+	 */
+	public void remove(final LibraryItem item) {
+		checkNotNull(item, "item cannot be null.");
+
+		final Object key = StableIdUtil.getCacheKey(item);
+
+		synchronized (this) {
+			fingerprints.remove(key);
+		}
+
+		arena.remove(key);
+	}
+
+	/**
+	 * Removes all artwork.
+	 */
+	public void clear() {
+		synchronized (this) {
+			fingerprints.clear();
+		}
+
+		arena.clear();
+	}
+
+	/**
+	 * @return the arena which holds the compressed thumbnails, not null
+	 */
+	public ByteArena getArena() {
+		return arena;
+	}
+
+	/**
+	 * Compresses and stores the supplied artwork under the key of the item.
+	 *
+	 * @param item
+	 * 		the item the artwork belongs to, not null
+	 * @param artwork
+	 * 		the artwork to store, not null
+	 * @param hasFingerprint
+	 * 		whether or not {@code fingerprint} should be recorded
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, ignored if {@code hasFingerprint} is false
+	 * @return true if the artwork was stored, false if it could not be compressed or is too large
+	 */
+	private boolean put(final LibraryItem item, final Bitmap artwork, final boolean hasFingerprint,
+			final long fingerprint) {
+		checkNotNull(item, "item cannot be null.");
+		checkNotNull(artwork, "artwork cannot be null.");
+
+		final byte[] data = compress(artwork, hasFingerprint, fingerprint);
+
+		return data != null && arena.put(StableIdUtil.getCacheKey(item), data);
+	}
+
+	/**
+	 * Compresses the supplied artwork into an entry which starts with a header that records the
+	 * fingerprint.
+	 *
+	 * @param artwork
+	 * 		the artwork to compress, not null
+	 * @param hasFingerprint
+	 * 		whether or not {@code fingerprint} should be recorded
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, ignored if {@code hasFingerprint} is false
+	 * @return the entry, null if the artwork could not be compressed
+	 */
+	private byte[] compress(final Bitmap artwork, final boolean hasFingerprint,
+			final long fingerprint) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		// Reserve the header, which is filled in once the length is known
+		output.write(new byte[HEADER_LENGTH], 0, HEADER_LENGTH);
+
+		if (!artwork.compress(format, quality, output)) {
+			return null;
+		}
+
+		final byte[] data = output.toByteArray();
+		data[0] = hasFingerprint ? FLAG_HAS_FINGERPRINT : 0;
+
+		for (int i = 0; i < 8; i++) {
+			data[1 + i] = (byte) (fingerprint >>> (i * 8));
+		}
+
+		return data;
+	}
+
+	/**
+	 * The arena key of a thumbnail which is shared by fingerprint. Wrapping the fingerprint keeps
+	 * these keys distinct from the keys of items, which may be Long IDs.
+	 */
+	private static final class FingerprintKey {
+		private final long fingerprint;
+
+		public FingerprintKey(final long fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return object instanceof FingerprintKey &&
+					((FingerprintKey) object).fingerprint == fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (fingerprint ^ (fingerprint >>> 32));
+		}
+	}
+
+	/**
+	 * A compressed thumbnail retrieved from a CompressedArtworkTier.
+	 */
+	public static final class CompressedArtwork {
+		/**
+		 * The header followed by the compressed thumbnail.
+		 */
+		private final byte[] data;
+
+		private CompressedArtwork(final byte[] data) {
+			this.data = data;
+		}
+
+		/**
+		 * @return true if the thumbnail records the fingerprint of its original encoded artwork,
+		 * false otherwise
+		 */
+		public boolean hasFingerprint() {
+			return (data[0] & FLAG_HAS_FINGERPRINT) != 0;
+		}
+
+		/**
+		 * @return the fingerprint of the original encoded artwork, only meaningful if {@link
+		 * #hasFingerprint()} returns true
+		 */
+		public long getFingerprint() {
+			long fingerprint = 0;
+
+			for (int i = 0; i < 8; i++) {
+				fingerprint |= (data[1 + i] & 0xFFL) << (i * 8);
+			}
+
+			return fingerprint;
+		}
+
+		/**
+		 * @return the number of bytes used by the compressed thumbnail
+		 */
+		public int getCompressedLength() {
+			return data.length - HEADER_LENGTH;
+		}
+
+		/**
+		 * Decodes the thumbnail. Decoding is relatively expensive, so this method should not be
+		 * called on the UI thread.
+		 *
+		 * @return the decoded thumbnail, null if it cannot be decoded
+		 */
+		public Bitmap decode() {
+			return BitmapFactory.decodeByteArray(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+		}
+	}
+}
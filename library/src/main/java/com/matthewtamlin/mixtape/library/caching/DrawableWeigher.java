@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Weighs Drawables by the number of bytes used to store their pixels. BitmapDrawables are weighed
+ * using the byte count of the underlying Bitmap, and other Drawables are estimated from their
+ * intrinsic dimensions assuming four bytes per pixel.
+ */
+public class DrawableWeigher implements Weigher<Drawable> {
+	/**
+	 * The number of bytes assumed per pixel when the actual size cannot be determined.
+	 */
+	private static final int BYTES_PER_PIXEL = 4;
+
+	@Override
+	public int weigh(final Drawable drawable) {
+		if (drawable instanceof BitmapDrawable) {
+			final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+
+			if (bitmap != null) {
+				return bitmap.getByteCount();
+			}
+		}
+
+		final int width = Math.max(drawable.getIntrinsicWidth(), 1);
+		final int height = Math.max(drawable.getIntrinsicHeight(), 1);
+
+		return width * height * BYTES_PER_PIXEL;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Utilities for fingerprinting encoded artwork so that identical images can be detected without
+ * decoding them.
+ */
+public abstract class FingerprintUtil {
+	/**
+	 * Arrays no longer than this are hashed in full.
+	 */
+	private static final int FULL_HASH_THRESHOLD = 4096;
+
+	/**
+	 * The number of evenly spaced blocks sampled from longer arrays. The first and last blocks are
+	 * always included.
+	 */
+	private static final int SAMPLE_COUNT = 16;
+
+	/**
+	 * The number of bytes in each sampled block.
+	 */
+	private static final int SAMPLE_SIZE = 64;
+
+	/**
+	 * The offset basis of the 64-bit FNV-1a hash.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/**
+	 * The prime of the 64-bit FNV-1a hash.
+	 */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Computes a fingerprint of the supplied encoded artwork. The fingerprint combines the length
+	 * of the data with a hash of evenly spaced samples, so the cost is constant for large images.
+	 * Encoded images which differ in length always have different fingerprints, and encoders spread
+	 * differences in content throughout the data, so sampling detects them in practice.
+	 *
+	 * @param encodedArtwork
+	 * 		the data to fingerprint, not null
+	 * @return the fingerprint
+	 * @throws IllegalArgumentException
+	 * 		if {@code encodedArtwork} is null
+	 */
+	public static long fingerprint(final byte[] encodedArtwork) {
+		checkNotNull(encodedArtwork, "encodedArtwork cannot be null.");
+
+		final int length = encodedArtwork.length;
+		long hash = FNV_OFFSET_BASIS;
+
+		for (int shift = 0; shift < 32; shift += 8) {
+			hash = (hash ^ ((length >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+
+		if (length <= FULL_HASH_THRESHOLD) {
+			hash = hashRange(hash, encodedArtwork, 0, length);
+		} else {
+			final long lastStart = length - SAMPLE_SIZE;
+
+			for (int i = 0; i < SAMPLE_COUNT; i++) {
+				final int start = (int) (lastStart * i / (SAMPLE_COUNT - 1));
+				hash = hashRange(hash, encodedArtwork, start, start + SAMPLE_SIZE);
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Continues an FNV-1a hash over a range of bytes.
+	 *
+	 * @param seed
+	 * 		the hash so far
+	 * @param bytes
+	 * 		the bytes to hash, not null
+	 * @param start
+	 * 		the index of the first byte to hash, inclusive
+	 * @param end
+	 * 		the index of the last byte to hash, exclusive
+	 * @return the updated hash
+	 */
+	private static long hashRange(final long seed, final byte[] bytes, final int start,
+			final int end) {
+		long hash = seed;
+
+		for (int i = start; i < end; i++) {
+			hash = (hash ^ (bytes[i] & 0xFF)) * FNV_PRIME;
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+/**
+ * A count-min sketch which estimates how often keys have been accessed recently. Each key maps to
+ * four 4-bit counters, so the estimate saturates at 15. All counters are halved periodically so
+ * that the estimates favour recent history over old history. This class is not thread-safe.
+ */
+final class FrequencySketch {
+	/**
+	 * The maximum value of a counter.
+	 */
+	private static final int MAX_COUNT = 15;
+
+	/**
+	 * Masks each counter after all counters in a word have been shifted right by one bit.
+	 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/**
+	 * Seeds for deriving an independent index for each row of the sketch.
+	 */
+	private static final long[] SEEDS = {
+			0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+	/**
+	 * The counters, packed sixteen to a word.
+	 */
+	private final long[] table;
+
+	/**
+	 * Mask for converting a hash to a word index. The table length is always a power of two.
+	 */
+	private final int tableMask;
+
+	/**
+	 * The number of increments between each reset.
+	 */
+	private final int sampleSize;
+
+	/**
+	 * The number of increments since the last reset, adjusted for the halving at each reset.
+	 */
+	private int size;
+
+	/**
+	 * Constructs a new FrequencySketch.
+	 *
+	 * @param expectedEntries
+	 * 		the number of entries the owning cache is expected to hold, greater than zero
+	 */
+	public FrequencySketch(final int expectedEntries) {
+		int tableLength = 8;
+
+		while (tableLength < expectedEntries && tableLength < (1 << 24)) {
+			tableLength *= 2;
+		}
+
+		table = new long[tableLength];
+		tableMask = tableLength - 1;
+		sampleSize = tableLength * 10;
+	}
+
+	/**
+	 * Returns the estimated number of recent accesses of the key with the supplied hash.
+	 *
+	 * @param hash
+	 * 		the hash of the key
+	 * @return the estimate, between 0 and 15 inclusive
+	 */
+	public int frequency(final int hash) {
+		int frequency = MAX_COUNT;
+
+		for (int row = 0; row < SEEDS.length; row++) {
+			final long count = (table[indexOf(hash, row)] >>> offsetOf(hash, row)) & MAX_COUNT;
+			frequency = Math.min(frequency, (int) count);
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * Records an access of the key with the supplied hash.
+	 *
+	 * @param hash
+	 * 		the hash of the key
+	 */
+	public void increment(final int hash) {
+		boolean incremented = false;
+
+		for (int row = 0; row < SEEDS.length; row++) {
+			final int index = indexOf(hash, row);
+			final int offset = offsetOf(hash, row);
+
+			if (((table[index] >>> offset) & MAX_COUNT) != MAX_COUNT) {
+				table[index] += 1L << offset;
+				incremented = true;
+			}
+		}
+
+		if (incremented && ++size >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Sets every counter to zero.
+	 */
+	public void clear() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 0;
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Halves every counter so that old accesses gradually stop contributing to the estimates.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+
+		size /= 2;
+	}
+
+	/**
+	 * Returns the index of the word holding the counter for the supplied hash and row.
+	 */
+	private int indexOf(final int hash, final int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	/**
+	 * Returns the bit offset of the counter for the supplied hash and row within its word. Each row
+	 * uses a different group of four counters, so rows never share a counter.
+	 */
+	private static int offsetOf(final int hash, final int row) {
+		final int counter = (row << 2) + ((hash >>> (row << 3)) & 3);
+		return counter << 2;
+	}
+}
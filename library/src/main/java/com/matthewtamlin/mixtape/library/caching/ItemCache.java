@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+/**
+ * Stores data which has been loaded from LibraryItems so that it does not need to be loaded
+ * again. Each implementation decides how items are keyed and which values to retain. Data binders
+ * access caches from background threads, so implementations must be safe for concurrent use.
+ *
+ * @param <V>
+ * 		the type of data stored in the cache
+ */
+public interface ItemCache<V> {
+	/**
+	 * Returns the value cached for the supplied item.
+	 *
+	 * @param item
+	 * 		the item to get the value of, not null
+	 * @return the cached value, null if there is none
+	 */
+	V get(LibraryItem item);
+
+	/**
+	 * Caches a value for the supplied item, replacing any existing value. Implementations may
+	 * decline to cache the value, for example if the item cannot be keyed.
+	 *
+	 * @param item
+	 * 		the item to cache the value for, not null
+	 * @param value
+	 * 		the value to cache, not null
+	 */
+	void put(LibraryItem item, V value);
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Runs bulk I/O work (such as precaching metadata and generating thumbnails) in an order which
+ * suits the storage it reads from. The items of each batch are grouped by parent directory and
+ * ordered by path, so that consecutive reads hit the page cache and the read-ahead of the storage
+ * rather than seeking between random files. Each storage volume is worked on by a bounded number
+ * of lanes, where each lane processes one directory at a time in order. The limit applies across
+ * all batches, so scheduling several bulk jobs at once never floods a volume with concurrent
+ * reads.
+ * <p>
+ * Items are located using a {@link LocationResolver}, and locations are mapped to volumes using a
+ * {@link VolumeResolver}. The default volume resolver treats the first two segments of the
+ * absolute path (for example {@code /storage/emulated}) as the volume, which matches the way
+ * storage is mounted on Android. Work which must run sequentially can share the limit using
+ * {@link #execute(File, Runnable)} or {@link #getVolumeExecutor(File)}. This class is thread safe.
+ */
+public class LocalityScheduler {
+	/**
+	 * The default maximum number of directories to read from each volume at once.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENCY_PER_VOLUME = 2;
+
+	/**
+	 * Treats the first two segments of the absolute path of a file as its volume.
+	 */
+	public static final VolumeResolver DEFAULT_VOLUME_RESOLVER = new VolumeResolver() {
+		@Override
+		public Object getVolume(final File location) {
+			final String path = location.getAbsolutePath();
+			final int firstSeparator = path.indexOf(File.separatorChar, 1);
+
+			if (firstSeparator == -1) {
+				return path;
+			}
+
+			final int secondSeparator = path.indexOf(File.separatorChar, firstSeparator + 1);
+			return secondSeparator == -1 ? path : path.substring(0, secondSeparator);
+		}
+	};
+
+	/**
+	 * Runs each item by calling its run method.
+	 */
+	private static final ItemTask<Runnable> RUN_TASK = new ItemTask<Runnable>() {
+		@Override
+		public void run(final Runnable item) {
+			item.run();
+		}
+	};
+
+	/**
+	 * Runs the lanes.
+	 */
+	private final Executor executor;
+
+	/**
+	 * The maximum number of lanes per volume.
+	 */
+	private final int maxConcurrencyPerVolume;
+
+	/**
+	 * Maps locations to volumes.
+	 */
+	private final VolumeResolver volumeResolver;
+
+	/**
+	 * The pending work of each volume which has work or running lanes. Must only be accessed
+	 * while synchronized on this scheduler.
+	 */
+	private final Map<Object, VolumeQueue> volumeQueues = new HashMap<>();
+
+	/**
+	 * Constructs a new LocalityScheduler which uses the default concurrency limit and volume
+	 * resolver.
+	 *
+	 * @param executor
+	 * 		the executor to run the work on, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code executor} is null
+	 */
+	public LocalityScheduler(final Executor executor) {
+		this(executor, DEFAULT_MAX_CONCURRENCY_PER_VOLUME, DEFAULT_VOLUME_RESOLVER);
+	}
+
+	/**
+	 * Constructs a new LocalityScheduler. The executor must be able to run at least {@code
+	 * maxConcurrencyPerVolume} tasks at once for the limit to be reached.
+	 *
+	 * @param executor
+	 * 		the executor to run the work on, not null
+	 * @param maxConcurrencyPerVolume
+	 * 		the maximum number of directories to read from each volume at once, greater than zero
+	 * @param volumeResolver
+	 * 		maps locations to volumes, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code executor} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxConcurrencyPerVolume} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code volumeResolver} is null
+	 */
+	public LocalityScheduler(final Executor executor, final int maxConcurrencyPerVolume,
+			final VolumeResolver volumeResolver) {
+		this.executor = checkNotNull(executor, "executor cannot be null.");
+		this.maxConcurrencyPerVolume = checkGreaterThan(maxConcurrencyPerVolume, 0,
+				"maxConcurrencyPerVolume must be greater than zero.");
+		this.volumeResolver = checkNotNull(volumeResolver, "volumeResolver cannot be null.");
+	}
+
+	/**
+	 * Sorts items so that items in the same directory are adjacent and ordered by name. Items
+	 * without a location are placed last, in their original order. This is useful for bulk work
+	 * which must run sequentially, such as building a {@link ThumbnailAtlas}.
+	 *
+	 * @param items
+	 * 		the items to sort, not null
+	 * @param locationResolver
+	 * 		locates the items, not null
+	 * @param <T>
+	 * 		the type of items to sort
+	 * @return a new sorted list of the items, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code locationResolver} is null
+	 */
+	public static <T> List<T> sortByLocation(final Collection<? extends T> items,
+			final LocationResolver<? super T> locationResolver) {
+		checkNotNull(items, "items cannot be null.");
+		checkNotNull(locationResolver, "locationResolver cannot be null.");
+
+		final List<LocatedItem<T>> locatedItems = locate(items, locationResolver);
+		final List<T> sortedItems = new ArrayList<>(locatedItems.size());
+
+		for (final LocatedItem<T> locatedItem : locatedItems) {
+			sortedItems.add(locatedItem.item);
+		}
+
+		return sortedItems;
+	}
+
+	/**
+	 * Schedules a task to run for each of the supplied items. The items are grouped by parent
+	 * directory and each group is queued on the lanes of its volume, where its items are run in
+	 * order of name. Items without a location are run after the other items of the batch.
+	 *
+	 * @param items
+	 * 		the items to run the task for, not null
+	 * @param locationResolver
+	 * 		locates the items, not null
+	 * @param task
+	 * 		the task to run for each item, not null
+	 * @param <T>
+	 * 		the type of items to run the task for
+	 * @return a handle which can be used to cancel or wait for the work, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code locationResolver} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code task} is null
+	 */
+	public <T> Batch schedule(final Collection<? extends T> items,
+			final LocationResolver<? super T> locationResolver, final ItemTask<? super T> task) {
+		checkNotNull(items, "items cannot be null.");
+		checkNotNull(locationResolver, "locationResolver cannot be null.");
+		checkNotNull(task, "task cannot be null.");
+
+		final List<DirectoryGroup<T>> groups = groupByDirectory(locate(items, locationResolver),
+				task);
+		final Batch batch = new Batch(groups.size());
+
+		final List<Lane> newLanes = new ArrayList<>();
+
+		synchronized (this) {
+			for (final DirectoryGroup<T> group : groups) {
+				group.batch = batch;
+
+				final Object volume = group.directory == null ? null :
+						volumeResolver.getVolume(group.directory);
+
+				VolumeQueue volumeQueue = volumeQueues.get(volume);
+
+				if (volumeQueue == null) {
+					volumeQueue = new VolumeQueue(volume);
+					volumeQueues.put(volume, volumeQueue);
+				}
+
+				volumeQueue.groups.add(group);
+
+				if (volumeQueue.activeLanes < maxConcurrencyPerVolume) {
+					volumeQueue.activeLanes++;
+					newLanes.add(new Lane(volumeQueue));
+				}
+			}
+		}
+
+		for (final Lane lane : newLanes) {
+			executor.execute(lane);
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Runs a single task on a lane of the volume which the supplied location is stored on. This
+	 * lets bulk work which must run sequentially, such as building a {@link ThumbnailAtlas},
+	 * count towards the same concurrency limit as the batches which read from the volume.
+	 *
+	 * @param location
+	 * 		the file which the task reads from, or any file in the same directory, may be null
+	 * @param task
+	 * 		the task to run, not null
+	 * @return a handle which can be used to cancel or wait for the task, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code task} is null
+	 */
+	public Batch execute(final File location, final Runnable task) {
+		checkNotNull(task, "task cannot be null.");
+
+		return schedule(Collections.singletonList(task), new LocationResolver<Runnable>() {
+			@Override
+			public File getLocation(final Runnable item) {
+				return location;
+			}
+		}, RUN_TASK);
+	}
+
+	/**
+	 * Returns an executor which runs each of its tasks using {@link #execute(File, Runnable)}.
+	 * This is useful for classes which run their bulk work on an executor, such as {@link
+	 * CachePrewarmer}.
+	 *
+	 * @param location
+	 * 		the file which the tasks read from, or any file in the same directory, may be null
+	 * @return the executor, not null
+	 */
+	public Executor getVolumeExecutor(final File location) {
+		return new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				LocalityScheduler.this.execute(location, command);
+			}
+		};
+	}
+
+	/**
+	 * Resolves the locations of items and sorts them by parent directory, then by name. Items
+	 * without a location are placed last, in their original order.
+	 *
+	 * @param items
+	 * 		the items to locate, not null
+	 * @param locationResolver
+	 * 		locates the items, not null
+	 * @param <T>
+	 * 		the type of items to locate
+	 * @return the located items in order, not null
+	 */
+	private static <T> List<LocatedItem<T>> locate(final Collection<? extends T> items,
+			final LocationResolver<? super T> locationResolver) {
+		final List<LocatedItem<T>> locatedItems = new ArrayList<>(items.size());
+
+		for (final T item : items) {
+			locatedItems.add(new LocatedItem<T>(item, locationResolver.getLocation(item)));
+		}
+
+		// The sort is stable, so items without locations keep their order
+		Collections.sort(locatedItems, new Comparator<LocatedItem<T>>() {
+			@Override
+			public int compare(final LocatedItem<T> first, final LocatedItem<T> second) {
+				if (first.parentPath == null || second.parentPath == null) {
+					return (first.parentPath == null ? 1 : 0) - (second.parentPath == null ? 1 : 0);
+				}
+
+				final int parentComparison = first.parentPath.compareTo(second.parentPath);
+				return parentComparison != 0 ? parentComparison : first.name.compareTo(second.name);
+			}
+		});
+
+		return locatedItems;
+	}
+
+	/**
+	 * Splits sorted items into groups which share a parent directory.
+	 *
+	 * @param locatedItems
+	 * 		the items, sorted by location, not null
+	 * @param task
+	 * 		the task to run for each item, not null
+	 * @param <T>
+	 * 		the type of the items
+	 * @return the groups in order, not null
+	 */
+	private static <T> List<DirectoryGroup<T>> groupByDirectory(
+			final List<LocatedItem<T>> locatedItems, final ItemTask<? super T> task) {
+		final List<DirectoryGroup<T>> groups = new ArrayList<>();
+		DirectoryGroup<T> currentGroup = null;
+
+		for (final LocatedItem<T> locatedItem : locatedItems) {
+			if (currentGroup == null || !equal(currentGroup.parentPath, locatedItem.parentPath)) {
+				currentGroup = new DirectoryGroup<>(locatedItem.parentPath, task);
+				groups.add(currentGroup);
+			}
+
+			currentGroup.items.add(locatedItem.item);
+		}
+
+		return groups;
+	}
+
+	/**
+	 * Compares two nullable strings.
+	 *
+	 * @param first
+	 * 		the first string, may be null
+	 * @param second
+	 * 		the second string, may be null
+	 * @return true if both are null or they are equal, false otherwise
+	 */
+	private static boolean equal(final String first, final String second) {
+		return first == null ? second == null : first.equals(second);
+	}
+
+	/**
+	 * Locates an item. This is used to order work so that nearby files are read together.
+	 *
+	 * @param <T>
+	 * 		the type of item to locate
+	 */
+	public interface LocationResolver<T> {
+		/**
+		 * Returns the file which is read when working on an item. This method must be fast, since
+		 * it is called for every item when work is scheduled.
+		 *
+		 * @param item
+		 * 		the item to locate
+		 * @return the file, null if the item has no location
+		 */
+		File getLocation(T item);
+	}
+
+	/**
+	 * Maps locations to the storage volumes they are stored on.
+	 */
+	public interface VolumeResolver {
+		/**
+		 * Returns an object which identifies the volume a file is stored on. Files on the same
+		 * volume must return equal objects.
+		 *
+		 * @param location
+		 * 		the file, not null
+		 * @return the volume, not null
+		 */
+		Object getVolume(File location);
+	}
+
+	/**
+	 * The work to do for each item.
+	 *
+	 * @param <T>
+	 * 		the type of item to work on
+	 */
+	public interface ItemTask<T> {
+		/**
+		 * Works on an item. This method is called on the threads of the executor, and must not
+		 * throw exceptions.
+		 *
+		 * @param item
+		 * 		the item to work on
+		 */
+		void run(T item);
+	}
+
+	/**
+	 * A handle to the work scheduled by a single call to {@link #schedule(Collection,
+	 * LocationResolver, ItemTask)}.
+	 */
+	public static final class Batch {
+		/**
+		 * Counts down as each directory group is finished.
+		 */
+		private final CountDownLatch remainingGroups;
+
+		/**
+		 * Whether or not the batch has been cancelled.
+		 */
+		private volatile boolean cancelled = false;
+
+		/**
+		 * Constructs a new Batch.
+		 *
+		 * @param groupCount
+		 * 		the number of directory groups in the batch
+		 */
+		private Batch(final int groupCount) {
+			remainingGroups = new CountDownLatch(groupCount);
+		}
+
+		/**
+		 * Cancels the work which has not started yet. Items which are already running are
+		 * allowed to finish.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * @return true if the batch has been cancelled, false otherwise
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @return true if every item has been run or skipped, false otherwise
+		 */
+		public boolean isDone() {
+			return remainingGroups.getCount() == 0;
+		}
+
+		/**
+		 * Blocks until every item has been run or skipped.
+		 *
+		 * @throws InterruptedException
+		 * 		if the thread is interrupted while waiting
+		 */
+		public void await() throws InterruptedException {
+			remainingGroups.await();
+		}
+	}
+
+	/**
+	 * Runs the directory groups of a volume one at a time, then stops when none remain. A lane
+	 * resubmits itself after each group so that other work on the executor is not starved, and so
+	 * that the lane survives a task which throws.
+	 */
+	private class Lane implements Runnable {
+		private final VolumeQueue volumeQueue;
+
+		public Lane(final VolumeQueue volumeQueue) {
+			this.volumeQueue = volumeQueue;
+		}
+
+		@Override
+		public void run() {
+			final DirectoryGroup<?> group;
+
+			synchronized (LocalityScheduler.this) {
+				group = volumeQueue.groups.poll();
+
+				if (group == null) {
+					volumeQueue.activeLanes--;
+
+					if (volumeQueue.activeLanes == 0) {
+						volumeQueues.remove(volumeQueue.volume);
+					}
+
+					return;
+				}
+			}
+
+			try {
+				group.run();
+			} finally {
+				group.batch.remainingGroups.countDown();
+				executor.execute(this);
+			}
+		}
+	}
+
+	/**
+	 * The pending directory groups of a volume, and the number of lanes working on them.
+	 */
+	private static class VolumeQueue {
+		private final Object volume;
+
+		private final Queue<DirectoryGroup<?>> groups = new ArrayDeque<>();
+
+		private int activeLanes = 0;
+
+		public VolumeQueue(final Object volume) {
+			this.volume = volume;
+		}
+	}
+
+	/**
+	 * The items of a batch which share a parent directory, in order of name.
+	 *
+	 * @param <T>
+	 * 		the type of the items
+	 */
+	private static class DirectoryGroup<T> {
+		private final String parentPath;
+
+		private final File directory;
+
+		private final ItemTask<? super T> task;
+
+		private final List<T> items = new ArrayList<>();
+
+		private Batch batch;
+
+		public DirectoryGroup(final String parentPath, final ItemTask<? super T> task) {
+			this.parentPath = parentPath;
+			this.directory = parentPath == null ? null : new File(parentPath);
+			this.task = task;
+		}
+
+		public void run() {
+			for (final T item : items) {
+				if (batch.cancelled) {
+					return;
+				}
+
+				task.run(item);
+			}
+		}
+	}
+
+	/**
+	 * An item with its location split into a parent path and a name for sorting.
+	 *
+	 * @param <T>
+	 * 		the type of the item
+	 */
+	private static class LocatedItem<T> {
+		private final T item;
+
+		private final String parentPath;
+
+		private final String name;
+
+		public LocatedItem(final T item, final File location) {
+			this.item = item;
+
+			if (location == null) {
+				parentPath = null;
+				name = null;
+			} else {
+				final File parent = location.getAbsoluteFile().getParentFile();
+				parentPath = parent == null ? "" : parent.getPath();
+				name = location.getName();
+			}
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from primitive long keys to values, which stores keys in an open-addressing array so
+ * that looking up a key never boxes it. Removal shifts subsequent entries backwards rather than
+ * leaving tombstones, and the table doubles in size when it becomes three quarters full. The key
+ * {@link IdentifiableLibraryItem#NO_ID} marks unoccupied slots, so it cannot be stored. This
+ * class is not thread-safe.
+ *
+ * @param <V>
+ * 		the type of values in the map
+ */
+final class LongKeyMap<V> {
+	/**
+	 * The key used to mark unoccupied slots.
+	 */
+	private static final long EMPTY = IdentifiableLibraryItem.NO_ID;
+
+	/**
+	 * The key of each slot, {@link #EMPTY} if the slot is unoccupied.
+	 */
+	private long[] keys;
+
+	/**
+	 * The value of each slot, null if the slot is unoccupied.
+	 */
+	private Object[] values;
+
+	/**
+	 * Mask for converting a hash to a slot index. The table length is always a power of two.
+	 */
+	private int mask;
+
+	/**
+	 * The number of occupied slots.
+	 */
+	private int size;
+
+	/**
+	 * Constructs a new LongKeyMap.
+	 *
+	 * @param expectedSize
+	 * 		the number of entries the map is expected to hold
+	 */
+	public LongKeyMap(final int expectedSize) {
+		int tableLength = 2;
+
+		while (tableLength / 4 * 3 < expectedSize && tableLength < (1 << 30)) {
+			tableLength *= 2;
+		}
+
+		allocate(tableLength);
+	}
+
+	/**
+	 * Returns the value mapped to the supplied key.
+	 *
+	 * @param key
+	 * 		the key to look up
+	 * @return the value, null if the key is not mapped
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final long key) {
+		for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return (V) values[slot];
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Maps the supplied key to the supplied value, replacing any existing value.
+	 *
+	 * @param key
+	 * 		the key to map, not {@link IdentifiableLibraryItem#NO_ID}
+	 * @param value
+	 * 		the value to map the key to, not null
+	 */
+	public void put(final long key, final V value) {
+		int slot = hash(key) & mask;
+
+		for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+
+		if (++size > keys.length / 4 * 3) {
+			resize();
+		}
+	}
+
+	/**
+	 * Removes the value mapped to the supplied key. If the key is not mapped, the method exits
+	 * normally.
+	 *
+	 * @param key
+	 * 		the key to remove
+	 */
+	public void remove(final long key) {
+		for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				removeAt(slot);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds every value in the map to the supplied list.
+	 *
+	 * @param destination
+	 * 		the list to add the values to, not null
+	 */
+	@SuppressWarnings("unchecked")
+	public void addValuesTo(final List<? super V> destination) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				destination.add((V) values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries from the map. The table keeps its current length.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @return the number of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Spreads the bits of the supplied key so that sequential and clustered IDs are distributed
+	 * evenly across the table.
+	 *
+	 * @param key
+	 * 		the key to hash
+	 * @return the hash
+	 */
+	public static int hash(final long key) {
+		final long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	/**
+	 * Replaces the table with an empty table of the supplied length.
+	 *
+	 * @param tableLength
+	 * 		the length of the new table, a power of two
+	 */
+	private void allocate(final int tableLength) {
+		keys = new long[tableLength];
+		values = new Object[tableLength];
+		mask = tableLength - 1;
+
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Doubles the length of the table and reinserts every entry.
+	 */
+	private void resize() {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+
+		allocate(oldKeys.length * 2);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = hash(oldKeys[i]) & mask;
+
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Removes the entry in the supplied slot, then shifts subsequent entries in the same probe
+	 * sequence backwards so that no tombstones are needed.
+	 *
+	 * @param slot
+	 * 		the slot to clear, must be occupied
+	 */
+	private void removeAt(final int slot) {
+		int gap = slot;
+
+		for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			final int home = hash(keys[next]) & mask;
+
+			// The entry can fill the gap only if the gap lies between its home slot and its slot
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+
+		keys[gap] = EMPTY;
+		values[gap] = null;
+		size--;
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+
+import java.util.Arrays;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An ItemCache for text which is keyed by the stable IDs of IdentifiableLibraryItems. Keys are
+ * stored as primitives in open-addressing arrays so that no objects are allocated per entry, and
+ * the cache never holds references to the items themselves. When the cache is full, entries are
+ * evicted using the clock algorithm, which approximates least-recently-used eviction without
+ * reordering entries on every access.
+ * <p>
+ * The cache is divided into segments which are locked independently, so concurrent binder tasks
+ * rarely contend with each other. Items which do not implement IdentifiableLibraryItem are never
+ * cached.
+ */
+public class LongKeyTextCache implements ItemCache<CharSequence> {
+	/**
+	 * The key used to mark unoccupied slots. The value is never a valid item ID.
+	 */
+	private static final long EMPTY = IdentifiableLibraryItem.NO_ID;
+
+	/**
+	 * The number of segments to use if no concurrency level is specified.
+	 */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * The maximum number of segments. Segments are selected using the top bits of the key hash.
+	 */
+	private static final int MAX_SEGMENTS = 256;
+
+	/**
+	 * The number of bits to shift the key hash by when selecting a segment.
+	 */
+	private static final int SEGMENT_SHIFT = 24;
+
+	/**
+	 * The independently locked segments which hold the entries. The length is always a power of
+	 * two.
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * The maximum number of entries across all segments.
+	 */
+	private final int capacity;
+
+	/**
+	 * Constructs a new LongKeyTextCache with the default concurrency level.
+	 *
+	 * @param capacity
+	 * 		the maximum number of entries to hold, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero
+	 */
+	public LongKeyTextCache(final int capacity) {
+		this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs a new LongKeyTextCache.
+	 *
+	 * @param capacity
+	 * 		the maximum number of entries to hold, greater than zero
+	 * @param concurrencyLevel
+	 * 		the expected number of threads accessing the cache concurrently, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code capacity} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code concurrencyLevel} is not greater than zero
+	 */
+	public LongKeyTextCache(final int capacity, final int concurrencyLevel) {
+		this.capacity = checkGreaterThan(capacity, 0, "capacity must be greater than zero.");
+		checkGreaterThan(concurrencyLevel, 0, "concurrencyLevel must be greater than zero.");
+
+		// Every segment must be able to hold at least one entry
+		int segmentCount = 1;
+
+		while (segmentCount < concurrencyLevel && segmentCount < MAX_SEGMENTS &&
+				segmentCount * 2 <= capacity) {
+			segmentCount *= 2;
+		}
+
+		segments = new Segment[segmentCount];
+
+		for (int i = 0; i < segmentCount; i++) {
+			final int remainder = i < capacity % segmentCount ? 1 : 0;
+			segments[i] = new Segment(capacity / segmentCount + remainder);
+		}
+	}
+
+	@Override
+	public CharSequence get(final LibraryItem item) {
+		final long id = StableIdUtil.getItemId(item);
+		return id == EMPTY ? null : get(id);
+	}
+
+	@Override
+	public void put(final LibraryItem item, final CharSequence value) {
+		final long id = StableIdUtil.getItemId(item);
+
+		if (id != EMPTY) {
+			put(id, value);
+		}
+	}
+
+	/**
+	 * Returns the text cached for the supplied ID.
+	 *
+	 * @param id
+	 * 		the ID of the item to get the text of
+	 * @return the cached text, null if there is none
+	 */
+	public CharSequence get(final long id) {
+		final int hash = hash(id);
+		return segmentFor(hash).get(id, hash);
+	}
+
+	/**
+	 * Caches text for the supplied ID, replacing any existing text. If the cache is full, an
+	 * existing entry is evicted.
+	 *
+	 * @param id
+	 * 		the ID of the item to cache the text of, not {@link IdentifiableLibraryItem#NO_ID}
+	 * @param text
+	 * 		the text to cache, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code id} is {@link IdentifiableLibraryItem#NO_ID}
+	 * @throws IllegalArgumentException
+	 * 		if {@code text} is null
+	 */
+	public void put(final long id, final CharSequence text) {
+		if (id == EMPTY) {
+			throw new IllegalArgumentException("id cannot be NO_ID.");
+		}
+
+		checkNotNull(text, "text cannot be null.");
+
+		final int hash = hash(id);
+		segmentFor(hash).put(id, hash, text);
+	}
+
+	/**
+	 * Removes the text cached for the supplied ID. If no text is cached, the method exits normally.
+	 *
+	 * @param id
+	 * 		the ID of the item to remove the text of
+	 */
+	public void remove(final long id) {
+		final int hash = hash(id);
+		segmentFor(hash).remove(id, hash);
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void clear() {
+		for (final Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of entries currently in the cache
+	 */
+	public int size() {
+		int size = 0;
+
+		for (final Segment segment : segments) {
+			size += segment.size();
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of entries the cache can hold
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the segment responsible for the supplied hash.
+	 *
+	 * @param hash
+	 * 		the hash of a key
+	 * @return the segment, not null
+	 */
+	private Segment segmentFor(final int hash) {
+		return segments[(hash >>> SEGMENT_SHIFT) & (segments.length - 1)];
+	}
+
+	/**
+	 * Spreads the bits of the supplied key so that sequential and clustered IDs are distributed
+	 * evenly across segments and slots.
+	 *
+	 * @param key
+	 * 		the key to hash
+	 * @return the hash
+	 */
+	private static int hash(final long key) {
+		final long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	/**
+	 * A fixed capacity open-addressing hash table which uses linear probing and clock eviction.
+	 * All methods are synchronized on the segment.
+	 */
+	private static final class Segment {
+		/**
+		 * The maximum number of entries in this segment.
+		 */
+		private final int capacity;
+
+		/**
+		 * The key of each slot, {@link #EMPTY} if the slot is unoccupied.
+		 */
+		private final long[] keys;
+
+		/**
+		 * The value of each slot, null if the slot is unoccupied.
+		 */
+		private final CharSequence[] values;
+
+		/**
+		 * The reference bit of each slot, set when the entry is accessed and cleared when the clock
+		 * hand passes over it.
+		 */
+		private final boolean[] referenced;
+
+		/**
+		 * Mask for converting a hash to a slot index. The table length is always a power of two.
+		 */
+		private final int mask;
+
+		/**
+		 * The number of occupied slots.
+		 */
+		private int size;
+
+		/**
+		 * The slot the clock hand currently points to.
+		 */
+		private int hand;
+
+		/**
+		 * Constructs a new Segment.
+		 *
+		 * @param capacity
+		 * 		the maximum number of entries, greater than zero
+		 */
+		public Segment(final int capacity) {
+			this.capacity = capacity;
+
+			// Keep the load factor at or below 0.75 so that probe sequences stay short
+			int tableLength = 2;
+
+			while (tableLength / 4 * 3 < capacity && tableLength < (1 << 30)) {
+				tableLength *= 2;
+			}
+
+			keys = new long[tableLength];
+			values = new CharSequence[tableLength];
+			referenced = new boolean[tableLength];
+			mask = tableLength - 1;
+
+			Arrays.fill(keys, EMPTY);
+		}
+
+		public synchronized CharSequence get(final long key, final int hash) {
+			for (int slot = hash & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+				if (keys[slot] == key) {
+					referenced[slot] = true;
+					return values[slot];
+				}
+			}
+
+			return null;
+		}
+
+		public synchronized void put(final long key, final int hash, final CharSequence value) {
+			int slot = hash & mask;
+
+			for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+				if (keys[slot] == key) {
+					values[slot] = value;
+					referenced[slot] = true;
+					return;
+				}
+			}
+
+			if (size == capacity) {
+				evict();
+
+				// Eviction shifts entries, so the free slot must be found again
+				slot = hash & mask;
+
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+			}
+
+			// New entries start unreferenced so that entries which are never reused go first
+			keys[slot] = key;
+			values[slot] = value;
+			referenced[slot] = false;
+			size++;
+		}
+
+		public synchronized void remove(final long key, final int hash) {
+			for (int slot = hash & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+				if (keys[slot] == key) {
+					removeAt(slot);
+					return;
+				}
+			}
+		}
+
+		public synchronized void clear() {
+			Arrays.fill(keys, EMPTY);
+			Arrays.fill(values, null);
+			Arrays.fill(referenced, false);
+			size = 0;
+			hand = 0;
+		}
+
+		public synchronized int size() {
+			return size;
+		}
+
+		/**
+		 * Advances the clock hand until an unreferenced entry is found, then removes it. Referenced
+		 * entries are given a second chance by clearing their reference bit. The segment must
+		 * contain at least one entry.
+		 */
+		private void evict() {
+			while (true) {
+				if (keys[hand] != EMPTY) {
+					if (referenced[hand]) {
+						referenced[hand] = false;
+					} else {
+						// The hand is not advanced since removal may shift another entry here
+						removeAt(hand);
+						return;
+					}
+				}
+
+				hand = (hand + 1) & mask;
+			}
+		}
+
+		/**
+		 * Removes the entry in the supplied slot, then shifts subsequent entries in the same probe
+		 * sequence backwards so that no tombstones are needed.
+		 *
+		 * @param slot
+		 * 		the slot to clear, must be occupied
+		 */
+		private void removeAt(final int slot) {
+			int gap = slot;
+
+			for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+				final int home = hash(keys[next]) & mask;
+
+				// The entry can fill the gap only if the gap lies between its home slot and its slot
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					keys[gap] = keys[next];
+					values[gap] = values[next];
+					referenced[gap] = referenced[next];
+					gap = next;
+				}
+			}
+
+			keys[gap] = EMPTY;
+			values[gap] = null;
+			referenced[gap] = false;
+			size--;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import android.support.v4.util.LruCache;
+
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An ItemCache which delegates to an LruCache. Entries are keyed by the items themselves, so that
+ * an LruCache which is shared with other code continues to see the keys it expects. Lookups use
+ * the {@code equals} and {@code hashCode} methods of the items, so items used with this cache
+ * should implement them cheaply. To key entries by stable ID instead, use an ItemCache such as
+ * {@link LongKeyTextCache} or {@link TinyLfuItemCache}.
+ *
+ * @param <V>
+ * 		the type of data stored in the cache
+ */
+public class LruItemCache<V> implements ItemCache<V> {
+	/**
+	 * The cache to delegate to.
+	 */
+	private final LruCache<LibraryItem, V> lruCache;
+
+	/**
+	 * Constructs a new LruItemCache.
+	 *
+	 * @param lruCache
+	 * 		the cache to delegate to, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code lruCache} is null
+	 */
+	public LruItemCache(final LruCache<LibraryItem, V> lruCache) {
+		this.lruCache = checkNotNull(lruCache, "lruCache cannot be null.");
+	}
+
+	@Override
+	public V get(final LibraryItem item) {
+		return lruCache.get(item);
+	}
+
+	@Override
+	public void put(final LibraryItem item, final V value) {
+		lruCache.put(item, value);
+	}
+
+	/**
+	 * @return the cache this ItemCache delegates to, not null
+	 */
+	public LruCache<LibraryItem, V> getLruCache() {
+		return lruCache;
+	}
+}
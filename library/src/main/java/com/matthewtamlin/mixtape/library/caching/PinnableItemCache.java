@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+
+/**
+ * An ItemCache which allows entries to be pinned so that they cannot be evicted. Pins are counted,
+ * so an item which has been pinned several times remains pinned until it has been unpinned the
+ * same number of times. Items can be pinned before their values are cached, in which case the
+ * values are pinned as soon as they are put.
+ *
+ * @param <V>
+ * 		the type of data stored in the cache
+ */
+public interface PinnableItemCache<V> extends ItemCache<V> {
+	/**
+	 * Pins the entry for the supplied item.
+	 *
+	 * @param item
+	 * 		the item to pin, not null
+	 */
+	void pin(LibraryItem item);
+
+	/**
+	 * Releases one pin on the entry for the supplied item. If the item is not pinned, the method
+	 * exits normally.
+	 *
+	 * @param item
+	 * 		the item to unpin, not null
+	 */
+	void unpin(LibraryItem item);
+
+	/**
+	 * @return the total weight of all pinned entries currently in the cache
+	 */
+	long getPinnedWeight();
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A reference counted pool of decoded artwork, keyed by the fingerprint of the encoded artwork and
+ * the size it was decoded at. When many items share the same image (for example every song on an
+ * album), the image is decoded once and the resulting Bitmap is shared by every cache entry.
+ * <p>
+ * Each successful call to {@link #acquire(long, int, int)} or {@link #share(long, int, int,
+ * Bitmap)} takes a reference which must eventually be released by calling {@link
+ * #release(Bitmap)}. The pool implements TinyLfuItemCache.RemovalListener so that it can be
+ * registered with the cache which holds the shared artwork, in which case references are released
+ * automatically as entries are removed. For this reason an ArtworkBinder only accepts a pool if it
+ * stores its artwork in a TinyLfuItemCache. Bitmaps are only dropped from the pool when their last
+ * reference is released.
+ * <p>
+ * Decoded sizes are grouped into power-of-two buckets based on the larger requested dimension, so
+ * requests for similar sizes share the same Bitmap. This class is thread-safe.
+ */
+public class SharedArtworkPool implements TinyLfuItemCache.RemovalListener<Drawable> {
+	/**
+	 * The pooled entries, keyed by fingerprint and size bucket.
+	 */
+	private final HashMap<Key, Entry> entries = new HashMap<>();
+
+	/**
+	 * The pooled entries, keyed by Bitmap identity.
+	 */
+	private final IdentityHashMap<Bitmap, Entry> entriesByBitmap = new IdentityHashMap<>();
+
+	/**
+	 * Takes a reference to the Bitmap pooled for the supplied fingerprint and size, if there is one.
+	 *
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, as returned by {@link
+	 * 		FingerprintUtil#fingerprint(byte[])}
+	 * @param width
+	 * 		the width the artwork is required at, measured in pixels
+	 * @param height
+	 * 		the height the artwork is required at, measured in pixels
+	 * @return the pooled Bitmap, null if there is none
+	 */
+	public synchronized Bitmap acquire(final long fingerprint, final int width, final int height) {
+		final Entry entry = entries.get(new Key(fingerprint, bucket(width, height)));
+
+		if (entry == null) {
+			return null;
+		}
+
+		entry.referenceCount++;
+		return entry.bitmap;
+	}
+
+	/**
+	 * Offers a newly decoded Bitmap to the pool and takes a reference to the pooled Bitmap. If
+	 * another thread pooled a Bitmap for the same fingerprint and size first, the existing Bitmap
+	 * is returned and the supplied Bitmap should be discarded.
+	 *
+	 * @param fingerprint
+	 * 		the fingerprint of the encoded artwork, as returned by {@link
+	 * 		FingerprintUtil#fingerprint(byte[])}
+	 * @param width
+	 * 		the width the artwork was requested at, measured in pixels
+	 * @param height
+	 * 		the height the artwork was requested at, measured in pixels
+	 * @param bitmap
+	 * 		the decoded artwork, not null
+	 * @return the pooled Bitmap, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code bitmap} is null
+	 */
+	public synchronized Bitmap share(final long fingerprint, final int width, final int height,
+			final Bitmap bitmap) {
+		checkNotNull(bitmap, "bitmap cannot be null.");
+
+		final Key key = new Key(fingerprint, bucket(width, height));
+		Entry entry = entries.get(key);
+
+		if (entry == null) {
+			entry = new Entry(key, bitmap);
+			entries.put(key, entry);
+			entriesByBitmap.put(bitmap, entry);
+		}
+
+		entry.referenceCount++;
+		return entry.bitmap;
+	}
+
+	/**
+	 * Releases one reference to the supplied Bitmap. The Bitmap is dropped from the pool when its
+	 * last reference is released. If the Bitmap is not pooled, the method exits normally.
+	 *
+	 * @param bitmap
+	 * 		the Bitmap to release, null allowed
+	 */
+	public synchronized void release(final Bitmap bitmap) {
+		final Entry entry = bitmap == null ? null : entriesByBitmap.get(bitmap);
+
+		if (entry != null && --entry.referenceCount == 0) {
+			entries.remove(entry.key);
+			entriesByBitmap.remove(bitmap);
+		}
+	}
+
+	/**
+	 * Releases the reference held by a cache entry when the entry is removed from the cache.
+	 */
+	@Override
+	public void onRemoval(final Object key, final Drawable value,
+			final TinyLfuItemCache.RemovalCause cause) {
+		if (value instanceof BitmapDrawable) {
+			release(((BitmapDrawable) value).getBitmap());
+		}
+	}
+
+	/**
+	 * @return the number of Bitmaps currently pooled
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total number of references currently held across all pooled Bitmaps
+	 */
+	public synchronized int getReferenceCount() {
+		int count = 0;
+
+		for (final Entry entry : entries.values()) {
+			count += entry.referenceCount;
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return the number of bytes used by the pixels of the pooled Bitmaps, counting each shared
+	 * Bitmap once
+	 */
+	public synchronized long getByteCount() {
+		long byteCount = 0;
+
+		for (final Entry entry : entries.values()) {
+			byteCount += entry.bitmap.getByteCount();
+		}
+
+		return byteCount;
+	}
+
+	/**
+	 * Returns the size bucket for the supplied dimensions. The bucket is the larger dimension
+	 * rounded up to a power of two.
+	 *
+	 * @param width
+	 * 		the width, measured in pixels
+	 * @param height
+	 * 		the height, measured in pixels
+	 * @return the bucket
+	 */
+	private static int bucket(final int width, final int height) {
+		final int largest = Math.max(Math.max(width, height), 1);
+		final int bucket = Integer.highestOneBit(largest);
+
+		return bucket == largest ? bucket : bucket << 1;
+	}
+
+	/**
+	 * Identifies pooled artwork by fingerprint and size bucket.
+	 */
+	private static final class Key {
+		private final long fingerprint;
+
+		private final int bucket;
+
+		public Key(final long fingerprint, final int bucket) {
+			this.fingerprint = fingerprint;
+			this.bucket = bucket;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj == this) {
+				return true;
+			}
+
+			if (obj instanceof Key) {
+				final Key objCast = (Key) obj;
+				return fingerprint == objCast.fingerprint && bucket == objCast.bucket;
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (int) (fingerprint ^ (fingerprint >>> 32)) + bucket;
+		}
+	}
+
+	/**
+	 * A pooled Bitmap and the number of references held to it.
+	 */
+	private static final class Entry {
+		private final Key key;
+
+		private final Bitmap bitmap;
+
+		private int referenceCount;
+
+		public Entry(final Key key, final Bitmap bitmap) {
+			this.key = key;
+			this.bitmap = bitmap;
+		}
+	}
+}
@@ -0,0 +1,732 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Packs fixed-size thumbnails into a single file so that thousands of thumbnails can be read
+ * without opening thousands of files. The file is divided into equally sized slots, each holding
+ * the raw RGB 565 pixels of one thumbnail, and an index file maps item IDs to slots. Each slot
+ * also records a fingerprint of the source the thumbnail was rendered from (such as the
+ * modification time of the file), so that stale thumbnails can be detected. The atlas
+ * file is memory-mapped when opened, and thumbnails are returned as read-only slices of the
+ * mapping so that no data is copied until the pixels are transferred into a Bitmap.
+ * <p>
+ * Thumbnails are only ever appended. Appended thumbnails become visible once {@link #commit()}
+ * is called, which persists the index and extends the mapping. Replacing or removing a thumbnail
+ * leaves its slot unused, and {@link #compact()} rewrites the atlas without the unused slots once
+ * the atlas becomes fragmented. Because existing slots are never overwritten in place, slices
+ * returned before a commit or compaction remain valid.
+ * <p>
+ * The atlas and index each record a generation number which changes on every compaction. If the
+ * two files are found to be inconsistent when the atlas is opened (for example because the
+ * process was killed mid-compaction), the atlas is discarded and can be rebuilt. This class is
+ * thread-safe.
+ */
+public class ThumbnailAtlas {
+	/**
+	 * The fingerprint of thumbnails which were appended without one.
+	 */
+	public static final long NO_FINGERPRINT = 0;
+
+	/**
+	 * The number of bytes used by each pixel of a thumbnail. Thumbnails are stored in the RGB 565
+	 * format, which is sufficient for opaque artwork and uses half the space of ARGB 8888.
+	 */
+	public static final int BYTES_PER_PIXEL = 2;
+
+	/**
+	 * Identifies atlas and index files.
+	 */
+	private static final int MAGIC = 0x4D544C41;
+
+	/**
+	 * The version of the file format. Files with other versions are discarded.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of bytes at the start of the atlas file which hold the header.
+	 */
+	private static final int HEADER_LENGTH = 16;
+
+	/**
+	 * The file which holds the slots.
+	 */
+	private final File atlasFile;
+
+	/**
+	 * The file which holds the index.
+	 */
+	private final File indexFile;
+
+	/**
+	 * The width of each thumbnail, measured in pixels.
+	 */
+	private final int thumbnailWidth;
+
+	/**
+	 * The height of each thumbnail, measured in pixels.
+	 */
+	private final int thumbnailHeight;
+
+	/**
+	 * The number of bytes in each slot.
+	 */
+	private final int slotSize;
+
+	/**
+	 * The maximum number of slots in the atlas. A mapping cannot exceed {@code Integer.MAX_VALUE}
+	 * bytes, so slots past this limit could never be read.
+	 */
+	private final int maxSlotCount;
+
+	/**
+	 * Maps item IDs to slots, including slots which have been appended but not yet committed.
+	 */
+	private final HashMap<Long, Integer> index = new HashMap<>();
+
+	/**
+	 * Maps item IDs to the fingerprints of their thumbnails. This always has the same keys as the
+	 * index.
+	 */
+	private final HashMap<Long, Long> fingerprints = new HashMap<>();
+
+	/**
+	 * Generates the generation numbers.
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * Provides access to the atlas file, null if the atlas is not open.
+	 */
+	private RandomAccessFile file;
+
+	/**
+	 * A read-only mapping of the committed slots, null if the atlas is not open.
+	 */
+	private MappedByteBuffer mapping;
+
+	/**
+	 * Identifies the current contents of the atlas file, so that a stale index is not used.
+	 */
+	private long generation;
+
+	/**
+	 * The number of slots in the atlas file, including unused and uncommitted slots.
+	 */
+	private int slotCount;
+
+	/**
+	 * The number of slots covered by the mapping.
+	 */
+	private int mappedSlotCount;
+
+	/**
+	 * Constructs a new ThumbnailAtlas. The atlas must be opened before it can be used. The index
+	 * is stored alongside the atlas file, with the suffix ".index".
+	 *
+	 * @param atlasFile
+	 * 		the file to store the thumbnails in, not null
+	 * @param thumbnailWidth
+	 * 		the width of each thumbnail, measured in pixels, greater than zero
+	 * @param thumbnailHeight
+	 * 		the height of each thumbnail, measured in pixels, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code atlasFile} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code thumbnailWidth} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code thumbnailHeight} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if a single thumbnail is too large to map
+	 */
+	public ThumbnailAtlas(final File atlasFile, final int thumbnailWidth,
+			final int thumbnailHeight) {
+		this.atlasFile = checkNotNull(atlasFile, "atlasFile cannot be null.");
+		this.indexFile = new File(atlasFile.getPath() + ".index");
+		this.thumbnailWidth = checkGreaterThan(thumbnailWidth, 0,
+				"thumbnailWidth must be greater than zero.");
+		this.thumbnailHeight = checkGreaterThan(thumbnailHeight, 0,
+				"thumbnailHeight must be greater than zero.");
+
+		final long slotSize = (long) thumbnailWidth * thumbnailHeight * BYTES_PER_PIXEL;
+
+		if (HEADER_LENGTH + slotSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A single thumbnail is too large to map.");
+		}
+
+		this.slotSize = (int) slotSize;
+		this.maxSlotCount = (Integer.MAX_VALUE - HEADER_LENGTH) / this.slotSize;
+	}
+
+	/**
+	 * Opens the atlas, creating it if it does not exist, and maps the committed thumbnails into
+	 * memory. If the atlas exists but does not match the dimensions of this atlas or is
+	 * inconsistent with its index, the existing thumbnails are discarded. If the atlas is already
+	 * open, the method exits normally.
+	 *
+	 * @throws IOException
+	 * 		if the atlas cannot be opened
+	 */
+	public synchronized void open() throws IOException {
+		if (file != null) {
+			return;
+		}
+
+		file = new RandomAccessFile(atlasFile, "rw");
+
+		try {
+			if (!readHeader() || !readIndex()) {
+				index.clear();
+				fingerprints.clear();
+				generation = random.nextLong();
+				file.setLength(0);
+				writeHeader();
+				writeIndex();
+			}
+
+			// Slots which cannot be mapped are never used, and are overwritten by later appends
+			slotCount = (int) Math.min((file.length() - HEADER_LENGTH) / slotSize, maxSlotCount);
+
+			// Slots past the end of the file can only be referenced by a corrupt index
+			final Iterator<Map.Entry<Long, Integer>> entries = index.entrySet().iterator();
+
+			while (entries.hasNext()) {
+				final Map.Entry<Long, Integer> entry = entries.next();
+
+				if (entry.getValue() >= slotCount) {
+					fingerprints.remove(entry.getKey());
+					entries.remove();
+				}
+			}
+
+			remap();
+		} catch (final IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the atlas. Uncommitted thumbnails are discarded. Slices which have already been
+	 * returned remain valid. If the atlas is not open, the method exits normally.
+	 *
+	 * @throws IOException
+	 * 		if the atlas cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		if (file == null) {
+			return;
+		}
+
+		try {
+			file.close();
+		} finally {
+			file = null;
+			mapping = null;
+			index.clear();
+			fingerprints.clear();
+			slotCount = 0;
+			mappedSlotCount = 0;
+		}
+	}
+
+	/**
+	 * @return true if the atlas is open, false otherwise
+	 */
+	public synchronized boolean isOpen() {
+		return file != null;
+	}
+
+	/**
+	 * Determines whether or not the atlas contains a thumbnail for the supplied item ID, including
+	 * uncommitted thumbnails.
+	 *
+	 * @param itemId
+	 * 		the ID of the item
+	 * @return true if there is a thumbnail for the item, false otherwise
+	 */
+	public synchronized boolean contains(final long itemId) {
+		return index.containsKey(itemId);
+	}
+
+	/**
+	 * Determines whether or not the atlas contains a thumbnail for the supplied item ID which was
+	 * rendered from a source with the supplied fingerprint, including uncommitted thumbnails.
+	 *
+	 * @param itemId
+	 * 		the ID of the item
+	 * @param fingerprint
+	 * 		the current fingerprint of the source of the thumbnail
+	 * @return true if there is an up to date thumbnail for the item, false otherwise
+	 */
+	public synchronized boolean contains(final long itemId, final long fingerprint) {
+		final Long existingFingerprint = fingerprints.get(itemId);
+		return existingFingerprint != null && existingFingerprint == fingerprint;
+	}
+
+	/**
+	 * Returns the fingerprint which was recorded with the thumbnail of the supplied item ID,
+	 * including uncommitted thumbnails.
+	 *
+	 * @param itemId
+	 * 		the ID of the item
+	 * @return the fingerprint, {@link #NO_FINGERPRINT} if there is no thumbnail for the item or it
+	 * was appended without a fingerprint
+	 */
+	public synchronized long getFingerprint(final long itemId) {
+		final Long fingerprint = fingerprints.get(itemId);
+		return fingerprint == null ? NO_FINGERPRINT : fingerprint;
+	}
+
+	/**
+	 * Returns the committed thumbnail of the supplied item ID, as a read-only slice of the mapped
+	 * atlas. The slice contains {@link #getSlotSize()} bytes of RGB 565 pixels in row-major order,
+	 * and can be passed directly to {@code Bitmap.copyPixelsFromBuffer(Buffer)}.
+	 *
+	 * @param itemId
+	 * 		the ID of the item
+	 * @return the thumbnail, null if the atlas is not open or there is no committed thumbnail for
+	 * the item
+	 */
+	public synchronized ByteBuffer get(final long itemId) {
+		final Integer slot = index.get(itemId);
+
+		if (mapping == null || slot == null || slot >= mappedSlotCount) {
+			return null;
+		}
+
+		// The mapping never exceeds Integer.MAX_VALUE bytes, so mapped positions fit in an int
+		final long start = HEADER_LENGTH + (long) slot * slotSize;
+
+		final ByteBuffer slice = mapping.duplicate();
+		slice.position((int) start);
+		slice.limit((int) (start + slotSize));
+
+		return slice.slice();
+	}
+
+	/**
+	 * Appends a thumbnail to the atlas without a fingerprint, replacing any existing thumbnail
+	 * for the item ID. See {@link #append(long, long, ByteBuffer)}.
+	 *
+	 * @param itemId
+	 * 		the ID of the item the thumbnail belongs to
+	 * @param pixels
+	 * 		the RGB 565 pixels of the thumbnail, not null, with exactly {@link #getSlotSize()} bytes
+	 * 		remaining
+	 * @throws IllegalArgumentException
+	 * 		if {@code pixels} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code pixels} does not have exactly {@link #getSlotSize()} bytes remaining
+	 * @throws IllegalStateException
+	 * 		if the atlas is not open
+	 * @throws IOException
+	 * 		if the atlas already holds {@link #getMaxSlotCount()} slots, or the thumbnail cannot be
+	 * 		written
+	 */
+	public void append(final long itemId, final ByteBuffer pixels) throws IOException {
+		append(itemId, NO_FINGERPRINT, pixels);
+	}
+
+	/**
+	 * Appends a thumbnail to the atlas, replacing any existing thumbnail for the item ID. The
+	 * thumbnail is not visible to {@link #get(long)} until the atlas is committed.
+	 *
+	 * @param itemId
+	 * 		the ID of the item the thumbnail belongs to
+	 * @param fingerprint
+	 * 		the fingerprint of the source the thumbnail was rendered from
+	 * @param pixels
+	 * 		the RGB 565 pixels of the thumbnail, not null, with exactly {@link #getSlotSize()} bytes
+	 * 		remaining
+	 * @throws IllegalArgumentException
+	 * 		if {@code pixels} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code pixels} does not have exactly {@link #getSlotSize()} bytes remaining
+	 * @throws IllegalStateException
+	 * 		if the atlas is not open
+	 * @throws IOException
+	 * 		if the atlas already holds {@link #getMaxSlotCount()} slots, or the thumbnail cannot be
+	 * 		written
+	 */
+	public synchronized void append(final long itemId, final long fingerprint,
+			final ByteBuffer pixels) throws IOException {
+		checkNotNull(pixels, "pixels cannot be null.");
+		checkOpen();
+
+		if (pixels.remaining() != slotSize) {
+			throw new IllegalArgumentException("pixels must have exactly " + slotSize + " bytes " +
+					"remaining.");
+		}
+
+		if (slotCount >= maxSlotCount) {
+			throw new IOException("The atlas cannot hold more than " + maxSlotCount + " slots.");
+		}
+
+		final FileChannel channel = file.getChannel();
+		long position = HEADER_LENGTH + (long) slotCount * slotSize;
+
+		while (pixels.hasRemaining()) {
+			position += channel.write(pixels, position);
+		}
+
+		index.put(itemId, slotCount++);
+		fingerprints.put(itemId, fingerprint);
+	}
+
+	/**
+	 * Removes the thumbnail of the supplied item ID. The slot remains in the atlas until it is
+	 * compacted. If there is no thumbnail for the item, the method exits normally.
+	 *
+	 * @param itemId
+	 * 		the ID of the item
+	 */
+	public synchronized void remove(final long itemId) {
+		index.remove(itemId);
+		fingerprints.remove(itemId);
+	}
+
+	/**
+	 * Removes the thumbnails of all items except those with the supplied IDs.
+	 *
+	 * @param itemIds
+	 * 		the IDs of the items to keep the thumbnails of, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code itemIds} is null
+	 */
+	public synchronized void retainAll(final Collection<Long> itemIds) {
+		checkNotNull(itemIds, "itemIds cannot be null.");
+
+		final Collection<Long> retainedIds = itemIds instanceof Set ? itemIds :
+				new HashSet<>(itemIds);
+		index.keySet().retainAll(retainedIds);
+		fingerprints.keySet().retainAll(retainedIds);
+	}
+
+	/**
+	 * Persists the index and maps any appended thumbnails, making them visible to {@link
+	 * #get(long)}. The appended thumbnails are flushed to storage before the index is written, so
+	 * the persisted index never refers to slots which did not reach storage.
+	 *
+	 * @throws IllegalStateException
+	 * 		if the atlas is not open
+	 * @throws IOException
+	 * 		if the thumbnails or index cannot be written or the atlas cannot be mapped
+	 */
+	public synchronized void commit() throws IOException {
+		checkOpen();
+		file.getChannel().force(false);
+		writeIndex();
+		remap();
+	}
+
+	/**
+	 * Rewrites the atlas so that it only contains the slots of current thumbnails, then commits
+	 * it. Thumbnails keep their relative order. The atlas is written to a temporary file and then
+	 * swapped in, so the existing atlas is unaffected if compaction fails.
+	 *
+	 * @throws IllegalStateException
+	 * 		if the atlas is not open
+	 * @throws IOException
+	 * 		if the compacted atlas cannot be written
+	 */
+	public synchronized void compact() throws IOException {
+		checkOpen();
+
+		final List<Map.Entry<Long, Integer>> entries = new ArrayList<>(index.entrySet());
+
+		Collections.sort(entries, new Comparator<Map.Entry<Long, Integer>>() {
+			@Override
+			public int compare(final Map.Entry<Long, Integer> a, final Map.Entry<Long, Integer> b) {
+				return a.getValue().compareTo(b.getValue());
+			}
+		});
+
+		final File compactedFile = new File(atlasFile.getPath() + ".tmp");
+		final RandomAccessFile compacted = new RandomAccessFile(compactedFile, "rw");
+		final long compactedGeneration = random.nextLong();
+		final HashMap<Long, Integer> compactedIndex = new HashMap<>();
+
+		try {
+			compacted.setLength(0);
+			compacted.writeInt(MAGIC);
+			compacted.writeInt(VERSION);
+			compacted.writeLong(compactedGeneration);
+
+			final FileChannel source = file.getChannel();
+			final FileChannel destination = compacted.getChannel();
+
+			for (final Map.Entry<Long, Integer> entry : entries) {
+				final long sourcePosition = HEADER_LENGTH + (long) entry.getValue() * slotSize;
+				final long destinationPosition = HEADER_LENGTH + (long) compactedIndex.size() *
+						slotSize;
+				long transferred = 0;
+
+				while (transferred < slotSize) {
+					destination.position(destinationPosition + transferred);
+					transferred += source.transferTo(sourcePosition + transferred,
+							slotSize - transferred, destination);
+				}
+
+				compactedIndex.put(entry.getKey(), compactedIndex.size());
+			}
+
+			compacted.getFD().sync();
+		} finally {
+			compacted.close();
+		}
+
+		file.close();
+
+		if (!compactedFile.renameTo(atlasFile)) {
+			file = new RandomAccessFile(atlasFile, "rw");
+			throw new IOException("Could not replace the atlas file with the compacted atlas.");
+		}
+
+		file = new RandomAccessFile(atlasFile, "rw");
+		index.clear();
+		index.putAll(compactedIndex);
+		generation = compactedGeneration;
+		slotCount = compactedIndex.size();
+		mappedSlotCount = 0;
+
+		commit();
+	}
+
+	/**
+	 * @return the proportion of slots which do not hold a current thumbnail, between 0 and 1
+	 * inclusive
+	 */
+	public synchronized float getFragmentation() {
+		return slotCount == 0 ? 0 : (float) (slotCount - index.size()) / slotCount;
+	}
+
+	/**
+	 * @return the number of thumbnails in the atlas, including uncommitted thumbnails
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the number of slots in the atlas, including unused and uncommitted slots
+	 */
+	public synchronized int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * @return the maximum number of slots in the atlas, including unused slots, which is limited
+	 * by the largest file region which can be mapped
+	 */
+	public int getMaxSlotCount() {
+		return maxSlotCount;
+	}
+
+	/**
+	 * @return the number of bytes in each slot
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	/**
+	 * @return the width of each thumbnail, measured in pixels
+	 */
+	public int getThumbnailWidth() {
+		return thumbnailWidth;
+	}
+
+	/**
+	 * @return the height of each thumbnail, measured in pixels
+	 */
+	public int getThumbnailHeight() {
+		return thumbnailHeight;
+	}
+
+	/**
+	 * @return the file which holds the thumbnails, not null
+	 */
+	public File getAtlasFile() {
+		return atlasFile;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 * 		if the atlas is not open
+	 */
+	private void checkOpen() {
+		if (file == null) {
+			throw new IllegalStateException("The atlas is not open.");
+		}
+	}
+
+	/**
+	 * Maps all slots in the atlas file. The previous mapping is released by the garbage
+	 * collector once no slices of it remain.
+	 *
+	 * @throws IOException
+	 * 		if the atlas cannot be mapped
+	 */
+	private void remap() throws IOException {
+		final long length = HEADER_LENGTH + (long) slotCount * slotSize;
+
+		mapping = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+		mappedSlotCount = slotCount;
+	}
+
+	/**
+	 * Reads the header of the atlas file and records its generation.
+	 *
+	 * @return true if the header is valid, false otherwise
+	 * @throws IOException
+	 * 		if the atlas file cannot be read
+	 */
+	private boolean readHeader() throws IOException {
+		if (file.length() < HEADER_LENGTH) {
+			return false;
+		}
+
+		file.seek(0);
+
+		if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+			return false;
+		}
+
+		generation = file.readLong();
+
+		return true;
+	}
+
+	/**
+	 * Writes the header of the atlas file using the current generation.
+	 *
+	 * @throws IOException
+	 * 		if the atlas file cannot be written
+	 */
+	private void writeHeader() throws IOException {
+		file.seek(0);
+		file.writeInt(MAGIC);
+		file.writeInt(VERSION);
+		file.writeLong(generation);
+	}
+
+	/**
+	 * Reads the index file into the index. The index is only read if it was written for the
+	 * current generation of the atlas and for thumbnails of the same dimensions.
+	 *
+	 * @return true if the index is valid, false otherwise
+	 * @throws IOException
+	 * 		if the index file exists but cannot be read
+	 */
+	private boolean readIndex() throws IOException {
+		if (!indexFile.exists()) {
+			return false;
+		}
+
+		final DataInputStream input = new DataInputStream(new BufferedInputStream(new
+				FileInputStream(indexFile)));
+
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION ||
+					input.readLong() != generation || input.readInt() != thumbnailWidth ||
+					input.readInt() != thumbnailHeight) {
+				return false;
+			}
+
+			final int count = input.readInt();
+
+			for (int i = 0; i < count; i++) {
+				final long itemId = input.readLong();
+				index.put(itemId, input.readInt());
+				fingerprints.put(itemId, input.readLong());
+			}
+
+			return true;
+		} catch (final IOException e) {
+			// A truncated index is treated the same as a missing index
+			return false;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes the index to a temporary file and then swaps it in, so that a partially written
+	 * index is never read.
+	 *
+	 * @throws IOException
+	 * 		if the index cannot be written
+	 */
+	private void writeIndex() throws IOException {
+		final File temporaryFile = new File(indexFile.getPath() + ".tmp");
+		final FileOutputStream fileOutput = new FileOutputStream(temporaryFile);
+		final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(generation);
+			output.writeInt(thumbnailWidth);
+			output.writeInt(thumbnailHeight);
+			output.writeInt(index.size());
+
+			for (final Map.Entry<Long, Integer> entry : index.entrySet()) {
+				output.writeLong(entry.getKey());
+				output.writeInt(entry.getValue());
+				output.writeLong(fingerprints.get(entry.getKey()));
+			}
+
+			output.flush();
+			fileOutput.getFD().sync();
+		} finally {
+			output.close();
+		}
+
+		if (!temporaryFile.renameTo(indexFile)) {
+			throw new IOException("Could not replace the index file.");
+		}
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryReadException;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Populates a ThumbnailAtlas with the artwork of a list of items. Building is slow since it
+ * loads the artwork of every item which is not already in the atlas, so {@link #build()} must be
+ * called on a background thread. Only new items are rendered, so building an existing atlas
+ * appends newly discovered items incrementally. Items without IDs are ignored, since their
+ * thumbnails could not be found again in a later session.
+ * <p>
+ * If a {@link FingerprintResolver} is set, the fingerprint of each item is stored with its
+ * thumbnail, and items whose fingerprints have changed since the last build are rendered again.
+ * Without a resolver, existing thumbnails are never replaced.
+ * <p>
+ * Thumbnails are committed periodically so that they become available while the build is still
+ * in progress. Thumbnails of items which are not in the list are removed, and the atlas is
+ * compacted at the end of the build if it has become too fragmented.
+ *
+ * @param <T>
+ * 		the type of items to build the atlas from
+ */
+public class ThumbnailAtlasBuilder<T extends LibraryItem> {
+	/**
+	 * The atlas to populate.
+	 */
+	private final ThumbnailAtlas atlas;
+
+	/**
+	 * The items to populate the atlas with.
+	 */
+	private final List<? extends T> items;
+
+	/**
+	 * Detects changed artwork, null if existing thumbnails are never replaced.
+	 */
+	private FingerprintResolver<? super T> fingerprintResolver;
+
+	/**
+	 * The number of thumbnails to append between commits.
+	 */
+	private int commitInterval = 32;
+
+	/**
+	 * The fragmentation above which the atlas is compacted.
+	 */
+	private float compactionThreshold = 0.25f;
+
+	/**
+	 * Whether or not the build has been cancelled.
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Constructs a new ThumbnailAtlasBuilder.
+	 *
+	 * @param atlas
+	 * 		the atlas to populate, not null
+	 * @param items
+	 * 		every item in the library, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code atlas} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	public ThumbnailAtlasBuilder(final ThumbnailAtlas atlas,
+			final List<? extends T> items) {
+		this.atlas = checkNotNull(atlas, "atlas cannot be null.");
+		this.items = checkNotNull(items, "items cannot be null.");
+	}
+
+	/**
+	 * Opens the atlas if necessary, then appends the thumbnails of the items which are not
+	 * already in it or whose fingerprints have changed. If the build is cancelled, the thumbnails
+	 * which have already been rendered are committed but no thumbnails are removed.
+	 *
+	 * @throws IOException
+	 * 		if the atlas cannot be read or written
+	 */
+	public void build() throws IOException {
+		atlas.open();
+
+		final int width = atlas.getThumbnailWidth();
+		final int height = atlas.getThumbnailHeight();
+
+		// Rendering every thumbnail into the same bitmap and buffer avoids per-item allocations
+		final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+		final Canvas canvas = new Canvas(bitmap);
+		final ByteBuffer pixels = ByteBuffer.allocate(atlas.getSlotSize());
+
+		final HashSet<Long> itemIds = new HashSet<>();
+		int pending = 0;
+
+		try {
+			for (final T item : items) {
+				if (cancelled) {
+					return;
+				}
+
+				final long itemId = StableIdUtil.getItemId(item);
+
+				if (itemId == IdentifiableLibraryItem.NO_ID) {
+					continue;
+				}
+
+				itemIds.add(itemId);
+
+				final FingerprintResolver<? super T> resolver = fingerprintResolver;
+				final long fingerprint = resolver == null ? ThumbnailAtlas.NO_FINGERPRINT :
+						resolver.getFingerprint(item);
+				final boolean upToDate = resolver == null ? atlas.contains(itemId) :
+						atlas.contains(itemId, fingerprint);
+
+				if (upToDate || !render(item, canvas, width, height)) {
+					continue;
+				}
+
+				pixels.clear();
+				bitmap.copyPixelsToBuffer(pixels);
+				pixels.flip();
+				atlas.append(itemId, fingerprint, pixels);
+
+				if (++pending == commitInterval) {
+					atlas.commit();
+					pending = 0;
+				}
+			}
+
+			atlas.retainAll(itemIds);
+		} finally {
+			bitmap.recycle();
+			atlas.commit();
+		}
+
+		if (atlas.getFragmentation() > compactionThreshold) {
+			atlas.compact();
+		}
+	}
+
+	/**
+	 * Stops the build at the next item. Thumbnails rendered so far are still committed.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return the resolver used to detect changed artwork, null if there is none
+	 */
+	public FingerprintResolver<? super T> getFingerprintResolver() {
+		return fingerprintResolver;
+	}
+
+	/**
+	 * Sets the resolver used to detect changed artwork. Thumbnails which were stored with a
+	 * different fingerprint are rendered again.
+	 *
+	 * @param fingerprintResolver
+	 * 		the resolver to use, null to never replace existing thumbnails
+	 */
+	public void setFingerprintResolver(final FingerprintResolver<? super T> fingerprintResolver) {
+		this.fingerprintResolver = fingerprintResolver;
+	}
+
+	/**
+	 * @return the number of thumbnails appended between commits
+	 */
+	public int getCommitInterval() {
+		return commitInterval;
+	}
+
+	/**
+	 * Sets the number of thumbnails to append between commits. Committing more often makes
+	 * thumbnails available sooner, but each commit rewrites the index and remaps the atlas.
+	 *
+	 * @param commitInterval
+	 * 		the number of thumbnails, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code commitInterval} is not greater than zero
+	 */
+	public void setCommitInterval(final int commitInterval) {
+		this.commitInterval = checkGreaterThan(commitInterval, 0,
+				"commitInterval must be greater than zero.");
+	}
+
+	/**
+	 * @return the fragmentation above which the atlas is compacted
+	 */
+	public float getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 * Sets the fragmentation above which the atlas is compacted at the end of a build. See
+	 * {@link ThumbnailAtlas#getFragmentation()}.
+	 *
+	 * @param compactionThreshold
+	 * 		the fragmentation, between 0 and 1 inclusive
+	 * @throws IllegalArgumentException
+	 * 		if {@code compactionThreshold} is not between 0 and 1 inclusive
+	 */
+	public void setCompactionThreshold(final float compactionThreshold) {
+		if (compactionThreshold < 0 || compactionThreshold > 1) {
+			throw new IllegalArgumentException("compactionThreshold must be between 0 and 1.");
+		}
+
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * Draws the artwork of the supplied item so that it fills the canvas.
+	 *
+	 * @param item
+	 * 		the item to draw the artwork of, not null
+	 * @param canvas
+	 * 		the canvas to draw on, not null
+	 * @param width
+	 * 		the width of the canvas
+	 * @param height
+	 * 		the height of the canvas
+	 * @return true if the artwork was drawn, false if the item has no artwork or it could not be
+	 * read
+	 */
+	private static boolean render(final LibraryItem item, final Canvas canvas, final int width,
+			final int height) {
+		final Drawable artwork;
+
+		try {
+			artwork = item.getArtwork(width, height);
+		} catch (final LibraryReadException e) {
+			return false;
+		}
+
+		if (artwork == null) {
+			return false;
+		}
+
+		// Clear the previous thumbnail in case the artwork is not opaque
+		canvas.drawColor(Color.BLACK);
+		artwork.setBounds(0, 0, width, height);
+		artwork.draw(canvas);
+
+		return true;
+	}
+
+	/**
+	 * Summarises the source of the artwork of an item, so that changed artwork can be detected
+	 * without reading it.
+	 *
+	 * @param <T>
+	 * 		the type of item to fingerprint
+	 */
+	public interface FingerprintResolver<T> {
+		/**
+		 * Returns a value which changes whenever the artwork of an item changes, such as the
+		 * modification time of the file the artwork is read from. This method must be fast, since
+		 * it is called for every item when the atlas is built.
+		 *
+		 * @param item
+		 * 		the item to fingerprint
+		 * @return the fingerprint
+		 */
+		long getFingerprint(T item);
+	}
+}
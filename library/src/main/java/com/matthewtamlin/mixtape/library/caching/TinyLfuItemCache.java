@@ -0,0 +1,903 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A weight-bounded ItemCache which uses the W-TinyLFU policy to decide which entries to retain.
+ * New entries are first held in a small LRU window. When they leave the window they must compete
+ * for a place in the main region against the entry which would otherwise be evicted, and the entry
+ * which has been accessed more often recently wins. Access frequencies are estimated using a
+ * compact count-min sketch which also records accesses of items which are not cached. As a result,
+ * a single pass over many items (such as a fast fling through a long list) cannot flush out the
+ * items which are used repeatedly. The main region is divided into probation and protected
+ * segments, and entries are promoted to the protected segment when they are accessed again.
+ * <p>
+ * The cache is divided into shards which are locked independently, so concurrent binder tasks
+ * rarely contend with each other. Each shard is bounded by an equal portion of the total weight,
+ * so the number of shards is limited to ensure that every shard can hold several average-sized
+ * entries. Items with stable IDs are keyed by their IDs, which are held as primitives so that
+ * looking up an item does not allocate. Other items are keyed by the items themselves.
+ * <p>
+ * Pinned entries are held outside of the eviction queues, so they are never evicted. Their weight
+ * still counts towards the maximum weight, so the cache may temporarily exceed its maximum weight
+ * if the pinned entries alone are heavier.
+ *
+ * @param <V>
+ * 		the type of data stored in the cache
+ */
+public class TinyLfuItemCache<V> implements PinnableItemCache<V> {
+	/**
+	 * The number of shards to use if no concurrency level is specified.
+	 */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+
+	/**
+	 * The maximum number of shards.
+	 */
+	private static final int MAX_SHARDS = 64;
+
+	/**
+	 * The minimum number of average-sized entries each shard must be able to hold.
+	 */
+	private static final int MIN_ENTRIES_PER_SHARD = 8;
+
+	/**
+	 * The percentage of the weight of each shard allocated to the window.
+	 */
+	private static final int WINDOW_PERCENT = 1;
+
+	/**
+	 * The percentage of the main region of each shard allocated to the protected segment.
+	 */
+	private static final int PROTECTED_PERCENT = 80;
+
+	/**
+	 * The independently locked shards which hold the entries. The size is always a power of two.
+	 */
+	private final List<Shard> shards;
+
+	/**
+	 * Calculates the weight of each value.
+	 */
+	private final Weigher<V> weigher;
+
+	/**
+	 * The maximum total weight of all entries.
+	 */
+	private final long maxWeight;
+
+	/**
+	 * Receives a callback whenever an entry is removed from the cache, may be null.
+	 */
+	private volatile RemovalListener<V> removalListener;
+
+	/**
+	 * Constructs a new TinyLfuItemCache with the default concurrency level.
+	 *
+	 * @param maxWeight
+	 * 		the maximum total weight of all entries, greater than zero
+	 * @param expectedEntries
+	 * 		the number of entries the cache is expected to hold when full, greater than zero
+	 * @param weigher
+	 * 		calculates the weight of each value, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxWeight} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code expectedEntries} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code weigher} is null
+	 */
+	public TinyLfuItemCache(final long maxWeight, final int expectedEntries,
+			final Weigher<V> weigher) {
+		this(maxWeight, expectedEntries, DEFAULT_CONCURRENCY_LEVEL, weigher);
+	}
+
+	/**
+	 * Constructs a new TinyLfuItemCache.
+	 *
+	 * @param maxWeight
+	 * 		the maximum total weight of all entries, greater than zero
+	 * @param expectedEntries
+	 * 		the number of entries the cache is expected to hold when full, greater than zero
+	 * @param concurrencyLevel
+	 * 		the expected number of threads accessing the cache concurrently, greater than zero
+	 * @param weigher
+	 * 		calculates the weight of each value, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxWeight} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code expectedEntries} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code concurrencyLevel} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code weigher} is null
+	 */
+	public TinyLfuItemCache(final long maxWeight, final int expectedEntries,
+			final int concurrencyLevel, final Weigher<V> weigher) {
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("maxWeight must be greater than zero.");
+		}
+
+		checkGreaterThan(expectedEntries, 0, "expectedEntries must be greater than zero.");
+		checkGreaterThan(concurrencyLevel, 0, "concurrencyLevel must be greater than zero.");
+		this.weigher = checkNotNull(weigher, "weigher cannot be null.");
+		this.maxWeight = maxWeight;
+
+		int shardCount = 1;
+
+		while (shardCount < concurrencyLevel && shardCount < MAX_SHARDS &&
+				expectedEntries / (shardCount * 2) >= MIN_ENTRIES_PER_SHARD &&
+				maxWeight / (shardCount * 2) > 0) {
+			shardCount *= 2;
+		}
+
+		shards = new ArrayList<>(shardCount);
+
+		for (int i = 0; i < shardCount; i++) {
+			final long remainder = i < maxWeight % shardCount ? 1 : 0;
+			shards.add(new Shard(maxWeight / shardCount + remainder, expectedEntries / shardCount));
+		}
+	}
+
+	@Override
+	public V get(final LibraryItem item) {
+		if (item == null) {
+			return null;
+		}
+
+		final long id = StableIdUtil.getItemId(item);
+		final int hash = hash(id, item);
+
+		return shardFor(hash).get(id, item, hash);
+	}
+
+	@Override
+	public void put(final LibraryItem item, final V value) {
+		checkNotNull(item, "item cannot be null.");
+		checkNotNull(value, "value cannot be null.");
+
+		final int weight = weigher.weigh(value);
+
+		if (weight < 0) {
+			throw new IllegalStateException("weigher returned a negative weight.");
+		}
+
+		final long id = StableIdUtil.getItemId(item);
+		final int hash = hash(id, item);
+		final List<Node<V>> removed = new ArrayList<>(2);
+
+		shardFor(hash).put(id, item, hash, value, weight, removed);
+		dispatchRemovals(removed);
+	}
+
+	/**
+	 * Removes the value cached for the supplied item. If no value is cached, the method exits
+	 * normally.
+	 *
+	 * @param item
+	 * 		the item to remove the value of, may be null
+	 */
+	public void remove(final LibraryItem item) {
+		if (item == null) {
+			return;
+		}
+
+		final long id = StableIdUtil.getItemId(item);
+		final int hash = hash(id, item);
+		final List<Node<V>> removed = new ArrayList<>(1);
+
+		shardFor(hash).remove(id, item, removed);
+		dispatchRemovals(removed);
+	}
+
+	@Override
+	public void pin(final LibraryItem item) {
+		checkNotNull(item, "item cannot be null.");
+
+		final long id = StableIdUtil.getItemId(item);
+		shardFor(hash(id, item)).pin(id, item);
+	}
+
+	@Override
+	public void unpin(final LibraryItem item) {
+		checkNotNull(item, "item cannot be null.");
+
+		final long id = StableIdUtil.getItemId(item);
+		final List<Node<V>> removed = new ArrayList<>(1);
+
+		shardFor(hash(id, item)).unpin(id, item, removed);
+		dispatchRemovals(removed);
+	}
+
+	@Override
+	public long getPinnedWeight() {
+		long weight = 0;
+
+		for (final Shard shard : shards) {
+			weight += shard.getPinnedWeight();
+		}
+
+		return weight;
+	}
+
+	/**
+	 * Removes all entries from the cache. Statistics and pins are retained.
+	 */
+	public void clear() {
+		final List<Node<V>> removed = new ArrayList<>();
+
+		for (final Shard shard : shards) {
+			shard.clear(removed);
+		}
+
+		dispatchRemovals(removed);
+	}
+
+	/**
+	 * @return the number of entries currently in the cache
+	 */
+	public int size() {
+		int size = 0;
+
+		for (final Shard shard : shards) {
+			size += shard.size();
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return the total weight of all entries currently in the cache
+	 */
+	public long getWeight() {
+		long weight = 0;
+
+		for (final Shard shard : shards) {
+			weight += shard.getWeight();
+		}
+
+		return weight;
+	}
+
+	/**
+	 * @return the maximum total weight of all entries
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * @return the number of independently locked shards in the cache
+	 */
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * Returns the statistics recorded by a single shard. Comparing the shards can reveal
+	 * imbalances caused by poorly distributed keys.
+	 *
+	 * @param shardIndex
+	 * 		the index of the shard, at least zero and less than {@link #getShardCount()}
+	 * @return the statistics, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code shardIndex} is out of bounds
+	 */
+	public CacheStats getShardStats(final int shardIndex) {
+		return shards.get(shardIndex).getStats();
+	}
+
+	/**
+	 * @return the statistics recorded by all shards combined, not null
+	 */
+	public CacheStats getStats() {
+		CacheStats stats = new CacheStats(0, 0, 0, 0);
+
+		for (final Shard shard : shards) {
+			stats = stats.plus(shard.getStats());
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Sets the listener to receive callbacks when entries are removed from the cache. Callbacks
+	 * are delivered on the thread which caused the removal, after the affected shard has been
+	 * unlocked.
+	 *
+	 * @param listener
+	 * 		the listener to use, null to clear any existing listener
+	 */
+	public void setRemovalListener(final RemovalListener<V> listener) {
+		removalListener = listener;
+	}
+
+	/**
+	 * @return the listener which receives callbacks when entries are removed, null if there is none
+	 */
+	public RemovalListener<V> getRemovalListener() {
+		return removalListener;
+	}
+
+	/**
+	 * Notifies the removal listener of each supplied node.
+	 *
+	 * @param removed
+	 * 		the nodes which have been removed, not null
+	 */
+	private void dispatchRemovals(final List<Node<V>> removed) {
+		final RemovalListener<V> listener = removalListener;
+
+		if (listener != null) {
+			for (int i = 0; i < removed.size(); i++) {
+				final Node<V> node = removed.get(i);
+
+				// Only removals box the ID, so lookups remain allocation free
+				final Object key = node.id == IdentifiableLibraryItem.NO_ID ? node.item :
+						Long.valueOf(node.id);
+
+				listener.onRemoval(key, node.value, node.removalCause);
+			}
+		}
+	}
+
+	/**
+	 * Returns the shard responsible for the supplied hash.
+	 *
+	 * @param hash
+	 * 		the hash of a key
+	 * @return the shard, not null
+	 */
+	private Shard shardFor(final int hash) {
+		return shards.get((hash >>> 16) & (shards.size() - 1));
+	}
+
+	/**
+	 * Hashes the supplied ID, or the supplied item if there is no ID.
+	 *
+	 * @param id
+	 * 		the ID of the item, {@link IdentifiableLibraryItem#NO_ID} if it has none
+	 * @param item
+	 * 		the item, not null
+	 * @return the hash
+	 */
+	private static int hash(final long id, final LibraryItem item) {
+		if (id != IdentifiableLibraryItem.NO_ID) {
+			return LongKeyMap.hash(id);
+		}
+
+		final int h = item.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Callback for receiving notifications when entries are removed from a TinyLfuItemCache.
+	 *
+	 * @param <V>
+	 * 		the type of data stored in the cache
+	 */
+	public interface RemovalListener<V> {
+		/**
+		 * Invoked when an entry is removed from the cache.
+		 *
+		 * @param key
+		 * 		the key of the entry, not null: the boxed ID of the item if it has a stable ID, or
+		 * 		the item itself otherwise
+		 * @param value
+		 * 		the value of the entry, not null
+		 * @param cause
+		 * 		the reason the entry was removed, not null
+		 */
+		void onRemoval(Object key, V value, RemovalCause cause);
+	}
+
+	/**
+	 * The reasons an entry can be removed from a TinyLfuItemCache.
+	 */
+	public enum RemovalCause {
+		/**
+		 * The entry was removed by a call to {@link TinyLfuItemCache#remove(LibraryItem)} or {@link
+		 * TinyLfuItemCache#clear()}.
+		 */
+		EXPLICIT,
+
+		/**
+		 * The value was replaced by a new value for the same item.
+		 */
+		REPLACED,
+
+		/**
+		 * The entry was removed to make room for other entries.
+		 */
+		EVICTED,
+
+		/**
+		 * The entry was never retained, either because it lost the admission contest or because it
+		 * was too heavy for the cache.
+		 */
+		REJECTED
+	}
+
+	/**
+	 * An entry in a shard. Each node is linked into exactly one of the queues of its shard.
+	 *
+	 * @param <V>
+	 * 		the type of data stored in the cache
+	 */
+	private static final class Node<V> {
+		/**
+		 * The ID of the item, {@link IdentifiableLibraryItem#NO_ID} if the node is keyed by item.
+		 */
+		private final long id;
+
+		/**
+		 * The item, null if the node is keyed by ID.
+		 */
+		private final Object item;
+
+		private final int hash;
+
+		private V value;
+
+		private int weight;
+
+		/**
+		 * The queue which currently holds this node, null if the node is pinned or removed.
+		 */
+		private AccessQueue<V> queue;
+
+		/**
+		 * Whether or not this node is pinned. Pinned nodes are not held in any queue.
+		 */
+		private boolean pinned;
+
+		/**
+		 * The reason this node was removed, null while the node is cached.
+		 */
+		private RemovalCause removalCause;
+
+		private Node<V> previous;
+
+		private Node<V> next;
+
+		public Node(final long id, final Object item, final int hash, final V value,
+				final int weight) {
+			this.id = id;
+			this.item = id == IdentifiableLibraryItem.NO_ID ? item : null;
+			this.hash = hash;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of nodes in access order, least recently used first. The total weight of
+	 * the nodes is tracked as they are added and removed.
+	 *
+	 * @param <V>
+	 * 		the type of data stored in the cache
+	 */
+	private static final class AccessQueue<V> {
+		/**
+		 * Sentinel which links to the first and last nodes, so that the list is circular.
+		 */
+		private final Node<V> sentinel = new Node<>(IdentifiableLibraryItem.NO_ID, null, 0, null,
+				0);
+
+		/**
+		 * The total weight of the nodes in the queue.
+		 */
+		private long weight;
+
+		public AccessQueue() {
+			sentinel.previous = sentinel;
+			sentinel.next = sentinel;
+		}
+
+		public Node<V> peekFirst() {
+			return sentinel.next == sentinel ? null : sentinel.next;
+		}
+
+		public Node<V> peekLast() {
+			return sentinel.previous == sentinel ? null : sentinel.previous;
+		}
+
+		public void addLast(final Node<V> node) {
+			node.previous = sentinel.previous;
+			node.next = sentinel;
+			sentinel.previous.next = node;
+			sentinel.previous = node;
+			node.queue = this;
+			weight += node.weight;
+		}
+
+		public void remove(final Node<V> node) {
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+			node.queue = null;
+			weight -= node.weight;
+		}
+
+		public void moveToLast(final Node<V> node) {
+			remove(node);
+			addLast(node);
+		}
+
+		public void clear() {
+			sentinel.previous = sentinel;
+			sentinel.next = sentinel;
+			weight = 0;
+		}
+	}
+
+	/**
+	 * A portion of the cache with its own lock, data, queues, frequency sketch and statistics.
+	 */
+	private final class Shard {
+		/**
+		 * The nodes of items with IDs, keyed by ID.
+		 */
+		private final LongKeyMap<Node<V>> dataById;
+
+		/**
+		 * The nodes of items without IDs, keyed by item.
+		 */
+		private final HashMap<Object, Node<V>> dataByItem = new HashMap<>();
+
+		/**
+		 * The number of pins held on each ID. IDs can be pinned before they are cached.
+		 */
+		private final LongKeyMap<Integer> pinCountsById = new LongKeyMap<>(16);
+
+		/**
+		 * The number of pins held on each item without an ID.
+		 */
+		private final HashMap<Object, Integer> pinCountsByItem = new HashMap<>();
+
+		private final FrequencySketch sketch;
+
+		/**
+		 * Holds new entries until they compete for a place in the main region.
+		 */
+		private final AccessQueue<V> window = new AccessQueue<>();
+
+		/**
+		 * Holds entries in the main region which have not been accessed since entering it.
+		 */
+		private final AccessQueue<V> probation = new AccessQueue<>();
+
+		/**
+		 * Holds entries in the main region which have been accessed since entering it.
+		 */
+		private final AccessQueue<V> protectedQueue = new AccessQueue<>();
+
+		private final long maxWeight;
+
+		private final long maxWindowWeight;
+
+		private final long maxProtectedWeight;
+
+		/**
+		 * The total weight of the pinned nodes.
+		 */
+		private long pinnedWeight;
+
+		private long hitCount;
+
+		private long missCount;
+
+		private long evictionCount;
+
+		private long rejectionCount;
+
+		public Shard(final long maxWeight, final int expectedEntries) {
+			this.maxWeight = maxWeight;
+			this.maxWindowWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+			this.maxProtectedWeight = (maxWeight - maxWindowWeight) * PROTECTED_PERCENT / 100;
+			this.sketch = new FrequencySketch(Math.max(expectedEntries, 1));
+			this.dataById = new LongKeyMap<>(expectedEntries);
+		}
+
+		public synchronized V get(final long id, final Object item, final int hash) {
+			sketch.increment(hash);
+
+			final Node<V> node = find(id, item);
+
+			if (node == null) {
+				missCount++;
+				return null;
+			}
+
+			hitCount++;
+			onAccess(node);
+
+			return node.value;
+		}
+
+		public synchronized void put(final long id, final Object item, final int hash,
+				final V value, final int weight, final List<Node<V>> removed) {
+			sketch.increment(hash);
+
+			final Node<V> existing = find(id, item);
+
+			if (existing != null) {
+				final Node<V> replaced = new Node<>(id, item, hash, existing.value,
+						existing.weight);
+				replaced.removalCause = RemovalCause.REPLACED;
+				removed.add(replaced);
+
+				if (existing.pinned) {
+					pinnedWeight += weight - existing.weight;
+					existing.value = value;
+					existing.weight = weight;
+				} else {
+					// Re-link the node so that its queue records the new weight
+					final AccessQueue<V> queue = existing.queue;
+					queue.remove(existing);
+					existing.value = value;
+					existing.weight = weight;
+					queue.addLast(existing);
+				}
+
+				onAccess(existing);
+			} else if (weight > maxWeight) {
+				final Node<V> rejected = new Node<>(id, item, hash, value, weight);
+				rejected.removalCause = RemovalCause.REJECTED;
+				removed.add(rejected);
+				rejectionCount++;
+				return;
+			} else {
+				final Node<V> node = new Node<>(id, item, hash, value, weight);
+				store(node);
+
+				if (getPinCount(id, item) != null) {
+					node.pinned = true;
+					pinnedWeight += weight;
+				} else {
+					window.addLast(node);
+				}
+			}
+
+			evict(removed);
+		}
+
+		public synchronized void remove(final long id, final Object item,
+				final List<Node<V>> removed) {
+			final Node<V> node = find(id, item);
+
+			if (node != null) {
+				unlink(node, RemovalCause.EXPLICIT, removed);
+			}
+		}
+
+		public synchronized void pin(final long id, final Object item) {
+			final Integer count = getPinCount(id, item);
+			setPinCount(id, item, count == null ? 1 : count + 1);
+
+			final Node<V> node = find(id, item);
+
+			if (node != null && !node.pinned) {
+				node.queue.remove(node);
+				node.pinned = true;
+				pinnedWeight += node.weight;
+			}
+		}
+
+		public synchronized void unpin(final long id, final Object item,
+				final List<Node<V>> removed) {
+			final Integer count = getPinCount(id, item);
+
+			if (count == null) {
+				return;
+			} else if (count > 1) {
+				setPinCount(id, item, count - 1);
+				return;
+			}
+
+			setPinCount(id, item, 0);
+
+			final Node<V> node = find(id, item);
+
+			if (node != null && node.pinned) {
+				// The entry was in use until now, so it competes for retention like a recent entry
+				node.pinned = false;
+				pinnedWeight -= node.weight;
+				probation.addLast(node);
+
+				evict(removed);
+			}
+		}
+
+		public synchronized void clear(final List<Node<V>> removed) {
+			final int firstRemoved = removed.size();
+
+			dataById.addValuesTo(removed);
+			removed.addAll(dataByItem.values());
+
+			for (int i = firstRemoved; i < removed.size(); i++) {
+				removed.get(i).removalCause = RemovalCause.EXPLICIT;
+			}
+
+			dataById.clear();
+			dataByItem.clear();
+			pinnedWeight = 0;
+			window.clear();
+			probation.clear();
+			protectedQueue.clear();
+		}
+
+		public synchronized int size() {
+			return dataById.size() + dataByItem.size();
+		}
+
+		public synchronized long getWeight() {
+			return window.weight + probation.weight + protectedQueue.weight + pinnedWeight;
+		}
+
+		public synchronized long getPinnedWeight() {
+			return pinnedWeight;
+		}
+
+		public synchronized CacheStats getStats() {
+			return new CacheStats(hitCount, missCount, evictionCount, rejectionCount);
+		}
+
+		/**
+		 * Updates the queues to reflect an access of the supplied node.
+		 */
+		private void onAccess(final Node<V> node) {
+			if (node.pinned) {
+				return;
+			} else if (node.queue == probation) {
+				// A second access while on probation shows the entry is worth protecting
+				probation.remove(node);
+				protectedQueue.addLast(node);
+
+				while (protectedQueue.weight > maxProtectedWeight) {
+					final Node<V> demoted = protectedQueue.peekFirst();
+					protectedQueue.remove(demoted);
+					probation.addLast(demoted);
+				}
+			} else {
+				node.queue.moveToLast(node);
+			}
+		}
+
+		/**
+		 * Moves entries which overflow the window into probation, then removes entries until the
+		 * shard is within its maximum weight. The most recent probationary entry is compared with
+		 * the least recent, and the entry which has been accessed less often is removed. Eviction
+		 * stops early if only pinned entries remain.
+		 */
+		private void evict(final List<Node<V>> removed) {
+			while (window.weight > maxWindowWeight) {
+				final Node<V> overflow = window.peekFirst();
+				window.remove(overflow);
+				probation.addLast(overflow);
+			}
+
+			while (window.weight + probation.weight + protectedQueue.weight + pinnedWeight >
+					maxWeight) {
+				final Node<V> victim = probation.peekFirst();
+				final Node<V> candidate = probation.peekLast();
+
+				if (victim == null) {
+					// The main region is all protected, so fall back to plain LRU eviction
+					final Node<V> fallback = protectedQueue.peekFirst() != null ?
+							protectedQueue.peekFirst() :
+							window.peekFirst();
+
+					if (fallback == null) {
+						return;
+					}
+
+					unlink(fallback, RemovalCause.EVICTED, removed);
+					evictionCount++;
+				} else if (victim == candidate ||
+						sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+					unlink(victim, RemovalCause.EVICTED, removed);
+					evictionCount++;
+				} else {
+					unlink(candidate, RemovalCause.REJECTED, removed);
+					rejectionCount++;
+				}
+			}
+		}
+
+		/**
+		 * Removes the supplied node from the shard and records it as removed.
+		 */
+		private void unlink(final Node<V> node, final RemovalCause cause,
+				final List<Node<V>> removed) {
+			if (node.pinned) {
+				node.pinned = false;
+				pinnedWeight -= node.weight;
+			} else {
+				node.queue.remove(node);
+			}
+
+			if (node.id == IdentifiableLibraryItem.NO_ID) {
+				dataByItem.remove(node.item);
+			} else {
+				dataById.remove(node.id);
+			}
+
+			node.removalCause = cause;
+			removed.add(node);
+		}
+
+		/**
+		 * Returns the node of the supplied ID, or of the supplied item if there is no ID.
+		 */
+		private Node<V> find(final long id, final Object item) {
+			return id == IdentifiableLibraryItem.NO_ID ? dataByItem.get(item) : dataById.get(id);
+		}
+
+		/**
+		 * Adds the supplied node to the map matching its key.
+		 */
+		private void store(final Node<V> node) {
+			if (node.id == IdentifiableLibraryItem.NO_ID) {
+				dataByItem.put(node.item, node);
+			} else {
+				dataById.put(node.id, node);
+			}
+		}
+
+		/**
+		 * Returns the number of pins held on the supplied ID, or on the supplied item if there is
+		 * no ID, null if there are none.
+		 */
+		private Integer getPinCount(final long id, final Object item) {
+			return id == IdentifiableLibraryItem.NO_ID ? pinCountsByItem.get(item) :
+					pinCountsById.get(id);
+		}
+
+		/**
+		 * Records the number of pins held on the supplied ID, or on the supplied item if there is
+		 * no ID. A count of zero removes the record.
+		 */
+		private void setPinCount(final long id, final Object item, final int count) {
+			if (id == IdentifiableLibraryItem.NO_ID) {
+				if (count == 0) {
+					pinCountsByItem.remove(item);
+				} else {
+					pinCountsByItem.put(item, count);
+				}
+			} else {
+				if (count == 0) {
+					pinCountsById.remove(id);
+				} else {
+					pinCountsById.put(id, count);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.caching;
+
+/**
+ * Calculates the weight of values stored in a weight-bounded cache. The weight is typically an
+ * estimate of the memory consumed by the value, but any consistent unit can be used.
+ *
+ * @param <V>
+ * 		the type of value to weigh
+ */
+public interface Weigher<V> {
+	/**
+	 * Calculates the weight of the supplied value. The weight of a value must not change while it
+	 * is cached.
+	 *
+	 * @param value
+	 * 		the value to weigh, not null
+	 * @return the weight of the value, not less than zero
+	 */
+	int weigh(V value);
+}
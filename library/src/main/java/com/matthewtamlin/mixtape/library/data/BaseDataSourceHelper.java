@@ -18,13 +18,29 @@ package com.matthewtamlin.mixtape.library.data;
 
 import com.matthewtamlin.java_utilities.testing.Tested;
 import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry.Registration;
+import com.matthewtamlin.mixtape.library.data.SingleFlightLoader.LoadTask;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Partial implementation of the BaseDataSource interface which handles listener registration.
- * Getters are provided for accessing the registered listeners.
+ * Getters are provided for accessing the registered listeners, and the deliver methods can be used
+ * by subclasses to send events to the appropriate listeners.
+ * <p>
+ * Listeners are held in {@link ListenerRegistry} instances, so registration and delivery are
+ * thread-safe and delivery does not allocate. Each listener can optionally be registered with an
+ * Executor, in which case its callbacks are delivered through the executor rather than on the
+ * thread which delivers the event. For example, registering a listener with {@link
+ * MainThreadExecutor} ensures it receives callbacks on the UI thread even if the data source
+ * delivers events from a background thread.
+ * <p>
+ * Subclasses can either implement {@link #loadData(boolean, DataLoadedListener)} themselves, or
+ * supply a load task using {@link #setLoadTask(LoadTask, Executor, Executor)} and inherit the
+ * default implementation. The default implementation is single-flight: requests made while a
+ * load is in flight join that load rather than starting another, and forced refreshes made while
+ * a load is in flight are merged into a single follow-up load.
  *
  * @param <D>
  * 		the type of data supplied by the source
@@ -32,89 +48,287 @@ import java.util.Set;
 @Tested(testMethod = "automated")
 public abstract class BaseDataSourceHelper<D> implements BaseDataSource<D> {
 	/**
-	 * All data replaced listeners which are currently registered. This set must never contain
-	 * null.
+	 * All data replaced listeners which are currently registered.
 	 */
-	private final Set<DataReplacedListener<D>> dataReplacedListeners = new HashSet<>();
+	private final ListenerRegistry<DataReplacedListener<D>> dataReplacedListeners =
+			new ListenerRegistry<>();
 
 	/**
-	 * All data modified listeners which are currently registered. This set must never contain
-	 * null.
+	 * All data modified listeners which are currently registered.
 	 */
-	private final Set<DataModifiedListener<D>> dataModifiedListeners = new HashSet<>();
+	private final ListenerRegistry<DataModifiedListener<D>> dataModifiedListeners =
+			new ListenerRegistry<>();
 
 	/**
-	 * All long operation listeners which are currently registered. This set must never contain
-	 * null.
+	 * All long operation listeners which are currently registered.
 	 */
-	private final Set<LongOperationListener<D>> longOperationListeners = new HashSet<>();
+	private final ListenerRegistry<LongOperationListener<D>> longOperationListeners =
+			new ListenerRegistry<>();
 
+	/**
+	 * Coordinates calls to {@link #loadData(boolean, DataLoadedListener)}. Null until a load task
+	 * is set.
+	 */
+	private volatile SingleFlightLoader<D> loader;
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation delegates to the load task supplied to {@link
+	 * #setLoadTask(LoadTask, Executor, Executor)}. If a load is already in flight, the callback
+	 * receives the result of that load instead of a new load being started. If {@code
+	 * forceRefresh} is true and a load is already in flight, the callback receives the result of a
+	 * single follow-up load which starts once the current load finishes.
+	 *
+	 * @throws IllegalStateException
+	 * 		if the default implementation is used and no load task has been set
+	 */
 	@Override
-	public void registerDataReplacedListener(final DataReplacedListener<D> listener) {
-		if (listener != null) {
-			dataReplacedListeners.add(listener);
+	public void loadData(final boolean forceRefresh, final DataLoadedListener<D> callback) {
+		final SingleFlightLoader<D> currentLoader = loader;
+
+		if (currentLoader == null) {
+			throw new IllegalStateException("No load task has been set.");
 		}
+
+		currentLoader.load(forceRefresh, callback);
+	}
+
+	/**
+	 * Sets the task used by the default implementation of {@link #loadData(boolean,
+	 * DataLoadedListener)}. Loads already in flight are unaffected.
+	 *
+	 * @param task
+	 * 		the task which loads the data, not null
+	 * @param loadExecutor
+	 * 		the executor to run the task on, not null
+	 * @param callbackExecutor
+	 * 		the executor to deliver results to callbacks on, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code task} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code loadExecutor} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code callbackExecutor} is null
+	 */
+	protected void setLoadTask(final LoadTask<D> task, final Executor loadExecutor,
+			final Executor callbackExecutor) {
+		loader = new SingleFlightLoader<>(this, task, loadExecutor, callbackExecutor);
+	}
+
+	@Override
+	public void registerDataReplacedListener(final DataReplacedListener<D> listener) {
+		dataReplacedListeners.register(listener);
+	}
+
+	/**
+	 * Registers a data replaced listener which receives callbacks through the supplied executor. If
+	 * the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerDataReplacedListener(final DataReplacedListener<D> listener,
+			final Executor executor) {
+		dataReplacedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterDataReplacedListener(final DataReplacedListener<D> listener) {
-		dataReplacedListeners.remove(listener);
+		dataReplacedListeners.unregister(listener);
 	}
 
 	@Override
 	public void registerDataModifiedListener(final DataModifiedListener<D> listener) {
-		if (listener != null) {
-			dataModifiedListeners.add(listener);
-		}
+		dataModifiedListeners.register(listener);
+	}
+
+	/**
+	 * Registers a data modified listener which receives callbacks through the supplied executor. If
+	 * the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerDataModifiedListener(final DataModifiedListener<D> listener,
+			final Executor executor) {
+		dataModifiedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterDataModifiedListener(final DataModifiedListener<D> listener) {
-		dataModifiedListeners.remove(listener);
+		dataModifiedListeners.unregister(listener);
 	}
 
 	@Override
 	public void registerLongOperationListener(final LongOperationListener<D> listener) {
-		if (listener != null) {
-			longOperationListeners.add(listener);
-		}
+		longOperationListeners.register(listener);
+	}
+
+	/**
+	 * Registers a long operation listener which receives callbacks through the supplied executor.
+	 * If the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerLongOperationListener(final LongOperationListener<D> listener,
+			final Executor executor) {
+		longOperationListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterLongOperationListener(final LongOperationListener<D> listener) {
-		longOperationListeners.remove(listener);
+		longOperationListeners.unregister(listener);
 	}
 
 	/**
 	 * Returns all data replaced listeners which are currently registered for callbacks. This method
 	 * may return an empty set, but it will never return null. Furthermore, the returned set will
-	 * never contain null.
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the data replaced listeners
 	 */
 	public Set<DataReplacedListener<D>> getDataReplacedListeners() {
-		return dataReplacedListeners;
+		return dataReplacedListeners.getListeners();
 	}
 
 	/**
 	 * Returns all data modified listeners which are currently registered for callbacks. This method
 	 * may return an empty set, but it will never return null. Furthermore, the returned set will
-	 * never contain null.
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the data modified listeners
 	 */
 	public Set<DataModifiedListener<D>> getDataModifiedListeners() {
-		return dataModifiedListeners;
+		return dataModifiedListeners.getListeners();
 	}
 
 	/**
 	 * Returns all long operation listeners which are currently registered for callbacks. This
 	 * method may return an empty set, but it will never return null. Furthermore, the returned set
-	 * will never contain null.
+	 * will never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the long operation listeners
 	 */
 	public Set<LongOperationListener<D>> getLongOperationListeners() {
-		return longOperationListeners;
+		return longOperationListeners.getListeners();
+	}
+
+	/**
+	 * Delivers a data replaced event to the registered listeners.
+	 *
+	 * @param oldData
+	 * 		the data before replacement, may be null
+	 * @param newData
+	 * 		the data after replacement, may be null
+	 */
+	protected void deliverDataReplaced(final D oldData, final D newData) {
+		for (final Registration<DataReplacedListener<D>> registration :
+				dataReplacedListeners.getRegistrations()) {
+			final DataReplacedListener<D> listener = registration.getListener();
+
+			if (registration.getExecutor() == null) {
+				listener.onDataReplaced(this, oldData, newData);
+			} else {
+				registration.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						listener.onDataReplaced(BaseDataSourceHelper.this, oldData, newData);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Delivers a data modified event to the registered listeners.
+	 *
+	 * @param data
+	 * 		the modified data, may be null
+	 */
+	protected void deliverDataModified(final D data) {
+		for (final Registration<DataModifiedListener<D>> registration :
+				dataModifiedListeners.getRegistrations()) {
+			final DataModifiedListener<D> listener = registration.getListener();
+
+			if (registration.getExecutor() == null) {
+				listener.onDataModified(this, data);
+			} else {
+				registration.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						listener.onDataModified(BaseDataSourceHelper.this, data);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Delivers a long operation started event to the registered listeners.
+	 */
+	protected void deliverLongOperationStarted() {
+		dispatchLongOperation(true);
+	}
+
+	/**
+	 * Delivers a long operation finished event to the registered listeners.
+	 */
+	protected void deliverLongOperationFinished() {
+		dispatchLongOperation(false);
+	}
+
+	/**
+	 * Sends a long operation started or finished event to the registered listeners.
+	 *
+	 * @param started
+	 * 		true if the operation started, false if it finished
+	 */
+	private void dispatchLongOperation(final boolean started) {
+		for (final Registration<LongOperationListener<D>> registration :
+				longOperationListeners.getRegistrations()) {
+			final LongOperationListener<D> listener = registration.getListener();
+
+			if (registration.getExecutor() == null) {
+				callLongOperationListener(listener, started);
+			} else {
+				registration.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						callLongOperationListener(listener, started);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Calls the appropriate method of a long operation listener.
+	 *
+	 * @param listener
+	 * 		the listener to call, not null
+	 * @param started
+	 * 		true if the operation started, false if it finished
+	 */
+	private void callLongOperationListener(final LongOperationListener<D> listener,
+			final boolean started) {
+		if (started) {
+			listener.onLongOperationStarted(this);
+		} else {
+			listener.onLongOperationFinished(this);
+		}
 	}
-}
+}
\ No newline at end of file
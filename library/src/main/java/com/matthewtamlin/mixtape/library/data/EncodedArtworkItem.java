@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.data;
+
+/**
+ * A LibraryItem which can provide its artwork in encoded form (for example as JPEG or PNG bytes).
+ * Implementing this interface is optional, however doing so allows the artwork pipeline to detect
+ * items which share the same image and decode it only once.
+ */
+public interface EncodedArtworkItem extends LibraryItem {
+	/**
+	 * Returns the encoded artwork of this item. The returned array must not be modified.
+	 *
+	 * @return the encoded artwork, null if the item has no artwork
+	 * @throws LibraryReadException
+	 * 		if the artwork cannot be read
+	 */
+	byte[] getEncodedArtwork() throws LibraryReadException;
+}
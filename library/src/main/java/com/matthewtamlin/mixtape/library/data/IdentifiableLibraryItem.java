@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.data;
+
+/**
+ * A LibraryItem which can be identified by a stable numeric ID. Implementing this interface is
+ * optional, however doing so allows caches to key items by ID rather than by the item itself, and
+ * allows RecyclerView based views to use stable IDs. This is particularly beneficial when the
+ * hashCode and equals methods of an item are expensive or depend on mutable state.
+ * <p>
+ * The ID of an item must not change during the lifetime of the item, and two items must only share
+ * an ID if they represent the same media.
+ */
+public interface IdentifiableLibraryItem extends LibraryItem {
+	/**
+	 * Reserved value which is never a valid ID. The value matches {@code RecyclerView.NO_ID}.
+	 */
+	long NO_ID = -1;
+
+	/**
+	 * Returns the stable ID of this item. This method must return quickly and must not perform I/O.
+	 *
+	 * @return the ID of this item, not {@link #NO_ID}
+	 */
+	long getItemId();
+}
@@ -0,0 +1,695 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+/**
+ * A SnapshotListDataSourceHelper which maintains an index from each item to its position, so that
+ * the position of an item can be found in O(log n) time instead of by scanning the list. The index
+ * is an order statistic tree of the items, and is updated incrementally as the data is modified,
+ * so insertions, removals and moves never require the positions of other items to be recomputed.
+ * This also allows {@link #removeItem(Object)} to find and remove an item and deliver the event in
+ * O(log n) time.
+ * <p>
+ * Items are located using their {@code equals} and {@code hashCode} methods, so their hash codes
+ * must not change while they are in the data source. Items are expected to be distinct. Duplicates
+ * are supported, however the cost of finding an item is proportional to the number of equal items.
+ *
+ * @param <D>
+ * 		the type of objects contained within the list
+ */
+public abstract class IndexedListDataSourceHelper<D> extends SnapshotListDataSourceHelper<D> {
+	/**
+	 * Synchronises modifications so that the index is updated in the same order as the snapshots
+	 * are created.
+	 */
+	private final Object indexLock = new Object();
+
+	/**
+	 * The positions of the items. Must only be accessed while holding the index lock.
+	 */
+	private final PositionIndex<D> index = new PositionIndex<>();
+
+	/**
+	 * Constructs a new IndexedListDataSourceHelper which delivers events on the main thread.
+	 */
+	public IndexedListDataSourceHelper() {
+		super();
+	}
+
+	/**
+	 * Constructs a new IndexedListDataSourceHelper which delivers events using the supplied
+	 * executor. The executor must run tasks one at a time, in the order they were submitted.
+	 *
+	 * @param deliveryExecutor
+	 * 		the executor to deliver events with, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code deliveryExecutor} is null
+	 */
+	public IndexedListDataSourceHelper(final Executor deliveryExecutor) {
+		super(deliveryExecutor);
+	}
+
+	/**
+	 * Returns the position of the first occurrence of an item in the latest snapshot. This method
+	 * may be called from any thread and runs in O(log n) time.
+	 *
+	 * @param item
+	 * 		the item to find, may be null
+	 * @return the index of the item, or -1 if it is not present
+	 */
+	public int indexOf(final Object item) {
+		synchronized (indexLock) {
+			return index.indexOf(item);
+		}
+	}
+
+	/**
+	 * Returns whether or not the latest snapshot contains an item. This method may be called from
+	 * any thread and runs in O(1) time.
+	 *
+	 * @param item
+	 * 		the item to find, may be null
+	 * @return true if the item is present, false otherwise
+	 */
+	public boolean contains(final Object item) {
+		synchronized (indexLock) {
+			return index.contains(item);
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> publishItems(final List<D> items) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.publishItems(items);
+			index.reset(snapshot.getItems());
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> replaceItems(final List<D> items) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.replaceItems(items);
+			index.reset(snapshot.getItems());
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> addItem(final int index, final D item) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.addItem(index, item);
+			this.index.insert(index, item);
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> addItems(final int index, final List<D> items) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.addItems(index, items);
+			this.index.insertAll(index, items);
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> removeItemAt(final int index) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.removeItemAt(index);
+			this.index.remove(index);
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Removes the first occurrence of an item and delivers an item removed event. If the item is
+	 * not present, no snapshot is created. This method may be called from any thread and runs in
+	 * O(log n) time.
+	 *
+	 * @param item
+	 * 		the item to remove, may be null
+	 * @return true if the item was removed, false if it was not present
+	 */
+	@Override
+	protected boolean removeItem(final Object item) {
+		synchronized (indexLock) {
+			final int position = index.indexOf(item);
+
+			if (position == -1) {
+				return false;
+			}
+
+			removeItemAt(position);
+			return true;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> removeItems(final int fromIndex, final int toIndex) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.removeItems(fromIndex, toIndex);
+			index.removeRange(fromIndex, toIndex);
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> setItem(final int index, final D item, final int changedFields) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.setItem(index, item, changedFields);
+			this.index.set(index, item);
+			return snapshot;
+		}
+	}
+
+	@Override
+	protected ListSnapshot<D> moveItem(final int initialIndex, final int finalIndex) {
+		synchronized (indexLock) {
+			final ListSnapshot<D> snapshot = super.moveItem(initialIndex, finalIndex);
+			index.move(initialIndex, finalIndex);
+			return snapshot;
+		}
+	}
+
+	/**
+	 * An order statistic tree which maps items to their positions. The tree is a treap keyed
+	 * implicitly by position, where each node records the size of its subtree and its parent. The
+	 * position of a node is found by walking from the node to the root, and each item is mapped to
+	 * its node by a hash map. This class is not thread safe.
+	 *
+	 * @param <D>
+	 * 		the type of items in the tree
+	 */
+	private static final class PositionIndex<D> {
+		/**
+		 * Generates the node priorities which keep the tree balanced with high probability.
+		 */
+		private final Random random = new Random();
+
+		/**
+		 * Maps each item to the first of the nodes containing an equal item.
+		 */
+		private final Map<Object, Node<D>> nodes = new HashMap<>();
+
+		/**
+		 * The root of the tree, null if the tree is empty.
+		 */
+		private Node<D> root;
+
+		/**
+		 * The tree containing the positions before the split position, set by {@link #split(Node,
+		 * int)}.
+		 */
+		private Node<D> splitLeft;
+
+		/**
+		 * The tree containing the positions after the split position, set by {@link #split(Node,
+		 * int)}.
+		 */
+		private Node<D> splitRight;
+
+		/**
+		 * Returns the position of the first occurrence of an item.
+		 *
+		 * @param item
+		 * 		the item to find, may be null
+		 * @return the position of the item, or -1 if it is not present
+		 */
+		public int indexOf(final Object item) {
+			int position = -1;
+
+			for (Node<D> node = nodes.get(item); node != null; node = node.nextDuplicate) {
+				final int rank = rankOf(node);
+
+				if (position == -1 || rank < position) {
+					position = rank;
+				}
+			}
+
+			return position;
+		}
+
+		/**
+		 * Returns whether or not the tree contains an item.
+		 *
+		 * @param item
+		 * 		the item to find, may be null
+		 * @return true if the item is present, false otherwise
+		 */
+		public boolean contains(final Object item) {
+			return nodes.containsKey(item);
+		}
+
+		/**
+		 * Replaces the contents of the tree in O(n) time.
+		 *
+		 * @param items
+		 * 		the new items, not null
+		 */
+		public void reset(final List<D> items) {
+			nodes.clear();
+			root = build(items);
+		}
+
+		/**
+		 * Inserts an item.
+		 *
+		 * @param position
+		 * 		the position to insert the item at
+		 * @param item
+		 * 		the item to insert, may be null
+		 */
+		public void insert(final int position, final D item) {
+			final Node<D> node = new Node<>(item, random.nextInt());
+			map(node);
+
+			split(root, position);
+			final Node<D> right = splitRight;
+			setRoot(merge(merge(splitLeft, node), right));
+		}
+
+		/**
+		 * Inserts a contiguous range of items.
+		 *
+		 * @param position
+		 * 		the position to insert the first item at
+		 * @param items
+		 * 		the items to insert, not null
+		 */
+		public void insertAll(final int position, final List<D> items) {
+			if (items.isEmpty()) {
+				return;
+			}
+
+			split(root, position);
+			final Node<D> left = splitLeft;
+			final Node<D> right = splitRight;
+			setRoot(merge(merge(left, build(items)), right));
+		}
+
+		/**
+		 * Removes the item at a position.
+		 *
+		 * @param position
+		 * 		the position of the item to remove
+		 */
+		public void remove(final int position) {
+			removeRange(position, position + 1);
+		}
+
+		/**
+		 * Removes a contiguous range of items.
+		 *
+		 * @param fromPosition
+		 * 		the position of the first item to remove
+		 * @param toPosition
+		 * 		the position after the last item to remove
+		 */
+		public void removeRange(final int fromPosition, final int toPosition) {
+			if (fromPosition == toPosition) {
+				return;
+			}
+
+			split(root, toPosition);
+			final Node<D> right = splitRight;
+			split(splitLeft, fromPosition);
+			final Node<D> left = splitLeft;
+
+			unmapAll(splitRight);
+			setRoot(merge(left, right));
+		}
+
+		/**
+		 * Replaces the item at a position.
+		 *
+		 * @param position
+		 * 		the position of the item to replace
+		 * @param item
+		 * 		the new item, may be null
+		 */
+		public void set(final int position, final D item) {
+			final Node<D> node = nodeAt(position);
+			unmap(node);
+			node.item = item;
+			map(node);
+		}
+
+		/**
+		 * Moves an item from one position to another.
+		 *
+		 * @param initialPosition
+		 * 		the position of the item before being moved
+		 * @param finalPosition
+		 * 		the position of the item after being moved
+		 */
+		public void move(final int initialPosition, final int finalPosition) {
+			split(root, initialPosition + 1);
+			final Node<D> right = splitRight;
+			split(splitLeft, initialPosition);
+			final Node<D> moved = splitRight;
+			setRoot(merge(splitLeft, right));
+
+			split(root, finalPosition);
+			final Node<D> newRight = splitRight;
+			setRoot(merge(merge(splitLeft, moved), newRight));
+		}
+
+		/**
+		 * Returns the position of a node by walking from the node to the root.
+		 *
+		 * @param node
+		 * 		the node, not null
+		 * @return the position of the node
+		 */
+		private int rankOf(final Node<D> node) {
+			int rank = sizeOf(node.left);
+
+			for (Node<D> child = node; child.parent != null; child = child.parent) {
+				if (child == child.parent.right) {
+					rank += sizeOf(child.parent.left) + 1;
+				}
+			}
+
+			return rank;
+		}
+
+		/**
+		 * Returns the node at a position.
+		 *
+		 * @param position
+		 * 		the position of the node, must be in bounds
+		 * @return the node, not null
+		 */
+		private Node<D> nodeAt(final int position) {
+			Node<D> node = root;
+			int remaining = position;
+
+			while (true) {
+				final int leftSize = sizeOf(node.left);
+
+				if (remaining < leftSize) {
+					node = node.left;
+				} else if (remaining == leftSize) {
+					return node;
+				} else {
+					remaining -= leftSize + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		/**
+		 * Builds a tree from a list of items in O(n) time, and maps each item to its node. The
+		 * nodes are appended along the right spine of the tree, which is kept on a stack.
+		 *
+		 * @param items
+		 * 		the items of the tree, not null
+		 * @return the root of the new tree, null if there are no items
+		 */
+		private Node<D> build(final List<D> items) {
+			final Deque<Node<D>> spine = new ArrayDeque<>();
+
+			for (final D item : items) {
+				final Node<D> node = new Node<>(item, random.nextInt());
+				map(node);
+
+				Node<D> lastPopped = null;
+
+				while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+					lastPopped = spine.pop();
+				}
+
+				node.left = lastPopped;
+
+				if (!spine.isEmpty()) {
+					spine.peek().right = node;
+				}
+
+				spine.push(node);
+			}
+
+			final Node<D> newRoot = spine.peekLast();
+
+			if (newRoot != null) {
+				updateSubtree(newRoot);
+				newRoot.parent = null;
+			}
+
+			return newRoot;
+		}
+
+		/**
+		 * Recomputes the sizes and parents of every node in a subtree, in post order.
+		 *
+		 * @param node
+		 * 		the root of the subtree, not null
+		 */
+		private void updateSubtree(final Node<D> node) {
+			if (node.left != null) {
+				updateSubtree(node.left);
+			}
+
+			if (node.right != null) {
+				updateSubtree(node.right);
+			}
+
+			update(node);
+		}
+
+		/**
+		 * Splits a tree into the nodes before a position and the nodes from the position onwards,
+		 * and assigns the results to {@link #splitLeft} and {@link #splitRight}.
+		 *
+		 * @param node
+		 * 		the root of the tree to split, may be null
+		 * @param position
+		 * 		the position to split at
+		 */
+		private void split(final Node<D> node, final int position) {
+			if (node == null) {
+				splitLeft = null;
+				splitRight = null;
+			} else if (sizeOf(node.left) >= position) {
+				split(node.left, position);
+				node.left = splitRight;
+				update(node);
+				splitRight = node;
+			} else {
+				split(node.right, position - sizeOf(node.left) - 1);
+				node.right = splitLeft;
+				update(node);
+				splitLeft = node;
+			}
+
+			if (splitLeft != null) {
+				splitLeft.parent = null;
+			}
+
+			if (splitRight != null) {
+				splitRight.parent = null;
+			}
+		}
+
+		/**
+		 * Joins two trees, where every node in the first tree comes before every node in the
+		 * second.
+		 *
+		 * @param left
+		 * 		the root of the first tree, may be null
+		 * @param right
+		 * 		the root of the second tree, may be null
+		 * @return the root of the joined tree, null if both trees are empty
+		 */
+		private Node<D> merge(final Node<D> left, final Node<D> right) {
+			if (left == null) {
+				return right;
+			} else if (right == null) {
+				return left;
+			} else if (left.priority > right.priority) {
+				left.right = merge(left.right, right);
+				update(left);
+				return left;
+			} else {
+				right.left = merge(left, right.left);
+				update(right);
+				return right;
+			}
+		}
+
+		/**
+		 * Recomputes the size of a node and updates the parents of its children.
+		 *
+		 * @param node
+		 * 		the node to update, not null
+		 */
+		private void update(final Node<D> node) {
+			node.size = 1 + sizeOf(node.left) + sizeOf(node.right);
+
+			if (node.left != null) {
+				node.left.parent = node;
+			}
+
+			if (node.right != null) {
+				node.right.parent = node;
+			}
+		}
+
+		/**
+		 * Sets the root of the tree.
+		 *
+		 * @param newRoot
+		 * 		the new root, may be null
+		 */
+		private void setRoot(final Node<D> newRoot) {
+			root = newRoot;
+
+			if (root != null) {
+				root.parent = null;
+			}
+		}
+
+		/**
+		 * Adds a node to the item map.
+		 *
+		 * @param node
+		 * 		the node to add, not null
+		 */
+		private void map(final Node<D> node) {
+			node.nextDuplicate = nodes.get(node.item);
+			nodes.put(node.item, node);
+		}
+
+		/**
+		 * Removes a node from the item map.
+		 *
+		 * @param node
+		 * 		the node to remove, not null
+		 */
+		private void unmap(final Node<D> node) {
+			final Node<D> first = nodes.get(node.item);
+
+			if (first == node) {
+				if (node.nextDuplicate == null) {
+					nodes.remove(node.item);
+				} else {
+					nodes.put(node.item, node.nextDuplicate);
+				}
+			} else {
+				Node<D> previous = first;
+
+				while (previous.nextDuplicate != node) {
+					previous = previous.nextDuplicate;
+				}
+
+				previous.nextDuplicate = node.nextDuplicate;
+			}
+
+			node.nextDuplicate = null;
+		}
+
+		/**
+		 * Removes every node in a subtree from the item map.
+		 *
+		 * @param node
+		 * 		the root of the subtree, may be null
+		 */
+		private void unmapAll(final Node<D> node) {
+			if (node != null) {
+				unmapAll(node.left);
+				unmapAll(node.right);
+				unmap(node);
+			}
+		}
+
+		/**
+		 * Returns the size of a subtree.
+		 *
+		 * @param node
+		 * 		the root of the subtree, may be null
+		 * @return the number of nodes in the subtree
+		 */
+		private static int sizeOf(final Node<?> node) {
+			return node == null ? 0 : node.size;
+		}
+	}
+
+	/**
+	 * A node in a PositionIndex.
+	 *
+	 * @param <D>
+	 * 		the type of item in the node
+	 */
+	private static final class Node<D> {
+		/**
+		 * The priority of the node, which is greater than the priorities of its descendants.
+		 */
+		private final int priority;
+
+		/**
+		 * The item in the node.
+		 */
+		private D item;
+
+		/**
+		 * The parent of the node, null if the node is a root.
+		 */
+		private Node<D> parent;
+
+		/**
+		 * The left child of the node, may be null.
+		 */
+		private Node<D> left;
+
+		/**
+		 * The right child of the node, may be null.
+		 */
+		private Node<D> right;
+
+		/**
+		 * The number of nodes in the subtree rooted at this node.
+		 */
+		private int size = 1;
+
+		/**
+		 * The next node containing an equal item, null if there is none.
+		 */
+		private Node<D> nextDuplicate;
+
+		/**
+		 * Constructs a new Node.
+		 *
+		 * @param item
+		 * 		the item in the node, may be null
+		 * @param priority
+		 * 		the priority of the node
+		 */
+		private Node(final D item, final int priority) {
+			this.item = item;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+/**
+ * Bit flags which identify the displayable fields of a LibraryItem. The flags can be combined using
+ * a bitwise OR to describe which fields of an item have changed, so that views only need to rebind
+ * the affected fields.
+ */
+public abstract class LibraryItemFields {
+	/**
+	 * Flag indicating that no fields have changed.
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Flag for the title of an item.
+	 */
+	public static final int TITLE = 1;
+
+	/**
+	 * Flag for the subtitle of an item.
+	 */
+	public static final int SUBTITLE = 1 << 1;
+
+	/**
+	 * Flag for the artwork of an item.
+	 */
+	public static final int ARTWORK = 1 << 2;
+
+	/**
+	 * Combination of all flags, indicating that any field may have changed.
+	 */
+	public static final int ALL = TITLE | SUBTITLE | ARTWORK;
+
+	/**
+	 * Returns whether or not the supplied set of flags contains the supplied field.
+	 *
+	 * @param fields
+	 * 		the set of flags to check
+	 * @param field
+	 * 		the field to look for
+	 * @return true if all bits of {@code field} are set in {@code fields}, false otherwise
+	 */
+	public static boolean contains(final int fields, final int field) {
+		return (fields & field) == field;
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Records changes made to a list and merges them so that they can be delivered as a small number
+ * of events. Consecutive additions which form a contiguous range are merged into a single range
+ * addition, consecutive removals which form a contiguous range are merged into a single range
+ * removal, and repeated modifications of the same item are merged into a single modification. The
+ * order of all other changes is preserved. The buffer is emptied each time it is dispatched, so a
+ * single instance can be reused indefinitely.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <D>
+ * 		the type of objects contained within the list
+ */
+public class ListChangeBuffer<D> {
+	/**
+	 * The type of a recorded addition.
+	 */
+	private static final int ADDED = 0;
+
+	/**
+	 * The type of a recorded removal.
+	 */
+	private static final int REMOVED = 1;
+
+	/**
+	 * The type of a recorded modification.
+	 */
+	private static final int MODIFIED = 2;
+
+	/**
+	 * The type of a recorded move.
+	 */
+	private static final int MOVED = 3;
+
+	/**
+	 * The recorded changes, in the order they occurred.
+	 */
+	private final ArrayList<Change<D>> changes = new ArrayList<>();
+
+	/**
+	 * Records the addition of a single item.
+	 *
+	 * @param item
+	 * 		the item which was added, may be null
+	 * @param index
+	 * 		the index of the added item
+	 */
+	public void recordAdded(final D item, final int index) {
+		final Change<D> last = getLastChange();
+
+		// An item added within or at either end of a pending range extends the range
+		if (last != null && last.type == ADDED && index >= last.index &&
+				index <= last.index + last.items.size()) {
+			last.items.add(index - last.index, item);
+		} else {
+			final Change<D> change = new Change<>(ADDED, index);
+			change.items.add(item);
+			changes.add(change);
+		}
+	}
+
+	/**
+	 * Records the addition of a contiguous range of items.
+	 *
+	 * @param items
+	 * 		the items which were added, in order, not null
+	 * @param startIndex
+	 * 		the index of the first added item
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	public void recordRangeAdded(final List<D> items, final int startIndex) {
+		checkNotNull(items, "items cannot be null.");
+
+		for (int i = 0; i < items.size(); i++) {
+			recordAdded(items.get(i), startIndex + i);
+		}
+	}
+
+	/**
+	 * Records the removal of a single item.
+	 *
+	 * @param item
+	 * 		the item which was removed, may be null
+	 * @param index
+	 * 		the index of the item before removal
+	 */
+	public void recordRemoved(final D item, final int index) {
+		final Change<D> last = getLastChange();
+
+		if (last != null && last.type == REMOVED && index == last.index) {
+			// The item followed the removed range
+			last.items.add(item);
+		} else if (last != null && last.type == REMOVED && index == last.index - 1) {
+			// The item preceded the removed range
+			last.items.add(0, item);
+			last.index = index;
+		} else {
+			final Change<D> change = new Change<>(REMOVED, index);
+			change.items.add(item);
+			changes.add(change);
+		}
+	}
+
+	/**
+	 * Records the removal of a contiguous range of items.
+	 *
+	 * @param items
+	 * 		the items which were removed, in order, not null
+	 * @param startIndex
+	 * 		the index of the first removed item before removal
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	public void recordRangeRemoved(final List<D> items, final int startIndex) {
+		checkNotNull(items, "items cannot be null.");
+
+		for (int i = 0; i < items.size(); i++) {
+			recordRemoved(items.get(i), startIndex);
+		}
+	}
+
+	/**
+	 * Records the modification of a single item.
+	 *
+	 * @param item
+	 * 		the item which was modified, may be null
+	 * @param index
+	 * 		the index of the modified item
+	 * @param changedFields
+	 * 		the fields which changed, as a combination of the flags defined in {@link
+	 * 		LibraryItemFields}
+	 */
+	public void recordModified(final D item, final int index, final int changedFields) {
+		final Change<D> last = getLastChange();
+
+		if (last != null && last.type == ADDED && index >= last.index &&
+				index < last.index + last.items.size()) {
+			// The item has not been delivered yet, so the addition already covers the change
+			last.items.set(index - last.index, item);
+		} else if (last != null && last.type == MODIFIED && index == last.index) {
+			last.items.set(0, item);
+			last.changedFields |= changedFields;
+		} else {
+			final Change<D> change = new Change<>(MODIFIED, index);
+			change.items.add(item);
+			change.changedFields = changedFields;
+			changes.add(change);
+		}
+	}
+
+	/**
+	 * Records the move of a single item.
+	 *
+	 * @param item
+	 * 		the item which was moved, may be null
+	 * @param initialIndex
+	 * 		the index of the item before being moved
+	 * @param finalIndex
+	 * 		the index of the item after being moved
+	 */
+	public void recordMoved(final D item, final int initialIndex, final int finalIndex) {
+		final Change<D> change = new Change<>(MOVED, initialIndex);
+		change.items.add(item);
+		change.finalIndex = finalIndex;
+		changes.add(change);
+	}
+
+	/**
+	 * @return true if no changes have been recorded since the buffer was last dispatched or
+	 * cleared, false otherwise
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+	/**
+	 * @return the number of events the buffer would currently dispatch
+	 */
+	public int getChangeCount() {
+		return changes.size();
+	}
+
+	/**
+	 * Delivers the merged changes to the supplied receiver in the order they occurred, then empties
+	 * the buffer. The lists passed to the receiver are unmodifiable and are not reused, so they can
+	 * be retained.
+	 *
+	 * @param receiver
+	 * 		the receiver to deliver the changes to, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code receiver} is null
+	 */
+	public void dispatch(final Receiver<D> receiver) {
+		checkNotNull(receiver, "receiver cannot be null.");
+
+		// Copy first so that the receiver can record new changes during dispatch
+		final List<Change<D>> dispatching = new ArrayList<>(changes);
+		changes.clear();
+
+		for (final Change<D> change : dispatching) {
+			switch (change.type) {
+				case ADDED:
+					receiver.onItemsAdded(Collections.unmodifiableList(change.items), change.index);
+					break;
+
+				case REMOVED:
+					receiver.onItemsRemoved(Collections.unmodifiableList(change.items),
+							change.index);
+					break;
+
+				case MODIFIED:
+					receiver.onItemModified(change.items.get(0), change.index,
+							change.changedFields);
+					break;
+
+				case MOVED:
+					receiver.onItemMoved(change.items.get(0), change.index, change.finalIndex);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Discards all recorded changes without delivering them.
+	 */
+	public void clear() {
+		changes.clear();
+	}
+
+	/**
+	 * @return the most recently recorded change, null if there are none
+	 */
+	private Change<D> getLastChange() {
+		return changes.isEmpty() ? null : changes.get(changes.size() - 1);
+	}
+
+	/**
+	 * Receives the changes delivered by a ListChangeBuffer.
+	 *
+	 * @param <D>
+	 * 		the type of objects contained within the list
+	 */
+	public interface Receiver<D> {
+		/**
+		 * Invoked to deliver the addition of a contiguous range of items.
+		 *
+		 * @param items
+		 * 		the items which were added, in order, not null and not empty
+		 * @param startIndex
+		 * 		the index of the first added item
+		 */
+		void onItemsAdded(List<D> items, int startIndex);
+
+		/**
+		 * Invoked to deliver the removal of a contiguous range of items.
+		 *
+		 * @param items
+		 * 		the items which were removed, in order, not null and not empty
+		 * @param startIndex
+		 * 		the index of the first removed item before removal
+		 */
+		void onItemsRemoved(List<D> items, int startIndex);
+
+		/**
+		 * Invoked to deliver the modification of a single item.
+		 *
+		 * @param item
+		 * 		the item which was modified, may be null
+		 * @param index
+		 * 		the index of the modified item
+		 * @param changedFields
+		 * 		the fields which changed, as a combination of the flags defined in {@link
+		 * 		LibraryItemFields}
+		 */
+		void onItemModified(D item, int index, int changedFields);
+
+		/**
+		 * Invoked to deliver the move of a single item.
+		 *
+		 * @param item
+		 * 		the item which was moved, may be null
+		 * @param initialIndex
+		 * 		the index of the item before being moved
+		 * @param finalIndex
+		 * 		the index of the item after being moved
+		 */
+		void onItemMoved(D item, int initialIndex, int finalIndex);
+	}
+
+	/**
+	 * A single recorded change.
+	 *
+	 * @param <D>
+	 * 		the type of objects contained within the list
+	 */
+	private static class Change<D> {
+		/**
+		 * The type of the change.
+		 */
+		private final int type;
+
+		/**
+		 * The items affected by the change. Modifications and moves only affect one item.
+		 */
+		private final List<D> items = new ArrayList<>(1);
+
+		/**
+		 * The index of the first affected item. For removals and moves, this is the index before
+		 * the change.
+		 */
+		private int index;
+
+		/**
+		 * The index of the item after the change. Only used for moves.
+		 */
+		private int finalIndex;
+
+		/**
+		 * The fields which changed. Only used for modifications.
+		 */
+		private int changedFields;
+
+		/**
+		 * Constructs a new Change.
+		 *
+		 * @param type
+		 * 		the type of the change
+		 * @param index
+		 * 		the index of the first affected item
+		 */
+		public Change(final int type, final int index) {
+			this.type = type;
+			this.index = index;
+		}
+	}
+}
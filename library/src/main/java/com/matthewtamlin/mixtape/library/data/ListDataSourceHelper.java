@@ -18,14 +18,28 @@ package com.matthewtamlin.mixtape.library.data;
 
 import com.matthewtamlin.java_utilities.testing.Tested;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.data.ListenerRegistry.Registration;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 /**
  * Partial implementation of the ListDataSource interface which handles listener registration.
- * Getters are provided for accessing the registered listeners.
+ * Getters are provided for accessing the registered listeners, and the deliver methods can be used
+ * by subclasses to send list events to the appropriate listeners.
+ * <p>
+ * Changes can be grouped using {@link #beginTransaction()} and {@link #commitTransaction()}. Events
+ * sent using the deliver methods while a transaction is open are held back, and when the outermost
+ * transaction is committed they are merged and delivered. For example, removing 500 adjacent items
+ * in a transaction delivers a single range removal rather than 500 separate removals. Transactions
+ * must only be used on one thread at a time.
+ * <p>
+ * As with the base listeners, each list listener can optionally be registered with an Executor to
+ * receive its callbacks through.
  *
  * @param <D>
  * 		the type of objects contained within the list
@@ -34,114 +48,669 @@ import java.util.Set;
 public abstract class ListDataSourceHelper<D> extends BaseDataSourceHelper<List<D>> implements
 		ListDataSource<D> {
 	/**
-	 * All item added listeners which are currently registered. This set must never contain null.
+	 * All item added listeners which are currently registered.
+	 */
+	private final ListenerRegistry<ItemAddedListener<D>> itemAddedListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * All item removed listeners which are currently registered.
+	 */
+	private final ListenerRegistry<ItemRemovedListener<D>> itemRemovedListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * All item modified listeners which are currently registered.
+	 */
+	private final ListenerRegistry<ItemModifiedListener<D>> itemModifiedListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * All item moved listeners which are currently registered.
+	 */
+	private final ListenerRegistry<ItemMovedListener<D>> itemMovedListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * All item range added listeners which are currently registered.
+	 */
+	private final ListenerRegistry<ItemRangeAddedListener<D>> itemRangeAddedListeners =
+			new ListenerRegistry<>();
+
+	/**
+	 * All item range removed listeners which are currently registered.
 	 */
-	private final Set<ItemAddedListener<D>> itemAddedListeners = new HashSet<>();
+	private final ListenerRegistry<ItemRangeRemovedListener<D>> itemRangeRemovedListeners =
+			new ListenerRegistry<>();
 
 	/**
-	 * All item removed listeners which are currently registered. This set must never contain null.
+	 * Holds the events delivered while a transaction is open. The same buffer is reused for every
+	 * transaction.
 	 */
-	private final Set<ItemRemovedListener<D>> itemRemovedListeners = new HashSet<>();
+	private final ListChangeBuffer<D> transactionBuffer = new ListChangeBuffer<>();
 
 	/**
-	 * All item modified listeners which are currently registered. This set must never contain
-	 * null.
+	 * Sends the merged transaction events to the listeners.
 	 */
-	private final Set<ItemModifiedListener<D>> itemModifiedListeners = new HashSet<>();
+	private final ListChangeBuffer.Receiver<D> transactionReceiver =
+			new ListChangeBuffer.Receiver<D>() {
+				@Override
+				public void onItemsAdded(final List<D> items, final int startIndex) {
+					dispatchItemsAdded(items, startIndex);
+				}
+
+				@Override
+				public void onItemsRemoved(final List<D> items, final int startIndex) {
+					dispatchItemsRemoved(items, startIndex);
+				}
+
+				@Override
+				public void onItemModified(final D item, final int index,
+						final int changedFields) {
+					dispatchItemModified(item, index, changedFields);
+				}
+
+				@Override
+				public void onItemMoved(final D item, final int initialIndex,
+						final int finalIndex) {
+					dispatchItemMoved(item, initialIndex, finalIndex);
+				}
+			};
 
 	/**
-	 * All item moved listeners which are currently registered. This set must never contain null.
+	 * The number of transactions which are currently open. Transactions can be nested, and events
+	 * are only delivered when the outermost transaction is committed.
 	 */
-	private final Set<ItemMovedListener<D>> itemMovedListeners = new HashSet<>();
+	private int transactionDepth = 0;
 
 	@Override
 	public void registerItemAddedListener(final ItemAddedListener<D> listener) {
-		if (listener != null) {
-			itemAddedListeners.add(listener);
-		}
+		itemAddedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item added listener which receives callbacks through the supplied executor. If
+	 * the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemAddedListener(final ItemAddedListener<D> listener,
+			final Executor executor) {
+		itemAddedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterItemAddedListener(final ItemAddedListener<D> listener) {
-		itemAddedListeners.remove(listener);
+		itemAddedListeners.unregister(listener);
 	}
 
 	@Override
 	public void registerItemRemovedListener(final ItemRemovedListener<D> listener) {
-		if (listener != null) {
-			itemRemovedListeners.add(listener);
-		}
+		itemRemovedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item removed listener which receives callbacks through the supplied executor. If
+	 * the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemRemovedListener(final ItemRemovedListener<D> listener,
+			final Executor executor) {
+		itemRemovedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterItemRemovedListener(final ItemRemovedListener<D> listener) {
-		itemRemovedListeners.remove(listener);
+		itemRemovedListeners.unregister(listener);
 	}
 
 	@Override
 	public void registerItemModifiedListener(final ItemModifiedListener<D> listener) {
-		if (listener != null) {
-			itemModifiedListeners.add(listener);
-		}
+		itemModifiedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item modified listener which receives callbacks through the supplied executor.
+	 * If the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemModifiedListener(final ItemModifiedListener<D> listener,
+			final Executor executor) {
+		itemModifiedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterItemModifiedListener(final ItemModifiedListener<D> listener) {
-		itemModifiedListeners.remove(listener);
+		itemModifiedListeners.unregister(listener);
 	}
 
 	@Override
 	public void registerItemMovedListener(final ItemMovedListener<D> listener) {
-		if (listener != null) {
-			itemMovedListeners.add(listener);
-		}
+		itemMovedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item moved listener which receives callbacks through the supplied executor. If
+	 * the supplied listener is null, this method exits normally. If the listener is already
+	 * registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemMovedListener(final ItemMovedListener<D> listener,
+			final Executor executor) {
+		itemMovedListeners.register(listener, executor);
 	}
 
 	@Override
 	public void unregisterItemMovedListener(final ItemMovedListener<D> listener) {
-		itemMovedListeners.remove(listener);
+		itemMovedListeners.unregister(listener);
+	}
+
+	@Override
+	public void registerItemRangeAddedListener(final ItemRangeAddedListener<D> listener) {
+		itemRangeAddedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item range added listener which receives callbacks through the supplied
+	 * executor. If the supplied listener is null, this method exits normally. If the listener is
+	 * already registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemRangeAddedListener(final ItemRangeAddedListener<D> listener,
+			final Executor executor) {
+		itemRangeAddedListeners.register(listener, executor);
+	}
+
+	@Override
+	public void unregisterItemRangeAddedListener(final ItemRangeAddedListener<D> listener) {
+		itemRangeAddedListeners.unregister(listener);
+	}
+
+	@Override
+	public void registerItemRangeRemovedListener(final ItemRangeRemovedListener<D> listener) {
+		itemRangeRemovedListeners.register(listener);
+	}
+
+	/**
+	 * Registers an item range removed listener which receives callbacks through the supplied
+	 * executor. If the supplied listener is null, this method exits normally. If the listener is
+	 * already registered, its executor is replaced.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the thread
+	 * 		which delivers the event
+	 */
+	public void registerItemRangeRemovedListener(final ItemRangeRemovedListener<D> listener,
+			final Executor executor) {
+		itemRangeRemovedListeners.register(listener, executor);
+	}
+
+	@Override
+	public void unregisterItemRangeRemovedListener(final ItemRangeRemovedListener<D> listener) {
+		itemRangeRemovedListeners.unregister(listener);
+	}
+
+	/**
+	 * Opens a transaction. Until the transaction is committed, events sent using the deliver
+	 * methods are held back so that they can be merged. Transactions can be nested, in which case
+	 * the events are delivered when the outermost transaction is committed.
+	 */
+	public void beginTransaction() {
+		transactionDepth++;
+	}
+
+	/**
+	 * Commits the most recently opened transaction. If it is the outermost transaction, the events
+	 * sent since it was opened are merged and delivered.
+	 *
+	 * @throws IllegalStateException
+	 * 		if no transaction is open
+	 */
+	public void commitTransaction() {
+		if (transactionDepth == 0) {
+			throw new IllegalStateException("No transaction is open.");
+		}
+
+		if (--transactionDepth == 0) {
+			transactionBuffer.dispatch(transactionReceiver);
+		}
+	}
+
+	/**
+	 * @return true if a transaction is currently open, false otherwise
+	 */
+	public boolean isInTransaction() {
+		return transactionDepth > 0;
 	}
 
 	/**
 	 * Returns all item added listeners which are currently registered for callbacks. This method
 	 * may return an empty set, but it will never return null. Furthermore, the returned set will
-	 * never contain null.
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the listeners
 	 */
 	public Set<ItemAddedListener<D>> getItemAddedListeners() {
-		return itemAddedListeners;
+		return itemAddedListeners.getListeners();
 	}
 
 	/**
 	 * Returns all item removed listeners which are currently registered for callbacks. This method
-	 * may return an empty set, but it will never return null.
+	 * may return an empty set, but it will never return null. Furthermore, the returned set will
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the listeners
 	 */
 	public Set<ItemRemovedListener<D>> getItemRemovedListeners() {
-		return itemRemovedListeners;
+		return itemRemovedListeners.getListeners();
 	}
 
 	/**
 	 * Returns all item modified listeners which are currently registered for callbacks. This method
 	 * may return an empty set, but it will never return null. Furthermore, the returned set will
-	 * never contain null.
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the listeners
 	 */
 	public Set<ItemModifiedListener<D>> getItemModifiedListeners() {
-		return itemModifiedListeners;
+		return itemModifiedListeners.getListeners();
 	}
 
 	/**
 	 * Returns all item moved listeners which are currently registered for callbacks. This method
 	 * may return an empty set, but it will never return null. Furthermore, the returned set will
-	 * never contain null.
+	 * never contain null. The returned set is an unmodifiable snapshot.
 	 *
 	 * @return the listeners
 	 */
 	public Set<ItemMovedListener<D>> getItemMovedListeners() {
-		return itemMovedListeners;
+		return itemMovedListeners.getListeners();
+	}
+
+	/**
+	 * Returns all item range added listeners which are currently registered for callbacks. This
+	 * method may return an empty set, but it will never return null. Furthermore, the returned set
+	 * will never contain null. The returned set is an unmodifiable snapshot.
+	 *
+	 * @return the listeners
+	 */
+	public Set<ItemRangeAddedListener<D>> getItemRangeAddedListeners() {
+		return itemRangeAddedListeners.getListeners();
+	}
+
+	/**
+	 * Returns all item range removed listeners which are currently registered for callbacks. This
+	 * method may return an empty set, but it will never return null. Furthermore, the returned set
+	 * will never contain null. The returned set is an unmodifiable snapshot.
+	 *
+	 * @return the listeners
+	 */
+	public Set<ItemRangeRemovedListener<D>> getItemRangeRemovedListeners() {
+		return itemRangeRemovedListeners.getListeners();
+	}
+
+	/**
+	 * Delivers the addition of a single item to the registered listeners, or holds it back if a
+	 * transaction is open.
+	 *
+	 * @param item
+	 * 		the item which was added, may be null
+	 * @param index
+	 * 		the index of the added item
+	 */
+	protected void deliverItemAdded(final D item, final int index) {
+		if (isInTransaction()) {
+			transactionBuffer.recordAdded(item, index);
+		} else {
+			dispatchItemsAdded(Collections.singletonList(item), index);
+		}
+	}
+
+	/**
+	 * Delivers the addition of a contiguous range of items to the registered listeners, or holds
+	 * it back if a transaction is open. Item added listeners which are not also registered as item
+	 * range added listeners receive one event per item.
+	 *
+	 * @param items
+	 * 		the items which were added, in order, not null
+	 * @param startIndex
+	 * 		the index of the first added item
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	protected void deliverItemsAdded(final List<D> items, final int startIndex) {
+		checkNotNull(items, "items cannot be null.");
+
+		if (isInTransaction()) {
+			transactionBuffer.recordRangeAdded(items, startIndex);
+		} else {
+			dispatchItemsAdded(items, startIndex);
+		}
+	}
+
+	/**
+	 * Delivers the removal of a single item to the registered listeners, or holds it back if a
+	 * transaction is open.
+	 *
+	 * @param item
+	 * 		the item which was removed, may be null
+	 * @param index
+	 * 		the index of the item before removal
+	 */
+	protected void deliverItemRemoved(final D item, final int index) {
+		if (isInTransaction()) {
+			transactionBuffer.recordRemoved(item, index);
+		} else {
+			dispatchItemsRemoved(Collections.singletonList(item), index);
+		}
+	}
+
+	/**
+	 * Delivers the removal of a contiguous range of items to the registered listeners, or holds it
+	 * back if a transaction is open. Item removed listeners which are not also registered as item
+	 * range removed listeners receive one event per item.
+	 *
+	 * @param items
+	 * 		the items which were removed, in order, not null
+	 * @param startIndex
+	 * 		the index of the first removed item before removal
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	protected void deliverItemsRemoved(final List<D> items, final int startIndex) {
+		checkNotNull(items, "items cannot be null.");
+
+		if (isInTransaction()) {
+			transactionBuffer.recordRangeRemoved(items, startIndex);
+		} else {
+			dispatchItemsRemoved(items, startIndex);
+		}
+	}
+
+	/**
+	 * Delivers the modification of a single item to the registered listeners, or holds it back if
+	 * a transaction is open. Listeners which implement ItemFieldsModifiedListener are told which
+	 * fields changed.
+	 *
+	 * @param item
+	 * 		the item which was modified, may be null
+	 * @param index
+	 * 		the index of the modified item
+	 * @param changedFields
+	 * 		the fields which changed, as a combination of the flags defined in {@link
+	 * 		LibraryItemFields}
+	 */
+	protected void deliverItemModified(final D item, final int index, final int changedFields) {
+		if (isInTransaction()) {
+			transactionBuffer.recordModified(item, index, changedFields);
+		} else {
+			dispatchItemModified(item, index, changedFields);
+		}
+	}
+
+	/**
+	 * Delivers the move of a single item to the registered listeners, or holds it back if a
+	 * transaction is open.
+	 *
+	 * @param item
+	 * 		the item which was moved, may be null
+	 * @param initialIndex
+	 * 		the index of the item before being moved
+	 * @param finalIndex
+	 * 		the index of the item after being moved
+	 */
+	protected void deliverItemMoved(final D item, final int initialIndex, final int finalIndex) {
+		if (isInTransaction()) {
+			transactionBuffer.recordMoved(item, initialIndex, finalIndex);
+		} else {
+			dispatchItemMoved(item, initialIndex, finalIndex);
+		}
+	}
+
+	/**
+	 * Sends an addition to the listeners. Ranges go to the item range added listeners, and each
+	 * item goes to the item added listeners which have not already received the range.
+	 *
+	 * @param items
+	 * 		the items which were added, not null
+	 * @param startIndex
+	 * 		the index of the first added item
+	 */
+	private void dispatchItemsAdded(final List<D> items, final int startIndex) {
+		final boolean isRange = items.size() > 1;
+
+		if (isRange) {
+			for (final Registration<ItemRangeAddedListener<D>> registration :
+					itemRangeAddedListeners.getRegistrations()) {
+				final ItemRangeAddedListener<D> listener = registration.getListener();
+
+				if (registration.getExecutor() == null) {
+					listener.onDataRangeAdded(this, items, startIndex);
+				} else {
+					registration.getExecutor().execute(new Runnable() {
+						@Override
+						public void run() {
+							listener.onDataRangeAdded(ListDataSourceHelper.this, items, startIndex);
+						}
+					});
+				}
+			}
+		}
+
+		for (final Registration<ItemAddedListener<D>> registration :
+				itemAddedListeners.getRegistrations()) {
+			if (isRange && itemRangeAddedListeners.contains(registration.getListener())) {
+				continue;
+			}
+
+			for (int i = 0; i < items.size(); i++) {
+				callItemAddedListener(registration, items.get(i), startIndex + i);
+			}
+		}
+	}
+
+	/**
+	 * Sends a removal to the listeners. Ranges go to the item range removed listeners, and each
+	 * item goes to the item removed listeners which have not already received the range.
+	 *
+	 * @param items
+	 * 		the items which were removed, not null
+	 * @param startIndex
+	 * 		the index of the first removed item before removal
+	 */
+	private void dispatchItemsRemoved(final List<D> items, final int startIndex) {
+		final boolean isRange = items.size() > 1;
+
+		if (isRange) {
+			for (final Registration<ItemRangeRemovedListener<D>> registration :
+					itemRangeRemovedListeners.getRegistrations()) {
+				final ItemRangeRemovedListener<D> listener = registration.getListener();
+
+				if (registration.getExecutor() == null) {
+					listener.onDataRangeRemoved(this, items, startIndex);
+				} else {
+					registration.getExecutor().execute(new Runnable() {
+						@Override
+						public void run() {
+							listener.onDataRangeRemoved(ListDataSourceHelper.this, items,
+									startIndex);
+						}
+					});
+				}
+			}
+		}
+
+		for (final Registration<ItemRemovedListener<D>> registration :
+				itemRemovedListeners.getRegistrations()) {
+			if (isRange && itemRangeRemovedListeners.contains(registration.getListener())) {
+				continue;
+			}
+
+			// Each removal shifts the following items down to the start index
+			for (int i = 0; i < items.size(); i++) {
+				callItemRemovedListener(registration, items.get(i), startIndex);
+			}
+		}
+	}
+
+	/**
+	 * Sends a modification to the listeners.
+	 *
+	 * @param item
+	 * 		the item which was modified, may be null
+	 * @param index
+	 * 		the index of the modified item
+	 * @param changedFields
+	 * 		the fields which changed
+	 */
+	private void dispatchItemModified(final D item, final int index, final int changedFields) {
+		for (final Registration<ItemModifiedListener<D>> registration :
+				itemModifiedListeners.getRegistrations()) {
+			final ItemModifiedListener<D> listener = registration.getListener();
+
+			if (registration.getExecutor() == null) {
+				callItemModifiedListener(listener, item, index, changedFields);
+			} else {
+				registration.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						callItemModifiedListener(listener, item, index, changedFields);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Sends a move to the listeners.
+	 *
+	 * @param item
+	 * 		the item which was moved, may be null
+	 * @param initialIndex
+	 * 		the index of the item before being moved
+	 * @param finalIndex
+	 * 		the index of the item after being moved
+	 */
+	private void dispatchItemMoved(final D item, final int initialIndex, final int finalIndex) {
+		for (final Registration<ItemMovedListener<D>> registration :
+				itemMovedListeners.getRegistrations()) {
+			final ItemMovedListener<D> listener = registration.getListener();
+
+			if (registration.getExecutor() == null) {
+				listener.onDataMoved(this, item, initialIndex, finalIndex);
+			} else {
+				registration.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						listener.onDataMoved(ListDataSourceHelper.this, item, initialIndex,
+								finalIndex);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Sends a single item addition to one listener, using its executor if it has one.
+	 *
+	 * @param registration
+	 * 		the registration of the listener, not null
+	 * @param item
+	 * 		the item which was added, may be null
+	 * @param index
+	 * 		the index of the added item
+	 */
+	private void callItemAddedListener(final Registration<ItemAddedListener<D>> registration,
+			final D item, final int index) {
+		final ItemAddedListener<D> listener = registration.getListener();
+
+		if (registration.getExecutor() == null) {
+			listener.onDataAdded(this, item, index);
+		} else {
+			registration.getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					listener.onDataAdded(ListDataSourceHelper.this, item, index);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sends a single item removal to one listener, using its executor if it has one.
+	 *
+	 * @param registration
+	 * 		the registration of the listener, not null
+	 * @param item
+	 * 		the item which was removed, may be null
+	 * @param index
+	 * 		the index of the item before removal
+	 */
+	private void callItemRemovedListener(final Registration<ItemRemovedListener<D>> registration,
+			final D item, final int index) {
+		final ItemRemovedListener<D> listener = registration.getListener();
+
+		if (registration.getExecutor() == null) {
+			listener.onDataRemoved(this, item, index);
+		} else {
+			registration.getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					listener.onDataRemoved(ListDataSourceHelper.this, item, index);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Calls the appropriate method of an item modified listener. Listeners which implement
+	 * ItemFieldsModifiedListener are told which fields changed.
+	 *
+	 * @param listener
+	 * 		the listener to call, not null
+	 * @param item
+	 * 		the item which was modified, may be null
+	 * @param index
+	 * 		the index of the modified item
+	 * @param changedFields
+	 * 		the fields which changed
+	 */
+	private void callItemModifiedListener(final ItemModifiedListener<D> listener, final D item,
+			final int index, final int changedFields) {
+		if (listener instanceof ItemFieldsModifiedListener) {
+			((ItemFieldsModifiedListener<D>) listener).onItemFieldsModified(this, item, index,
+					changedFields);
+		} else {
+			listener.onItemModified(this, item, index);
+		}
 	}
 }
\ No newline at end of file
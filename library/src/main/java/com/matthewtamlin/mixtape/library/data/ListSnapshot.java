@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A version of a list published by a {@link SnapshotListDataSource}. The items of a snapshot never
+ * change, so a snapshot can be read on any thread without synchronisation. Each snapshot published
+ * by a source has a higher version than the one before it.
+ *
+ * @param <D>
+ * 		the type of objects contained within the list
+ */
+public final class ListSnapshot<D> {
+	/**
+	 * The version of this snapshot.
+	 */
+	private final long version;
+
+	/**
+	 * The items in this snapshot.
+	 */
+	private final PersistentList<D> items;
+
+	/**
+	 * Constructs a new ListSnapshot.
+	 *
+	 * @param version
+	 * 		the version of the snapshot
+	 * @param items
+	 * 		the items in the snapshot, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	public ListSnapshot(final long version, final PersistentList<D> items) {
+		this.version = version;
+		this.items = checkNotNull(items, "items cannot be null.");
+	}
+
+	/**
+	 * @return the version of this snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the items in this snapshot, not null
+	 */
+	public PersistentList<D> getItems() {
+		return items;
+	}
+}
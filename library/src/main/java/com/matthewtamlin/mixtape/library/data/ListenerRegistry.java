@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread-safe set of listeners, each of which can optionally be paired with an Executor to
+ * receive callbacks on. The registrations are held in an array which is replaced whenever a
+ * listener is registered or unregistered, so modifications never block and dispatching only
+ * needs to read the current array. Dispatching therefore never races with registration, never
+ * throws ConcurrentModificationException, and does not allocate an iterator.
+ * <p>
+ * To dispatch an event, iterate over the array returned by {@link #getRegistrations()}. For each
+ * registration with no executor, call the listener directly. For every other registration,
+ * deliver the call through its executor.
+ *
+ * @param <L>
+ * 		the type of listener held in the registry
+ */
+public class ListenerRegistry<L> {
+	/**
+	 * The array held by a registry with no listeners.
+	 */
+	private static final Registration[] EMPTY = new Registration[0];
+
+	/**
+	 * The current registrations. The array itself is never modified once published.
+	 */
+	@SuppressWarnings("unchecked")
+	private final AtomicReference<Registration<L>[]> registrations =
+			new AtomicReference<Registration<L>[]>(EMPTY);
+
+	/**
+	 * Registers a listener to receive callbacks on the dispatching thread. If the listener is
+	 * already registered with an executor, the executor is removed. If the supplied listener is
+	 * null, this method exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 */
+	public void register(final L listener) {
+		register(listener, null);
+	}
+
+	/**
+	 * Registers a listener to receive callbacks through the supplied executor. If the listener is
+	 * already registered, its executor is replaced. If the supplied listener is null, this method
+	 * exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to register
+	 * @param executor
+	 * 		the executor to deliver callbacks through, null to deliver callbacks on the
+	 * 		dispatching thread
+	 */
+	@SuppressWarnings("unchecked")
+	public void register(final L listener, final Executor executor) {
+		if (listener == null) {
+			return;
+		}
+
+		final Registration<L> registration = new Registration<>(listener, executor);
+
+		while (true) {
+			final Registration<L>[] current = registrations.get();
+			final int index = indexOf(current, listener);
+			final Registration<L>[] updated;
+
+			if (index == -1) {
+				updated = new Registration[current.length + 1];
+				System.arraycopy(current, 0, updated, 0, current.length);
+				updated[current.length] = registration;
+			} else if (current[index].executor == executor) {
+				return;
+			} else {
+				updated = current.clone();
+				updated[index] = registration;
+			}
+
+			if (registrations.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Unregisters a listener. If the supplied listener is null or is not registered, this method
+	 * exits normally.
+	 *
+	 * @param listener
+	 * 		the listener to unregister
+	 */
+	@SuppressWarnings("unchecked")
+	public void unregister(final Object listener) {
+		while (true) {
+			final Registration<L>[] current = registrations.get();
+			final int index = indexOf(current, listener);
+
+			if (index == -1) {
+				return;
+			}
+
+			final Registration<L>[] updated = current.length == 1 ? EMPTY :
+					new Registration[current.length - 1];
+			System.arraycopy(current, 0, updated, 0, index);
+			System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+
+			if (registrations.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Determines whether or not a listener is registered.
+	 *
+	 * @param listener
+	 * 		the listener to look for, may be null
+	 * @return true if the listener is registered, false otherwise
+	 */
+	public boolean contains(final Object listener) {
+		return indexOf(registrations.get(), listener) != -1;
+	}
+
+	/**
+	 * @return the number of registered listeners
+	 */
+	public int size() {
+		return registrations.get().length;
+	}
+
+	/**
+	 * Returns the current registrations, in the order they were first registered. The array is a
+	 * snapshot which is never modified by the registry, so it can be iterated without
+	 * synchronisation even while listeners are being registered and unregistered. The caller must
+	 * not modify the array.
+	 *
+	 * @return the current registrations, not null
+	 */
+	public Registration<L>[] getRegistrations() {
+		return registrations.get();
+	}
+
+	/**
+	 * Returns a snapshot of the registered listeners. The returned set is unmodifiable and does
+	 * not reflect later changes to the registry.
+	 *
+	 * @return the registered listeners, not null
+	 */
+	public Set<L> getListeners() {
+		final Registration<L>[] current = registrations.get();
+		final Set<L> listeners = new LinkedHashSet<>(current.length);
+
+		for (final Registration<L> registration : current) {
+			listeners.add(registration.listener);
+		}
+
+		return Collections.unmodifiableSet(listeners);
+	}
+
+	/**
+	 * Finds the index of a listener in an array of registrations.
+	 *
+	 * @param registrations
+	 * 		the registrations to search, not null
+	 * @param listener
+	 * 		the listener to find, may be null
+	 * @return the index of the listener, -1 if it is not present
+	 */
+	private static int indexOf(final Registration<?>[] registrations, final Object listener) {
+		if (listener == null) {
+			return -1;
+		}
+
+		for (int i = 0; i < registrations.length; i++) {
+			if (registrations[i].listener.equals(listener)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * A listener and the executor it receives callbacks through.
+	 *
+	 * @param <L>
+	 * 		the type of listener
+	 */
+	public static final class Registration<L> {
+		/**
+		 * The registered listener.
+		 */
+		private final L listener;
+
+		/**
+		 * The executor to deliver callbacks through, null to deliver on the dispatching thread.
+		 */
+		private final Executor executor;
+
+		/**
+		 * Constructs a new Registration.
+		 *
+		 * @param listener
+		 * 		the registered listener, not null
+		 * @param executor
+		 * 		the executor to deliver callbacks through, may be null
+		 */
+		private Registration(final L listener, final Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+
+		/**
+		 * @return the registered listener, not null
+		 */
+		public L getListener() {
+			return listener;
+		}
+
+		/**
+		 * @return the executor to deliver callbacks through, null if callbacks should be delivered
+		 * on the dispatching thread
+		 */
+		public Executor getExecutor() {
+			return executor;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An Executor which runs tasks on the main thread by posting them to the main looper. Tasks are
+ * always posted, even when submitted from the main thread, so that they run in the order they
+ * were submitted. This class can be used to register data source listeners which must receive
+ * callbacks on the UI thread while the data source delivers events from a background thread.
+ */
+public final class MainThreadExecutor implements Executor {
+	/**
+	 * The single instance of this class.
+	 */
+	private static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+	/**
+	 * Posts tasks to the main thread.
+	 */
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * @return the single instance of this class, not null
+	 */
+	public static MainThreadExecutor getInstance() {
+		return INSTANCE;
+	}
+
+	private MainThreadExecutor() {}
+
+	/**
+	 * Runs the supplied task on the main thread.
+	 *
+	 * @param task
+	 * 		the task to run, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code task} is null
+	 */
+	@Override
+	public void execute(final Runnable task) {
+		checkNotNull(task, "task cannot be null.");
+		mainHandler.post(task);
+	}
+}
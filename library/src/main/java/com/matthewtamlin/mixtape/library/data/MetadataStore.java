@@ -0,0 +1,570 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import android.graphics.drawable.Drawable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the metadata of many songs in columns rather than in an object per song. Artist, album
+ * and album artist names repeat across many songs, so each distinct name is stored once in a
+ * dictionary and the rows refer to it by index. Titles are stored as ranges of a single shared
+ * char array, and the numeric fields are stored in primitive arrays. This avoids the headers,
+ * references and duplicated strings of a per-song object graph, so a large library uses a
+ * fraction of the memory.
+ * <p>
+ * Rows are presented as LibraryItems using {@link Row} flyweights, which only hold a reference to
+ * the store and the row index. Rows can be appended at any time, for example while a library is
+ * being scanned, and rows are never removed. This class is thread safe.
+ */
+public final class MetadataStore {
+	/**
+	 * The initial capacity of the columns, measured in rows.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Loads the artwork of rows, null if rows have no artwork.
+	 */
+	private final ArtworkLoader artworkLoader;
+
+	/**
+	 * The distinct artist names.
+	 */
+	private final StringPool artists = new StringPool();
+
+	/**
+	 * The distinct album names.
+	 */
+	private final StringPool albums = new StringPool();
+
+	/**
+	 * The distinct album artist names.
+	 */
+	private final StringPool albumArtists = new StringPool();
+
+	/**
+	 * The characters of every title, stored end to end.
+	 */
+	private char[] titleChars = new char[INITIAL_CAPACITY * 16];
+
+	/**
+	 * The number of characters used in the title array.
+	 */
+	private int titleCharCount = 0;
+
+	/**
+	 * The index of the first character of each title.
+	 */
+	private int[] titleStarts = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The length of each title, -1 if the title is null.
+	 */
+	private int[] titleLengths = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the artist of each row in the artist dictionary, -1 if the artist is null.
+	 */
+	private int[] artistIndices = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the album of each row in the album dictionary, -1 if the album is null.
+	 */
+	private int[] albumIndices = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the album artist of each row in the album artist dictionary, -1 if the album
+	 * artist is null.
+	 */
+	private int[] albumArtistIndices = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The track number of each row.
+	 */
+	private int[] trackNumbers = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The disc number of each row.
+	 */
+	private int[] discNumbers = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The year of each row.
+	 */
+	private int[] years = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The ID of each row.
+	 */
+	private long[] ids = new long[INITIAL_CAPACITY];
+
+	/**
+	 * The number of rows in the store.
+	 */
+	private int rowCount = 0;
+
+	/**
+	 * Constructs a new MetadataStore which provides no artwork.
+	 */
+	public MetadataStore() {
+		this(null);
+	}
+
+	/**
+	 * Constructs a new MetadataStore.
+	 *
+	 * @param artworkLoader
+	 * 		loads the artwork of rows, null if rows have no artwork
+	 */
+	public MetadataStore(final ArtworkLoader artworkLoader) {
+		this.artworkLoader = artworkLoader;
+	}
+
+	/**
+	 * Appends a row to the store.
+	 *
+	 * @param id
+	 * 		the ID of the row, {@link IdentifiableLibraryItem#NO_ID} if it has none
+	 * @param title
+	 * 		the title, may be null
+	 * @param artist
+	 * 		the artist, may be null
+	 * @param album
+	 * 		the album, may be null
+	 * @param albumArtist
+	 * 		the album artist, may be null
+	 * @param trackNumber
+	 * 		the track number, 0 if unknown
+	 * @param discNumber
+	 * 		the disc number, 0 if unknown
+	 * @param year
+	 * 		the year, 0 if unknown
+	 * @return the index of the new row
+	 */
+	public synchronized int addRow(final long id, final CharSequence title,
+			final CharSequence artist, final CharSequence album, final CharSequence albumArtist,
+			final int trackNumber, final int discNumber, final int year) {
+		ensureRowCapacity(rowCount + 1);
+
+		final int row = rowCount;
+
+		ids[row] = id;
+		trackNumbers[row] = trackNumber;
+		discNumbers[row] = discNumber;
+		years[row] = year;
+		artistIndices[row] = artists.intern(artist);
+		albumIndices[row] = albums.intern(album);
+		albumArtistIndices[row] = albumArtists.intern(albumArtist);
+
+		if (title == null) {
+			titleStarts[row] = titleCharCount;
+			titleLengths[row] = -1;
+		} else {
+			final int length = title.length();
+			ensureTitleCapacity(titleCharCount + length);
+
+			for (int i = 0; i < length; i++) {
+				titleChars[titleCharCount + i] = title.charAt(i);
+			}
+
+			titleStarts[row] = titleCharCount;
+			titleLengths[row] = length;
+			titleCharCount += length;
+		}
+
+		rowCount++;
+
+		return row;
+	}
+
+	/**
+	 * @return the number of rows in the store
+	 */
+	public synchronized int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns a flyweight LibraryItem which presents a row.
+	 *
+	 * @param row
+	 * 		the index of the row
+	 * @return the row, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public Row getRow(final int row) {
+		checkRow(row);
+		return new Row(this, row);
+	}
+
+	/**
+	 * Returns a list which presents the rows which are currently in the store. The list is a
+	 * {@link VirtualList}, so the flyweights are created when they are requested and the list uses
+	 * constant memory. Rows appended later are not included.
+	 *
+	 * @return the list of rows, not null
+	 */
+	public List<Row> asList() {
+		return new VirtualList<>(getRowCount(), new VirtualList.ItemFactory<Row>() {
+			@Override
+			public Row createItem(final int position) {
+				return new Row(MetadataStore.this, position);
+			}
+		});
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the ID of the row, {@link IdentifiableLibraryItem#NO_ID} if it has none
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized long getId(final int row) {
+		checkRow(row);
+		return ids[row];
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the title of the row, null if it has none
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized String getTitle(final int row) {
+		checkRow(row);
+
+		final int length = titleLengths[row];
+		return length == -1 ? null : new String(titleChars, titleStarts[row], length);
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the artist of the row, null if it has none
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized String getArtist(final int row) {
+		checkRow(row);
+		return artists.get(artistIndices[row]);
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the album of the row, null if it has none
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized String getAlbum(final int row) {
+		checkRow(row);
+		return albums.get(albumIndices[row]);
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the album artist of the row, null if it has none
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized String getAlbumArtist(final int row) {
+		checkRow(row);
+		return albumArtists.get(albumArtistIndices[row]);
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the track number of the row, 0 if unknown
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized int getTrackNumber(final int row) {
+		checkRow(row);
+		return trackNumbers[row];
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the disc number of the row, 0 if unknown
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized int getDiscNumber(final int row) {
+		checkRow(row);
+		return discNumbers[row];
+	}
+
+	/**
+	 * @param row
+	 * 		the index of the row
+	 * @return the year of the row, 0 if unknown
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	public synchronized int getYear(final int row) {
+		checkRow(row);
+		return years[row];
+	}
+
+	/**
+	 * Trims the columns to the number of rows in the store, releasing the spare capacity. This is
+	 * useful once a library has been completely scanned.
+	 */
+	public synchronized void trimToSize() {
+		titleChars = Arrays.copyOf(titleChars, titleCharCount);
+		titleStarts = Arrays.copyOf(titleStarts, rowCount);
+		titleLengths = Arrays.copyOf(titleLengths, rowCount);
+		artistIndices = Arrays.copyOf(artistIndices, rowCount);
+		albumIndices = Arrays.copyOf(albumIndices, rowCount);
+		albumArtistIndices = Arrays.copyOf(albumArtistIndices, rowCount);
+		trackNumbers = Arrays.copyOf(trackNumbers, rowCount);
+		discNumbers = Arrays.copyOf(discNumbers, rowCount);
+		years = Arrays.copyOf(years, rowCount);
+		ids = Arrays.copyOf(ids, rowCount);
+	}
+
+	/**
+	 * Checks that a row index is in bounds.
+	 *
+	 * @param row
+	 * 		the index to check
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code row} is out of bounds
+	 */
+	private void checkRow(final int row) {
+		final int count = getRowCount();
+
+		if (row < 0 || row >= count) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Row count: " + count);
+		}
+	}
+
+	/**
+	 * Grows the row columns if necessary. Capacity is doubled so that appends take amortised
+	 * constant time.
+	 *
+	 * @param minCapacity
+	 * 		the number of rows which must fit
+	 */
+	private void ensureRowCapacity(final int minCapacity) {
+		if (minCapacity <= ids.length) {
+			return;
+		}
+
+		final int capacity = Math.max(minCapacity, ids.length * 2);
+
+		titleStarts = Arrays.copyOf(titleStarts, capacity);
+		titleLengths = Arrays.copyOf(titleLengths, capacity);
+		artistIndices = Arrays.copyOf(artistIndices, capacity);
+		albumIndices = Arrays.copyOf(albumIndices, capacity);
+		albumArtistIndices = Arrays.copyOf(albumArtistIndices, capacity);
+		trackNumbers = Arrays.copyOf(trackNumbers, capacity);
+		discNumbers = Arrays.copyOf(discNumbers, capacity);
+		years = Arrays.copyOf(years, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+	}
+
+	/**
+	 * Grows the title array if necessary. Capacity is doubled so that appends take amortised
+	 * constant time.
+	 *
+	 * @param minCapacity
+	 * 		the number of characters which must fit
+	 */
+	private void ensureTitleCapacity(final int minCapacity) {
+		if (minCapacity > titleChars.length) {
+			titleChars = Arrays.copyOf(titleChars,
+					Math.max(minCapacity, Math.max(titleChars.length * 2, 16)));
+		}
+	}
+
+	/**
+	 * Loads the artwork of the rows in a MetadataStore. Artwork is not kept in the store, since it
+	 * is large and is already cached by the artwork binder.
+	 */
+	public interface ArtworkLoader {
+		/**
+		 * Loads the artwork of a row. This method may be long running.
+		 *
+		 * @param store
+		 * 		the store containing the row, not null
+		 * @param row
+		 * 		the index of the row
+		 * @param width
+		 * 		the desired width of the artwork, measured in pixels
+		 * @param height
+		 * 		the desired height of the artwork, measured in pixels
+		 * @return the artwork, null if none exists
+		 * @throws LibraryReadException
+		 * 		if the artwork cannot be accessed
+		 */
+		Drawable loadArtwork(MetadataStore store, int row, int width, int height)
+				throws LibraryReadException;
+	}
+
+	/**
+	 * A flyweight LibraryItem which presents a row of a MetadataStore. The title is the title of
+	 * the row, and the subtitle is the artist. Two rows are equal if they refer to the same row of
+	 * the same store.
+	 */
+	public static final class Row implements IdentifiableLibraryItem {
+		/**
+		 * The store containing the row.
+		 */
+		private final MetadataStore store;
+
+		/**
+		 * The index of the row.
+		 */
+		private final int row;
+
+		/**
+		 * Constructs a new Row.
+		 *
+		 * @param store
+		 * 		the store containing the row, not null
+		 * @param row
+		 * 		the index of the row
+		 */
+		private Row(final MetadataStore store, final int row) {
+			this.store = store;
+			this.row = row;
+		}
+
+		/**
+		 * @return the store containing the row, not null
+		 */
+		public MetadataStore getStore() {
+			return store;
+		}
+
+		/**
+		 * @return the index of the row
+		 */
+		public int getRowIndex() {
+			return row;
+		}
+
+		@Override
+		public long getItemId() {
+			return store.getId(row);
+		}
+
+		@Override
+		public CharSequence getTitle() {
+			return store.getTitle(row);
+		}
+
+		@Override
+		public CharSequence getSubtitle() {
+			return store.getArtist(row);
+		}
+
+		@Override
+		public Drawable getArtwork(final int width, final int height) throws LibraryReadException {
+			final ArtworkLoader loader = store.artworkLoader;
+			return loader == null ? null : loader.loadArtwork(store, row, width, height);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof Row)) {
+				return false;
+			} else {
+				final Row other = (Row) obj;
+				return store == other.store && row == other.row;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(store) + row;
+		}
+	}
+
+	/**
+	 * A dictionary which stores each distinct string once and refers to it by index.
+	 */
+	private static final class StringPool {
+		/**
+		 * Maps each string to its index.
+		 */
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		/**
+		 * The strings, in order of their indices.
+		 */
+		private String[] values = new String[16];
+
+		/**
+		 * The number of strings in the pool.
+		 */
+		private int size = 0;
+
+		/**
+		 * Adds a string to the pool if it is not already present.
+		 *
+		 * @param value
+		 * 		the string to add, may be null
+		 * @return the index of the string, -1 if the string is null
+		 */
+		public int intern(final CharSequence value) {
+			if (value == null) {
+				return -1;
+			}
+
+			final String key = value.toString();
+			final Integer existing = indices.get(key);
+
+			if (existing != null) {
+				return existing;
+			}
+
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+
+			values[size] = key;
+			indices.put(key, size);
+
+			return size++;
+		}
+
+		/**
+		 * @param index
+		 * 		the index of the string, -1 for null
+		 * @return the string at the index, null if the index is -1
+		 */
+		public String get(final int index) {
+			return index == -1 ? null : values[index];
+		}
+	}
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An immutable list which supports efficient modification by creating new versions. Each
+ * modification method returns a new list and leaves the original unchanged, but the two lists
+ * share all of the structure which was not affected by the modification. Adding, removing and
+ * replacing single elements is O(log n) in time and space, so a list can be updated and handed
+ * to another thread without copying it and without the risk of the recipient observing a change.
+ * <p>
+ * The elements are stored in a weight-balanced binary tree, ordered by index. Positional access is
+ * O(log n) and iteration is O(n). The mutator methods inherited from {@link java.util.List} throw
+ * UnsupportedOperationException. Null elements are permitted.
+ *
+ * @param <E>
+ * 		the type of elements in the list
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+	/**
+	 * The maximum allowed ratio between the weights of two sibling subtrees.
+	 */
+	private static final int DELTA = 3;
+
+	/**
+	 * Determines whether a single or double rotation is used when rebalancing.
+	 */
+	private static final int RATIO = 2;
+
+	/**
+	 * The empty list. Since the list is immutable, it can be shared regardless of element type.
+	 */
+	private static final PersistentList<Object> EMPTY = new PersistentList<>(null);
+
+	/**
+	 * The root of the tree, null if the list is empty.
+	 */
+	private final Node<E> root;
+
+	/**
+	 * Constructs a new PersistentList.
+	 *
+	 * @param root
+	 * 		the root of the tree, null for an empty list
+	 */
+	private PersistentList(final Node<E> root) {
+		this.root = root;
+	}
+
+	/**
+	 * @param <E>
+	 * 		the type of elements in the list
+	 * @return an empty list, not null
+	 */
+	@SuppressWarnings("unchecked") // The empty list contains no elements so it is safe to cast
+	public static <E> PersistentList<E> empty() {
+		return (PersistentList<E>) EMPTY;
+	}
+
+	/**
+	 * Creates a list containing the elements of the supplied collection, in iteration order. If the
+	 * supplied collection is already a PersistentList, it is returned directly. Otherwise this
+	 * method is O(n).
+	 *
+	 * @param elements
+	 * 		the elements to add to the list, not null
+	 * @param <E>
+	 * 		the type of elements in the list
+	 * @return the new list, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code elements} is null
+	 */
+	@SuppressWarnings("unchecked") // Only the elements are read, so it is safe to cast
+	public static <E> PersistentList<E> copyOf(final Collection<? extends E> elements) {
+		checkNotNull(elements, "elements cannot be null.");
+
+		if (elements instanceof PersistentList) {
+			return (PersistentList<E>) elements;
+		}
+
+		final Object[] array = elements.toArray();
+
+		return array.length == 0 ? PersistentList.<E>empty() :
+				new PersistentList<>(PersistentList.<E>build(array, 0, array.length));
+	}
+
+	@Override
+	public E get(final int index) {
+		checkIndex(index, size());
+
+		Node<E> node = root;
+		int remaining = index;
+
+		while (true) {
+			final int leftSize = size(node.left);
+
+			if (remaining < leftSize) {
+				node = node.left;
+			} else if (remaining > leftSize) {
+				remaining -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node.element;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new InOrderIterator<>(root);
+	}
+
+	/**
+	 * Returns a new list with the supplied element appended. This list is not modified.
+	 *
+	 * @param element
+	 * 		the element to append, may be null
+	 * @return the new list, not null
+	 */
+	public PersistentList<E> plus(final E element) {
+		return plus(size(), element);
+	}
+
+	/**
+	 * Returns a new list with the supplied element inserted at the supplied index. Elements at and
+	 * after the index are shifted up by one. This list is not modified.
+	 *
+	 * @param index
+	 * 		the index to insert at, between zero and the size of the list (inclusive)
+	 * @param element
+	 * 		the element to insert, may be null
+	 * @return the new list, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is less than zero or greater than the size of the list
+	 */
+	public PersistentList<E> plus(final int index, final E element) {
+		checkIndex(index, size() + 1);
+		return new PersistentList<>(insert(root, index, element));
+	}
+
+	/**
+	 * Returns a new list with the supplied elements inserted at the supplied index, in iteration
+	 * order. This list is not modified.
+	 *
+	 * @param index
+	 * 		the index to insert the first element at, between zero and the size of the list
+	 * 		(inclusive)
+	 * @param elements
+	 * 		the elements to insert, not null
+	 * @return the new list, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code elements} is null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is less than zero or greater than the size of the list
+	 */
+	public PersistentList<E> plusAll(final int index, final Collection<? extends E> elements) {
+		checkNotNull(elements, "elements cannot be null.");
+		checkIndex(index, size() + 1);
+
+		Node<E> newRoot = root;
+		int insertionIndex = index;
+
+		for (final E element : elements) {
+			newRoot = insert(newRoot, insertionIndex++, element);
+		}
+
+		return newRoot == root ? this : new PersistentList<>(newRoot);
+	}
+
+	/**
+	 * Returns a new list with the element at the supplied index removed. Elements after the index
+	 * are shifted down by one. This list is not modified.
+	 *
+	 * @param index
+	 * 		the index of the element to remove
+	 * @return the new list, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is out of bounds
+	 */
+	public PersistentList<E> minus(final int index) {
+		checkIndex(index, size());
+		return new PersistentList<>(remove(root, index));
+	}
+
+	/**
+	 * Returns a new list with the elements in the supplied range removed. This list is not
+	 * modified.
+	 *
+	 * @param fromIndex
+	 * 		the index of the first element to remove
+	 * @param toIndex
+	 * 		the index after the last element to remove
+	 * @return the new list, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if the range is out of bounds, or {@code fromIndex} is greater than {@code toIndex}
+	 */
+	public PersistentList<E> minusRange(final int fromIndex, final int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Invalid range [" + fromIndex + ", " + toIndex +
+					") for size " + size() + ".");
+		}
+
+		Node<E> newRoot = root;
+
+		for (int i = fromIndex; i < toIndex; i++) {
+			newRoot = remove(newRoot, fromIndex);
+		}
+
+		return newRoot == root ? this : new PersistentList<>(newRoot);
+	}
+
+	/**
+	 * Returns a new list with the element at the supplied index replaced. This list is not
+	 * modified.
+	 *
+	 * @param index
+	 * 		the index of the element to replace
+	 * @param element
+	 * 		the new element, may be null
+	 * @return the new list, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is out of bounds
+	 */
+	public PersistentList<E> with(final int index, final E element) {
+		checkIndex(index, size());
+		return new PersistentList<>(replace(root, index, element));
+	}
+
+	/**
+	 * Checks that an index is between zero (inclusive) and a limit (exclusive).
+	 *
+	 * @param index
+	 * 		the index to check
+	 * @param limit
+	 * 		the exclusive upper bound
+	 * @throws IndexOutOfBoundsException
+	 * 		if the index is out of bounds
+	 */
+	private static void checkIndex(final int index, final int limit) {
+		if (index < 0 || index >= limit) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+		}
+	}
+
+	/**
+	 * @param node
+	 * 		a node, may be null
+	 * @return the number of elements in the subtree rooted at the node
+	 */
+	private static int size(final Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Builds a perfectly balanced tree from a range of an array.
+	 *
+	 * @param elements
+	 * 		the array of elements, not null
+	 * @param from
+	 * 		the index of the first element to include
+	 * @param to
+	 * 		the index after the last element to include
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the tree, null if the range is empty
+	 */
+	@SuppressWarnings("unchecked") // The array only contains elements of type E
+	private static <E> Node<E> build(final Object[] elements, final int from, final int to) {
+		if (from >= to) {
+			return null;
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		return new Node<>((E) elements[middle], PersistentList.<E>build(elements, from, middle),
+				PersistentList.<E>build(elements, middle + 1, to));
+	}
+
+	/**
+	 * Returns a copy of a subtree with an element inserted.
+	 *
+	 * @param node
+	 * 		the root of the subtree, may be null
+	 * @param index
+	 * 		the index to insert at, relative to the subtree
+	 * @param element
+	 * 		the element to insert
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the new subtree, not null
+	 */
+	private static <E> Node<E> insert(final Node<E> node, final int index, final E element) {
+		if (node == null) {
+			return new Node<>(element, null, null);
+		}
+
+		final int leftSize = size(node.left);
+
+		if (index <= leftSize) {
+			return balance(node.element, insert(node.left, index, element), node.right);
+		} else {
+			return balance(node.element, node.left,
+					insert(node.right, index - leftSize - 1, element));
+		}
+	}
+
+	/**
+	 * Returns a copy of a subtree with an element removed.
+	 *
+	 * @param node
+	 * 		the root of the subtree, not null
+	 * @param index
+	 * 		the index of the element to remove, relative to the subtree
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the new subtree, null if the subtree becomes empty
+	 */
+	private static <E> Node<E> remove(final Node<E> node, final int index) {
+		final int leftSize = size(node.left);
+
+		if (index < leftSize) {
+			return balance(node.element, remove(node.left, index), node.right);
+		} else if (index > leftSize) {
+			return balance(node.element, node.left, remove(node.right, index - leftSize - 1));
+		} else {
+			return glue(node.left, node.right);
+		}
+	}
+
+	/**
+	 * Joins two subtrees which were siblings before their parent was removed.
+	 *
+	 * @param left
+	 * 		the left subtree, may be null
+	 * @param right
+	 * 		the right subtree, may be null
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the joined subtree, null if both subtrees are empty
+	 */
+	private static <E> Node<E> glue(final Node<E> left, final Node<E> right) {
+		if (left == null) {
+			return right;
+		} else if (right == null) {
+			return left;
+		} else if (left.size > right.size) {
+			final E last = getLast(left);
+			return balance(last, remove(left, left.size - 1), right);
+		} else {
+			final E first = getFirst(right);
+			return balance(first, left, remove(right, 0));
+		}
+	}
+
+	/**
+	 * Returns a copy of a subtree with one element replaced. The shape of the tree is unchanged.
+	 *
+	 * @param node
+	 * 		the root of the subtree, not null
+	 * @param index
+	 * 		the index of the element to replace, relative to the subtree
+	 * @param element
+	 * 		the new element
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the new subtree, not null
+	 */
+	private static <E> Node<E> replace(final Node<E> node, final int index, final E element) {
+		final int leftSize = size(node.left);
+
+		if (index < leftSize) {
+			return new Node<>(node.element, replace(node.left, index, element), node.right);
+		} else if (index > leftSize) {
+			return new Node<>(node.element, node.left,
+					replace(node.right, index - leftSize - 1, element));
+		} else {
+			return new Node<>(element, node.left, node.right);
+		}
+	}
+
+	/**
+	 * Creates a node from an element and two subtrees, rotating if the subtrees are out of
+	 * balance. The subtrees must have been balanced before a single insertion or removal.
+	 *
+	 * @param element
+	 * 		the element of the new node
+	 * @param left
+	 * 		the left subtree, may be null
+	 * @param right
+	 * 		the right subtree, may be null
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the root of the balanced subtree, not null
+	 */
+	private static <E> Node<E> balance(final E element, final Node<E> left, final Node<E> right) {
+		final int leftWeight = size(left) + 1;
+		final int rightWeight = size(right) + 1;
+
+		if (rightWeight > DELTA * leftWeight) {
+			final Node<E> inner = right.left;
+			final Node<E> outer = right.right;
+
+			if (size(inner) + 1 < RATIO * (size(outer) + 1)) {
+				return new Node<>(right.element, new Node<>(element, left, inner), outer);
+			} else {
+				return new Node<>(inner.element, new Node<>(element, left, inner.left),
+						new Node<>(right.element, inner.right, outer));
+			}
+		} else if (leftWeight > DELTA * rightWeight) {
+			final Node<E> inner = left.right;
+			final Node<E> outer = left.left;
+
+			if (size(inner) + 1 < RATIO * (size(outer) + 1)) {
+				return new Node<>(left.element, outer, new Node<>(element, inner, right));
+			} else {
+				return new Node<>(inner.element, new Node<>(left.element, outer, inner.left),
+						new Node<>(element, inner.right, right));
+			}
+		} else {
+			return new Node<>(element, left, right);
+		}
+	}
+
+	/**
+	 * @param node
+	 * 		the root of a subtree, not null
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the first element of the subtree
+	 */
+	private static <E> E getFirst(final Node<E> node) {
+		Node<E> current = node;
+
+		while (current.left != null) {
+			current = current.left;
+		}
+
+		return current.element;
+	}
+
+	/**
+	 * @param node
+	 * 		the root of a subtree, not null
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 * @return the last element of the subtree
+	 */
+	private static <E> E getLast(final Node<E> node) {
+		Node<E> current = node;
+
+		while (current.right != null) {
+			current = current.right;
+		}
+
+		return current.element;
+	}
+
+	/**
+	 * An immutable node of the tree.
+	 *
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 */
+	private static final class Node<E> {
+		/**
+		 * The element at this node.
+		 */
+		private final E element;
+
+		/**
+		 * The subtree containing the elements before this element, null if there are none.
+		 */
+		private final Node<E> left;
+
+		/**
+		 * The subtree containing the elements after this element, null if there are none.
+		 */
+		private final Node<E> right;
+
+		/**
+		 * The number of elements in the subtree rooted at this node.
+		 */
+		private final int size;
+
+		/**
+		 * Constructs a new Node.
+		 *
+		 * @param element
+		 * 		the element at the node
+		 * @param left
+		 * 		the left subtree, may be null
+		 * @param right
+		 * 		the right subtree, may be null
+		 */
+		private Node(final E element, final Node<E> left, final Node<E> right) {
+			this.element = element;
+			this.left = left;
+			this.right = right;
+			this.size = size(left) + size(right) + 1;
+		}
+	}
+
+	/**
+	 * Iterates over the elements of a tree in order, using a stack of the nodes still to visit.
+	 *
+	 * @param <E>
+	 * 		the type of elements in the tree
+	 */
+	private static final class InOrderIterator<E> implements Iterator<E> {
+		/**
+		 * The nodes whose elements and right subtrees have not been visited yet.
+		 */
+		private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+		/**
+		 * Constructs a new InOrderIterator.
+		 *
+		 * @param root
+		 * 		the root of the tree to iterate over, may be null
+		 */
+		private InOrderIterator(final Node<E> root) {
+			pushLeftSpine(root);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public E next() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+
+			final Node<E> node = stack.pop();
+			pushLeftSpine(node.right);
+
+			return node.element;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("PersistentList is immutable.");
+		}
+
+		/**
+		 * Pushes a node and all of its left descendants onto the stack.
+		 *
+		 * @param node
+		 * 		the node to start from, may be null
+		 */
+		private void pushLeftSpine(final Node<E> node) {
+			Node<E> current = node;
+
+			while (current != null) {
+				stack.push(current);
+				current = current.left;
+			}
+		}
+	}
+}
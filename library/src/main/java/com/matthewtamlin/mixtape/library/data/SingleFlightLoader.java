@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource.DataLoadedListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Coordinates the loading of data for a data source so that at most one load runs at a time.
+ * Requests made while a load is in flight join that load, and every caller receives the single
+ * result. A forced refresh requested while a load is in flight cannot use the result of the
+ * current load, so it is queued to run once the current load finishes. Any number of forced
+ * refreshes requested during the same load are merged into a single follow-up load.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <D>
+ * 		the type of data loaded
+ */
+public class SingleFlightLoader<D> {
+	/**
+	 * The data source to report as the source of the loaded data.
+	 */
+	private final BaseDataSource<D> source;
+
+	/**
+	 * Performs the actual loading.
+	 */
+	private final LoadTask<D> task;
+
+	/**
+	 * The executor to run the load task on.
+	 */
+	private final Executor loadExecutor;
+
+	/**
+	 * The executor to deliver results to the callbacks on.
+	 */
+	private final Executor callbackExecutor;
+
+	/**
+	 * Synchronises access to the load state.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Whether or not a load is currently running. Must only be accessed while holding the lock.
+	 */
+	private boolean loadInFlight = false;
+
+	/**
+	 * The callbacks waiting for the current load. Must only be accessed while holding the lock.
+	 */
+	private List<DataLoadedListener<D>> currentCallbacks = new ArrayList<>();
+
+	/**
+	 * Whether or not a forced refresh is queued to run after the current load. Must only be
+	 * accessed while holding the lock.
+	 */
+	private boolean followUpQueued = false;
+
+	/**
+	 * The callbacks waiting for the queued forced refresh. Must only be accessed while holding the
+	 * lock.
+	 */
+	private List<DataLoadedListener<D>> followUpCallbacks = new ArrayList<>();
+
+	/**
+	 * Constructs a new SingleFlightLoader.
+	 *
+	 * @param source
+	 * 		the data source to report as the source of the loaded data, not null
+	 * @param task
+	 * 		the task which performs the actual loading, not null
+	 * @param loadExecutor
+	 * 		the executor to run the task on, not null
+	 * @param callbackExecutor
+	 * 		the executor to deliver results to callbacks on, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code source} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code task} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code loadExecutor} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code callbackExecutor} is null
+	 */
+	public SingleFlightLoader(final BaseDataSource<D> source, final LoadTask<D> task,
+			final Executor loadExecutor, final Executor callbackExecutor) {
+		this.source = checkNotNull(source, "source cannot be null.");
+		this.task = checkNotNull(task, "task cannot be null.");
+		this.loadExecutor = checkNotNull(loadExecutor, "loadExecutor cannot be null.");
+		this.callbackExecutor = checkNotNull(callbackExecutor, "callbackExecutor cannot be null.");
+	}
+
+	/**
+	 * Requests data. If no load is in flight, a new load is started. If a load is in flight, the
+	 * request joins it, unless {@code forceRefresh} is true in which case the request joins the
+	 * single forced refresh queued to run after the current load.
+	 *
+	 * @param forceRefresh
+	 * 		true to request invalidation of cached data, false to use the default behaviour
+	 * @param callback
+	 * 		the callback to deliver the result to, null to ignore; a callback which is already
+	 * 		waiting for the same load is only notified once
+	 */
+	public void load(final boolean forceRefresh, final DataLoadedListener<D> callback) {
+		synchronized (lock) {
+			if (!loadInFlight) {
+				addCallback(currentCallbacks, callback);
+				startLoad(forceRefresh);
+			} else if (forceRefresh) {
+				followUpQueued = true;
+				addCallback(followUpCallbacks, callback);
+			} else {
+				addCallback(currentCallbacks, callback);
+			}
+		}
+	}
+
+	/**
+	 * @return true if a load is currently in flight, false otherwise
+	 */
+	public boolean isLoading() {
+		synchronized (lock) {
+			return loadInFlight;
+		}
+	}
+
+	/**
+	 * Starts a load on the load executor. Must only be called while holding the lock.
+	 *
+	 * @param forceRefresh
+	 * 		whether or not the load should invalidate cached data
+	 */
+	private void startLoad(final boolean forceRefresh) {
+		loadInFlight = true;
+
+		loadExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				D data = null;
+				boolean failed = false;
+
+				try {
+					data = task.load(forceRefresh);
+				} catch (final Exception e) {
+					failed = true;
+				}
+
+				finishLoad(data, failed);
+			}
+		});
+	}
+
+	/**
+	 * Delivers the result of the load which just finished, and starts the queued forced refresh if
+	 * there is one.
+	 *
+	 * @param data
+	 * 		the loaded data, may be null
+	 * @param failed
+	 * 		true if the load failed, false otherwise
+	 */
+	private void finishLoad(final D data, final boolean failed) {
+		final List<DataLoadedListener<D>> callbacks;
+
+		synchronized (lock) {
+			callbacks = currentCallbacks;
+			currentCallbacks = followUpCallbacks;
+			followUpCallbacks = new ArrayList<>();
+			loadInFlight = false;
+
+			if (followUpQueued) {
+				followUpQueued = false;
+				startLoad(true);
+			}
+		}
+
+		if (!callbacks.isEmpty()) {
+			callbackExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (final DataLoadedListener<D> callback : callbacks) {
+						if (failed) {
+							callback.onLoadDataFailed(source);
+						} else {
+							callback.onDataLoaded(source, data);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Adds a callback to a list of waiting callbacks, ignoring null and duplicates.
+	 *
+	 * @param callbacks
+	 * 		the list to add to, not null
+	 * @param callback
+	 * 		the callback to add, may be null
+	 */
+	private static <D> void addCallback(final List<DataLoadedListener<D>> callbacks,
+			final DataLoadedListener<D> callback) {
+		if (callback != null && !callbacks.contains(callback)) {
+			callbacks.add(callback);
+		}
+	}
+
+	/**
+	 * Performs the actual loading for a SingleFlightLoader.
+	 *
+	 * @param <D>
+	 * 		the type of data loaded
+	 */
+	public interface LoadTask<D> {
+		/**
+		 * Loads the data. This method is called on the load executor, and is never called
+		 * concurrently by the same loader.
+		 *
+		 * @param forceRefresh
+		 * 		true if cached data should be discarded, false to use the default behaviour
+		 * @return the loaded data, may be null
+		 * @throws Exception
+		 * 		if the data cannot be loaded, in which case the callbacks are notified of the
+		 * 		failure
+		 */
+		D load(boolean forceRefresh) throws Exception;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+
+/**
+ * A ListDataSource which publishes its data as immutable, versioned snapshots. Every item event is
+ * delivered together with the snapshot which reflects it, so a listener can show a list which is
+ * always consistent with the events it has received, even if the source is being modified on
+ * another thread.
+ *
+ * @param <D>
+ * 		the type of objects contained within the list
+ */
+public interface SnapshotListDataSource<D> extends ListDataSource<D> {
+	/**
+	 * Returns the snapshot which reflects every event delivered so far. During an event callback,
+	 * this is the snapshot which reflects that event. This method must only be called on the thread
+	 * which events are delivered on.
+	 *
+	 * @return the published snapshot, not null
+	 */
+	ListSnapshot<D> getPublishedSnapshot();
+}
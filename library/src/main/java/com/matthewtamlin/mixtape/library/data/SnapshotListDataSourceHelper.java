@@ -0,0 +1,357 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Partial implementation of the SnapshotListDataSource interface. Subclasses modify the data using
+ * the protected methods of this class rather than by modifying a list directly. Each modification
+ * creates a new immutable snapshot in O(log n) time by sharing structure with the previous one,
+ * and then delivers the snapshot and the matching event using the delivery executor. This means
+ * the data can be modified on any thread, while listeners only ever observe snapshots which match
+ * the events they have received.
+ * <p>
+ * By default events are delivered on the main thread using {@link MainThreadExecutor}. Listeners
+ * which need {@link #getPublishedSnapshot()} to match their events should be registered without
+ * an executor, so that they receive events on the delivery thread.
+ *
+ * @param <D>
+ * 		the type of objects contained within the list
+ */
+public abstract class SnapshotListDataSourceHelper<D> extends ListDataSourceHelper<D> implements
+		SnapshotListDataSource<D> {
+	/**
+	 * Delivers snapshots and events to the listeners, in order.
+	 */
+	private final Executor deliveryExecutor;
+
+	/**
+	 * Synchronises modifications so that snapshots are created and delivered in order.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The most recently created snapshot. Must only be accessed while holding the lock.
+	 */
+	private ListSnapshot<D> latest = new ListSnapshot<>(0, PersistentList.<D>empty());
+
+	/**
+	 * The snapshot which reflects every event delivered so far.
+	 */
+	private volatile ListSnapshot<D> published = latest;
+
+	/**
+	 * Constructs a new SnapshotListDataSourceHelper which delivers events on the main thread.
+	 */
+	public SnapshotListDataSourceHelper() {
+		this(MainThreadExecutor.getInstance());
+	}
+
+	/**
+	 * Constructs a new SnapshotListDataSourceHelper which delivers events using the supplied
+	 * executor. The executor must run tasks one at a time, in the order they were submitted.
+	 *
+	 * @param deliveryExecutor
+	 * 		the executor to deliver events with, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code deliveryExecutor} is null
+	 */
+	public SnapshotListDataSourceHelper(final Executor deliveryExecutor) {
+		this.deliveryExecutor = checkNotNull(deliveryExecutor, "deliveryExecutor cannot be null.");
+	}
+
+	@Override
+	public ListSnapshot<D> getPublishedSnapshot() {
+		return published;
+	}
+
+	/**
+	 * Returns the most recently created snapshot, which may reflect modifications which have not
+	 * been delivered yet. This method may be called from any thread.
+	 *
+	 * @return the latest snapshot, not null
+	 */
+	public ListSnapshot<D> getLatestSnapshot() {
+		synchronized (lock) {
+			return latest;
+		}
+	}
+
+	/**
+	 * Replaces the items without delivering an event. This is intended for publishing the result
+	 * of a load, which is delivered to the callback instead. This method may be called from any
+	 * thread.
+	 *
+	 * @param items
+	 * 		the new items, not null
+	 * @return the new snapshot, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	protected ListSnapshot<D> publishItems(final List<D> items) {
+		checkNotNull(items, "items cannot be null.");
+
+		synchronized (lock) {
+			return publish(PersistentList.copyOf(items), null);
+		}
+	}
+
+	/**
+	 * Replaces the items and delivers a data replaced event. This method may be called from any
+	 * thread.
+	 *
+	 * @param items
+	 * 		the new items, not null
+	 * @return the new snapshot, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 */
+	protected ListSnapshot<D> replaceItems(final List<D> items) {
+		checkNotNull(items, "items cannot be null.");
+
+		synchronized (lock) {
+			final PersistentList<D> oldItems = latest.getItems();
+			final PersistentList<D> newItems = PersistentList.copyOf(items);
+
+			return publish(newItems, new Runnable() {
+				@Override
+				public void run() {
+					deliverDataReplaced(oldItems, newItems);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Inserts an item and delivers an item added event. This method may be called from any thread.
+	 *
+	 * @param index
+	 * 		the index to insert the item at
+	 * @param item
+	 * 		the item to insert, may be null
+	 * @return the new snapshot, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is less than zero or greater than the number of items
+	 */
+	protected ListSnapshot<D> addItem(final int index, final D item) {
+		synchronized (lock) {
+			return publish(latest.getItems().plus(index, item), new Runnable() {
+				@Override
+				public void run() {
+					deliverItemAdded(item, index);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Inserts a contiguous range of items and delivers an item range added event. If no items are
+	 * supplied, no snapshot is created. This method may be called from any thread.
+	 *
+	 * @param index
+	 * 		the index to insert the first item at
+	 * @param items
+	 * 		the items to insert, not null
+	 * @return the new snapshot, or the latest snapshot if no items were supplied, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code items} is null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is less than zero or greater than the number of items
+	 */
+	protected ListSnapshot<D> addItems(final int index, final List<D> items) {
+		checkNotNull(items, "items cannot be null.");
+
+		synchronized (lock) {
+			final PersistentList<D> added = PersistentList.copyOf(items);
+
+			final PersistentList<D> newItems = latest.getItems().plusAll(index, added);
+
+			if (added.isEmpty()) {
+				return latest;
+			}
+
+			return publish(newItems, new Runnable() {
+				@Override
+				public void run() {
+					deliverItemsAdded(added, index);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Removes the item at an index and delivers an item removed event. This method may be called
+	 * from any thread.
+	 *
+	 * @param index
+	 * 		the index of the item to remove
+	 * @return the new snapshot, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is out of bounds
+	 */
+	protected ListSnapshot<D> removeItemAt(final int index) {
+		synchronized (lock) {
+			final D removed = latest.getItems().get(index);
+
+			return publish(latest.getItems().minus(index), new Runnable() {
+				@Override
+				public void run() {
+					deliverItemRemoved(removed, index);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Removes the first occurrence of an item and delivers an item removed event. If the item is
+	 * not present, no snapshot is created. This method may be called from any thread.
+	 *
+	 * @param item
+	 * 		the item to remove, may be null
+	 * @return true if the item was removed, false if it was not present
+	 */
+	protected boolean removeItem(final Object item) {
+		synchronized (lock) {
+			final int index = latest.getItems().indexOf(item);
+
+			if (index == -1) {
+				return false;
+			}
+
+			removeItemAt(index);
+			return true;
+		}
+	}
+
+	/**
+	 * Removes a contiguous range of items and delivers an item range removed event. If the range is
+	 * empty, no snapshot is created. This method may be called from any thread.
+	 *
+	 * @param fromIndex
+	 * 		the index of the first item to remove
+	 * @param toIndex
+	 * 		the index after the last item to remove
+	 * @return the new snapshot, or the latest snapshot if the range was empty, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if the range is out of bounds, or {@code fromIndex} is greater than {@code toIndex}
+	 */
+	protected ListSnapshot<D> removeItems(final int fromIndex, final int toIndex) {
+		synchronized (lock) {
+			final PersistentList<D> items = latest.getItems();
+			final PersistentList<D> remaining = items.minusRange(fromIndex, toIndex);
+
+			if (fromIndex == toIndex) {
+				return latest;
+			}
+
+			final PersistentList<D> removed = PersistentList.copyOf(
+					items.subList(fromIndex, toIndex));
+
+			return publish(remaining, new Runnable() {
+				@Override
+				public void run() {
+					deliverItemsRemoved(removed, fromIndex);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Replaces the item at an index and delivers an item modified event. This method may be
+	 * called from any thread.
+	 *
+	 * @param index
+	 * 		the index of the item to replace
+	 * @param item
+	 * 		the new item, may be null
+	 * @param changedFields
+	 * 		the fields which changed, as a combination of the flags defined in {@link
+	 * 		LibraryItemFields}
+	 * @return the new snapshot, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if {@code index} is out of bounds
+	 */
+	protected ListSnapshot<D> setItem(final int index, final D item, final int changedFields) {
+		synchronized (lock) {
+			return publish(latest.getItems().with(index, item), new Runnable() {
+				@Override
+				public void run() {
+					deliverItemModified(item, index, changedFields);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Moves an item and delivers an item moved event. This method may be called from any thread.
+	 *
+	 * @param initialIndex
+	 * 		the index of the item before being moved
+	 * @param finalIndex
+	 * 		the index of the item after being moved
+	 * @return the new snapshot, not null
+	 * @throws IndexOutOfBoundsException
+	 * 		if either index is out of bounds
+	 */
+	protected ListSnapshot<D> moveItem(final int initialIndex, final int finalIndex) {
+		synchronized (lock) {
+			final PersistentList<D> items = latest.getItems();
+			final D moved = items.get(initialIndex);
+			final PersistentList<D> withoutItem = items.minus(initialIndex);
+
+			return publish(withoutItem.plus(finalIndex, moved), new Runnable() {
+				@Override
+				public void run() {
+					deliverItemMoved(moved, initialIndex, finalIndex);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Creates a new snapshot and schedules it to be published, followed by its event. Must only be
+	 * called while holding the lock, so that the deliveries are submitted in version order.
+	 *
+	 * @param items
+	 * 		the items of the new snapshot, not null
+	 * @param event
+	 * 		delivers the event which matches the snapshot when run, null if there is no event
+	 * @return the new snapshot, not null
+	 */
+	private ListSnapshot<D> publish(final PersistentList<D> items, final Runnable event) {
+		final ListSnapshot<D> snapshot = new ListSnapshot<>(latest.getVersion() + 1, items);
+		latest = snapshot;
+
+		deliveryExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				published = snapshot;
+
+				if (event != null) {
+					event.run();
+				}
+			}
+		});
+
+		return snapshot;
+	}
+}
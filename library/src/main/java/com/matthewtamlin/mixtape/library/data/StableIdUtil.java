@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.data;
+
+/**
+ * Utilities for working with the stable IDs of LibraryItems.
+ */
+public abstract class StableIdUtil {
+	/**
+	 * The offset basis of the 64-bit FNV-1a hash.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/**
+	 * The prime of the 64-bit FNV-1a hash.
+	 */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Returns the stable ID of the supplied item.
+	 *
+	 * @param item
+	 * 		the item to get the ID of, may be null
+	 * @return the ID of the item, or {@link IdentifiableLibraryItem#NO_ID} if the item is null or does
+	 * not implement IdentifiableLibraryItem
+	 */
+	public static long getItemId(final LibraryItem item) {
+		if (item instanceof IdentifiableLibraryItem) {
+			return ((IdentifiableLibraryItem) item).getItemId();
+		} else {
+			return IdentifiableLibraryItem.NO_ID;
+		}
+	}
+
+	/**
+	 * Returns the key to use when caching data for the supplied item in an object-keyed map. If
+	 * the item has a stable ID then the boxed ID is used, otherwise the item itself is used. Boxing
+	 * allocates for most IDs, so caches which are consulted on every bind should key entries by
+	 * {@link #getItemId(LibraryItem)} directly instead.
+	 *
+	 * @param item
+	 * 		the item to get the key for, not null
+	 * @return the cache key, not null
+	 */
+	public static Object getCacheKey(final LibraryItem item) {
+		final long id = getItemId(item);
+		return id == IdentifiableLibraryItem.NO_ID ? item : Long.valueOf(id);
+	}
+
+	/**
+	 * Computes a 64-bit hash of the supplied characters. The hash is stable across processes and
+	 * devices, which makes it suitable for deriving IDs from persistent values such as file paths.
+	 * The result is never {@link IdentifiableLibraryItem#NO_ID}.
+	 *
+	 * @param chars
+	 * 		the characters to hash, null allowed
+	 * @return the hash
+	 */
+	public static long hash64(final CharSequence chars) {
+		long hash = FNV_OFFSET_BASIS;
+
+		if (chars != null) {
+			for (int i = 0; i < chars.length(); i++) {
+				final char c = chars.charAt(i);
+
+				hash ^= c & 0xFF;
+				hash *= FNV_PRIME;
+				hash ^= c >>> 8;
+				hash *= FNV_PRIME;
+			}
+		}
+
+		return hash == IdentifiableLibraryItem.NO_ID ? 0 : hash;
+	}
+}
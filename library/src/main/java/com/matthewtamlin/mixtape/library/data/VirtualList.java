@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.mixtape.library.data;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An immutable list which creates its items on demand rather than holding them all in memory. The
+ * list only stores its size, and each item is created by an {@link ItemFactory} the first time it
+ * is requested. The most recently used items are kept in a bounded window so that items which are
+ * repeatedly bound are not recreated, and older items are released so that memory stays constant
+ * regardless of the size of the list.
+ * <p>
+ * Since items may be recreated, the factory must return equal items for the same position, and
+ * item identity should not be relied upon. Item creation should be cheap (for example wrapping an
+ * entry from a compact index), because it happens on the thread which reads the list. The factory
+ * is called without holding any locks, so it may be called concurrently for the same position and
+ * only one of the results is kept. Operations which visit every element, such as iteration or
+ * {@code indexOf}, create every item and should be avoided. {@link
+ * com.matthewtamlin.mixtape.library.mixtape_body.DirectBodyPresenter} recognises virtual lists
+ * and only accesses the positions being displayed. {@link MetadataStore#asList()} presents its
+ * rows as a virtual list. This class is thread safe.
+ *
+ * @param <D>
+ * 		the type of items in the list
+ */
+public final class VirtualList<D> extends AbstractList<D> implements RandomAccess {
+	/**
+	 * The default maximum number of items to keep in the window.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 200;
+
+	/**
+	 * The number of items in the list.
+	 */
+	private final int size;
+
+	/**
+	 * Creates the items on demand.
+	 */
+	private final ItemFactory<D> factory;
+
+	/**
+	 * The most recently used items, keyed by position and ordered from least to most recently
+	 * used. Must only be accessed while synchronized on the window.
+	 */
+	private final Map<Integer, D> window;
+
+	/**
+	 * Constructs a new VirtualList with the default window size.
+	 *
+	 * @param size
+	 * 		the number of items in the list, not less than zero
+	 * @param factory
+	 * 		creates the items on demand, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code size} is less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code factory} is null
+	 */
+	public VirtualList(final int size, final ItemFactory<D> factory) {
+		this(size, DEFAULT_WINDOW_SIZE, factory);
+	}
+
+	/**
+	 * Constructs a new VirtualList. The window should be larger than the number of items which
+	 * can be displayed at once, otherwise items will be recreated while scrolling.
+	 *
+	 * @param size
+	 * 		the number of items in the list, not less than zero
+	 * @param windowSize
+	 * 		the maximum number of items to keep in memory, greater than zero
+	 * @param factory
+	 * 		creates the items on demand, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code size} is less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code windowSize} is not greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code factory} is null
+	 */
+	public VirtualList(final int size, final int windowSize, final ItemFactory<D> factory) {
+		this.size = checkGreaterThanOrEqualTo(size, 0, "size cannot be less than 0.");
+		checkGreaterThan(windowSize, 0, "windowSize must be greater than 0.");
+		this.factory = checkNotNull(factory, "factory cannot be null.");
+
+		window = new LinkedHashMap<Integer, D>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, D> eldest) {
+				return size() > windowSize;
+			}
+		};
+	}
+
+	@Override
+	public D get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		final Integer key = index;
+
+		synchronized (window) {
+			if (window.containsKey(key)) {
+				return window.get(key);
+			}
+		}
+
+		// Create the item without holding the lock so that a slow factory doesn't block other reads
+		final D item = factory.createItem(index);
+
+		synchronized (window) {
+			// Another thread may have created the same item in the meantime
+			if (window.containsKey(key)) {
+				return window.get(key);
+			}
+
+			window.put(key, item);
+		}
+
+		return item;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of items currently held in memory
+	 */
+	public int getMaterializedCount() {
+		synchronized (window) {
+			return window.size();
+		}
+	}
+
+	/**
+	 * Creates the items of a VirtualList on demand.
+	 *
+	 * @param <D>
+	 * 		the type of items created
+	 */
+	public interface ItemFactory<D> {
+		/**
+		 * Creates the item at a position. This method may be called more than once for the same
+		 * position, and must return equal items each time.
+		 *
+		 * @param position
+		 * 		the position of the item, in bounds
+		 * @return the item, may be null
+		 */
+		D createItem(int position);
+	}
+}
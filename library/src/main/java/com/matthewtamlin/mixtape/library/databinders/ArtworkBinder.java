@@ -19,18 +19,35 @@ package com.matthewtamlin.mixtape.library.databinders;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.support.v4.util.LruCache;
 import android.widget.ImageView;
 
+import com.matthewtamlin.android_utilities.library.helpers.BitmapEfficiencyHelper;
 import com.matthewtamlin.java_utilities.testing.Tested;
+import com.matthewtamlin.mixtape.library.caching.CompressedArtworkTier;
+import com.matthewtamlin.mixtape.library.caching.CompressedArtworkTier.CompressedArtwork;
+import com.matthewtamlin.mixtape.library.caching.FingerprintUtil;
+import com.matthewtamlin.mixtape.library.caching.ItemCache;
+import com.matthewtamlin.mixtape.library.caching.LruItemCache;
+import com.matthewtamlin.mixtape.library.caching.SharedArtworkPool;
+import com.matthewtamlin.mixtape.library.caching.ThumbnailAtlas;
+import com.matthewtamlin.mixtape.library.caching.TinyLfuItemCache;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
+import com.matthewtamlin.mixtape.library.data.EncodedArtworkItem;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.WeakHashMap;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
@@ -38,6 +55,24 @@ import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull
  * Binds artwork data from LibraryItems to ImageViews. Data is cached as it is loaded to improve
  * future performance, and asynchronous processing is only used if data is not already cached. By
  * default a fade-in effect is used when artwork is bound, but this can be disabled if desired.
+ * <p>
+ * If a SharedArtworkPool is set, the artwork of EncodedArtworkItems is deduplicated by content:
+ * items with identical encoded artwork share a single decoded Bitmap, each wrapped in its own
+ * Drawable. The pool must be registered as the removal listener of the cache so that the shared
+ * Bitmaps are released as entries are evicted.
+ * <p>
+ * If a CompressedArtworkTier is set, artwork which has been evicted from the cache is recovered
+ * from its compressed form instead of being reloaded from the item. Decoding a small compressed
+ * thumbnail is considerably cheaper than reading and decoding the original artwork.
+ * <p>
+ * If a ThumbnailAtlas is set, the artwork of items in the atlas is copied directly from the
+ * mapped atlas file, which is cheaper still since no decoding is needed.
+ * <p>
+ * Artwork which is already cached is bound immediately without creating a task. By default it is
+ * also bound without a fade, since fading in artwork which is already available makes scrolling
+ * through cached rows flicker. Earlier versions faded in all artwork, and {@link
+ * #setFadeInCachedArtwork(boolean)} restores that behaviour. The fade-in animator of each
+ * ImageView is created once and reused for every bind.
  */
 @Tested(testMethod = "automated")
 public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
@@ -47,21 +82,59 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 	 */
 	private final HashMap<ImageView, BinderTask> tasks = new HashMap<>();
 
+	/**
+	 * The fade-in animator of each ImageView artwork has been faded into. Views are weakly
+	 * referenced so that the binder does not retain views which are no longer used.
+	 */
+	private final WeakHashMap<ImageView, FadeAnimator> fadeAnimators = new WeakHashMap<>();
+
 	/**
 	 * Stores artwork to increase performance and efficiency.
 	 */
-	private final LruCache<LibraryItem, Drawable> cache;
+	private final ItemCache<Drawable> cache;
+
+	/**
+	 * The LruCache supplied at construction, null if the binder was constructed with an ItemCache.
+	 */
+	private final LruCache<LibraryItem, Drawable> lruCache;
 
 	/**
 	 * Supplies the default artwork.
 	 */
 	private final DisplayableDefaults defaults;
 
+	/**
+	 * Shares decoded artwork between items with identical encoded artwork, null if artwork is not
+	 * shared.
+	 */
+	private volatile SharedArtworkPool artworkPool;
+
+	/**
+	 * Holds compressed copies of loaded artwork, null if artwork is not retained in compressed
+	 * form.
+	 */
+	private volatile CompressedArtworkTier compressedTier;
+
+	/**
+	 * Holds prebuilt thumbnails, null if thumbnails are not read from an atlas.
+	 */
+	private volatile ThumbnailAtlas thumbnailAtlas;
+
+	/**
+	 * Batches the delivery of loaded artwork, null if artwork is delivered individually.
+	 */
+	private volatile FrameResultDispatcher resultDispatcher;
+
 	/**
 	 * The duration to use when transitioning artwork, measured in milliseconds.
 	 */
 	private int fadeInDurationMs = 300;
 
+	/**
+	 * Whether or not artwork which is already cached is faded in.
+	 */
+	private boolean fadeInCachedArtwork = false;
+
 	/**
 	 * The width to use when decoding artwork if the optimal dimension cannot be inferred from the
 	 * target ImageView.
@@ -75,7 +148,9 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 	private int fallbackDecodingHeight = 300;
 
 	/**
-	 * Constructs a new ArtworkBinder.
+	 * Constructs a new ArtworkBinder which stores artwork in an LruCache.
+	 * Entries are keyed by the items themselves. To key entries by stable ID instead, use {@link
+	 * #ArtworkBinder(ItemCache, DisplayableDefaults)}.
 	 *
 	 * @param cache
 	 * 		stores subtitles to increase performance and efficiency, not null
@@ -88,7 +163,27 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 	 */
 	public ArtworkBinder(final LruCache<LibraryItem, Drawable> cache,
 			final DisplayableDefaults defaults) {
+		this.lruCache = checkNotNull(cache, "cache cannot be null.");
+		this.cache = new LruItemCache<>(lruCache);
+		this.defaults = checkNotNull(defaults, "defaults cannot be null.");
+	}
+
+	/**
+	 * Constructs a new ArtworkBinder.
+	 *
+	 * @param cache
+	 * 		stores subtitles to increase performance and efficiency, not null
+	 * @param defaults
+	 * 		supplies the default subtitle, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code cache} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code defaults} is null
+	 */
+	public ArtworkBinder(final ItemCache<Drawable> cache,
+			final DisplayableDefaults defaults) {
 		this.cache = checkNotNull(cache, "cache cannot be null.");
+		this.lruCache = null;
 		this.defaults = checkNotNull(defaults, "defaults cannot be null.");
 	}
 
@@ -99,10 +194,19 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		// There should never be more than one task operating on the same ImageView concurrently
 		cancel(imageView);
 
-		// Create, register and start task
-		final BinderTask task = new BinderTask(imageView, data);
-		tasks.put(imageView, task);
-		task.execute();
+		// Cached artwork is bound directly, which avoids allocating a task for every bind
+		final Drawable cachedArtwork = data == null ? null : cache.get(data);
+
+		if (cachedArtwork != null && fadeInCachedArtwork && fadeInDurationMs > 0) {
+			fadeIn(imageView, null, cachedArtwork);
+		} else if (cachedArtwork != null) {
+			imageView.setImageDrawable(null); // Resets view
+			imageView.setImageDrawable(cachedArtwork);
+		} else {
+			final BinderTask task = new BinderTask(imageView, data);
+			tasks.put(imageView, task);
+			task.execute();
+		}
 	}
 
 	@Override
@@ -113,6 +217,12 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 			existingTask.cancel(false);
 			tasks.remove(imageView);
 		}
+
+		final FadeAnimator fadeAnimator = fadeAnimators.get(imageView);
+
+		if (fadeAnimator != null) {
+			fadeAnimator.cancel();
+		}
 	}
 
 	@Override
@@ -127,12 +237,24 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 				imageViewIterator.remove();
 			}
 		}
+
+		for (final FadeAnimator fadeAnimator : fadeAnimators.values()) {
+			fadeAnimator.cancel();
+		}
 	}
 
 	/**
-	 * @return the cache used to store artwork, not null
+	 * @return the LruCache used to store artwork, null if the binder was constructed with an
+	 * ItemCache
 	 */
 	public LruCache<LibraryItem, Drawable> getCache() {
+		return lruCache;
+	}
+
+	/**
+	 * @return the cache used to store artwork, not null
+	 */
+	public ItemCache<Drawable> getItemCache() {
 		return cache;
 	}
 
@@ -143,6 +265,94 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		return defaults;
 	}
 
+	/**
+	 * @return the pool used to share decoded artwork between items, null if there is none
+	 */
+	public SharedArtworkPool getArtworkPool() {
+		return artworkPool;
+	}
+
+	/**
+	 * Sets the pool to use when sharing decoded artwork between items with identical encoded
+	 * artwork. The pool is only used for items which implement EncodedArtworkItem. Every Drawable
+	 * loaded through the pool holds a reference to a pooled Bitmap, and the reference is only
+	 * released when the cache reports that the entry was removed. The binder must therefore use a
+	 * {@link TinyLfuItemCache}, and the pool must be registered as its removal listener. Other
+	 * caches do not report removals, so the pool would keep every Bitmap forever.
+	 *
+	 * @param artworkPool
+	 * 		the pool to use, null to disable sharing
+	 * @throws IllegalStateException
+	 * 		if {@code artworkPool} is not null and the binder does not use a TinyLfuItemCache
+	 */
+	public void setArtworkPool(final SharedArtworkPool artworkPool) {
+		if (artworkPool != null && !(cache instanceof TinyLfuItemCache)) {
+			throw new IllegalStateException("Sharing artwork requires a TinyLfuItemCache, since " +
+					"other caches do not report removals.");
+		}
+
+		this.artworkPool = artworkPool;
+	}
+
+	/**
+	 * @return the tier used to retain compressed artwork, null if there is none
+	 */
+	public CompressedArtworkTier getCompressedTier() {
+		return compressedTier;
+	}
+
+	/**
+	 * Sets the tier to use when retaining compressed artwork. Artwork is added to the tier whenever
+	 * it is loaded from an item, and the tier is consulted before an item is asked to load its
+	 * artwork. The tier may be shared between binders.
+	 *
+	 * @param compressedTier
+	 * 		the tier to use, null to disable compressed retention
+	 */
+	public void setCompressedTier(final CompressedArtworkTier compressedTier) {
+		this.compressedTier = compressedTier;
+	}
+
+	/**
+	 * @return the atlas used to read prebuilt thumbnails, null if there is none
+	 */
+	public ThumbnailAtlas getThumbnailAtlas() {
+		return thumbnailAtlas;
+	}
+
+	/**
+	 * Sets the atlas to read prebuilt thumbnails from. The atlas is consulted before any other
+	 * source, and is only used for items which have IDs. Thumbnails are never scaled up, so the
+	 * atlas is skipped when the artwork is decoded larger than the thumbnails of the atlas. The
+	 * atlas is not populated by this binder, and it is not used until it has been opened.
+	 *
+	 * @param thumbnailAtlas
+	 * 		the atlas to use, null to disable reading from an atlas
+	 */
+	public void setThumbnailAtlas(final ThumbnailAtlas thumbnailAtlas) {
+		this.thumbnailAtlas = thumbnailAtlas;
+	}
+
+	/**
+	 * @return the dispatcher used to deliver artwork to the main thread, null if artwork is delivered
+	 * individually
+	 */
+	public FrameResultDispatcher getResultDispatcher() {
+		return resultDispatcher;
+	}
+
+	/**
+	 * Sets the dispatcher to use when delivering loaded artwork to the main thread. When a dispatcher
+	 * is set, artwork is delivered in per-frame batches rather than individually, so that a burst of
+	 * completed tasks does not start dozens of fade-in animations in a single frame.
+	 *
+	 * @param resultDispatcher
+	 * 		the dispatcher to use, null to deliver artwork individually
+	 */
+	public void setResultDispatcher(final FrameResultDispatcher resultDispatcher) {
+		this.resultDispatcher = resultDispatcher;
+	}
+
 	/**
 	 * @return the duration used when fading in artwork
 	 */
@@ -160,6 +370,26 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		fadeInDurationMs = durationMs;
 	}
 
+	/**
+	 * @return true if artwork which is already cached is faded in, false if it is bound immediately
+	 */
+	public boolean getFadeInCachedArtwork() {
+		return fadeInCachedArtwork;
+	}
+
+	/**
+	 * Sets whether or not artwork which is already cached is faded in. Earlier versions faded in
+	 * all artwork, so enable this to keep that behaviour. Fading cached artwork reuses the
+	 * animator of the ImageView, but starting an animation is not free, so binds of cached items
+	 * are no longer allocation free when this is enabled. The default is false.
+	 *
+	 * @param fadeInCachedArtwork
+	 * 		true to fade in cached artwork, false to bind it immediately
+	 */
+	public void setFadeInCachedArtwork(final boolean fadeInCachedArtwork) {
+		this.fadeInCachedArtwork = fadeInCachedArtwork;
+	}
+
 	/**
 	 * @return the width dimension to use when decoding artwork if the optimal dimension cannot be
 	 * inferred from the target ImageView
@@ -206,6 +436,11 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		 */
 		private final LibraryItem data;
 
+		/**
+		 * The resources to use when creating Drawables for decoded artwork.
+		 */
+		private final Resources resources;
+
 		/**
 		 * The width to use when decoding the artwork, measured in pixels.
 		 */
@@ -216,6 +451,11 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		 */
 		private int imageHeight;
 
+		/**
+		 * Whether or not the result has been handed to the dispatcher for delivery.
+		 */
+		private volatile boolean dispatched = false;
+
 		/**
 		 * Constructs a new BinderTask.
 		 *
@@ -229,6 +469,7 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 		public BinderTask(final ImageView imageView, final LibraryItem data) {
 			this.imageView = checkNotNull(imageView, "imageView cannot be null");
 			this.data = data;
+			this.resources = imageView.getResources();
 		}
 
 		@Override
@@ -246,6 +487,33 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 
 		@Override
 		public Drawable doInBackground(final Void... params) {
+			final Drawable artwork = resolveArtwork();
+			final FrameResultDispatcher dispatcher = resultDispatcher;
+
+			// Hand the result to the dispatcher so that it is delivered in a batch with others
+			if (dispatcher != null && !isCancelled()) {
+				dispatched = true;
+
+				dispatcher.post(new Runnable() {
+					@Override
+					public void run() {
+						// The view may have been rebound since the result was posted
+						if (!isCancelled()) {
+							deliver(artwork);
+						}
+					}
+				});
+			}
+
+			return artwork;
+		}
+
+		/**
+		 * Gets the artwork of the data from the cache, or loads it if it is not cached.
+		 *
+		 * @return the artwork, null if the data is null or has no artwork
+		 */
+		private Drawable resolveArtwork() {
 			if (isCancelled() || data == null) {
 				return null;
 			}
@@ -254,7 +522,7 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 
 			if (cachedArtwork == null) {
 				try {
-					final Drawable loadedArtwork = data.getArtwork(imageWidth, imageHeight);
+					final Drawable loadedArtwork = loadArtwork();
 
 					if (loadedArtwork != null) {
 						cache.put(data, loadedArtwork);
@@ -269,48 +537,350 @@ public class ArtworkBinder implements DataBinder<LibraryItem, ImageView> {
 			}
 		}
 
+		/**
+		 * Loads the artwork of the data from the cheapest available source. The thumbnail atlas and
+		 * the compressed tier are consulted first, then the item itself is asked for its artwork,
+		 * either directly or through the shared pool.
+		 *
+		 * @return the artwork, null if the item has no artwork
+		 * @throws LibraryReadException
+		 * 		if the artwork cannot be read from the item
+		 */
+		private Drawable loadArtwork() throws LibraryReadException {
+			final SharedArtworkPool pool = artworkPool;
+			final CompressedArtworkTier tier = compressedTier;
+			final ThumbnailAtlas atlas = thumbnailAtlas;
+
+			if (atlas != null) {
+				final Drawable atlasArtwork = loadAtlasArtwork(atlas);
+
+				if (atlasArtwork != null) {
+					return atlasArtwork;
+				}
+			}
+
+			if (tier != null) {
+				final Drawable compressedArtwork = loadCompressedArtwork(tier, pool);
+
+				if (compressedArtwork != null) {
+					return compressedArtwork;
+				}
+			}
+
+			if (pool != null && data instanceof EncodedArtworkItem) {
+				return loadSharedArtwork((EncodedArtworkItem) data, pool, tier);
+			}
+
+			final Drawable artwork = data.getArtwork(imageWidth, imageHeight);
+
+			if (tier != null && artwork instanceof BitmapDrawable) {
+				final Bitmap bitmap = ((BitmapDrawable) artwork).getBitmap();
+
+				if (bitmap != null) {
+					tier.put(data, bitmap);
+				}
+			}
+
+			return artwork;
+		}
+
+		/**
+		 * Reads the artwork of the data from the supplied atlas. The pixels are copied straight
+		 * from the mapped atlas file into the Bitmap, without any intermediate copies.
+		 *
+		 * @param atlas
+		 * 		the atlas to read the artwork from, not null
+		 * @return the artwork, null if the atlas does not contain the artwork of the data or its
+		 * thumbnails are smaller than the decoding dimensions
+		 */
+		private Drawable loadAtlasArtwork(final ThumbnailAtlas atlas) {
+			// Stretching a thumbnail to fill a larger view would visibly blur it
+			if (imageWidth > atlas.getThumbnailWidth() ||
+					imageHeight > atlas.getThumbnailHeight()) {
+				return null;
+			}
+
+			final long itemId = StableIdUtil.getItemId(data);
+
+			if (itemId == IdentifiableLibraryItem.NO_ID) {
+				return null;
+			}
+
+			final ByteBuffer pixels = atlas.get(itemId);
+
+			if (pixels == null) {
+				return null;
+			}
+
+			final Bitmap bitmap = Bitmap.createBitmap(atlas.getThumbnailWidth(),
+					atlas.getThumbnailHeight(), Bitmap.Config.RGB_565);
+			bitmap.copyPixelsFromBuffer(pixels);
+
+			return new BitmapDrawable(resources, bitmap);
+		}
+
+		/**
+		 * Recovers the artwork of the data from the supplied tier. If the compressed artwork
+		 * carries a fingerprint and a pool is supplied, the decoded Bitmap is shared through the
+		 * pool so that deduplication is preserved.
+		 *
+		 * @param tier
+		 * 		the tier to recover the artwork from, not null
+		 * @param pool
+		 * 		the pool to share the artwork through, null to skip sharing
+		 * @return the artwork, null if the tier does not contain the artwork of the data
+		 */
+		private Drawable loadCompressedArtwork(final CompressedArtworkTier tier,
+				final SharedArtworkPool pool) {
+			final CompressedArtwork compressedArtwork = tier.get(data);
+
+			if (compressedArtwork == null) {
+				return null;
+			}
+
+			if (pool != null && compressedArtwork.hasFingerprint()) {
+				final long fingerprint = compressedArtwork.getFingerprint();
+				Bitmap bitmap = pool.acquire(fingerprint, imageWidth, imageHeight);
+
+				if (bitmap == null) {
+					final Bitmap decoded = compressedArtwork.decode();
+
+					if (decoded == null) {
+						return null;
+					}
+
+					bitmap = pool.share(fingerprint, imageWidth, imageHeight, decoded);
+				}
+
+				return new BitmapDrawable(resources, bitmap);
+			}
+
+			final Bitmap decoded = compressedArtwork.decode();
+
+			return decoded == null ? null : new BitmapDrawable(resources, decoded);
+		}
+
+		/**
+		 * Loads the artwork of the supplied item through the supplied pool, so that the artwork is
+		 * only decoded if no other item with identical artwork has been decoded at this size. The
+		 * returned Drawable holds a reference to the pooled Bitmap.
+		 *
+		 * @param item
+		 * 		the item to load the artwork of, not null
+		 * @param pool
+		 * 		the pool to share the artwork through, not null
+		 * @param tier
+		 * 		the tier to retain the compressed artwork in, null to skip retention
+		 * @return the artwork, null if the item has no artwork
+		 * @throws LibraryReadException
+		 * 		if the encoded artwork cannot be read
+		 */
+		private Drawable loadSharedArtwork(final EncodedArtworkItem item,
+				final SharedArtworkPool pool, final CompressedArtworkTier tier)
+				throws LibraryReadException {
+			final byte[] encodedArtwork = item.getEncodedArtwork();
+
+			if (encodedArtwork == null) {
+				return null;
+			}
+
+			final long fingerprint = FingerprintUtil.fingerprint(encodedArtwork);
+			Bitmap bitmap = pool.acquire(fingerprint, imageWidth, imageHeight);
+
+			if (bitmap != null) {
+				// Another item decoded this artwork, so its thumbnail only needs to be referenced
+				if (tier != null) {
+					tier.link(item, fingerprint);
+				}
+			} else {
+				final Bitmap decoded = BitmapEfficiencyHelper.decodeByteArray(encodedArtwork,
+						imageWidth, imageHeight);
+
+				if (decoded == null) {
+					return null;
+				}
+
+				bitmap = pool.share(fingerprint, imageWidth, imageHeight, decoded);
+
+				// The tier stores one thumbnail per fingerprint so that recovered artwork can
+				// rejoin the pool, and skips compression if the thumbnail is already stored
+				if (tier != null) {
+					tier.put(item, bitmap, fingerprint);
+				}
+			}
+
+			// Each item gets its own Drawable since Drawables hold per-view state such as bounds
+			return new BitmapDrawable(resources, bitmap);
+		}
+
 		@Override
 		public void onPostExecute(final Drawable artwork) {
+			// Results handed to the dispatcher are delivered by the dispatcher instead
+			if (!dispatched) {
+				deliver(artwork);
+			}
+		}
+
+		/**
+		 * Binds the artwork to the view.
+		 *
+		 * @param artwork
+		 * 		the artwork to bind, may be null
+		 */
+		private void deliver(final Drawable artwork) {
 			// Skip the animation if it isn't necessary
 			if (fadeInDurationMs <= 0 || artwork == null) {
 				if (!isCancelled()) {
 					imageView.setImageDrawable(null); // Resets view
 					imageView.setImageDrawable(artwork);
 				}
+
+				release();
 			} else {
-				// Animation to fade in from fully invisible to fully visible
-				final ValueAnimator fadeInAnimation = ValueAnimator.ofFloat(0, 1);
+				// The animator releases this task once the fade ends
+				fadeIn(imageView, this, artwork);
+			}
+		}
 
-				// When the animations starts, bind the artwork but make it invisible
-				fadeInAnimation.addListener(new AnimatorListenerAdapter() {
-					@Override
-					public void onAnimationStart(final Animator animation) {
-						// If the task has been cancelled, it must not modify the UI
-						if (!isCancelled()) {
-							imageView.setAlpha(0f);
-							imageView.setImageDrawable(null); // Resets ensures image changes
-							imageView.setImageDrawable(artwork);
-						}
-					}
-				});
+		/**
+		 * Removes this task from the tasks in progress so that the binder does not retain it or
+		 * its view. If the view has since been given a new task, the method exits normally.
+		 */
+		private void release() {
+			if (tasks.get(imageView) == this) {
+				tasks.remove(imageView);
+			}
+		}
+	}
 
-				// As the animation progresses, fade-in the artwork by changing the transparency
-				fadeInAnimation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-					@Override
-					public void onAnimationUpdate(final ValueAnimator animation) {
-						// If the task has been cancelled, the animation must also be cancelled
-						if (isCancelled()) {
-							fadeInAnimation.cancel();
-						} else {
-							final Float value = (Float) animation.getAnimatedValue();
-							imageView.setAlpha(value);
-						}
-					}
-				});
+	/**
+	 * Fades the supplied artwork into the supplied ImageView, using the FadeAnimator of the view.
+	 *
+	 * @param imageView
+	 * 		the ImageView to fade the artwork into, not null
+	 * @param task
+	 * 		the task which supplied the artwork, null if the artwork was cached
+	 * @param artwork
+	 * 		the artwork to fade in, not null
+	 */
+	private void fadeIn(final ImageView imageView, final BinderTask task, final Drawable artwork) {
+		FadeAnimator fadeAnimator = fadeAnimators.get(imageView);
+
+		if (fadeAnimator == null) {
+			fadeAnimator = new FadeAnimator(imageView);
+			fadeAnimators.put(imageView, fadeAnimator);
+		}
+
+		fadeAnimator.fadeIn(task, artwork);
+	}
+
+	/**
+	 * Fades artwork into an ImageView. Each ImageView has a single FadeAnimator which is reused for
+	 * every bind, so that fading does not allocate an animator and listeners each time.
+	 */
+	private class FadeAnimator extends AnimatorListenerAdapter implements
+			ValueAnimator.AnimatorUpdateListener {
+		/**
+		 * The ImageView to fade artwork into.
+		 */
+		private final ImageView imageView;
+
+		/**
+		 * Animates from fully invisible to fully visible.
+		 */
+		private final ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+
+		/**
+		 * The task which supplied the artwork currently being faded in, null if no fade is in
+		 * progress or the artwork was cached.
+		 */
+		private BinderTask task;
+
+		/**
+		 * Whether or not a fade is in progress.
+		 */
+		private boolean fading;
+
+		/**
+		 * The artwork currently being faded in, null if no fade is in progress.
+		 */
+		private Drawable artwork;
+
+		/**
+		 * Constructs a new FadeAnimator.
+		 *
+		 * @param imageView
+		 * 		the ImageView to fade artwork into, not null
+		 */
+		public FadeAnimator(final ImageView imageView) {
+			this.imageView = imageView;
+
+			animator.addListener(this);
+			animator.addUpdateListener(this);
+		}
+
+		/**
+		 * Fades the supplied artwork into the ImageView, replacing any fade already in progress.
+		 *
+		 * @param task
+		 * 		the task which supplied the artwork, null if the artwork was cached
+		 * @param artwork
+		 * 		the artwork to fade in, not null
+		 */
+		public void fadeIn(final BinderTask task, final Drawable artwork) {
+			// Ending the current fade releases its task before the new one is recorded
+			animator.cancel();
+
+			this.task = task;
+			this.artwork = artwork;
+			fading = true;
+
+			animator.setDuration(fadeInDurationMs);
+			animator.start();
+		}
+
+		/**
+		 * Stops the fade in progress, if any, and makes the ImageView fully visible.
+		 */
+		public void cancel() {
+			if (fading) {
+				animator.cancel();
+				imageView.setAlpha(1f);
+			}
+		}
+
+		@Override
+		public void onAnimationStart(final Animator animation) {
+			// If the task has been cancelled, it must not modify the UI
+			if (fading && (task == null || !task.isCancelled())) {
+				imageView.setAlpha(0f);
+				imageView.setImageDrawable(null); // Resets ensures image changes
+				imageView.setImageDrawable(artwork);
+			}
+		}
+
+		@Override
+		public void onAnimationUpdate(final ValueAnimator animation) {
+			// If the task has been cancelled, the animation must also be cancelled
+			if (!fading || (task != null && task.isCancelled())) {
+				animator.cancel();
+			} else {
+				// The animated fraction matches the value and avoids boxing on every frame
+				imageView.setAlpha(animation.getAnimatedFraction());
+			}
+		}
+
+		@Override
+		public void onAnimationEnd(final Animator animation) {
+			final BinderTask finishedTask = task;
+
+			task = null;
+			artwork = null;
+			fading = false;
 
-				fadeInAnimation.setDuration(fadeInDurationMs);
-				fadeInAnimation.start();
+			if (finishedTask != null) {
+				finishedTask.release();
 			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.databinders;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.matthewtamlin.java_utilities.checkers.NullChecker;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
+
+/**
+ * Delivers the results of background work to the main thread in batches, at most once per frame.
+ * Results can be posted from any thread, and are queued until the start of the next frame. Each
+ * frame the queue is drained until a time budget is used up, and any remaining results are carried
+ * over to the following frame. This prevents a burst of completed binder tasks (for example when a
+ * fling ends) from delivering dozens of results in one frame and causing it to be dropped.
+ * <p>
+ * On API 16 and above frames are timed using the Choreographer. On older devices the queue is
+ * drained by a Handler at the nominal frame interval instead.
+ * <p>
+ * A single dispatcher is usually shared between all binders which target the same views, so that
+ * the budget applies to the combined work of every binder.
+ */
+public class FrameResultDispatcher {
+	/**
+	 * The interval between drains when the Choreographer is unavailable, measured in milliseconds.
+	 */
+	private static final long FALLBACK_FRAME_INTERVAL_MS = 16;
+
+	/**
+	 * The results waiting to be delivered.
+	 */
+	private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Whether or not a drain is currently scheduled.
+	 */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Schedules drains for the next frame.
+	 */
+	private final FrameScheduler scheduler;
+
+	/**
+	 * The maximum time to spend delivering results in each frame, measured in nanoseconds.
+	 */
+	private volatile long frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(4);
+
+	/**
+	 * Constructs a new FrameResultDispatcher which delivers results on the main thread.
+	 */
+	public FrameResultDispatcher() {
+		final Runnable drain = new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			scheduler = new ChoreographerFrameScheduler(drain);
+		} else {
+			scheduler = new HandlerFrameScheduler(drain);
+		}
+	}
+
+	/**
+	 * Queues a result for delivery on the main thread at the start of an upcoming frame. Results are
+	 * delivered in the order they are posted. This method may be called from any thread.
+	 *
+	 * @param result
+	 * 		delivers the result when run, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code result} is null
+	 */
+	public void post(final Runnable result) {
+		NullChecker.checkNotNull(result, "result cannot be null");
+
+		queue.add(result);
+
+		if (drainScheduled.compareAndSet(false, true)) {
+			scheduler.scheduleFrame();
+		}
+	}
+
+	/**
+	 * @return the maximum time spent delivering results in each frame, measured in milliseconds
+	 */
+	public int getFrameBudgetMs() {
+		return (int) TimeUnit.NANOSECONDS.toMillis(frameBudgetNanos);
+	}
+
+	/**
+	 * Sets the maximum time to spend delivering results in each frame. At least one result is
+	 * delivered in each frame regardless of the budget, so that delivery always progresses. The
+	 * default is 4 milliseconds, which leaves most of a 60 Hz frame for layout and drawing.
+	 *
+	 * @param frameBudgetMs
+	 * 		the budget, measured in milliseconds, greater than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code frameBudgetMs} is not greater than zero
+	 */
+	public void setFrameBudgetMs(final int frameBudgetMs) {
+		checkGreaterThan(frameBudgetMs, 0, "frameBudgetMs must be greater than zero.");
+		frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMs);
+	}
+
+	/**
+	 * @return the number of results waiting to be delivered
+	 */
+	public int getPendingCount() {
+		return queue.size();
+	}
+
+	/**
+	 * Delivers queued results until the queue is empty or the budget is used up, and schedules
+	 * another drain if results remain.
+	 */
+	private void drain() {
+		final long deadline = System.nanoTime() + frameBudgetNanos;
+
+		Runnable result = queue.poll();
+
+		while (result != null) {
+			result.run();
+
+			if (System.nanoTime() >= deadline) {
+				break;
+			}
+
+			result = queue.poll();
+		}
+
+		// Clear the flag before checking the queue so that a concurrent post is never stranded
+		drainScheduled.set(false);
+
+		if (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+			scheduler.scheduleFrame();
+		}
+	}
+
+	/**
+	 * Schedules a callback for the next frame.
+	 */
+	private interface FrameScheduler {
+		/**
+		 * Schedules the callback to run on the main thread at the next frame. This method may be
+		 * called from any thread.
+		 */
+		void scheduleFrame();
+	}
+
+	/**
+	 * Schedules callbacks using the Choreographer of the main thread.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class ChoreographerFrameScheduler implements FrameScheduler,
+			Choreographer.FrameCallback {
+		/**
+		 * Posts to the main thread, since the Choreographer can only be obtained there.
+		 */
+		private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+		/**
+		 * The callback to run each frame.
+		 */
+		private final Runnable callback;
+
+		/**
+		 * Registers this scheduler with the Choreographer.
+		 */
+		private final Runnable registration = new Runnable() {
+			@Override
+			public void run() {
+				Choreographer.getInstance().postFrameCallback(ChoreographerFrameScheduler.this);
+			}
+		};
+
+		public ChoreographerFrameScheduler(final Runnable callback) {
+			this.callback = callback;
+		}
+
+		@Override
+		public void scheduleFrame() {
+			if (Looper.myLooper() == Looper.getMainLooper()) {
+				registration.run();
+			} else {
+				mainHandler.post(registration);
+			}
+		}
+
+		@Override
+		public void doFrame(final long frameTimeNanos) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * Schedules callbacks using a Handler on the main thread, for devices without a Choreographer.
+	 */
+	private static class HandlerFrameScheduler implements FrameScheduler {
+		/**
+		 * Posts to the main thread.
+		 */
+		private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+		/**
+		 * The callback to run each frame.
+		 */
+		private final Runnable callback;
+
+		public HandlerFrameScheduler(final Runnable callback) {
+			this.callback = callback;
+		}
+
+		@Override
+		public void scheduleFrame() {
+			mainHandler.postDelayed(callback, FALLBACK_FRAME_INTERVAL_MS);
+		}
+	}
+}
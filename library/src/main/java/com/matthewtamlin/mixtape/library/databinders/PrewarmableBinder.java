@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.mixtape.library.databinders;
+
+/**
+ * A binder which can load data into its cache ahead of binding, so that later binds can be
+ * completed without asynchronous processing. Prewarming is lower priority than binding, so the
+ * binder reports whether binds are currently loading data to allow prewarming to give way.
+ *
+ * @param <D>
+ * 		the type of data to prewarm
+ */
+public interface PrewarmableBinder<D> {
+	/**
+	 * Loads the data for the supplied item and stores it in the cache of the binder. If the data is
+	 * already cached or cannot be loaded, the method exits normally. This method blocks while the
+	 * data is loaded, so it must not be called on the UI thread.
+	 *
+	 * @param data
+	 * 		the item to prewarm, null to do nothing
+	 */
+	void prewarm(D data);
+
+	/**
+	 * @return true if any bind operation is currently loading data, false otherwise
+	 */
+	boolean hasPendingLoads();
+}
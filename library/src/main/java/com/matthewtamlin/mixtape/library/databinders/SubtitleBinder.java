@@ -22,12 +22,15 @@ import android.widget.TextView;
 
 import com.matthewtamlin.java_utilities.checkers.NullChecker;
 import com.matthewtamlin.java_utilities.testing.Tested;
+import com.matthewtamlin.mixtape.library.caching.ItemCache;
+import com.matthewtamlin.mixtape.library.caching.LruItemCache;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Binds subtitle data from LibraryItems to TextViews. Data is cached as it is loaded to improve
@@ -35,7 +38,8 @@ import java.util.Iterator;
  * case an item fails to return a subtitle, a default must be supplied.
  */
 @Tested(testMethod = "automated")
-public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
+public class SubtitleBinder implements DataBinder<LibraryItem, TextView>,
+		PrewarmableBinder<LibraryItem> {
 	/**
 	 * All bind tasks currently in progress. Each task is mapped to the target TextView.
 	 */
@@ -44,7 +48,12 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 	/**
 	 * Stores subtitles to increase performance and efficiency.
 	 */
-	private final LruCache<LibraryItem, CharSequence> cache;
+	private final ItemCache<CharSequence> cache;
+
+	/**
+	 * The LruCache supplied at construction, null if the binder was constructed with an ItemCache.
+	 */
+	private final LruCache<LibraryItem, CharSequence> lruCache;
 
 	/**
 	 * Supplies the default subtitle.
@@ -52,7 +61,19 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 	private final DisplayableDefaults defaults;
 
 	/**
-	 * Constructs a new SubtitleBinder.
+	 * Batches the delivery of loaded subtitles, null if subtitles are delivered individually.
+	 */
+	private volatile FrameResultDispatcher resultDispatcher;
+
+	/**
+	 * The number of bind tasks which are currently loading subtitles.
+	 */
+	private final AtomicInteger activeLoads = new AtomicInteger();
+
+	/**
+	 * Constructs a new SubtitleBinder which stores subtitles in an LruCache.
+	 * Entries are keyed by the items themselves. To key entries by stable ID instead, use {@link
+	 * #SubtitleBinder(ItemCache, DisplayableDefaults)}.
 	 *
 	 * @param cache
 	 * 		stores subtitles to increase performance and efficiency, not null
@@ -65,7 +86,27 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 	 */
 	public SubtitleBinder(final LruCache<LibraryItem, CharSequence> cache,
 			final DisplayableDefaults defaults) {
+		this.lruCache = NullChecker.checkNotNull(cache, "cache cannot be null");
+		this.cache = new LruItemCache<>(lruCache);
+		this.defaults = NullChecker.checkNotNull(defaults, "defaults cannot be null");
+	}
+
+	/**
+	 * Constructs a new SubtitleBinder.
+	 *
+	 * @param cache
+	 * 		stores subtitles to increase performance and efficiency, not null
+	 * @param defaults
+	 * 		supplies the default subtitle, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code cache} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code defaults} is null
+	 */
+	public SubtitleBinder(final ItemCache<CharSequence> cache,
+			final DisplayableDefaults defaults) {
 		this.cache = NullChecker.checkNotNull(cache, "cache cannot be null");
+		this.lruCache = null;
 		this.defaults = NullChecker.checkNotNull(defaults, "defaults cannot be null");
 	}
 
@@ -76,17 +117,16 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 		// There must never be more than one task operating on the same TextView concurrently
 		cancel(view);
 
-		// Create the task but don't execute it immediately
-		final BinderTask task = new BinderTask(view, data);
-		tasks.put(view, task);
+		// Using asynchronous processing is unnecessary if the subtitle is already cached, and binding
+		// directly avoids allocating a task for every bind while scrolling
+		final CharSequence cachedSubtitle = data == null ? null : cache.get(data);
 
-		// Using asynchronous processing is unnecessary if the subtitle is already cached
-		if (data == null) {
-			task.execute();
-		} else if (cache.get(data) != null) {
-			task.onPreExecute();
-			task.onPostExecute(cache.get(data));
+		if (cachedSubtitle != null) {
+			view.setText(null); // Resets the view to ensure the text changes
+			view.setText(cachedSubtitle);
 		} else {
+			final BinderTask task = new BinderTask(view, data);
+			tasks.put(view, task);
 			task.execute();
 		}
 	}
@@ -115,10 +155,40 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 		}
 	}
 
+	@Override
+	public void prewarm(final LibraryItem data) {
+		if (data == null || cache.get(data) != null) {
+			return;
+		}
+
+		try {
+			final CharSequence loadedSubtitle = data.getSubtitle();
+
+			if (loadedSubtitle != null) {
+				cache.put(data, loadedSubtitle);
+			}
+		} catch (final LibraryReadException e) {
+			// The default is bound instead, and defaults are never cached
+		}
+	}
+
+	@Override
+	public boolean hasPendingLoads() {
+		return activeLoads.get() > 0;
+	}
+
 	/**
-	 * @return the cache used to store subtitles, not null
+	 * @return the LruCache used to store subtitles, null if the binder was constructed with an
+	 * ItemCache
 	 */
 	public LruCache<LibraryItem, CharSequence> getCache() {
+		return lruCache;
+	}
+
+	/**
+	 * @return the cache used to store subtitles, not null
+	 */
+	public ItemCache<CharSequence> getItemCache() {
 		return cache;
 	}
 
@@ -129,6 +199,26 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 		return defaults;
 	}
 
+	/**
+	 * @return the dispatcher used to deliver subtitles to the main thread, null if subtitles are
+	 * delivered individually
+	 */
+	public FrameResultDispatcher getResultDispatcher() {
+		return resultDispatcher;
+	}
+
+	/**
+	 * Sets the dispatcher to use when delivering loaded subtitles to the main thread. When a
+	 * dispatcher is set, subtitles which are loaded asynchronously are delivered in per-frame batches
+	 * rather than individually. Subtitles which are already cached are still bound immediately.
+	 *
+	 * @param resultDispatcher
+	 * 		the dispatcher to use, null to deliver each subtitle individually
+	 */
+	public void setResultDispatcher(final FrameResultDispatcher resultDispatcher) {
+		this.resultDispatcher = resultDispatcher;
+	}
+
 	/**
 	 * Task for asynchronously loading data and binding it to the UI when available.
 	 */
@@ -143,6 +233,11 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 		 */
 		private final LibraryItem data;
 
+		/**
+		 * Whether or not the result has been handed to the dispatcher for delivery.
+		 */
+		private volatile boolean dispatched = false;
+
 		/**
 		 * Constructs a new BinderTask.
 		 *
@@ -167,6 +262,33 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 
 		@Override
 		public CharSequence doInBackground(final Void... params) {
+			final CharSequence subtitle = resolveSubtitle();
+			final FrameResultDispatcher dispatcher = resultDispatcher;
+
+			// Hand the result to the dispatcher so that it is delivered in a batch with others
+			if (dispatcher != null && !isCancelled()) {
+				dispatched = true;
+
+				dispatcher.post(new Runnable() {
+					@Override
+					public void run() {
+						// The view may have been rebound since the result was posted
+						if (!isCancelled()) {
+							deliver(subtitle);
+						}
+					}
+				});
+			}
+
+			return subtitle;
+		}
+
+		/**
+		 * Gets the subtitle of the data from the cache, or loads it if it is not cached.
+		 *
+		 * @return the subtitle, null if the data is null or has no subtitle
+		 */
+		private CharSequence resolveSubtitle() {
 			if (isCancelled() || data == null) {
 				return null;
 			}
@@ -176,6 +298,8 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 			if (cachedSubtitle != null) {
 				return cachedSubtitle;
 			} else {
+				activeLoads.incrementAndGet();
+
 				try {
 					final CharSequence loadedSubtitle = data.getSubtitle();
 
@@ -186,18 +310,45 @@ public class SubtitleBinder implements DataBinder<LibraryItem, TextView> {
 					return loadedSubtitle;
 				} catch (final LibraryReadException e) {
 					return defaults.getSubtitle();
+				} finally {
+					activeLoads.decrementAndGet();
 				}
 			}
 		}
 
 		@Override
 		protected void onPostExecute(final CharSequence subtitle) {
+			// Results handed to the dispatcher are delivered by the dispatcher instead
+			if (!dispatched) {
+				deliver(subtitle);
+			}
+		}
+
+		/**
+		 * Binds the subtitle to the view.
+		 *
+		 * @param subtitle
+		 * 		the subtitle to bind, may be null
+		 */
+		private void deliver(final CharSequence subtitle) {
 			if (!isCancelled()) {
 				textView.setText(null); // Resets the view to ensure the text changes
 				textView.setText(subtitle);
 			} else {
 				textView.setText(null);
 			}
+
+			release();
+		}
+
+		/**
+		 * Removes this task from the tasks in progress so that the binder does not retain it or
+		 * its view. If the view has since been given a new task, the method exits normally.
+		 */
+		private void release() {
+			if (tasks.get(textView) == this) {
+				tasks.remove(textView);
+			}
 		}
 	}
 }
\ No newline at end of file
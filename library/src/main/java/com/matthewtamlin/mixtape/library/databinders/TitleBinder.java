@@ -22,12 +22,15 @@ import android.widget.TextView;
 
 import com.matthewtamlin.java_utilities.checkers.NullChecker;
 import com.matthewtamlin.java_utilities.testing.Tested;
+import com.matthewtamlin.mixtape.library.caching.ItemCache;
+import com.matthewtamlin.mixtape.library.caching.LruItemCache;
 import com.matthewtamlin.mixtape.library.data.DisplayableDefaults;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryReadException;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Binds title data from LibraryItems to TextViews. Data is cached as it is loaded to improve future
@@ -35,7 +38,8 @@ import java.util.Iterator;
  * item fails to return a title, a default must be supplied.
  */
 @Tested(testMethod = "automated")
-public class TitleBinder implements DataBinder<LibraryItem, TextView> {
+public class TitleBinder implements DataBinder<LibraryItem, TextView>,
+		PrewarmableBinder<LibraryItem> {
 	/**
 	 * All bind tasks currently in progress. Each task is mapped to the target TextView.
 	 */
@@ -44,7 +48,12 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 	/**
 	 * Stores titles to increase performance and efficiency.
 	 */
-	private final LruCache<LibraryItem, CharSequence> cache;
+	private final ItemCache<CharSequence> cache;
+
+	/**
+	 * The LruCache supplied at construction, null if the binder was constructed with an ItemCache.
+	 */
+	private final LruCache<LibraryItem, CharSequence> lruCache;
 
 	/**
 	 * Supplies the default title.
@@ -52,7 +61,19 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 	private final DisplayableDefaults defaults;
 
 	/**
-	 * Constructs a new TitleBinder.
+	 * Batches the delivery of loaded titles, null if titles are delivered individually.
+	 */
+	private volatile FrameResultDispatcher resultDispatcher;
+
+	/**
+	 * The number of bind tasks which are currently loading titles.
+	 */
+	private final AtomicInteger activeLoads = new AtomicInteger();
+
+	/**
+	 * Constructs a new TitleBinder which stores titles in an LruCache.
+	 * Entries are keyed by the items themselves. To key entries by stable ID instead, use {@link
+	 * #TitleBinder(ItemCache, DisplayableDefaults)}.
 	 *
 	 * @param cache
 	 * 		stores titles to increase performance and efficiency, not null
@@ -65,7 +86,27 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 	 */
 	public TitleBinder(final LruCache<LibraryItem, CharSequence> cache,
 			final DisplayableDefaults defaults) {
+		this.lruCache = NullChecker.checkNotNull(cache, "cache cannot be null");
+		this.cache = new LruItemCache<>(lruCache);
+		this.defaults = NullChecker.checkNotNull(defaults, "defaults cannot be null");
+	}
+
+	/**
+	 * Constructs a new TitleBinder.
+	 *
+	 * @param cache
+	 * 		stores titles to increase performance and efficiency, not null
+	 * @param defaults
+	 * 		supplies the default title, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code cache} is null
+	 * @throws IllegalArgumentException
+	 * 		if {@code defaults} is null
+	 */
+	public TitleBinder(final ItemCache<CharSequence> cache,
+			final DisplayableDefaults defaults) {
 		this.cache = NullChecker.checkNotNull(cache, "cache cannot be null");
+		this.lruCache = null;
 		this.defaults = NullChecker.checkNotNull(defaults, "defaults cannot be null");
 	}
 
@@ -76,17 +117,16 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 		// There must never be more than one task operating on the same TextView concurrently
 		cancel(view);
 
-		// Create the task but don't execute it immediately
-		final BinderTask task = new BinderTask(view, data);
-		tasks.put(view, task);
+		// Using asynchronous processing is unnecessary if the title is already cached, and binding
+		// directly avoids allocating a task for every bind while scrolling
+		final CharSequence cachedTitle = data == null ? null : cache.get(data);
 
-		// Using asynchronous processing is unnecessary if the title is already cached
-		if (data == null) {
-			task.execute();
-		} else if (cache.get(data) != null) {
-			task.onPreExecute();
-			task.onPostExecute(cache.get(data));
+		if (cachedTitle != null) {
+			view.setText(null); // Resets the view to ensure the text changes
+			view.setText(cachedTitle);
 		} else {
+			final BinderTask task = new BinderTask(view, data);
+			tasks.put(view, task);
 			task.execute();
 		}
 	}
@@ -115,10 +155,40 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 		}
 	}
 
+	@Override
+	public void prewarm(final LibraryItem data) {
+		if (data == null || cache.get(data) != null) {
+			return;
+		}
+
+		try {
+			final CharSequence loadedTitle = data.getTitle();
+
+			if (loadedTitle != null) {
+				cache.put(data, loadedTitle);
+			}
+		} catch (final LibraryReadException e) {
+			// The default is bound instead, and defaults are never cached
+		}
+	}
+
+	@Override
+	public boolean hasPendingLoads() {
+		return activeLoads.get() > 0;
+	}
+
 	/**
-	 * @return the cache used to store titles, not null
+	 * @return the LruCache used to store titles, null if the binder was constructed with an
+	 * ItemCache
 	 */
 	public LruCache<LibraryItem, CharSequence> getCache() {
+		return lruCache;
+	}
+
+	/**
+	 * @return the cache used to store titles, not null
+	 */
+	public ItemCache<CharSequence> getItemCache() {
 		return cache;
 	}
 
@@ -129,6 +199,26 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 		return defaults;
 	}
 
+	/**
+	 * @return the dispatcher used to deliver titles to the main thread, null if titles are delivered
+	 * individually
+	 */
+	public FrameResultDispatcher getResultDispatcher() {
+		return resultDispatcher;
+	}
+
+	/**
+	 * Sets the dispatcher to use when delivering loaded titles to the main thread. When a dispatcher
+	 * is set, titles which are loaded asynchronously are delivered in per-frame batches rather than
+	 * individually. Titles which are already cached are still bound immediately.
+	 *
+	 * @param resultDispatcher
+	 * 		the dispatcher to use, null to deliver each title individually
+	 */
+	public void setResultDispatcher(final FrameResultDispatcher resultDispatcher) {
+		this.resultDispatcher = resultDispatcher;
+	}
+
 	/**
 	 * Task for asynchronously loading data and binding it to the UI when available.
 	 */
@@ -143,6 +233,11 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 		 */
 		private final LibraryItem data;
 
+		/**
+		 * Whether or not the result has been handed to the dispatcher for delivery.
+		 */
+		private volatile boolean dispatched = false;
+
 		/**
 		 * Constructs a new BinderTask.
 		 *
@@ -167,6 +262,33 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 
 		@Override
 		public CharSequence doInBackground(final Void... params) {
+			final CharSequence title = resolveTitle();
+			final FrameResultDispatcher dispatcher = resultDispatcher;
+
+			// Hand the result to the dispatcher so that it is delivered in a batch with others
+			if (dispatcher != null && !isCancelled()) {
+				dispatched = true;
+
+				dispatcher.post(new Runnable() {
+					@Override
+					public void run() {
+						// The view may have been rebound since the result was posted
+						if (!isCancelled()) {
+							deliver(title);
+						}
+					}
+				});
+			}
+
+			return title;
+		}
+
+		/**
+		 * Gets the title of the data from the cache, or loads it if it is not cached.
+		 *
+		 * @return the title, null if the data is null or has no title
+		 */
+		private CharSequence resolveTitle() {
 			if (isCancelled() || data == null) {
 				return null;
 			}
@@ -176,6 +298,8 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 			if (cachedTitle != null) {
 				return cachedTitle;
 			} else {
+				activeLoads.incrementAndGet();
+
 				try {
 					final CharSequence loadedTitle = data.getTitle();
 
@@ -186,18 +310,45 @@ public class TitleBinder implements DataBinder<LibraryItem, TextView> {
 					return loadedTitle;
 				} catch (final LibraryReadException e) {
 					return defaults.getTitle();
+				} finally {
+					activeLoads.decrementAndGet();
 				}
 			}
 		}
 
 		@Override
 		protected void onPostExecute(final CharSequence title) {
+			// Results handed to the dispatcher are delivered by the dispatcher instead
+			if (!dispatched) {
+				deliver(title);
+			}
+		}
+
+		/**
+		 * Binds the title to the view.
+		 *
+		 * @param title
+		 * 		the title to bind, may be null
+		 */
+		private void deliver(final CharSequence title) {
 			if (!isCancelled()) {
 				textView.setText(null); // Resets the view to ensure the text changes
 				textView.setText(title);
 			} else {
 				textView.setText(null);
 			}
+
+			release();
+		}
+
+		/**
+		 * Removes this task from the tasks in progress so that the binder does not retain it or
+		 * its view. If the view has since been given a new task, the method exits normally.
+		 */
+		private void release() {
+			if (tasks.get(textView) == this) {
+				tasks.remove(textView);
+			}
 		}
 	}
 }
\ No newline at end of file
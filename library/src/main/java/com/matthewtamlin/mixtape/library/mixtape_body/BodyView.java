@@ -19,6 +19,7 @@ package com.matthewtamlin.mixtape.library.mixtape_body;
 import android.view.MenuItem;
 
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
 
 import java.util.List;
 
@@ -28,6 +29,10 @@ import java.util.List;
  * <p>
  * If the list of items is modified externally, then the view must be notified of the change.
  * Failure to do so may result in display errors, or even a complete failure of the view.
+ * <p>
+ * Implementations should only read the size of the list and the items at the positions being
+ * displayed, so that very large lists can be supplied as a {@link
+ * com.matthewtamlin.mixtape.library.data.VirtualList} which creates its items on demand.
  */
 public interface BodyView {
 	/**
@@ -39,6 +44,18 @@ public interface BodyView {
 	 */
 	void setItems(List<? extends LibraryItem> items);
 
+	/**
+	 * Sets the items to display without updating the UI. This allows the list to be replaced and
+	 * then the differences between the old and new lists to be delivered as granular
+	 * notifications. The caller must notify the view of every difference immediately after calling
+	 * this method, otherwise the UI may not match the list. Supplying null is equivalent to
+	 * supplying an empty list.
+	 *
+	 * @param items
+	 * 		the items to display
+	 */
+	void swapItems(List<? extends LibraryItem> items);
+
 	/**
 	 * Gets the items currently being displayed in this view. The view must be notified of any
 	 * external changes to the returned list.
@@ -92,6 +109,26 @@ public interface BodyView {
 	 */
 	void notifyItemRemoved(int index);
 
+	/**
+	 * Notifies the view of the addition of a contiguous range of items to the current list.
+	 *
+	 * @param startIndex
+	 * 		the index of the first added item
+	 * @param count
+	 * 		the number of items added
+	 */
+	void notifyItemRangeAdded(int startIndex, int count);
+
+	/**
+	 * Notifies the view of the removal of a contiguous range of items from the current list.
+	 *
+	 * @param startIndex
+	 * 		the index of the first removed item before removal
+	 * @param count
+	 * 		the number of items removed
+	 */
+	void notifyItemRangeRemoved(int startIndex, int count);
+
 	/**
 	 * Notifies the view of a change to one of the items in the current list. This method only needs
 	 * to be invoked if the change affected the title, subtitle or artwork of the item. Unlike the
@@ -103,6 +140,19 @@ public interface BodyView {
 	 */
 	void notifyItemModified(int index);
 
+	/**
+	 * Notifies the view of a change to specific fields of one of the items in the current list.
+	 * Only the fields identified by the supplied flags need to be rebound, which avoids reloading
+	 * data that is already displayed.
+	 *
+	 * @param index
+	 * 		the index of the changed item
+	 * @param changedFields
+	 * 		the fields which changed, as a combination of the flags defined in {@link
+	 * 		LibraryItemFields}
+	 */
+	void notifyItemModified(int index, int changedFields);
+
 	/**
 	 * Notifies the view of a structural change to the current list where a single item was moved to
 	 * a new index.
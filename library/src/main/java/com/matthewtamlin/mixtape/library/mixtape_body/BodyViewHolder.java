@@ -55,6 +55,12 @@ public class BodyViewHolder extends RecyclerView.ViewHolder {
 	 */
 	private final View contextualMenuButton;
 
+	/**
+	 * The version of the styling which was last applied to the views of this holder, or -1 if no
+	 * styling has been applied.
+	 */
+	private int styleVersion = -1;
+
 	/**
 	 * Constructs a new BodyViewHolder. The root view must be a hierarchical parent of the other
 	 * views.
@@ -128,4 +134,22 @@ public class BodyViewHolder extends RecyclerView.ViewHolder {
 	public View getContextualMenuButton() {
 		return contextualMenuButton;
 	}
+
+	/**
+	 * @return the version of the styling which was last applied to the views of this holder, -1 if
+	 * no styling has been applied
+	 */
+	public int getStyleVersion() {
+		return styleVersion;
+	}
+
+	/**
+	 * Records the version of the styling which has been applied to the views of this holder.
+	 *
+	 * @param styleVersion
+	 * 		the version of the styling
+	 */
+	public void setStyleVersion(final int styleVersion) {
+		this.styleVersion = styleVersion;
+	}
 }
\ No newline at end of file
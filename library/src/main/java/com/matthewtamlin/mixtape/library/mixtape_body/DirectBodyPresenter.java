@@ -16,20 +16,65 @@
 
 package com.matthewtamlin.mixtape.library.mixtape_body;
 
+import android.os.AsyncTask;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.view.MenuItem;
 
 import com.matthewtamlin.java_utilities.testing.Tested;
 import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
 import com.matthewtamlin.mixtape.library.base_mvp.BasePresenter;
 import com.matthewtamlin.mixtape.library.base_mvp.ListDataSource;
+import com.matthewtamlin.mixtape.library.base_mvp.LoadPolicy;
+import com.matthewtamlin.mixtape.library.data.IdentifiableLibraryItem;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.ListChangeBuffer;
+import com.matthewtamlin.mixtape.library.data.ListSnapshot;
+import com.matthewtamlin.mixtape.library.data.PersistentList;
+import com.matthewtamlin.mixtape.library.data.SnapshotListDataSource;
+import com.matthewtamlin.mixtape.library.data.VirtualList;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
+import com.matthewtamlin.mixtape.library.databinders.FrameResultDispatcher;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 /**
  * A simple implementation of the BodyContract.Presenter interface where the list returned by the
  * data source is directly reflected in the view. Listeners can be registered to handle user input
  * events.
+ * <p>
+ * When the data source delivers a new list while the view is already showing items, the
+ * differences between the two lists are calculated on a background thread and delivered to the
+ * view as granular notifications. This preserves the existing view holders and their bound data,
+ * and allows changes to be animated. Items are matched using {@link #areItemsTheSame(LibraryItem,
+ * LibraryItem)} and compared using {@link #areContentsTheSame(LibraryItem, LibraryItem)}, both of
+ * which can be overridden. If the number of changed items exceeds the maximum set using {@link
+ * #setMaxDiffChanges(int)}, the view is reset instead.
+ * <p>
+ * The presenter retains the last list delivered by the data source, and shows it in newly attached
+ * views immediately. Whether the data source is also asked to refresh is determined by the {@link
+ * LoadPolicy}. Events delivered while no view is attached are buffered, and applied together if
+ * the same view is attached again.
+ * <p>
+ * By default item events must be delivered on the UI thread, and each one is passed to the view
+ * immediately. If a {@link FrameResultDispatcher} is supplied using {@link
+ * #setEventDispatcher(FrameResultDispatcher)}, item events can be delivered from any thread. They
+ * are then merged and passed to the view together at the start of the next frame, so that a burst
+ * of events causes a single layout pass.
+ * <p>
+ * If the data source is a {@link SnapshotListDataSource}, the view is always given the snapshot
+ * published with the event being delivered, immediately before being notified of the event. Since
+ * snapshots are immutable, the view never observes a list which was modified without a
+ * notification.
  *
  * @param <D>
  * 		the type of data to present
@@ -44,22 +89,132 @@ public class DirectBodyPresenter<
 		S extends ListDataSource<D>,
 		V extends BodyView>
 		implements BasePresenter<S, V>, ListDataSource.FullListener<D>, BodyView.FullListener {
+	/**
+	 * The default maximum number of changed items to deliver as granular notifications.
+	 */
+	public static final int DEFAULT_MAX_DIFF_CHANGES = 500;
+
+	/**
+	 * The default age in milliseconds after which the retained list is considered stale.
+	 */
+	public static final long DEFAULT_MAX_SNAPSHOT_AGE = 5 * 60 * 1000;
+
 	/**
 	 * The data source to present from.
 	 */
 	private S dataSource;
 
+	/**
+	 * The task which is currently calculating the differences between the displayed items and a
+	 * new list, null if no calculation is in progress. Must only be accessed on the UI thread.
+	 */
+	private DiffTask diffTask;
+
+	/**
+	 * The maximum number of changed items to deliver as granular notifications. Larger change sets
+	 * reset the view instead.
+	 */
+	private int maxDiffChanges = DEFAULT_MAX_DIFF_CHANGES;
+
 	/**
 	 * The view to present to.
 	 */
 	private V view;
 
+	/**
+	 * The last view which was detached from this presenter. Used to determine whether a newly
+	 * attached view already shows the retained list.
+	 */
+	private WeakReference<V> detachedView;
+
+	/**
+	 * The last list delivered by the data source.
+	 */
+	private List<D> snapshot;
+
+	/**
+	 * Whether or not {@link #snapshot} holds the result of a successful load.
+	 */
+	private boolean hasSnapshot = false;
+
+	/**
+	 * The value of {@link System#nanoTime()} when the snapshot was taken.
+	 */
+	private long snapshotTime;
+
+	/**
+	 * The item events delivered while no view was attached. Must only be accessed on the UI
+	 * thread.
+	 */
+	private final ListChangeBuffer<D> pendingChanges = new ListChangeBuffer<>();
+
+	/**
+	 * Whether or not the list was replaced while no view was attached.
+	 */
+	private boolean pendingReplace = false;
+
+	/**
+	 * Whether or not the changes made while no view was attached require the view to be reset.
+	 */
+	private boolean pendingReset = false;
+
+	/**
+	 * Determines whether the data source is asked to refresh when a view is attached.
+	 */
+	private LoadPolicy loadPolicy = LoadPolicy.CACHE_FIRST;
+
+	/**
+	 * Schedules the delivery of batched item events, null if item events are delivered
+	 * immediately.
+	 */
+	private volatile FrameResultDispatcher eventDispatcher;
+
+	/**
+	 * Synchronises access to {@link #frameChanges}.
+	 */
+	private final Object frameChangesLock = new Object();
+
+	/**
+	 * The item events received since the last frame. Must only be accessed while holding {@link
+	 * #frameChangesLock}.
+	 */
+	private ListChangeBuffer<D> frameChanges = new ListChangeBuffer<>();
+
+	/**
+	 * Whether or not a flush of the batched item events is scheduled.
+	 */
+	private final AtomicBoolean frameFlushScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Delivers the batched item events when run.
+	 */
+	private final Runnable frameFlush = new Runnable() {
+		@Override
+		public void run() {
+			flushFrameChanges();
+		}
+	};
+
+	/**
+	 * Passes batched item events to the view.
+	 */
+	private final FrameChangeApplier frameChangeApplier = new FrameChangeApplier();
+
+	/**
+	 * The age in milliseconds after which the snapshot is considered stale.
+	 */
+	private long maxSnapshotAge = DEFAULT_MAX_SNAPSHOT_AGE;
+
 	@Override
 	public void setDataSource(final S dataSource) {
+		cancelDiff();
 		unsubscribeFromDataSourceCallbacks(this.dataSource);
 		this.dataSource = dataSource;
 		subscribeToDataSourceCallbacks(this.dataSource);
 
+		discardFrameChanges();
+		discardSnapshot();
+
 		if (dataSource != null) {
 			dataSource.loadData(false, this);
 		} else if (view != null) {
@@ -74,12 +229,29 @@ public class DirectBodyPresenter<
 
 	@Override
 	public void setView(final V view) {
+		// Events received before the view changed refer to the current view
+		flushFrameChanges();
+
+		if (this.view != null) {
+			detachedView = new WeakReference<>(this.view);
+
+			// The detached view was not updated to show the snapshot
+			if (diffTask != null) {
+				pendingReplace = true;
+			}
+		}
+
+		cancelDiff();
 		unregisterFromViewCallbacks(this.view);
 		this.view = view;
 		registerForViewCallbacks(this.view);
 
-		if (dataSource != null) {
-			dataSource.loadData(false, this);
+		if (view != null) {
+			restoreSnapshot();
+
+			if (dataSource != null && shouldLoad()) {
+				dataSource.loadData(hasSnapshot, this);
+			}
 		}
 	}
 
@@ -90,31 +262,25 @@ public class DirectBodyPresenter<
 
 	@Override
 	public void onDataLoaded(final BaseDataSource<List<D>> source, final List<D> data) {
-		if (view != null) {
-			view.setItems(data);
-		}
+		takeSnapshot(data, true);
 	}
 
 	@Override
 	public void onLoadDataFailed(final BaseDataSource source) {
-		if (view != null) {
-			view.setItems(null);
-		}
+		takeSnapshot(null, false);
 	}
 
 	@Override
 	public void onDataReplaced(final BaseDataSource<List<D>> source, final List<D> oldData,
 			final List<D> newData) {
-		if (view != null) {
-			view.setItems(newData);
-		}
+		takeSnapshot(newData, true);
 	}
 
 	@Override
 	public void onDataModified(final BaseDataSource<List<D>> source, final List<D> data) {
-		if (view != null) {
-			view.notifyItemsChanged();
-		}
+		// The whole list is about to be refreshed, so batched events are redundant
+		discardFrameChanges();
+		applyListModified();
 	}
 
 	@Override
@@ -133,30 +299,96 @@ public class DirectBodyPresenter<
 
 	@Override
 	public void onDataAdded(final ListDataSource<D> source, final D added, final int index) {
-		if (view != null) {
-			view.notifyItemAdded(index);
+		if (!shouldBatchEvents()) {
+			applyItemAdded(added, index);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordAdded(added, index);
+			}
+
+			scheduleFrameFlush();
 		}
 	}
 
 	@Override
 	public void onDataRemoved(final ListDataSource<D> source, final D removed, final int index) {
-		if (view != null) {
-			view.notifyItemRemoved(index);
+		if (!shouldBatchEvents()) {
+			applyItemRemoved(removed, index);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordRemoved(removed, index);
+			}
+
+			scheduleFrameFlush();
+		}
+	}
+
+	@Override
+	public void onDataRangeAdded(final ListDataSource<D> source, final List<D> added,
+			final int startIndex) {
+		if (!shouldBatchEvents()) {
+			applyItemRangeAdded(added, startIndex);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordRangeAdded(added, startIndex);
+			}
+
+			scheduleFrameFlush();
+		}
+	}
+
+	@Override
+	public void onDataRangeRemoved(final ListDataSource<D> source, final List<D> removed,
+			final int startIndex) {
+		if (!shouldBatchEvents()) {
+			applyItemRangeRemoved(removed, startIndex);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordRangeRemoved(removed, startIndex);
+			}
+
+			scheduleFrameFlush();
 		}
 	}
 
 	@Override
 	public void onItemModified(final ListDataSource<D> source, final D modified, final int index) {
-		if (view != null) {
-			view.notifyItemModified(index);
+		if (!shouldBatchEvents()) {
+			applyItemModified(modified, index);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordModified(modified, index, LibraryItemFields.ALL);
+			}
+
+			scheduleFrameFlush();
+		}
+	}
+
+	@Override
+	public void onItemFieldsModified(final ListDataSource<D> source, final D modified,
+			final int index, final int changedFields) {
+		if (!shouldBatchEvents()) {
+			applyItemFieldsModified(modified, index, changedFields);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordModified(modified, index, changedFields);
+			}
+
+			scheduleFrameFlush();
 		}
 	}
 
 	@Override
 	public void onDataMoved(final ListDataSource<D> source, final D moved, final int initialIndex,
 			final int finalIndex) {
-		if (view != null) {
-			view.notifyItemMoved(initialIndex, finalIndex);
+		if (!shouldBatchEvents()) {
+			applyItemMoved(moved, initialIndex, finalIndex);
+		} else {
+			synchronized (frameChangesLock) {
+				frameChanges.recordMoved(moved, initialIndex, finalIndex);
+			}
+
+			scheduleFrameFlush();
 		}
 	}
 
@@ -171,6 +403,617 @@ public class DirectBodyPresenter<
 		// Do nothing
 	}
 
+	/**
+	 * Sets the dispatcher to use when batching item events. When a dispatcher is set and the data
+	 * source is a {@link SnapshotListDataSource}, item events can be delivered to this presenter
+	 * from any thread. They are merged and passed to the view together at the start of the next
+	 * frame, along with the snapshot they were published with. Events from other data sources are
+	 * never batched, since the view shows the live list of the data source and that list already
+	 * reflects each event, so the view would be out of step with its list until the next frame.
+	 * When events are not batched, they must be delivered on the UI thread and are passed to the
+	 * view immediately. This method must be called on the UI thread, and any events which are
+	 * waiting for the next frame are delivered immediately when batching is disabled.
+	 *
+	 * @param eventDispatcher
+	 * 		the dispatcher to use, null to deliver each event immediately
+	 */
+	public void setEventDispatcher(final FrameResultDispatcher eventDispatcher) {
+		this.eventDispatcher = eventDispatcher;
+
+		if (eventDispatcher == null) {
+			flushFrameChanges();
+		}
+	}
+
+	/**
+	 * @return the dispatcher used to batch item events, null if item events are delivered
+	 * immediately
+	 */
+	public FrameResultDispatcher getEventDispatcher() {
+		return eventDispatcher;
+	}
+
+	/**
+	 * Sets the maximum number of changed items to deliver to the view as granular notifications
+	 * when the data source delivers a new list. If a new list differs by more items than this, the
+	 * view is reset instead. The differences are not calculated if a cheap lower bound on the
+	 * number of changes already exceeds the limit, which is the case when the sizes of the lists
+	 * differ by more than the limit, or when every item has a stable ID and more than the limit
+	 * of IDs appear in only one of the lists.
+	 *
+	 * @param maxDiffChanges
+	 * 		the maximum number of changed items, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxDiffChanges} is less than zero
+	 */
+	public void setMaxDiffChanges(final int maxDiffChanges) {
+		this.maxDiffChanges = checkGreaterThanOrEqualTo(maxDiffChanges, 0,
+				"maxDiffChanges cannot be less than 0.");
+	}
+
+	/**
+	 * @return the maximum number of changed items to deliver to the view as granular notifications
+	 */
+	public int getMaxDiffChanges() {
+		return maxDiffChanges;
+	}
+
+	/**
+	 * Sets the policy which determines whether the data source is asked to refresh when a view is
+	 * attached. The default policy is {@link LoadPolicy#CACHE_FIRST}.
+	 *
+	 * @param loadPolicy
+	 * 		the policy to use, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code loadPolicy} is null
+	 */
+	public void setLoadPolicy(final LoadPolicy loadPolicy) {
+		this.loadPolicy = checkNotNull(loadPolicy, "loadPolicy cannot be null.");
+	}
+
+	/**
+	 * @return the policy which determines whether the data source is asked to refresh when a view
+	 * is attached
+	 */
+	public LoadPolicy getLoadPolicy() {
+		return loadPolicy;
+	}
+
+	/**
+	 * Sets the age after which the retained list is considered stale when using {@link
+	 * LoadPolicy#REFRESH_IF_STALE}.
+	 *
+	 * @param maxSnapshotAge
+	 * 		the maximum age in milliseconds, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSnapshotAge} is less than zero
+	 */
+	public void setMaxSnapshotAge(final long maxSnapshotAge) {
+		if (maxSnapshotAge < 0) {
+			throw new IllegalArgumentException("maxSnapshotAge cannot be less than 0.");
+		}
+
+		this.maxSnapshotAge = maxSnapshotAge;
+	}
+
+	/**
+	 * @return the age in milliseconds after which the retained list is considered stale
+	 */
+	public long getMaxSnapshotAge() {
+		return maxSnapshotAge;
+	}
+
+	/**
+	 * Determines whether two items represent the same entity, so that a change in the content of an
+	 * item can be distinguished from the removal of one item and the insertion of another. The
+	 * default implementation compares the stable IDs of the items if they both have one, and
+	 * otherwise uses {@link Object#equals(Object)}. When every item has a stable ID, items with
+	 * different IDs are assumed to be different entities while estimating the size of a change,
+	 * so overrides should be consistent with this. This method is called on a background thread.
+	 *
+	 * @param oldItem
+	 * 		the item from the displayed list, may be null
+	 * @param newItem
+	 * 		the item from the new list, may be null
+	 * @return true if the items represent the same entity, false otherwise
+	 */
+	protected boolean areItemsTheSame(final LibraryItem oldItem, final LibraryItem newItem) {
+		final long oldId = StableIdUtil.getItemId(oldItem);
+		final long newId = StableIdUtil.getItemId(newItem);
+
+		if (oldId != IdentifiableLibraryItem.NO_ID && newId != IdentifiableLibraryItem.NO_ID) {
+			return oldId == newId;
+		} else {
+			return oldItem == null ? newItem == null : oldItem.equals(newItem);
+		}
+	}
+
+	/**
+	 * Determines whether two items which represent the same entity have the same displayed
+	 * content. Items with different content are rebound. The default implementation uses {@link
+	 * Object#equals(Object)}. This method is called on a background thread.
+	 *
+	 * @param oldItem
+	 * 		the item from the displayed list, may be null
+	 * @param newItem
+	 * 		the item from the new list, may be null
+	 * @return true if the items have the same content, false otherwise
+	 */
+	protected boolean areContentsTheSame(final LibraryItem oldItem, final LibraryItem newItem) {
+		return oldItem == null ? newItem == null : oldItem.equals(newItem);
+	}
+
+	/**
+	 * @return the items of the snapshot most recently published by the data source, null if the
+	 * data source does not publish snapshots
+	 */
+	@SuppressWarnings("unchecked") // The data source supplies items of type D
+	private List<D> getPublishedItems() {
+		if (dataSource instanceof SnapshotListDataSource) {
+			return ((SnapshotListDataSource<D>) dataSource).getPublishedSnapshot().getItems();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Updates the retained list to the snapshot published with the event being delivered, if the
+	 * data source publishes snapshots. Must only be called on the UI thread.
+	 */
+	private void usePublishedSnapshot() {
+		final List<D> publishedItems = getPublishedItems();
+
+		if (publishedItems != null) {
+			snapshot = publishedItems;
+		}
+	}
+
+	/**
+	 * Prepares the view to receive a granular notification. If a difference calculation is in
+	 * progress the view is reset instead. Otherwise, if the data source publishes snapshots, the
+	 * view is given the retained list so that it matches the notification. Must only be called on
+	 * the UI thread when there is a view.
+	 *
+	 * @return true if the notification should be delivered, false if the view was reset
+	 */
+	private boolean prepareViewForNotification() {
+		if (flushDiff()) {
+			return false;
+		}
+
+		if (getPublishedItems() != null) {
+			view.swapItems(snapshot);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Notifies the view that the entire list may have changed, or remembers that the view must be
+	 * reset if no view is attached. Must only be called on the UI thread.
+	 */
+	private void applyListModified() {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			pendingChanges.clear();
+			pendingReset = true;
+		} else if (prepareViewForNotification()) {
+			view.notifyItemsChanged();
+		}
+	}
+
+	/**
+	 * Delivers the addition of an item to the view, or buffers it if no view is attached. Must
+	 * only be called on the UI thread.
+	 *
+	 * @param added
+	 * 		the added item, may be null
+	 * @param index
+	 * 		the index of the item
+	 */
+	private void applyItemAdded(final D added, final int index) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordAdded(added, index);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemAdded(index);
+		}
+	}
+
+	/**
+	 * Delivers the removal of an item to the view, or buffers it if no view is attached. Must only
+	 * be called on the UI thread.
+	 *
+	 * @param removed
+	 * 		the removed item, may be null
+	 * @param index
+	 * 		the index of the item
+	 */
+	private void applyItemRemoved(final D removed, final int index) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordRemoved(removed, index);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemRemoved(index);
+		}
+	}
+
+	/**
+	 * Delivers the addition of a range of items to the view, or buffers it if no view is attached.
+	 * Must only be called on the UI thread.
+	 *
+	 * @param added
+	 * 		the added items, not null
+	 * @param startIndex
+	 * 		the index of the first item
+	 */
+	private void applyItemRangeAdded(final List<D> added, final int startIndex) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordRangeAdded(added, startIndex);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemRangeAdded(startIndex, added.size());
+		}
+	}
+
+	/**
+	 * Delivers the removal of a range of items to the view, or buffers it if no view is attached.
+	 * Must only be called on the UI thread.
+	 *
+	 * @param removed
+	 * 		the removed items, not null
+	 * @param startIndex
+	 * 		the index of the first item
+	 */
+	private void applyItemRangeRemoved(final List<D> removed, final int startIndex) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordRangeRemoved(removed, startIndex);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemRangeRemoved(startIndex, removed.size());
+		}
+	}
+
+	/**
+	 * Delivers the modification of an item to the view, or buffers it if no view is attached. Must
+	 * only be called on the UI thread.
+	 *
+	 * @param modified
+	 * 		the modified item, may be null
+	 * @param index
+	 * 		the index of the item
+	 */
+	private void applyItemModified(final D modified, final int index) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordModified(modified, index, LibraryItemFields.ALL);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemModified(index);
+		}
+	}
+
+	/**
+	 * Delivers the modification of specific fields of an item to the view, or buffers it if no
+	 * view is attached. Must only be called on the UI thread.
+	 *
+	 * @param modified
+	 * 		the modified item, may be null
+	 * @param index
+	 * 		the index of the item
+	 * @param changedFields
+	 * 		the fields which changed, as a combination of the flags defined in {@link
+	 * 		LibraryItemFields}
+	 */
+	private void applyItemFieldsModified(final D modified, final int index,
+			final int changedFields) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordModified(modified, index, changedFields);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemModified(index, changedFields);
+		}
+	}
+
+	/**
+	 * Delivers the move of an item to the view, or buffers it if no view is attached. Must only be
+	 * called on the UI thread.
+	 *
+	 * @param moved
+	 * 		the moved item, may be null
+	 * @param initialIndex
+	 * 		the index of the item before being moved
+	 * @param finalIndex
+	 * 		the index of the item after being moved
+	 */
+	private void applyItemMoved(final D moved, final int initialIndex, final int finalIndex) {
+		usePublishedSnapshot();
+
+		if (view == null) {
+			if (shouldBufferChanges()) {
+				pendingChanges.recordMoved(moved, initialIndex, finalIndex);
+			}
+		} else if (prepareViewForNotification()) {
+			view.notifyItemMoved(initialIndex, finalIndex);
+		}
+	}
+
+	/**
+	 * Determines whether item events should be batched until the next frame. Events are only
+	 * batched if a dispatcher is set and the data source publishes snapshots, so that the view
+	 * keeps the snapshot which matches the events it has been notified of until the batch is
+	 * flushed.
+	 *
+	 * @return true if item events should be batched, false if they should be applied immediately
+	 */
+	private boolean shouldBatchEvents() {
+		return eventDispatcher != null && dataSource instanceof SnapshotListDataSource;
+	}
+
+	/**
+	 * Schedules the batched item events to be delivered at the start of the next frame, unless a
+	 * delivery is already scheduled. This method may be called from any thread.
+	 */
+	private void scheduleFrameFlush() {
+		final FrameResultDispatcher dispatcher = eventDispatcher;
+
+		if (dispatcher == null) {
+			// Batching was disabled after the event was recorded, and disabling flushes
+			return;
+		}
+
+		if (frameFlushScheduled.compareAndSet(false, true)) {
+			dispatcher.post(frameFlush);
+		}
+	}
+
+	/**
+	 * Delivers the item events batched since the last frame. If the events would cause more
+	 * notifications than the maximum set using {@link #setMaxDiffChanges(int)}, the view is
+	 * notified that the entire list changed instead. Must only be called on the UI thread.
+	 */
+	private void flushFrameChanges() {
+		// Clear the flag first so that an event recorded during the flush schedules another one
+		frameFlushScheduled.set(false);
+
+		final ListChangeBuffer<D> changes;
+
+		synchronized (frameChangesLock) {
+			if (frameChanges.isEmpty()) {
+				return;
+			}
+
+			changes = frameChanges;
+			frameChanges = new ListChangeBuffer<>();
+		}
+
+		if (changes.getChangeCount() > maxDiffChanges) {
+			applyListModified();
+		} else {
+			changes.dispatch(frameChangeApplier);
+		}
+	}
+
+	/**
+	 * Discards the item events batched since the last frame without delivering them.
+	 */
+	private void discardFrameChanges() {
+		synchronized (frameChangesLock) {
+			frameChanges.clear();
+		}
+	}
+
+	/**
+	 * Retains the result of a load or replacement, and shows it in the view if there is one.
+	 * Events buffered while no view was attached are discarded, since the new list already
+	 * reflects them.
+	 *
+	 * @param data
+	 * 		the list to retain, may be null
+	 * @param successful
+	 * 		true if the list was delivered successfully, false if the load failed
+	 */
+	private void takeSnapshot(final List<D> data, final boolean successful) {
+		final List<D> publishedItems = successful ? getPublishedItems() : null;
+
+		// A published snapshot reflects every delivered event, so it is never older than the data
+		snapshot = publishedItems == null ? data : publishedItems;
+		hasSnapshot = successful;
+		snapshotTime = System.nanoTime();
+
+		discardFrameChanges();
+		pendingChanges.clear();
+		pendingReset = false;
+
+		if (view != null) {
+			presentItems(snapshot);
+		} else {
+			pendingReplace = true;
+		}
+	}
+
+	/**
+	 * Discards the retained list and any pending events.
+	 */
+	private void discardSnapshot() {
+		snapshot = null;
+		hasSnapshot = false;
+		pendingChanges.clear();
+		pendingReplace = false;
+		pendingReset = false;
+		detachedView = null;
+	}
+
+	/**
+	 * Shows the retained list in the newly attached view. If the view was the last view to be
+	 * detached it already shows the list, so only the events buffered in the meantime are
+	 * delivered to it. If the list was replaced in the meantime, the view is updated with a single
+	 * diff.
+	 */
+	private void restoreSnapshot() {
+		final boolean reattached = detachedView != null && detachedView.get() == view;
+
+		if (reattached && !pendingReplace) {
+			if (pendingReset) {
+				view.setItems(snapshot);
+			} else {
+				if (getPublishedItems() != null) {
+					view.swapItems(snapshot);
+				}
+
+				pendingChanges.dispatch(new BufferedChangeApplier<D>(view));
+			}
+		} else if (reattached) {
+			presentItems(snapshot);
+		} else if (hasSnapshot || pendingReplace) {
+			view.setItems(snapshot);
+		}
+
+		pendingChanges.clear();
+		pendingReplace = false;
+		pendingReset = false;
+		detachedView = null;
+	}
+
+	/**
+	 * Determines whether an item event delivered while no view is attached needs to be buffered.
+	 * Events are not buffered if the view will be reset on reattach anyway, and once too many
+	 * events are buffered they are discarded in favour of a reset.
+	 *
+	 * @return true if the event should be buffered, false otherwise
+	 */
+	private boolean shouldBufferChanges() {
+		if (!hasSnapshot || pendingReplace || pendingReset) {
+			return false;
+		}
+
+		if (pendingChanges.getChangeCount() >= maxDiffChanges) {
+			pendingChanges.clear();
+			pendingReset = true;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return true if the data source should be asked to load after a view is attached, false
+	 * otherwise
+	 */
+	private boolean shouldLoad() {
+		if (!hasSnapshot) {
+			return true;
+		}
+
+		switch (loadPolicy) {
+			case ALWAYS:
+				return true;
+
+			case REFRESH_IF_STALE:
+				return (System.nanoTime() - snapshotTime) / 1000000 > maxSnapshotAge;
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Shows the supplied items in the view. If the view is already showing items, the differences
+	 * are calculated in the background and delivered as granular notifications. Otherwise the
+	 * items are set directly since there is nothing to preserve. Virtual lists are always set
+	 * directly, since calculating the differences would create every item.
+	 *
+	 * @param items
+	 * 		the items to show, may be null
+	 */
+	private void presentItems(final List<D> items) {
+		cancelDiff();
+
+		if (view == null) {
+			return;
+		}
+
+		final List<? extends LibraryItem> displayedItems = view.getItems();
+
+		if (displayedItems == null || displayedItems.isEmpty() || items == null ||
+				items.isEmpty() || displayedItems == items ||
+				displayedItems instanceof VirtualList || items instanceof VirtualList) {
+			view.setItems(items);
+		} else if (Math.abs(items.size() - displayedItems.size()) > maxDiffChanges) {
+			// Every size difference is an insertion or removal, so the view would be reset anyway
+			view.setItems(items);
+		} else {
+			// The binders use the serial executor, so avoid queueing behind their tasks
+			diffTask = new DiffTask(view, immutableVersionOf(displayedItems),
+					immutableVersionOf(items), items);
+			diffTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+		}
+	}
+
+	/**
+	 * Returns a version of the supplied list which can be read on a background thread. Persistent
+	 * lists (such as the items of a {@link ListSnapshot}) never change, so they are returned as
+	 * is. Other lists may be modified on the main thread while they are being read, so they are
+	 * copied.
+	 *
+	 * @param list
+	 * 		the list to get an immutable version of, not null
+	 * @param <T>
+	 * 		the type of items in the list
+	 * @return the list itself if it is immutable, otherwise a copy of it
+	 */
+	private static <T> List<T> immutableVersionOf(final List<T> list) {
+		return list instanceof PersistentList ? list : new ArrayList<>(list);
+	}
+
+	/**
+	 * Cancels the current difference calculation, if any. The view is left showing its current
+	 * items.
+	 */
+	private void cancelDiff() {
+		if (diffTask != null) {
+			diffTask.cancel(false);
+			diffTask = null;
+		}
+	}
+
+	/**
+	 * Abandons the current difference calculation, if any, and resets the view with the new list.
+	 * Must be called before delivering a granular notification, since the notification refers to
+	 * the new list rather than the list the view is showing.
+	 *
+	 * @return true if a calculation was abandoned and the view was reset, false otherwise
+	 */
+	private boolean flushDiff() {
+		if (diffTask == null) {
+			return false;
+		}
+
+		// The retained list is at least as new as the list being diffed
+		cancelDiff();
+		view.setItems(snapshot);
+
+		return true;
+	}
+
 	/**
 	 * Unsubscribes this presenter from all callbacks delivered by the supplied data source.
 	 *
@@ -186,6 +1029,8 @@ public class DirectBodyPresenter<
 			dataSource.unregisterItemRemovedListener(this);
 			dataSource.unregisterItemMovedListener(this);
 			dataSource.unregisterItemModifiedListener(this);
+			dataSource.unregisterItemRangeAddedListener(this);
+			dataSource.unregisterItemRangeRemovedListener(this);
 		}
 	}
 
@@ -204,6 +1049,8 @@ public class DirectBodyPresenter<
 			dataSource.registerItemRemovedListener(this);
 			dataSource.registerItemModifiedListener(this);
 			dataSource.registerItemMovedListener(this);
+			dataSource.registerItemRangeAddedListener(this);
+			dataSource.registerItemRangeRemovedListener(this);
 		}
 	}
 
@@ -232,4 +1079,317 @@ public class DirectBodyPresenter<
 			view.addContextualMenuItemSelectedListener(this);
 		}
 	}
+
+	/**
+	 * Calculates the differences between the displayed items and a new list on a background
+	 * thread, then delivers the differences to the view.
+	 */
+	private class DiffTask extends AsyncTask<Void, Void, DiffUtil.DiffResult> {
+		/**
+		 * The view to deliver the differences to.
+		 */
+		private final V view;
+
+		/**
+		 * An immutable version of the list displayed in the view when the task was created.
+		 */
+		private final List<? extends LibraryItem> immutableOldItems;
+
+		/**
+		 * An immutable version of the new list, so that the new list is not read on the background
+		 * thread.
+		 */
+		private final List<D> immutableNewItems;
+
+		/**
+		 * The list to give to the view once the differences are known.
+		 */
+		private final List<D> newItems;
+
+		/**
+		 * Constructs a new DiffTask. No lists are copied, so the task can be created cheaply on the
+		 * main thread.
+		 *
+		 * @param view
+		 * 		the view to deliver the differences to, not null
+		 * @param immutableOldItems
+		 * 		an immutable version of the list displayed in the view, not null
+		 * @param immutableNewItems
+		 * 		an immutable version of the new list, not null
+		 * @param newItems
+		 * 		the list to give to the view, not null
+		 */
+		public DiffTask(final V view, final List<? extends LibraryItem> immutableOldItems,
+				final List<D> immutableNewItems, final List<D> newItems) {
+			this.view = view;
+			this.immutableOldItems = immutableOldItems;
+			this.immutableNewItems = immutableNewItems;
+			this.newItems = newItems;
+		}
+
+		@Override
+		protected DiffUtil.DiffResult doInBackground(final Void... params) {
+			// The diff reads positions repeatedly, so give it lists with constant time access
+			final List<LibraryItem> oldItems = new ArrayList<LibraryItem>(immutableOldItems);
+			final List<D> newItemsSnapshot = new ArrayList<>(immutableNewItems);
+
+			// Avoid the quadratic worst case of the diff when the view would be reset anyway
+			if (countUnmatchedIds(oldItems, newItemsSnapshot) > maxDiffChanges) {
+				return null;
+			}
+
+			return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+				@Override
+				public int getOldListSize() {
+					return oldItems.size();
+				}
+
+				@Override
+				public int getNewListSize() {
+					return newItemsSnapshot.size();
+				}
+
+				@Override
+				public boolean areItemsTheSame(final int oldItemPosition,
+						final int newItemPosition) {
+					return DirectBodyPresenter.this.areItemsTheSame(oldItems.get(oldItemPosition),
+							newItemsSnapshot.get(newItemPosition));
+				}
+
+				@Override
+				public boolean areContentsTheSame(final int oldItemPosition,
+						final int newItemPosition) {
+					return DirectBodyPresenter.this.areContentsTheSame(
+							oldItems.get(oldItemPosition), newItemsSnapshot.get(newItemPosition));
+				}
+			});
+		}
+
+		@Override
+		protected void onPostExecute(final DiffUtil.DiffResult result) {
+			if (diffTask != this) {
+				return;
+			}
+
+			diffTask = null;
+
+			if (result == null) {
+				view.setItems(newItems);
+				return;
+			}
+
+			final ChangeCounter counter = new ChangeCounter();
+			result.dispatchUpdatesTo(counter);
+
+			if (counter.changeCount > maxDiffChanges) {
+				view.setItems(newItems);
+			} else {
+				view.swapItems(newItems);
+				result.dispatchUpdatesTo(new ViewUpdater(view));
+			}
+		}
+	}
+
+	/**
+	 * Counts the stable IDs which appear in only one of the supplied lists, taking duplicates into
+	 * account. Each such ID requires an insertion or a removal, so the count is a lower bound on
+	 * the number of changes between the lists. The count is only meaningful if every item has a
+	 * stable ID, so zero is returned if any item does not.
+	 *
+	 * @param oldItems
+	 * 		the displayed items, not null
+	 * @param newItems
+	 * 		the new items, not null
+	 * @return the number of unmatched IDs, zero if any item does not have a stable ID
+	 */
+	private static int countUnmatchedIds(final List<? extends LibraryItem> oldItems,
+			final List<? extends LibraryItem> newItems) {
+		final Map<Long, Integer> oldIdCounts = new HashMap<>(oldItems.size() * 2);
+
+		for (final LibraryItem item : oldItems) {
+			final long id = StableIdUtil.getItemId(item);
+
+			if (id == IdentifiableLibraryItem.NO_ID) {
+				return 0;
+			}
+
+			final Integer count = oldIdCounts.get(id);
+			oldIdCounts.put(id, count == null ? 1 : count + 1);
+		}
+
+		int unmatchedNewCount = 0;
+
+		for (final LibraryItem item : newItems) {
+			final long id = StableIdUtil.getItemId(item);
+
+			if (id == IdentifiableLibraryItem.NO_ID) {
+				return 0;
+			}
+
+			final Integer count = oldIdCounts.get(id);
+
+			if (count == null) {
+				unmatchedNewCount++;
+			} else if (count == 1) {
+				oldIdCounts.remove(id);
+			} else {
+				oldIdCounts.put(id, count - 1);
+			}
+		}
+
+		final int matchedCount = newItems.size() - unmatchedNewCount;
+		return unmatchedNewCount + (oldItems.size() - matchedCount);
+	}
+
+	/**
+	 * Counts the number of items affected by a set of list updates.
+	 */
+	private static class ChangeCounter implements ListUpdateCallback {
+		/**
+		 * The number of items inserted, removed, moved or changed.
+		 */
+		private int changeCount = 0;
+
+		@Override
+		public void onInserted(final int position, final int count) {
+			changeCount += count;
+		}
+
+		@Override
+		public void onRemoved(final int position, final int count) {
+			changeCount += count;
+		}
+
+		@Override
+		public void onMoved(final int fromPosition, final int toPosition) {
+			changeCount++;
+		}
+
+		@Override
+		public void onChanged(final int position, final int count, final Object payload) {
+			changeCount += count;
+		}
+	}
+
+	/**
+	 * Passes the item events batched during a frame to the view.
+	 */
+	private class FrameChangeApplier implements ListChangeBuffer.Receiver<D> {
+		@Override
+		public void onItemsAdded(final List<D> items, final int startIndex) {
+			if (items.size() == 1) {
+				applyItemAdded(items.get(0), startIndex);
+			} else {
+				applyItemRangeAdded(items, startIndex);
+			}
+		}
+
+		@Override
+		public void onItemsRemoved(final List<D> items, final int startIndex) {
+			if (items.size() == 1) {
+				applyItemRemoved(items.get(0), startIndex);
+			} else {
+				applyItemRangeRemoved(items, startIndex);
+			}
+		}
+
+		@Override
+		public void onItemModified(final D item, final int index, final int changedFields) {
+			if (changedFields == LibraryItemFields.ALL) {
+				applyItemModified(item, index);
+			} else {
+				applyItemFieldsModified(item, index, changedFields);
+			}
+		}
+
+		@Override
+		public void onItemMoved(final D item, final int initialIndex, final int finalIndex) {
+			applyItemMoved(item, initialIndex, finalIndex);
+		}
+	}
+
+	/**
+	 * Delivers the events buffered while no view was attached to a reattached view.
+	 *
+	 * @param <D>
+	 * 		the type of items in the list
+	 */
+	private static class BufferedChangeApplier<D> implements ListChangeBuffer.Receiver<D> {
+		/**
+		 * The view to notify.
+		 */
+		private final BodyView view;
+
+		/**
+		 * Constructs a new BufferedChangeApplier.
+		 *
+		 * @param view
+		 * 		the view to notify, not null
+		 */
+		public BufferedChangeApplier(final BodyView view) {
+			this.view = view;
+		}
+
+		@Override
+		public void onItemsAdded(final List<D> items, final int startIndex) {
+			view.notifyItemRangeAdded(startIndex, items.size());
+		}
+
+		@Override
+		public void onItemsRemoved(final List<D> items, final int startIndex) {
+			view.notifyItemRangeRemoved(startIndex, items.size());
+		}
+
+		@Override
+		public void onItemModified(final D item, final int index, final int changedFields) {
+			view.notifyItemModified(index, changedFields);
+		}
+
+		@Override
+		public void onItemMoved(final D item, final int initialIndex, final int finalIndex) {
+			view.notifyItemMoved(initialIndex, finalIndex);
+		}
+	}
+
+	/**
+	 * Delivers a set of list updates to a view as granular notifications.
+	 */
+	private static class ViewUpdater implements ListUpdateCallback {
+		/**
+		 * The view to notify.
+		 */
+		private final BodyView view;
+
+		/**
+		 * Constructs a new ViewUpdater.
+		 *
+		 * @param view
+		 * 		the view to notify, not null
+		 */
+		public ViewUpdater(final BodyView view) {
+			this.view = view;
+		}
+
+		@Override
+		public void onInserted(final int position, final int count) {
+			view.notifyItemRangeAdded(position, count);
+		}
+
+		@Override
+		public void onRemoved(final int position, final int count) {
+			view.notifyItemRangeRemoved(position, count);
+		}
+
+		@Override
+		public void onMoved(final int fromPosition, final int toPosition) {
+			view.notifyItemMoved(fromPosition, toPosition);
+		}
+
+		@Override
+		public void onChanged(final int position, final int count, final Object payload) {
+			for (int i = 0; i < count; i++) {
+				view.notifyItemModified(position + i);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -30,7 +30,6 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.matthewtamlin.mixtape.library.R;
-import com.matthewtamlin.mixtape.library.data.LibraryItem;
 
 import static android.support.v7.widget.LinearLayoutManager.VERTICAL;
 import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThan;
@@ -133,8 +132,8 @@ public class GridBody extends RecyclerBodyView {
 	}
 
 	@Override
-	protected void onViewHolderBound(final BodyViewHolder viewHolder, final LibraryItem data) {
-		super.onViewHolderBound(viewHolder, data);
+	protected void onApplyStyle(final BodyViewHolder viewHolder) {
+		super.onApplyStyle(viewHolder);
 
 		((CardView) viewHolder.getRootView()).setCardBackgroundColor(cardBackgroundColor);
 		viewHolder.getTitleTextView().setTextColor(titleTextColor);
@@ -153,7 +152,7 @@ public class GridBody extends RecyclerBodyView {
 		titleTextColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	@Override
@@ -161,7 +160,7 @@ public class GridBody extends RecyclerBodyView {
 		subtitleTextColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	@Override
@@ -169,7 +168,7 @@ public class GridBody extends RecyclerBodyView {
 		overflowButtonColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	/**
@@ -202,7 +201,7 @@ public class GridBody extends RecyclerBodyView {
 		cardBackgroundColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	/**
@@ -30,7 +30,6 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.matthewtamlin.mixtape.library.R;
-import com.matthewtamlin.mixtape.library.data.LibraryItem;
 
 import static com.matthewtamlin.android_utilities.library.helpers.DimensionHelper.dpToPx;
 
@@ -134,8 +133,7 @@ public class ListBody extends RecyclerBodyView {
 	}
 
 	@Override
-	protected void onViewHolderBound(final BodyViewHolder viewHolder,
-			final LibraryItem data) {
+	protected void onApplyStyle(final BodyViewHolder viewHolder) {
 		viewHolder.getArtworkImageView().setVisibility(showArtwork ? VISIBLE : GONE);
 
 		viewHolder.getTitleTextView().setTextColor(titleTextColor);
@@ -154,7 +152,7 @@ public class ListBody extends RecyclerBodyView {
 		titleTextColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	@Override
@@ -162,7 +160,7 @@ public class ListBody extends RecyclerBodyView {
 		subtitleTextColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	@Override
@@ -170,7 +168,7 @@ public class ListBody extends RecyclerBodyView {
 		this.overflowButtonColor = color;
 
 		// Ensures the UI updates
-		notifyItemsChanged();
+		invalidateStyle();
 	}
 
 	/**
@@ -206,7 +204,7 @@ public class ListBody extends RecyclerBodyView {
 	 */
 	public void showArtwork(final boolean show) {
 		showArtwork = show;
-		getRecyclerView().getAdapter().notifyDataSetChanged(); // Forces UI update
+		invalidateStyle(); // Forces UI update
 	}
 
 	/**
@@ -34,7 +34,10 @@ import android.widget.TextView;
 
 import com.matthewtamlin.android_utilities.library.helpers.ThemeColorHelper;
 import com.matthewtamlin.mixtape.library.R;
+import com.matthewtamlin.mixtape.library.caching.PinnableItemCache;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
+import com.matthewtamlin.mixtape.library.data.LibraryItemFields;
+import com.matthewtamlin.mixtape.library.data.StableIdUtil;
 import com.matthewtamlin.mixtape.library.databinders.DataBinder;
 
 import java.util.ArrayList;
@@ -44,11 +47,15 @@ import java.util.Set;
 
 import timber.log.Timber;
 
+import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 /**
  * A RecyclerView backed partial-implementation of the BodyContract.View interface. This class binds
- * data to the UI using DataBinders, and delegates the appearance of the UI to subclasses.
+ * data to the UI using DataBinders, and delegates the appearance of the UI to subclasses. Stable
+ * IDs can be enabled when every item is an IdentifiableLibraryItem. If a pinned cache is set, the
+ * cache entries of the items which are laid out (plus a margin either side) are pinned so that
+ * they cannot be evicted while they are on screen.
  */
 public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 	/**
@@ -109,6 +116,61 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 	 */
 	private Adapter<BodyViewHolder> adapter;
 
+	/**
+	 * The cache to pin the entries of on-screen items in, null if pinning is disabled.
+	 */
+	private PinnableItemCache<?> pinnedCache;
+
+	/**
+	 * The number of items either side of the attached items to pin.
+	 */
+	private int pinMargin = 4;
+
+	/**
+	 * The items which are currently pinned in the pinned cache, where the item at each index is
+	 * the item at position {@code pinnedStart + index}. This member variable must never be null.
+	 */
+	private ArrayList<LibraryItem> pinnedItems = new ArrayList<>();
+
+	/**
+	 * Holds the new pinned items while the pins are updated, so that updates don't allocate. This
+	 * list is empty between updates and must never be null.
+	 */
+	private ArrayList<LibraryItem> nextPinnedItems = new ArrayList<>();
+
+	/**
+	 * The position of the first pinned item. Only meaningful if {@link #pinnedItems} is not empty.
+	 */
+	private int pinnedStart = 0;
+
+	/**
+	 * Whether or not the adapter data has changed since the pins were last updated. While stale,
+	 * the pinned items can't be matched to positions, so the next update pins the whole range.
+	 */
+	private boolean pinsStale = true;
+
+	/**
+	 * Whether or not artwork is cleared from rows as they are detached from the window.
+	 */
+	private boolean clearArtworkOnDetach = false;
+
+	/**
+	 * The view holders which have had their artwork cleared on detach and have not been rebound
+	 * since. This member variable must never be null.
+	 */
+	private final Set<BodyViewHolder> clearedHolders = new HashSet<>();
+
+	/**
+	 * The version of the current styling. Incremented whenever the styling changes, so that view
+	 * holders are only restyled when their styling is out of date.
+	 */
+	private int styleVersion = 0;
+
+	/**
+	 * Whether or not styling is applied on every bind, and style changes rebind every item.
+	 */
+	private boolean styleOnEveryBind = false;
+
 	/**
 	 * Constructs a new RecyclerViewBody.
 	 *
@@ -161,6 +223,11 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		adapter.notifyDataSetChanged();
 	}
 
+	@Override
+	public void swapItems(final List<? extends LibraryItem> items) {
+		data = items == null ? new ArrayList<LibraryItem>() : items;
+	}
+
 	@Override
 	public int getContextualMenuResource() {
 		return contextualMenuResourceId;
@@ -192,11 +259,27 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		adapter.notifyItemRemoved(index);
 	}
 
+	@Override
+	public void notifyItemRangeAdded(final int startIndex, final int count) {
+		adapter.notifyItemRangeInserted(startIndex, count);
+	}
+
+	@Override
+	public void notifyItemRangeRemoved(final int startIndex, final int count) {
+		adapter.notifyItemRangeRemoved(startIndex, count);
+	}
+
 	@Override
 	public void notifyItemModified(final int index) {
 		adapter.notifyItemChanged(index);
 	}
 
+	@Override
+	public void notifyItemModified(final int index, final int changedFields) {
+		// The payload lets the adapter rebind only the changed fields on the existing holder
+		adapter.notifyItemChanged(index, changedFields);
+	}
+
 	@Override
 	public void notifyItemMoved(final int initialIndex, final int finalIndex) {
 		adapter.notifyItemMoved(initialIndex, finalIndex);
@@ -316,6 +399,136 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		}
 	}
 
+	/**
+	 * @return the cache which the entries of on-screen items are pinned in, null if there is none
+	 */
+	public PinnableItemCache<?> getPinnedCache() {
+		return pinnedCache;
+	}
+
+	/**
+	 * Sets the cache to pin the entries of on-screen items in. This is typically the cache used by
+	 * the artwork data binder, so that bitmaps which are on screen are never evicted and decoded
+	 * again. Any pins held in the previous cache are released. This method must be called on the UI
+	 * thread.
+	 *
+	 * @param pinnedCache
+	 * 		the cache to use, null to disable pinning
+	 */
+	public void setPinnedCache(final PinnableItemCache<?> pinnedCache) {
+		if (this.pinnedCache != pinnedCache) {
+			unpinAll();
+			this.pinnedCache = pinnedCache;
+			updatePins();
+		}
+	}
+
+	/**
+	 * @return the number of items either side of the attached items which are pinned
+	 */
+	public int getPinMargin() {
+		return pinMargin;
+	}
+
+	/**
+	 * Sets the number of items either side of the attached items to pin. A margin keeps entries
+	 * pinned while they are briefly scrolled off screen. The default is 4. This method must be
+	 * called on the UI thread.
+	 *
+	 * @param pinMargin
+	 * 		the number of items, not less than zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code pinMargin} is less than zero
+	 */
+	public void setPinMargin(final int pinMargin) {
+		this.pinMargin = checkGreaterThanOrEqualTo(pinMargin, 0,
+				"pinMargin cannot be less than zero.");
+		updatePins();
+	}
+
+	/**
+	 * @return the total weight of the pinned entries in the pinned cache, which is a byte count when
+	 * the cache weighs artwork by size, zero if there is no pinned cache
+	 */
+	public long getPinnedBytes() {
+		return pinnedCache == null ? 0 : pinnedCache.getPinnedWeight();
+	}
+
+	/**
+	 * @return true if artwork is cleared from rows as they are detached from the window, false
+	 * otherwise
+	 */
+	public boolean getClearArtworkOnDetach() {
+		return clearArtworkOnDetach;
+	}
+
+	/**
+	 * Sets whether or not artwork should be cleared from rows as they are detached from the window.
+	 * Detached rows may be held in the RecyclerView's view cache, and clearing their artwork allows
+	 * the bitmaps to be freed once they are evicted from the artwork cache. A cleared row has its
+	 * artwork bound again if it is reattached without being rebound, which is usually immediate
+	 * since the artwork is still cached. Regardless of this setting, artwork is always cleared when
+	 * a row is recycled. The default is false.
+	 *
+	 * @param clearArtworkOnDetach
+	 * 		true to clear artwork on detach, false to retain it
+	 */
+	public void setClearArtworkOnDetach(final boolean clearArtworkOnDetach) {
+		this.clearArtworkOnDetach = clearArtworkOnDetach;
+	}
+
+	/**
+	 * @return true if styling is applied on every bind and style changes rebind every item, false
+	 * if styling is only applied when it is out of date
+	 */
+	public boolean getStyleOnEveryBind() {
+		return styleOnEveryBind;
+	}
+
+	/**
+	 * Sets whether or not styling is applied on every bind. By default, {@link
+	 * #onApplyStyle(BodyViewHolder)} is only called when the styling of a view holder is out of
+	 * date, and style changes restyle the attached view holders without rebinding them. Earlier
+	 * versions instead applied styling in {@link #onViewHolderBound(BodyViewHolder, LibraryItem)}
+	 * and rebound every item when the styling changed. Subclasses which still style view holders
+	 * in onViewHolderBound should move that styling into onApplyStyle, or enable this setting to
+	 * keep the earlier behaviour at the cost of restyling and rebinding more often. The default is
+	 * false.
+	 *
+	 * @param styleOnEveryBind
+	 * 		true to apply styling on every bind and rebind on style changes, false to only apply
+	 * 		styling when it is out of date
+	 */
+	public void setStyleOnEveryBind(final boolean styleOnEveryBind) {
+		this.styleOnEveryBind = styleOnEveryBind;
+	}
+
+	/**
+	 * @return true if the adapter uses stable IDs, false otherwise
+	 */
+	public boolean getStableIdsEnabled() {
+		return adapter.hasStableIds();
+	}
+
+	/**
+	 * Sets whether or not the adapter uses stable IDs. Stable IDs allow the RecyclerView to keep
+	 * view holders and animate changes when the whole list is replaced, but every displayed item
+	 * must then be an IdentifiableLibraryItem. The mode should be chosen once before any items are
+	 * set, since changing it detaches and reattaches the adapter, which discards the recycled views
+	 * and the scroll position. The default is false. This method must be called on the UI thread.
+	 *
+	 * @param stableIdsEnabled
+	 * 		true to use stable IDs, false to use positions
+	 */
+	public void setStableIdsEnabled(final boolean stableIdsEnabled) {
+		if (adapter.hasStableIds() != stableIdsEnabled) {
+			// RecyclerView only allows the mode to be changed while the adapter has no observers
+			recyclerView.setAdapter(null);
+			adapter.setHasStableIds(stableIdsEnabled);
+			recyclerView.setAdapter(adapter);
+		}
+	}
+
 	/**
 	 * Sets the color of the loading indicator.
 	 *
@@ -398,7 +611,46 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 	protected void onRecyclerViewCreated(final RecyclerView recyclerView) {}
 
 	/**
-	 * Called each time data binding completes. The default implementation does nothing.
+	 * Called when a view holder is bound and its styling is out of date, so that styling (colors,
+	 * visibility and so on) is only applied when it has changed rather than on every bind. The
+	 * default implementation does nothing.
+	 *
+	 * @param viewHolder
+	 * 		the view holder to style, not null
+	 */
+	protected void onApplyStyle(final BodyViewHolder viewHolder) {}
+
+	/**
+	 * Marks the styling of all view holders as out of date and restyles the holders which are
+	 * currently attached. Holders which are not attached are restyled when they are next attached
+	 * or bound. No data is rebound, so this method is cheap enough to call on every frame of an
+	 * animated style transition. Subclasses should call this method whenever a property used by
+	 * {@link #onApplyStyle(BodyViewHolder)} changes. If {@link #setStyleOnEveryBind(boolean)} is
+	 * enabled, every item is also rebound so that styling applied in {@link
+	 * #onViewHolderBound(BodyViewHolder, LibraryItem)} is updated.
+	 */
+	protected void invalidateStyle() {
+		styleVersion++;
+
+		for (int i = 0; i < recyclerView.getChildCount(); i++) {
+			final BodyViewHolder holder = (BodyViewHolder) recyclerView.getChildViewHolder(
+					recyclerView.getChildAt(i));
+
+			applyStyleIfStale(holder);
+		}
+
+		if (styleOnEveryBind) {
+			notifyItemsChanged();
+		}
+	}
+
+	/**
+	 * Called each time data binding completes. The default implementation does nothing. Styling
+	 * which depends on the properties of the body belongs in {@link
+	 * #onApplyStyle(BodyViewHolder)}, since this method is not called when the styling changes
+	 * unless {@link #setStyleOnEveryBind(boolean)} is enabled. Styling which depends on the data
+	 * may be applied here, but it must be reset on every bind because onApplyStyle is not called
+	 * on every bind.
 	 *
 	 * @param viewHolder
 	 * 		the view holder which data was bound to, not null
@@ -416,6 +668,15 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 	 */
 	protected abstract BodyViewHolder supplyNewBodyViewHolder(final ViewGroup parent);
 
+	@Override
+	protected void onLayout(final boolean changed, final int left, final int top, final int right,
+			final int bottom) {
+		super.onLayout(changed, left, top, right, bottom);
+
+		// The recycler view may have laid out new data without changing its visible range
+		updatePins();
+	}
+
 	/**
 	 * Initialises this view. This method should only be called from a constructor.
 	 */
@@ -433,8 +694,43 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		createAdapter();
 		recyclerView.setAdapter(adapter);
 
+		// Positions can't be matched to the pinned items once the data changes
+		adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+			@Override
+			public void onChanged() {
+				pinsStale = true;
+			}
+
+			@Override
+			public void onItemRangeChanged(final int positionStart, final int itemCount) {
+				pinsStale = true;
+			}
+
+			@Override
+			public void onItemRangeInserted(final int positionStart, final int itemCount) {
+				pinsStale = true;
+			}
+
+			@Override
+			public void onItemRangeRemoved(final int positionStart, final int itemCount) {
+				pinsStale = true;
+			}
+
+			@Override
+			public void onItemRangeMoved(final int fromPosition, final int toPosition,
+					final int itemCount) {
+				pinsStale = true;
+			}
+		});
+
 		// When the view is scrolled to the top, notify registered listeners
 		recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(final RecyclerView recyclerView, final int dx, final int dy) {
+				// Also called with no offset when a layout changes the visible range
+				updatePins();
+			}
+
 			@Override
 			public void onScrollStateChanged(RecyclerView recyclerView,
 					int newState) {
@@ -452,6 +748,126 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		});
 	}
 
+	/**
+	 * Pins the items between the first and last laid out children (plus the margin) in the pinned
+	 * cache, and releases any other pins. This is called once per scroll or layout pass rather than
+	 * per child. If the data is unchanged, only the items which have entered the range are pinned
+	 * and only the items which have left it are unpinned. New pins are taken before old pins are
+	 * released so that items which remain in range are never briefly unpinned. Layout positions are
+	 * used since they remain valid while adapter updates are pending.
+	 */
+	private void updatePins() {
+		if (pinnedCache == null) {
+			return;
+		}
+
+		final LinearLayoutManager layoutManager =
+				(LinearLayoutManager) recyclerView.getLayoutManager();
+		final int firstPosition = layoutManager.findFirstVisibleItemPosition();
+		final int lastPosition = layoutManager.findLastVisibleItemPosition();
+
+		final int oldStart = pinnedStart;
+		final int oldEnd = pinnedStart + pinnedItems.size() - 1;
+		final int newStart;
+		final int newEnd;
+
+		if (firstPosition == RecyclerView.NO_POSITION || lastPosition == RecyclerView.NO_POSITION) {
+			newStart = 0;
+			newEnd = -1;
+		} else {
+			newStart = Math.max(firstPosition - pinMargin, 0);
+			newEnd = Math.min(lastPosition + pinMargin, data.size() - 1);
+		}
+
+		if (!pinsStale && newStart == oldStart && newEnd == oldEnd) {
+			return;
+		}
+
+		for (int i = newStart; i <= newEnd; i++) {
+			if (!pinsStale && i >= oldStart && i <= oldEnd) {
+				// Already pinned, so just carry the pin over
+				nextPinnedItems.add(pinnedItems.get(i - oldStart));
+			} else {
+				final LibraryItem item = data.get(i);
+				nextPinnedItems.add(item);
+
+				if (item != null) {
+					pinnedCache.pin(item);
+				}
+			}
+		}
+
+		for (int i = oldStart; i <= oldEnd; i++) {
+			final LibraryItem item = pinnedItems.get(i - oldStart);
+
+			if (item != null && (pinsStale || i < newStart || i > newEnd)) {
+				pinnedCache.unpin(item);
+			}
+		}
+
+		// Swap the lists so that both backing arrays are reused by the next update
+		final ArrayList<LibraryItem> previousPinnedItems = pinnedItems;
+		previousPinnedItems.clear();
+		pinnedItems = nextPinnedItems;
+		nextPinnedItems = previousPinnedItems;
+		pinnedStart = newStart;
+		pinsStale = false;
+	}
+
+	/**
+	 * Returns the item currently bound to the supplied view holder.
+	 *
+	 * @param holder
+	 * 		the view holder to get the item of, not null
+	 * @return the item, null if the holder is not bound to a valid position
+	 */
+	private LibraryItem getBoundItem(final BodyViewHolder holder) {
+		final int position = holder.getAdapterPosition();
+
+		if (data == null || position == RecyclerView.NO_POSITION || position >= data.size()) {
+			return null;
+		}
+
+		return data.get(position);
+	}
+
+	/**
+	 * Cancels any binding in progress for the views of the supplied view holder, which also
+	 * releases the tasks held by the data binders.
+	 *
+	 * @param holder
+	 * 		the view holder to cancel the bindings of, not null
+	 */
+	private void cancelBindings(final BodyViewHolder holder) {
+		if (titleDataBinder != null) {
+			titleDataBinder.cancel(holder.getTitleTextView());
+		}
+
+		if (subtitleDataBinder != null) {
+			subtitleDataBinder.cancel(holder.getSubtitleTextView());
+		}
+
+		if (artworkDataBinder != null) {
+			artworkDataBinder.cancel(holder.getArtworkImageView());
+		}
+	}
+
+	/**
+	 * Releases all pins held in the pinned cache.
+	 */
+	private void unpinAll() {
+		if (pinnedCache != null) {
+			for (final LibraryItem item : pinnedItems) {
+				if (item != null) {
+					pinnedCache.unpin(item);
+				}
+			}
+		}
+
+		pinnedItems.clear();
+		pinsStale = true;
+	}
+
 	/**
 	 * Creates a new recycler view adapter but does not assign it to the recycler view.
 	 */
@@ -459,12 +875,43 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		adapter = new Adapter<BodyViewHolder>() {
 			@Override
 			public BodyViewHolder onCreateViewHolder(final ViewGroup parent, final int viewType) {
-				return supplyNewBodyViewHolder(parent);
+				final BodyViewHolder holder = supplyNewBodyViewHolder(parent);
+
+				// Listeners are created once per holder and look up the item when clicked
+				holder.getRootView().setOnClickListener(new OnClickListener() {
+					@Override
+					public void onClick(final View v) {
+						final LibraryItem item = getBoundItem(holder);
+
+						if (item != null) {
+							for (final LibraryItemSelectedListener listener :
+									libraryItemSelectedListeners) {
+								listener.onLibraryItemSelected(RecyclerBodyView.this, item);
+							}
+						}
+					}
+				});
+
+				final View overflowButton = holder.getContextualMenuButton();
+				overflowButton.setOnClickListener(new OnClickListener() {
+					@Override
+					public void onClick(final View v) {
+						final LibraryItem item = getBoundItem(holder);
+
+						// If the resource hasn't been set, inflating the menu will fail
+						if (item != null && contextualMenuResourceId != -1) {
+							showMenu(overflowButton, item);
+						}
+					}
+				});
+
+				return holder;
 			}
 
 			@Override
 			public void onBindViewHolder(final BodyViewHolder holder, final int position) {
-				final LibraryItem dataItem = data.get(holder.getAdapterPosition());
+				final LibraryItem dataItem = data.get(position);
+				clearedHolders.remove(holder);
 
 				if (titleDataBinder != null) {
 					titleDataBinder.bind(holder.getTitleTextView(), dataItem);
@@ -484,31 +931,82 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 					Timber.w("No artwork data binder set, could not bind artwork.");
 				}
 
-				holder.getRootView().setOnClickListener(new OnClickListener() {
-					@Override
-					public void onClick(final View v) {
-						for (final LibraryItemSelectedListener listener :
-								libraryItemSelectedListeners) {
-							listener.onLibraryItemSelected(RecyclerBodyView.this, dataItem);
-						}
-					}
-				});
-
-				final View overflowButton = holder.getContextualMenuButton();
-				overflowButton.setOnClickListener(new OnClickListener() {
-					@Override
-					public void onClick(final View v) {
-						// If the resource hasn't been set, inflating the menu will fail
-						if (contextualMenuResourceId != -1) {
-							showMenu(overflowButton, dataItem);
-						}
-					}
-				});
+				applyStyleIfStale(holder);
 
 				// Allow further customisation by subclasses
 				onViewHolderBound(holder, dataItem);
 			}
 
+			@Override
+			public void onBindViewHolder(final BodyViewHolder holder, final int position,
+					final List<Object> payloads) {
+				final int changedFields = getChangedFields(payloads);
+
+				if (changedFields == LibraryItemFields.ALL || clearedHolders.contains(holder)) {
+					onBindViewHolder(holder, position);
+					return;
+				}
+
+				final LibraryItem dataItem = data.get(position);
+
+				if (titleDataBinder != null &&
+						LibraryItemFields.contains(changedFields, LibraryItemFields.TITLE)) {
+					titleDataBinder.bind(holder.getTitleTextView(), dataItem);
+				}
+
+				if (subtitleDataBinder != null &&
+						LibraryItemFields.contains(changedFields, LibraryItemFields.SUBTITLE)) {
+					subtitleDataBinder.bind(holder.getSubtitleTextView(), dataItem);
+				}
+
+				// Unchanged artwork is left in place so that it doesn't fade in again
+				if (artworkDataBinder != null &&
+						LibraryItemFields.contains(changedFields, LibraryItemFields.ARTWORK)) {
+					artworkDataBinder.bind(holder.getArtworkImageView(), dataItem);
+				}
+
+				applyStyleIfStale(holder);
+				onViewHolderBound(holder, dataItem);
+			}
+
+			@Override
+			public void onViewAttachedToWindow(final BodyViewHolder holder) {
+				// Rows reattached from the view cache are not rebound, so restore cleared artwork
+				final int position = holder.getAdapterPosition();
+				applyStyleIfStale(holder);
+
+				if (clearedHolders.remove(holder) && artworkDataBinder != null &&
+						position != RecyclerView.NO_POSITION) {
+					artworkDataBinder.bind(holder.getArtworkImageView(), data.get(position));
+				}
+			}
+
+			@Override
+			public void onViewDetachedFromWindow(final BodyViewHolder holder) {
+				if (clearArtworkOnDetach) {
+					if (artworkDataBinder != null) {
+						artworkDataBinder.cancel(holder.getArtworkImageView());
+					}
+
+					holder.getArtworkImageView().setImageDrawable(null);
+					clearedHolders.add(holder);
+				}
+			}
+
+			@Override
+			public void onViewRecycled(final BodyViewHolder holder) {
+				// Pooled views must not keep loading data or hold references to large drawables
+				cancelBindings(holder);
+				holder.getArtworkImageView().setImageDrawable(null);
+				clearedHolders.remove(holder);
+			}
+
+			@Override
+			public long getItemId(final int position) {
+				// Only used when stable IDs are enabled, which requires all items to have an ID
+				return StableIdUtil.getItemId(data.get(position));
+			}
+
 			@Override
 			public int getItemCount() {
 				return data == null ? 0 : data.size();
@@ -516,6 +1014,48 @@ public abstract class RecyclerBodyView extends FrameLayout implements BodyView {
 		};
 	}
 
+	/**
+	 * Applies the current styling to the supplied view holder, unless it has already been applied
+	 * since the styling last changed and styling is not applied on every bind.
+	 *
+	 * @param holder
+	 * 		the view holder to style, not null
+	 */
+	private void applyStyleIfStale(final BodyViewHolder holder) {
+		if (styleOnEveryBind || holder.getStyleVersion() != styleVersion) {
+			onApplyStyle(holder);
+			holder.setStyleVersion(styleVersion);
+		}
+	}
+
+	/**
+	 * Combines the changed field flags contained in the supplied adapter payloads. Payloads are
+	 * merged by the RecyclerView when several changes are made to the same item before it is
+	 * rebound, and an empty list signifies a full rebind.
+	 *
+	 * @param payloads
+	 * 		the payloads to combine, not null
+	 * @return the combined flags, {@link LibraryItemFields#ALL} if any payload is not a set of
+	 * flags or if there are no payloads
+	 */
+	private static int getChangedFields(final List<Object> payloads) {
+		if (payloads.isEmpty()) {
+			return LibraryItemFields.ALL;
+		}
+
+		int changedFields = LibraryItemFields.NONE;
+
+		for (final Object payload : payloads) {
+			if (payload instanceof Integer) {
+				changedFields |= (Integer) payload;
+			} else {
+				return LibraryItemFields.ALL;
+			}
+		}
+
+		return changedFields;
+	}
+
 	/**
 	 * Shows a contextual popup menu anchored to the supplied view. Item selections are passed to
 	 * the presenter.
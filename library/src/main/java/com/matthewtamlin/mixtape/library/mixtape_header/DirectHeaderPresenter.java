@@ -19,11 +19,21 @@ package com.matthewtamlin.mixtape.library.mixtape_header;
 import com.matthewtamlin.java_utilities.testing.Tested;
 import com.matthewtamlin.mixtape.library.base_mvp.BaseDataSource;
 import com.matthewtamlin.mixtape.library.base_mvp.BasePresenter;
+import com.matthewtamlin.mixtape.library.base_mvp.LoadPolicy;
 import com.matthewtamlin.mixtape.library.data.LibraryItem;
 
+import java.lang.ref.WeakReference;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
 /**
  * A simple implementation of the HeaderContract.Presenter interface where the LibraryItem returned
  * by the data source is directly reflected in the view.
+ * <p>
+ * The presenter retains the last item delivered by the data source, and shows it in newly attached
+ * views immediately. Whether the data source is also asked to refresh is determined by the {@link
+ * LoadPolicy}. Events delivered while no view is attached are remembered, and applied if the
+ * same view is attached again.
  *
  * @param <S>
  * 		the type of data source
@@ -33,6 +43,11 @@ import com.matthewtamlin.mixtape.library.data.LibraryItem;
 @Tested(testMethod = "automated")
 public class DirectHeaderPresenter<D extends LibraryItem, S extends BaseDataSource<D>,
 		V extends HeaderView> implements BasePresenter<S, V>, BaseDataSource.FullListener<D> {
+	/**
+	 * The default age in milliseconds after which the retained item is considered stale.
+	 */
+	public static final long DEFAULT_MAX_SNAPSHOT_AGE = 5 * 60 * 1000;
+
 	/**
 	 * The data source supplying the LibraryItems.
 	 */
@@ -43,14 +58,57 @@ public class DirectHeaderPresenter<D extends LibraryItem, S extends BaseDataSour
 	 */
 	private V view;
 
+	/**
+	 * The last view which was detached from this presenter. Used to determine whether a newly
+	 * attached view already shows the retained item.
+	 */
+	private WeakReference<V> detachedView;
+
+	/**
+	 * The last item delivered by the data source.
+	 */
+	private D snapshot;
+
+	/**
+	 * Whether or not {@link #snapshot} holds the result of a successful load.
+	 */
+	private boolean hasSnapshot = false;
+
+	/**
+	 * The value of {@link System#nanoTime()} when the snapshot was taken.
+	 */
+	private long snapshotTime;
+
+	/**
+	 * Whether or not the item was replaced while no view was attached.
+	 */
+	private boolean pendingReplace = false;
+
+	/**
+	 * Whether or not the item was modified while no view was attached.
+	 */
+	private boolean pendingModify = false;
+
+	/**
+	 * Determines whether the data source is asked to refresh when a view is attached.
+	 */
+	private LoadPolicy loadPolicy = LoadPolicy.CACHE_FIRST;
+
+	/**
+	 * The age in milliseconds after which the snapshot is considered stale.
+	 */
+	private long maxSnapshotAge = DEFAULT_MAX_SNAPSHOT_AGE;
+
 	@Override
 	public final void setDataSource(final S dataSource) {
 		unsubscribeFromDataSourceCallbacks(this.dataSource);
 		this.dataSource = dataSource;
 		subscribeToDataSourceCallbacks(this.dataSource);
 
+		discardSnapshot();
+
 		if (dataSource != null) {
-			dataSource.loadData(true, this); // Register this class for callbacks
+			dataSource.loadData(false, this); // Register this class for callbacks
 		} else if (view != null) {
 			view.setItem(null);
 		}
@@ -63,10 +121,18 @@ public class DirectHeaderPresenter<D extends LibraryItem, S extends BaseDataSour
 
 	@Override
 	public void setView(final V view) {
+		if (this.view != null) {
+			detachedView = new WeakReference<>(this.view);
+		}
+
 		this.view = view;
 
-		if (dataSource != null) {
-			dataSource.loadData(true, this); // Register this class for callbacks
+		if (view != null) {
+			restoreSnapshot();
+
+			if (dataSource != null && shouldLoad()) {
+				dataSource.loadData(hasSnapshot, this); // Register this class for callbacks
+			}
 		}
 	}
 
@@ -76,31 +142,27 @@ public class DirectHeaderPresenter<D extends LibraryItem, S extends BaseDataSour
 	}
 
 	@Override
-	public void onDataLoaded(final BaseDataSource source, final LibraryItem data) {
-		if (view != null) {
-			view.setItem(data);
-		}
+	public void onDataLoaded(final BaseDataSource<D> source, final D data) {
+		takeSnapshot(data, true);
 	}
 
 	@Override
 	public void onLoadDataFailed(final BaseDataSource source) {
-		if (view != null) {
-			view.setItem(null);
-		}
+		takeSnapshot(null, false);
 	}
 
 	@Override
 	public void onDataModified(final BaseDataSource<D> source, final D data) {
 		if (view != null) {
 			view.notifyItemChanged();
+		} else {
+			pendingModify = true;
 		}
 	}
 
 	@Override
 	public void onDataReplaced(final BaseDataSource<D> source, final D oldData, final D newData) {
-		if (view != null) {
-			view.setItem(newData);
-		}
+		takeSnapshot(newData, true);
 	}
 
 	@Override
@@ -113,6 +175,125 @@ public class DirectHeaderPresenter<D extends LibraryItem, S extends BaseDataSour
 		// Do nothing since the view doesn't have a loading indicator
 	}
 
+	/**
+	 * Sets the policy which determines whether the data source is asked to refresh when a view is
+	 * attached. The default policy is {@link LoadPolicy#CACHE_FIRST}.
+	 *
+	 * @param loadPolicy
+	 * 		the policy to use, not null
+	 * @throws IllegalArgumentException
+	 * 		if {@code loadPolicy} is null
+	 */
+	public void setLoadPolicy(final LoadPolicy loadPolicy) {
+		this.loadPolicy = checkNotNull(loadPolicy, "loadPolicy cannot be null.");
+	}
+
+	/**
+	 * @return the policy which determines whether the data source is asked to refresh when a view
+	 * is attached
+	 */
+	public LoadPolicy getLoadPolicy() {
+		return loadPolicy;
+	}
+
+	/**
+	 * Sets the age after which the retained item is considered stale when using {@link
+	 * LoadPolicy#REFRESH_IF_STALE}.
+	 *
+	 * @param maxSnapshotAge
+	 * 		the maximum age in milliseconds, at least zero
+	 * @throws IllegalArgumentException
+	 * 		if {@code maxSnapshotAge} is less than zero
+	 */
+	public void setMaxSnapshotAge(final long maxSnapshotAge) {
+		if (maxSnapshotAge < 0) {
+			throw new IllegalArgumentException("maxSnapshotAge cannot be less than 0.");
+		}
+
+		this.maxSnapshotAge = maxSnapshotAge;
+	}
+
+	/**
+	 * @return the age in milliseconds after which the retained item is considered stale
+	 */
+	public long getMaxSnapshotAge() {
+		return maxSnapshotAge;
+	}
+
+	/**
+	 * Retains the result of a load or replacement, and shows it in the view if there is one.
+	 *
+	 * @param data
+	 * 		the item to retain, may be null
+	 * @param successful
+	 * 		true if the item was delivered successfully, false if the load failed
+	 */
+	private void takeSnapshot(final D data, final boolean successful) {
+		snapshot = data;
+		hasSnapshot = successful;
+		snapshotTime = System.nanoTime();
+
+		if (view != null) {
+			view.setItem(data);
+		} else {
+			pendingReplace = true;
+			pendingModify = false;
+		}
+	}
+
+	/**
+	 * Discards the retained item and any pending events.
+	 */
+	private void discardSnapshot() {
+		snapshot = null;
+		hasSnapshot = false;
+		pendingReplace = false;
+		pendingModify = false;
+		detachedView = null;
+	}
+
+	/**
+	 * Shows the retained item in the newly attached view. If the view was the last view to be
+	 * detached it already shows the item, so only the events which occurred in the meantime are
+	 * applied.
+	 */
+	private void restoreSnapshot() {
+		final boolean reattached = detachedView != null && detachedView.get() == view;
+
+		if (reattached && !pendingReplace) {
+			if (pendingModify) {
+				view.notifyItemChanged();
+			}
+		} else if (hasSnapshot || pendingReplace) {
+			view.setItem(snapshot);
+		}
+
+		pendingReplace = false;
+		pendingModify = false;
+		detachedView = null;
+	}
+
+	/**
+	 * @return true if the data source should be asked to load after a view is attached, false
+	 * otherwise
+	 */
+	private boolean shouldLoad() {
+		if (!hasSnapshot) {
+			return true;
+		}
+
+		switch (loadPolicy) {
+			case ALWAYS:
+				return true;
+
+			case REFRESH_IF_STALE:
+				return (System.nanoTime() - snapshotTime) / 1000000 > maxSnapshotAge;
+
+			default:
+				return false;
+		}
+	}
+
 	/**
 	 * Unsubscribes this presenter from all data source callbacks.
 	 *